@@ -0,0 +1,105 @@
+package io.github.matian2014.candys3;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of parsing the XML of list responses with 1000 entries, which is the size of a full page.
+ * <p>
+ * It's in the package of CandyS3 to call the package-private parsers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ListResponseParseBenchmark {
+
+    private static final int ENTRIES = 1000;
+    private static final String OWNER = "<Owner><ID>75aa57f09aa0c8caeab4f8c24e99d10f8e7faeebf76c078efc7c6caea54ba06a</ID>"
+            + "<DisplayName>mtd@amazon.com</DisplayName></Owner>";
+
+    private CandyS3 candyS3;
+    private Request request;
+    private byte[] listObjectsXml;
+    private byte[] listObjectVersionsXml;
+    private byte[] listPartsXml;
+
+    @Setup
+    public void setup() {
+        candyS3 = new CandyS3(S3Provider.AWS);
+        request = new Request.Builder().url("https://examplebucket.s3.us-east-1.amazonaws.com/").build();
+
+        StringBuilder objects = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>examplebucket</Name>"
+                + "<Prefix>photos/</Prefix><KeyCount>" + ENTRIES + "</KeyCount><MaxKeys>" + ENTRIES + "</MaxKeys>"
+                + "<IsTruncated>true</IsTruncated>");
+        StringBuilder versions = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Name>examplebucket</Name>"
+                + "<Prefix>photos/</Prefix><KeyMarker></KeyMarker><VersionIdMarker></VersionIdMarker>"
+                + "<MaxKeys>" + ENTRIES + "</MaxKeys><IsTruncated>true</IsTruncated>");
+        StringBuilder parts = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<ListPartsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\"><Bucket>examplebucket</Bucket>"
+                + "<Key>photos/object.data</Key><UploadId>XXBsb2FkIElEIGZvciBlbHZpbmcncyBteS1tb3ZpZS5tMnRzIHVwbG9hZA</UploadId>"
+                + "<MaxParts>" + ENTRIES + "</MaxParts><IsTruncated>true</IsTruncated>");
+        for (int i = 0; i < ENTRIES; i++) {
+            String key = "photos/2024/" + String.format("%06d", i) + ".jpg";
+            String eTag = "&quot;" + String.format("%032x", i) + "&quot;";
+            objects.append("<Contents><Key>").append(key).append("</Key><LastModified>2024-01-01T00:00:00.000Z</LastModified>")
+                    .append("<ETag>").append(eTag).append("</ETag><Size>").append(1024 + i).append("</Size>")
+                    .append("<StorageClass>STANDARD</StorageClass>").append(OWNER).append("</Contents>");
+            versions.append("<Version><Key>").append(key).append("</Key><VersionId>3HL4kqtJlcpXroDTDmJ+rmSpXd3dIbrHY")
+                    .append(String.format("%06d", i)).append("</VersionId><IsLatest>true</IsLatest>")
+                    .append("<LastModified>2024-01-01T00:00:00.000Z</LastModified><ETag>").append(eTag).append("</ETag>")
+                    .append("<Size>").append(1024 + i).append("</Size><StorageClass>STANDARD</StorageClass>").append(OWNER)
+                    .append("</Version>");
+            parts.append("<Part><PartNumber>").append(i + 1).append("</PartNumber>")
+                    .append("<LastModified>2024-01-01T00:00:00.000Z</LastModified><ETag>").append(eTag).append("</ETag>")
+                    .append("<Size>5242880</Size></Part>");
+        }
+        objects.append("<NextContinuationToken>1ueGcxLPRx1Tr/XYExHnhbYLgveDs2J/wm36Hy4vbOwM=</NextContinuationToken></ListBucketResult>");
+        versions.append("<NextKeyMarker>photos/2024/000999.jpg</NextKeyMarker><NextVersionIdMarker>3HL4kqtJlcpXroDTDmJ</NextVersionIdMarker>"
+                + "</ListVersionsResult>");
+        parts.append("<NextPartNumberMarker>").append(ENTRIES).append("</NextPartNumberMarker></ListPartsResult>");
+        listObjectsXml = objects.toString().getBytes(StandardCharsets.UTF_8);
+        listObjectVersionsXml = versions.toString().getBytes(StandardCharsets.UTF_8);
+        listPartsXml = parts.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Object parseListObjects() throws IOException {
+        return ListObjectsResponseParser.parseListObjects(new ByteArrayInputStream(listObjectsXml));
+    }
+
+    @Benchmark
+    public Object parseListObjectVersions() throws IOException {
+        return ListObjectsResponseParser.parseListObjectVersions(new ByteArrayInputStream(listObjectVersionsXml));
+    }
+
+    /**
+     * ListParts is parsed by the tree model of Jackson.
+     */
+    @Benchmark
+    public Object parseListParts() throws IOException {
+        return candyS3.parseListPartsResponse(response(listPartsXml));
+    }
+
+    private Response response(byte[] body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, MediaType.get("application/xml")))
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.matian2014.candys3.benchmark;
+
+import io.github.matian2014.candys3.signer.BinaryUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the hex encoding of hashes and signatures, and the Content-MD5 of payloads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BinaryUtilsBenchmark {
+
+    /** The size of the payload to compute the MD5 of, from a small object to a part. */
+    @Param({"1024", "1048576", "8388608"})
+    private int payloadSize;
+
+    private byte[] sha256;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        sha256 = new byte[32];
+        random.nextBytes(sha256);
+        payload = new byte[payloadSize];
+        random.nextBytes(payload);
+    }
+
+    @Benchmark
+    public String toHex() {
+        return BinaryUtils.toHex(sha256);
+    }
+
+    @Benchmark
+    public String md5() throws NoSuchAlgorithmException {
+        return BinaryUtils.md5(payload, 0, payload.length);
+    }
+}
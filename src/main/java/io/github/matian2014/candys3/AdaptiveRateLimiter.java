@@ -0,0 +1,426 @@
+package io.github.matian2014.candys3;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Limits the requests in flight to each bucket, or to each key prefix of a bucket, and adapts the limits to the throttling of the server,
+ * set it with {@link CandyS3#setRateLimiter(AdaptiveRateLimiter)}.
+ * <p>
+ * The limits follow AIMD: each successful request increases the limit of its partition by additiveIncrease / limit,
+ * which is about additiveIncrease per round of requests, and a throttled request, which is a '503 Slow Down' or '429 Too Many Requests' response,
+ * multiplies it by decreaseFactor. The requests sent before the last decrease don't decrease the limit again,
+ * so a burst of throttled responses to concurrent requests decreases it once.
+ * A request waits until its partition has room for it, each retry of a request is limited like a new request.
+ * <p>
+ * The requests without a bucket, like ListBuckets, are not limited. A limiter can be shared by many clients.
+ */
+public final class AdaptiveRateLimiter {
+
+    private static final long WAIT_SLICE_MILLIS = 100;
+
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double decreaseFactor;
+    private final double additiveIncrease;
+    private final int prefixDepth;
+    private final int maxPartitions;
+
+    // guarded by this, in order of creation
+    private final LinkedHashMap<String, Partition> partitions = new LinkedHashMap<>();
+
+    private AdaptiveRateLimiter(int initialLimit, int minLimit, int maxLimit, double decreaseFactor,
+                                double additiveIncrease, int prefixDepth, int maxPartitions) {
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.decreaseFactor = decreaseFactor;
+        this.additiveIncrease = additiveIncrease;
+        this.prefixDepth = prefixDepth;
+        this.maxPartitions = maxPartitions;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public double getAdditiveIncrease() {
+        return additiveIncrease;
+    }
+
+    public int getPrefixDepth() {
+        return prefixDepth;
+    }
+
+    /**
+     * @return the current state of each partition, in order of creation.
+     */
+    public synchronized List<PartitionStats> getPartitionStats() {
+        List<PartitionStats> stats = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                stats.add(new PartitionStats(partition.name, (int) partition.limit, partition.inFlight, partition.throttleCount));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @param bucket the bucket name.
+     * @param objectKey the object key, empty for the requests of a bucket.
+     * @return the current limit of the partition of the object, initialLimit if no requests are sent to it.
+     */
+    public int getLimit(String bucket, String objectKey) {
+        Partition partition;
+        synchronized (this) {
+            partition = partitions.get(partitionOf(bucket, objectKey));
+        }
+        if (partition == null) {
+            return initialLimit;
+        }
+        synchronized (partition) {
+            return (int) partition.limit;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveRateLimiter{" +
+                "initialLimit=" + initialLimit +
+                ", minLimit=" + minLimit +
+                ", maxLimit=" + maxLimit +
+                ", decreaseFactor=" + decreaseFactor +
+                ", additiveIncrease=" + additiveIncrease +
+                ", prefixDepth=" + prefixDepth +
+                ", partitions=" + getPartitionStats() +
+                '}';
+    }
+
+    /**
+     * The partition of an object is its bucket, followed by the first prefixDepth segments of its key delimited by '/'.
+     */
+    String partitionOf(String bucket, String objectKey) {
+        if (prefixDepth == 0 || objectKey == null) {
+            return bucket + "/";
+        }
+        int end = 0;
+        for (int depth = 0; depth < prefixDepth; depth++) {
+            int delimiter = objectKey.indexOf('/', end);
+            if (delimiter < 0) {
+                break;
+            }
+            end = delimiter + 1;
+        }
+        return bucket + "/" + objectKey.substring(0, end);
+    }
+
+    /**
+     * Waits until the partition of the object has room for a request.
+     *
+     * @param canceled returns whether the request is canceled, it's checked while waiting.
+     * @return the permit of the request, it must be released when the response is received or the request fails.
+     * @throws InterruptedIOException if the thread is interrupted or the request is canceled while waiting.
+     */
+    Permit acquire(String bucket, String objectKey, BooleanSupplier canceled) throws InterruptedIOException {
+        // The partition is not forgotten while the request is pending on it, so all requests of a partition share one state.
+        Partition partition = partition(partitionOf(bucket, objectKey));
+        synchronized (partition) {
+            try {
+                while (partition.inFlight >= (int) partition.limit) {
+                    if (canceled.getAsBoolean()) {
+                        throw new InterruptedIOException("Canceled when wait for the rate limit.");
+                    }
+                    partition.wait(WAIT_SLICE_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted when wait for the rate limit.");
+            } finally {
+                partition.pending--;
+            }
+            partition.inFlight++;
+            return new Permit(partition, partition.decreaseCount);
+        }
+    }
+
+    /**
+     * @return the partition of the name, counting the caller as pending on it.
+     */
+    private synchronized Partition partition(String name) {
+        Partition partition = partitions.get(name);
+        if (partition == null) {
+            if (partitions.size() >= maxPartitions) {
+                // forget the idle partitions, oldest first
+                Iterator<Partition> iterator = partitions.values().iterator();
+                while (partitions.size() >= maxPartitions && iterator.hasNext()) {
+                    Partition idle = iterator.next();
+                    synchronized (idle) {
+                        if (idle.inFlight == 0 && idle.pending == 0) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+            partition = new Partition(name, initialLimit);
+            partitions.put(name, partition);
+        }
+        synchronized (partition) {
+            partition.pending++;
+        }
+        return partition;
+    }
+
+    /**
+     * The right to send a request in a partition.
+     */
+    final class Permit {
+        private final Partition partition;
+        // the number of decreases of the partition when the request is sent
+        private final long decreaseCount;
+        private boolean released;
+
+        private Permit(Partition partition, long decreaseCount) {
+            this.partition = partition;
+            this.decreaseCount = decreaseCount;
+        }
+
+        /**
+         * The request is accepted by the server, whatever its result is.
+         */
+        void onSuccess() {
+            synchronized (partition) {
+                if (release()) {
+                    partition.limit = Math.min(maxLimit, partition.limit + additiveIncrease / partition.limit);
+                }
+            }
+        }
+
+        /**
+         * The server throttled the request.
+         */
+        void onThrottled() {
+            synchronized (partition) {
+                if (release()) {
+                    partition.throttleCount++;
+                    if (decreaseCount == partition.decreaseCount) {
+                        partition.limit = Math.max(minLimit, partition.limit * decreaseFactor);
+                        partition.decreaseCount++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * The request failed without a response, the limit is not changed.
+         */
+        void onFailure() {
+            synchronized (partition) {
+                release();
+            }
+        }
+
+        // guarded by partition
+        private boolean release() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            partition.inFlight--;
+            partition.notifyAll();
+            return true;
+        }
+    }
+
+    private static final class Partition {
+        private final String name;
+        // guarded by this
+        private double limit;
+        private int inFlight;
+        // the requests which got the partition and have not taken their slot yet
+        private int pending;
+        private long decreaseCount;
+        private long throttleCount;
+
+        Partition(String name, double limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * A snapshot of the state of a partition.
+     */
+    public static final class PartitionStats {
+        private final String partition;
+        private final int limit;
+        private final int inFlight;
+        private final long throttleCount;
+
+        PartitionStats(String partition, int limit, int inFlight, long throttleCount) {
+            this.partition = partition;
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.throttleCount = throttleCount;
+        }
+
+        /**
+         * @return the bucket followed by '/' and the key prefix of the partition, like 'bucket/' or 'bucket/logs/'.
+         */
+        public String getPartition() {
+            return partition;
+        }
+
+        /**
+         * @return the maximum number of requests in flight.
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        public int getInFlight() {
+            return inFlight;
+        }
+
+        /**
+         * @return the number of throttled responses.
+         */
+        public long getThrottleCount() {
+            return throttleCount;
+        }
+
+        @Override
+        public String toString() {
+            return "PartitionStats{" +
+                    "partition='" + partition + '\'' +
+                    ", limit=" + limit +
+                    ", inFlight=" + inFlight +
+                    ", throttleCount=" + throttleCount +
+                    '}';
+        }
+    }
+
+    public static final class AdaptiveRateLimiterBuilder {
+        private int initialLimit = 32;
+        private int minLimit = 1;
+        private int maxLimit = 512;
+        private double decreaseFactor = 0.5;
+        private double additiveIncrease = 1;
+        private int prefixDepth;
+        private int maxPartitions = 1024;
+
+        public AdaptiveRateLimiter build() {
+            if (minLimit < 1) {
+                throw new IllegalArgumentException("minLimit must be a positive integer.");
+            }
+            if (maxLimit < minLimit) {
+                throw new IllegalArgumentException("maxLimit must not be less than minLimit.");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit.");
+            }
+            if (!(decreaseFactor > 0 && decreaseFactor < 1)) {
+                throw new IllegalArgumentException("decreaseFactor must be greater than 0 and less than 1.");
+            }
+            if (!(additiveIncrease > 0)) {
+                throw new IllegalArgumentException("additiveIncrease must be positive.");
+            }
+            if (prefixDepth < 0) {
+                throw new IllegalArgumentException("prefixDepth must not be negative.");
+            }
+            if (maxPartitions < 1) {
+                throw new IllegalArgumentException("maxPartitions must be a positive integer.");
+            }
+            return new AdaptiveRateLimiter(initialLimit, minLimit, maxLimit, decreaseFactor, additiveIncrease,
+                    prefixDepth, maxPartitions);
+        }
+
+        /**
+         * The limit of a partition before any response, 32 by default.
+         * @param initialLimit the number of requests in flight.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder initialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * The lower bound of the limits, 1 by default.
+         * @param minLimit the number of requests in flight.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder minLimit(int minLimit) {
+            this.minLimit = minLimit;
+            return this;
+        }
+
+        /**
+         * The upper bound of the limits, 512 by default.
+         * @param maxLimit the number of requests in flight.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder maxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * The factor to multiply the limit of a partition by when a request is throttled, 0.5 by default.
+         * @param decreaseFactor a number between 0 and 1, exclusive.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder decreaseFactor(double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+            return this;
+        }
+
+        /**
+         * How much the limit of a partition increases after a round of successful requests, 1 by default.
+         * @param additiveIncrease the number of requests in flight.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder additiveIncrease(double additiveIncrease) {
+            this.additiveIncrease = additiveIncrease;
+            return this;
+        }
+
+        /**
+         * Limits the objects of a bucket separately by the first prefixDepth segments of their keys, delimited by '/'.
+         * 0 by default, which limits each bucket as a whole.
+         * @param prefixDepth the number of key segments.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder prefixDepth(int prefixDepth) {
+            this.prefixDepth = prefixDepth;
+            return this;
+        }
+
+        /**
+         * The maximum number of partitions to keep, the idle partitions are forgotten first when it's exceeded. 1024 by default.
+         * @param maxPartitions the number of partitions.
+         * @return this builder.
+         */
+        public AdaptiveRateLimiterBuilder maxPartitions(int maxPartitions) {
+            this.maxPartitions = maxPartitions;
+            return this;
+        }
+    }
+}
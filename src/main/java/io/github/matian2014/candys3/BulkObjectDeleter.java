@@ -0,0 +1,153 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.options.DeleteObjectsBatchOptions;
+import io.github.matian2014.candys3.options.DeleteObjectsBulkOptions;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Deletes the objects of an iterator with DeleteObjects requests.
+ * <p>
+ * The iterator is cut into batches as it's consumed, and at most concurrency batches are in flight,
+ * so the objects held in memory are bounded no matter how many objects are deleted.
+ * The objects which fail with a transient error are retried in a new request with backoff.
+ */
+final class BulkObjectDeleter {
+
+    /** Error codes of DeleteObjects entries which may succeed when retried. **/
+    private static final Set<String> RETRYABLE_ERROR_CODES = new HashSet<>(Arrays.asList(
+            "InternalError", "SlowDown", "ServiceUnavailable", "RequestTimeout", "OperationAborted"));
+    private static final long BASE_RETRY_DELAY_MILLIS = 100;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
+    private final CandyS3 candyS3;
+    private final String bucket;
+    private final DeleteObjectsBulkOptions options;
+    private final int concurrency;
+
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final Queue<DeleteObjectsBatchResult.DeleteError> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    BulkObjectDeleter(CandyS3 candyS3, String bucket, DeleteObjectsBulkOptions options) {
+        this.candyS3 = candyS3;
+        this.bucket = bucket;
+        this.options = options;
+        this.concurrency = options.getConcurrency() == null ? candyS3.getTransferConcurrency() : options.getConcurrency();
+    }
+
+    DeleteObjectsBulkResult delete(Iterator<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> items) throws IOException {
+        if (StringUtils.isEmpty(bucket)) {
+            throw new IllegalArgumentException("bucket is required.");
+        }
+
+        ExecutorService executor = candyS3.getTransferExecutor();
+        Semaphore permits = new Semaphore(concurrency);
+        try {
+            try {
+                while (failure.get() == null && items.hasNext()) {
+                    List<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> batch = new ArrayList<>(options.getBatchSize());
+                    while (batch.size() < options.getBatchSize() && items.hasNext()) {
+                        batch.add(items.next());
+                    }
+
+                    permits.acquire();
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                deleteBatch(batch);
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        permits.release();
+                        throw e;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // The items may come from a listing which fails, stop sending batches but wait for those in flight.
+                failure.compareAndSet(null, e);
+            }
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when wait for delete batches.");
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IOException(t);
+        }
+        return new DeleteObjectsBulkResult(deletedCount.get(), batchCount.get(), retriedCount.get(), new ArrayList<>(errors));
+    }
+
+    private void deleteBatch(List<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> batch) throws Exception {
+        List<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> pending = batch;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(Math.min(MAX_RETRY_DELAY_MILLIS, BASE_RETRY_DELAY_MILLIS << Math.min(attempt - 1, 16)));
+            }
+            if (failure.get() != null) {
+                return;
+            }
+
+            DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder builder = new DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder()
+                    .addDeleteObjectItems(pending)
+                    .quiet();
+            if (options.isBypassGovernanceRetention()) {
+                builder.bypassGovernanceRetention();
+            }
+            DeleteObjectsBatchResult result = candyS3.deleteObjectsBatch(bucket, builder.build());
+            batchCount.incrementAndGet();
+
+            List<DeleteObjectsBatchResult.DeleteError> batchErrors = result.getErrors() == null
+                    ? Collections.emptyList() : result.getErrors();
+            deletedCount.addAndGet(pending.size() - batchErrors.size());
+
+            List<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> retries = new ArrayList<>();
+            Map<String, DeleteObjectsBatchOptions.DeleteObjectsBatchItem> pendingItems = null;
+            for (DeleteObjectsBatchResult.DeleteError error : batchErrors) {
+                if (attempt < options.getMaxRetries() && RETRYABLE_ERROR_CODES.contains(error.getCode())) {
+                    if (pendingItems == null) {
+                        pendingItems = new HashMap<>(pending.size() * 2);
+                        for (DeleteObjectsBatchOptions.DeleteObjectsBatchItem item : pending) {
+                            pendingItems.put(itemKey(item.getKey(), item.getVersionId()), item);
+                        }
+                    }
+                    DeleteObjectsBatchOptions.DeleteObjectsBatchItem item = pendingItems.remove(itemKey(error.getKey(), error.getVersionId()));
+                    if (item != null) {
+                        retries.add(item);
+                        continue;
+                    }
+                }
+                errors.add(error);
+            }
+            retriedCount.addAndGet(retries.size());
+            pending = retries;
+        }
+    }
+
+    private static String itemKey(String key, String versionId) {
+        return key + "\n" + StringUtils.defaultString(versionId);
+    }
+}
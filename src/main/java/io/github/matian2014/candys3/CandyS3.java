@@ -20,11 +20,22 @@ import org.apache.commons.lang3.StringUtils;
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 public class CandyS3 {
 
@@ -60,6 +71,7 @@ public class CandyS3 {
 
     /**
      * The timeout for requests, in seconds. 0 for indefinite timeout.
+     * It's the timeout of the whole call, including the retries of the request and the delays between them.
      */
     protected long timeout = 60;
 
@@ -77,24 +89,97 @@ public class CandyS3 {
      */
     protected String cloudflareR2AccountId;
 
+    /**
+     * The executor to run concurrent transfers, like uploading parts of a multipart upload.
+     * A cached thread pool with daemon threads is created on demand if not set.
+     */
+    protected ExecutorService transferExecutor;
+
+    /**
+     * The maximum number of parts in flight for a single transfer.
+     * The memory used for the part buffers of a stream upload is also bounded by uploadBufferMemoryLimit.
+     */
+    protected int transferConcurrency = 4;
+    /**
+     * The maximum bytes of the part buffers of a single stream upload of unknown length, 512MB by default.
+     * The part size of such an upload is capped at the limit, and fewer parts are in flight when their buffers would exceed it,
+     * so the maximum size of the stream is 10000 * the limit. The first part is read in an extra buffer before the upload starts.
+     */
+    protected long uploadBufferMemoryLimit = 512L * 1024 * 1024;
+    /** Decides the part size when putObject uses multipart upload. */
+    protected PartSizePolicy partSizePolicy = new PartSizePolicy();
+    /**
+     * The minimum part size of parallelCopyObject. The bytes of a copied part don't pass through the client,
+     * so the parts are larger than the parts of an upload to save requests.
+     */
+    protected long copyPartSize = 256 * 1024 * 1024;
+    /** The default payload signing mode of PutObject and UploadPart requests, it can be overridden per request. */
+    protected PayloadSigningMode payloadSigningMode = PayloadSigningMode.SIGNED;
+    /**
+     * Whether UNSIGNED and UNSIGNED_CRC32 payloads may be sent over HTTP, false by default.
+     * Nothing but the Content-MD5 or CRC32 protects such a payload over HTTP, so an upload in these modes fails
+     * with IllegalArgumentException unless it's allowed, like for a server on the local network.
+     */
+    protected boolean allowUnsignedPayloadOverHttp = false;
+    /** The number of pages requested ahead of the page being consumed, when iterating a list with listXxxIterable. */
+    protected int listPrefetchPages = 1;
+    /** Caches the results of getObjectMetadata, no cache if it's null. */
+    protected volatile ObjectMetadataCache objectMetadataCache;
+    /** The retry policy of all requests, it can be overridden per request by the options of some operations. */
+    protected volatile RetryPolicy retryPolicy = new RetryPolicy.RetryPolicyBuilder().build();
+    /** Limits the requests in flight to each bucket by the throttling of the server, no limit if it's null. */
+    protected volatile AdaptiveRateLimiter rateLimiter;
+    /** Receives the metrics of each request, no metrics if it's null. */
+    protected volatile RequestMetricsListener metricsListener;
+
     protected final XmlMapper xmlMapper;
+    protected final CandyS3Transport transport;
     protected final OkHttpClient okHttpClient;
+    private final RetryInterceptor retryInterceptor;
 
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
     /**
-     * The default chunk size for multipart uploads, in bytes.
+     * The range size of a resumable download without parallel ranges set.
      */
-    private static final Integer SIZE_5M = 1024 * 1024 * 5;
+    private static final long DEFAULT_RESUMABLE_RANGE_SIZE = 8 * 1024 * 1024;
+    /**
+     * Parts read from a stream are buffered in byte arrays, so they cannot be larger than about 2GB.
+     */
+    private static final int MAX_BUFFERED_PART_SIZE = 2047 * 1024 * 1024;
 
     public CandyS3(S3Provider provider) {
+        this(provider, new CandyS3Transport.CandyS3TransportBuilder().build());
+    }
+
+    /**
+     * Creates a client which sends requests with the transport, it can be shared by many clients to reuse their connections.
+     * @param provider the S3 provider to use.
+     * @param transport the HTTP transport.
+     */
+    public CandyS3(S3Provider provider, CandyS3Transport transport) {
+        if (transport == null) {
+            throw new IllegalArgumentException("transport is required.");
+        }
         this.provider = provider;
         this.xmlMapper = XmlMapper.xmlBuilder().build();
-        this.okHttpClient = new OkHttpClient().newBuilder().build();
+        this.transport = transport;
+        // the client derived from the transport shares its connection pool and dispatcher
+        this.retryInterceptor = new RetryInterceptor(this);
+        this.okHttpClient = transport.getOkHttpClient().newBuilder()
+                .addInterceptor(retryInterceptor)
+                .addInterceptor(new RateLimitInterceptor(this))
+                .addInterceptor(new MetricsInterceptor(this))
+                .build();
     }
 
     public S3Provider getProvider() {
         return provider;
     }
 
+    public CandyS3Transport getTransport() {
+        return transport;
+    }
+
     public String getCustomProviderDomain() {
         return customProviderDomain;
     }
@@ -167,6 +252,147 @@ public class CandyS3 {
         this.cloudflareR2AccountId = cloudflareR2AccountId;
     }
 
+    public int getTransferConcurrency() {
+        return transferConcurrency;
+    }
+
+    public void setTransferConcurrency(int transferConcurrency) {
+        if (transferConcurrency < 1) {
+            throw new IllegalArgumentException("transferConcurrency must be a positive integer.");
+        }
+        this.transferConcurrency = transferConcurrency;
+    }
+
+    public long getUploadBufferMemoryLimit() {
+        return uploadBufferMemoryLimit;
+    }
+
+    public void setUploadBufferMemoryLimit(long uploadBufferMemoryLimit) {
+        if (uploadBufferMemoryLimit < PartSizePolicy.MIN_PART_SIZE) {
+            throw new IllegalArgumentException("uploadBufferMemoryLimit must not be smaller than the minimum part size of 5MB.");
+        }
+        this.uploadBufferMemoryLimit = uploadBufferMemoryLimit;
+    }
+
+    public PartSizePolicy getPartSizePolicy() {
+        return partSizePolicy;
+    }
+
+    public void setPartSizePolicy(PartSizePolicy partSizePolicy) {
+        if (partSizePolicy == null) {
+            throw new IllegalArgumentException("partSizePolicy is required.");
+        }
+        this.partSizePolicy = partSizePolicy;
+    }
+
+    public long getCopyPartSize() {
+        return copyPartSize;
+    }
+
+    public void setCopyPartSize(long copyPartSize) {
+        if (copyPartSize < PartSizePolicy.MIN_PART_SIZE || copyPartSize > PartSizePolicy.MAX_PART_SIZE) {
+            throw new IllegalArgumentException("copyPartSize must be between 5MB and 5GB.");
+        }
+        this.copyPartSize = copyPartSize;
+    }
+
+    public PayloadSigningMode getPayloadSigningMode() {
+        return payloadSigningMode;
+    }
+
+    public void setPayloadSigningMode(PayloadSigningMode payloadSigningMode) {
+        if (payloadSigningMode == null) {
+            throw new IllegalArgumentException("payloadSigningMode is required.");
+        }
+        this.payloadSigningMode = payloadSigningMode;
+    }
+
+    public boolean isAllowUnsignedPayloadOverHttp() {
+        return allowUnsignedPayloadOverHttp;
+    }
+
+    public void setAllowUnsignedPayloadOverHttp(boolean allowUnsignedPayloadOverHttp) {
+        this.allowUnsignedPayloadOverHttp = allowUnsignedPayloadOverHttp;
+    }
+
+    public int getListPrefetchPages() {
+        return listPrefetchPages;
+    }
+
+    public void setListPrefetchPages(int listPrefetchPages) {
+        if (listPrefetchPages < 0) {
+            throw new IllegalArgumentException("listPrefetchPages must not be negative.");
+        }
+        this.listPrefetchPages = listPrefetchPages;
+    }
+
+    public ObjectMetadataCache getObjectMetadataCache() {
+        return objectMetadataCache;
+    }
+
+    /**
+     * Sets the cache of getObjectMetadata, the writes of this client invalidate the entries of the objects they change.
+     * @param objectMetadataCache the cache, null to disable caching.
+     */
+    public void setObjectMetadataCache(ObjectMetadataCache objectMetadataCache) {
+        this.objectMetadataCache = objectMetadataCache;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Sets the retry policy of the requests which don't override it, use {@link RetryPolicy#NONE} to disable retries.
+     * @param retryPolicy the retry policy.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        if (retryPolicy == null) {
+            throw new IllegalArgumentException("retryPolicy is required.");
+        }
+        this.retryPolicy = retryPolicy;
+    }
+
+    public AdaptiveRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the limiter of the requests of this client, it can be shared by many clients to limit their requests together.
+     * @param rateLimiter the limiter, null to disable limiting.
+     */
+    public void setRateLimiter(AdaptiveRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RequestMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the listener of the metrics of each request sent by this client, like {@link HistogramMetricsListener}.
+     * @param metricsListener the listener, null to disable metrics.
+     */
+    public void setMetricsListener(RequestMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public void setTransferExecutor(ExecutorService transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    protected synchronized ExecutorService getTransferExecutor() {
+        if (transferExecutor == null) {
+            AtomicInteger threadNum = new AtomicInteger(1);
+            transferExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "candy-s3-transfer-" + threadNum.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return transferExecutor;
+    }
+
     protected String buildUrl(String bucket) {
         switch (provider) {
             case AWS:
@@ -185,13 +411,38 @@ public class CandyS3 {
                 return String.format("http%s://%s%s%s", useSSL ? "s" : "", StringUtils.isEmpty(bucket) ? "" : bucket + ".",
                         useAccelerate ? "cos.accelerate" : "cos." + region, provider.getDomain());
             case CUSTOM:
-                return String.format("http%s://%s/%s", useSSL ? "s" : "",
-                        customProviderDomain, StringUtils.isEmpty(bucket) ? "" : bucket);
+                return String.format("http%s://%s%s", useSSL ? "s" : "",
+                        customProviderDomain, StringUtils.isEmpty(bucket) ? "" : "/" + bucket);
             default:
                 throw new IllegalArgumentException("provider not supported.");
         }
     }
 
+    /**
+     * Parse the bucket and the object key of a request URL built by {@link #buildUrl(String)}.
+     *
+     * @return the bucket and the object key, the key is empty for the requests of a bucket. null if the URL has no bucket.
+     */
+    String[] parseBucketAndKey(HttpUrl url) {
+        HttpUrl serviceUrl = HttpUrl.parse(buildUrl(null));
+        if (serviceUrl == null) {
+            return null;
+        }
+        List<String> segments = url.pathSegments();
+        if (url.host().equals(serviceUrl.host())) {
+            // path style
+            if (segments.isEmpty() || segments.get(0).isEmpty()) {
+                return null;
+            }
+            return new String[]{segments.get(0), String.join("/", segments.subList(1, segments.size()))};
+        } else if (url.host().endsWith("." + serviceUrl.host())) {
+            // virtual hosted style
+            String bucket = url.host().substring(0, url.host().length() - serviceUrl.host().length() - 1);
+            return new String[]{bucket, String.join("/", segments)};
+        }
+        return null;
+    }
+
     /**
      * Returns a list of all buckets owned by the authenticated sender of the request.
      * @param options the options to list buckets.
@@ -461,6 +712,145 @@ public class CandyS3 {
             if (!response.isSuccessful()) {
                 throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
             }
+        } finally {
+            ObjectMetadataCache cache = objectMetadataCache;
+            if (cache != null) {
+                cache.invalidateBucket(bucket);
+            }
+        }
+    }
+
+    /**
+     * Deletes all objects, object versions and delete markers of a bucket, aborts its multipart uploads, and then deletes the bucket.
+     * Versions are deleted in batches as they are listed, and the multipart uploads are aborted at the same time.
+     * @param bucket the bucket name.
+     * @param options the options to delete the objects in bulk.
+     * @return the result of deleting the objects, the bucket is not deleted if any object fails to delete.
+     * @throws IOException if an error occurs when send request.
+     * @see #deleteObjectsBulk(String, Iterator, DeleteObjectsBulkOptions)
+     */
+    public DeleteObjectsBulkResult purgeBucket(String bucket, DeleteObjectsBulkOptions options) throws IOException {
+        if (StringUtils.isEmpty(bucket)) {
+            throw new IllegalArgumentException("bucket is required.");
+        }
+        int concurrency = options.getConcurrency() == null ? transferConcurrency : options.getConcurrency();
+
+        Future<?> abortUploads = getTransferExecutor().submit(() -> {
+            abortMultipartUploads(bucket, concurrency);
+            return null;
+        });
+
+        DeleteObjectsBulkResult result;
+        try {
+            if (!hasObjectVersions(bucket)) {
+                try (Stream<S3Object> objects = listObjectsIterable(bucket, new ListObjectOptions()).stream()) {
+                    result = deleteObjectsBulk(bucket,
+                            objects.map(s3Object -> new DeleteObjectsBatchOptions.DeleteObjectsBatchItem(s3Object.getKey())), options);
+                }
+            } else {
+                try (Stream<S3ObjectVersion> versions = listObjectVersionsIterable(bucket, new ListObjectVersionsOptions()).stream()) {
+                    result = deleteObjectsBulk(bucket,
+                            versions.map(version -> new DeleteObjectsBatchOptions.DeleteObjectsBatchItem(version.getKey(), version.getVersionId())), options);
+                }
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            // The failure of deleting the objects is the one thrown, a failure of aborting the uploads is attached to it.
+            awaitAbortMultipartUploads(abortUploads, e);
+            throw e;
+        }
+        awaitAbortMultipartUploads(abortUploads, null);
+
+        if (result.isSuccessful()) {
+            deleteBucket(bucket);
+        }
+        return result;
+    }
+
+    /**
+     * Deletes all objects of a bucket and the bucket with the default options, see {@link #purgeBucket(String, DeleteObjectsBulkOptions)}.
+     * @param bucket the bucket name.
+     * @return the result of deleting the objects, the bucket is not deleted if any object fails to delete.
+     * @throws IOException if an error occurs when send request.
+     */
+    public DeleteObjectsBulkResult purgeBucket(String bucket) throws IOException {
+        return purgeBucket(bucket, new DeleteObjectsBulkOptions.DeleteObjectsBulkOptionsBuilder().build());
+    }
+
+    /**
+     * Whether the objects of a bucket may have versions, it's false if versioning has never been enabled or the provider doesn't support versioning.
+     * Objects are listed without versions in such buckets, as some providers don't implement ListObjectVersions.
+     */
+    private boolean hasObjectVersions(String bucket) throws IOException {
+        try {
+            return StringUtils.isNotEmpty(getBucketVersioningStatus(bucket));
+        } catch (CandyS3Exception e) {
+            if (e.getParsedError() != null && "NotImplemented".equals(e.getParsedError().getCode())) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the multipart uploads to be aborted. If it fails, the failure is added as suppressed to the primary failure
+     * when there is one, otherwise it's thrown.
+     */
+    private static void awaitAbortMultipartUploads(Future<?> abortUploads, Throwable primary) throws IOException {
+        Throwable abortFailure;
+        try {
+            abortUploads.get();
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortFailure = new InterruptedIOException("Interrupted when wait for aborting multipart uploads.");
+        } catch (ExecutionException e) {
+            abortFailure = e.getCause();
+        }
+        if (primary != null) {
+            primary.addSuppressed(abortFailure);
+            return;
+        }
+        throw unwrapTransferException(abortFailure);
+    }
+
+    /**
+     * Aborts all multipart uploads of a bucket as they are listed, at most concurrency aborts are in flight.
+     */
+    private void abortMultipartUploads(String bucket, int concurrency) throws IOException {
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            try (ListPaginationIterator<S3MultipartUpload> uploads =
+                         listMultipartUploadsIterable(bucket, new ListMultipartUploadOptions()).iterator()) {
+                while (failure.get() == null && uploads.hasNext()) {
+                    S3MultipartUpload upload = uploads.next();
+                    Request request = buildAbortMultipartUploadRequest(bucket, upload.getKey(), upload.getUploadId(), new AbortMultipartUploadOptions());
+                    permits.acquire();
+                    executeAsync(request, response -> {
+                        parseAbortMultipartUploadResponse(response);
+                        return null;
+                    }).whenComplete((r, e) -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        // The upload may be completed or aborted by others after it's listed.
+                        if (cause != null && !(cause instanceof CandyS3Exception
+                                && ((CandyS3Exception) cause).getParsedError() != null
+                                && "NoSuchUpload".equals(((CandyS3Exception) cause).getParsedError().getCode()))) {
+                            failure.compareAndSet(null, cause);
+                        }
+                        permits.release();
+                    });
+                }
+            } catch (RuntimeException e) {
+                // Stop when listing fails, but wait for the aborts in flight.
+                failure.compareAndSet(null, e instanceof UncheckedIOException ? e.getCause() : e);
+            }
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when wait for aborting multipart uploads.");
+        }
+        if (failure.get() != null) {
+            throw unwrapTransferException(failure.get());
         }
     }
 
@@ -524,6 +914,13 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_GetBucketVersioning.html">GetBucketVersioning</a>
      */
     public boolean isBucketVersioning(String bucket) throws IOException {
+        return "Enabled".equals(getBucketVersioningStatus(bucket));
+    }
+
+    /**
+     * Returns the versioning status of a bucket, 'Enabled' or 'Suspended', or an empty string if versioning has never been enabled.
+     */
+    String getBucketVersioningStatus(String bucket) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -559,7 +956,7 @@ public class CandyS3 {
                 throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
             }
             JsonNode root = xmlMapper.readTree(response.body().string());
-            return "Enabled".equals(root.path("Status").asText(""));
+            return root.path("Status").asText("");
         }
     }
 
@@ -1451,6 +1848,46 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_ListObjectsV2.html">ListObjectsV2</a>
      */
     public ListPaginationResult<S3Object> listObjects(String bucket, ListObjectOptions options) throws IOException {
+        return execute(buildListObjectsRequest(bucket, options), this::parseListObjectsResponse);
+    }
+
+    /**
+     * Lists all objects in a bucket, the pages are requested as the result is iterated.
+     * The next pages are requested in the background while the current page is consumed, see {@link #setListPrefetchPages(int)}.
+     * @param bucket the bucket name.
+     * @param options the options to list objects, the continuation token of it is used for the first page.
+     * @return the objects of all pages, common prefixes are not included.
+     * @see #listObjects(String, ListObjectOptions)
+     */
+    public ListPaginationIterable<S3Object> listObjectsIterable(String bucket, ListObjectOptions options) {
+        return new ListPaginationIterable<>(previous -> {
+            ListObjectOptions pageOptions = previous == null ? options : new ListObjectOptions()
+                    .startAfter(options.getStartAfter())
+                    .delimiter(options.getDelimiter())
+                    .fetchOwner(options.isFetchOwner())
+                    .maxKeys(options.getMaxKeys())
+                    .prefix(options.getPrefix())
+                    .continuationToken(previous.getNextPaginationMarker());
+            return executeAsync(buildListObjectsRequest(bucket, pageOptions), this::parseListObjectsResponse);
+        }, ListPaginationResult::getResults, listPrefetchPages);
+    }
+
+    /**
+     * Lists all objects in a bucket with concurrent requests, the keyspace is split into partitions by the common prefixes of the delimiter.
+     * It's faster than following a single continuation chain when the keys are spread over many prefixes.
+     * The partitions are found before this method returns, and the objects are listed as the stream is consumed.
+     * Close the stream if it's not consumed to the end. An IOException when listing is wrapped in an UncheckedIOException.
+     * @param bucket the bucket name.
+     * @param options the options to list objects in parallel.
+     * @return the objects of all partitions, in key order unless the options are not sorted.
+     * @throws IOException if an error occurs when list the partitions.
+     * @see ParallelListObjectOptions
+     */
+    public Stream<S3Object> listObjectsInParallel(String bucket, ParallelListObjectOptions options) throws IOException {
+        return new ParallelObjectLister(this, bucket, options).list(options.isSorted());
+    }
+
+    Request buildListObjectsRequest(String bucket, ListObjectOptions options) throws IOException {
         Map<String, String> params = new HashMap<>();
         params.put("list-type", "2");
         if (!StringUtils.isEmpty(options.getContinuationToken())) {
@@ -1493,48 +1930,19 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                S3ServerError serverError = parseErrorMessage(response);
-                if (response.code() == 404) {
-                    throw new CandyS3Exception(CommonErrorCode.NO_SUCH_BUCKET.getCode(), serverError);
-                }
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-            }
-
-            JsonNode root = xmlMapper.readTree(response.body().string());
-
-            JsonNode contentsNode = root.path("Contents");
-            List<S3Object> s3Objects = new ArrayList<>(0);
-            if (!contentsNode.isMissingNode()) {
-                // jackson cant recognize node as an array when it has only one child.
-                if (contentsNode.isArray()) {
-                    s3Objects = xmlMapper.treeToValue(contentsNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, S3Object.class));
-                } else {
-                    s3Objects = new ArrayList<>(1);
-                    s3Objects.add(xmlMapper.treeToValue(contentsNode, S3Object.class));
-                }
-            }
-
-            ListPaginationResult<S3Object> paginationResult = new ListPaginationResult<>(s3Objects, root.path("NextContinuationToken").asText());
+        return requestBuilder.build();
+    }
 
-            JsonNode commonPrefixesNode = root.path("CommonPrefixes");
-            List<ListPaginationResult.CommonPrefix> commonPrefixes = new ArrayList<>();
-            if (!commonPrefixesNode.isMissingNode()) {
-                if (commonPrefixesNode.isArray()) {
-                    commonPrefixes = xmlMapper.treeToValue(commonPrefixesNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, ListPaginationResult.CommonPrefix.class));
-                } else {
-                    commonPrefixes.add(xmlMapper.treeToValue(commonPrefixesNode, ListPaginationResult.CommonPrefix.class));
-                }
+    ListPaginationResult<S3Object> parseListObjectsResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            S3ServerError serverError = parseErrorMessage(response);
+            if (response.code() == 404) {
+                throw new CandyS3Exception(CommonErrorCode.NO_SUCH_BUCKET.getCode(), serverError);
             }
-            paginationResult.setCommonPrefixes(commonPrefixes);
-
-            return paginationResult;
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
         }
+
+        return ListObjectsResponseParser.parseListObjects(response.body().byteStream());
     }
 
     /**
@@ -1546,6 +1954,36 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_ListObjectVersions.html">ListObjectVersions</a>
      */
     public ListPaginationResult<S3ObjectVersion> listObjectVersions(String bucket, ListObjectVersionsOptions options) throws IOException {
+        return execute(buildListObjectVersionsRequest(bucket, options), this::parseListObjectVersionsResponse);
+    }
+
+    /**
+     * Lists all versions and delete markers of the objects in a bucket, the pages are requested as the result is iterated.
+     * The next pages are requested in the background while the current page is consumed, see {@link #setListPrefetchPages(int)}.
+     * @param bucket the bucket name.
+     * @param options the options to list object versions, the markers of it are used for the first page.
+     * @return the versions of all pages, the versions of a page are followed by its delete markers,
+     * which can be told by {@link S3ObjectVersion#isDeleteMarker()}. Common prefixes are not included.
+     * @see #listObjectVersions(String, ListObjectVersionsOptions)
+     */
+    public ListPaginationIterable<S3ObjectVersion> listObjectVersionsIterable(String bucket, ListObjectVersionsOptions options) {
+        return new ListPaginationIterable<>(previous -> {
+            ListObjectVersionsOptions pageOptions = previous == null ? options : new ListObjectVersionsOptions()
+                    .delimiter(options.getDelimiter())
+                    .maxKeys(options.getMaxKeys())
+                    .prefix(options.getPrefix())
+                    .keyMarker(previous.getNextPaginationMarker())
+                    .versionIdMarker(previous.getNextPaginationMarker2());
+            return executeAsync(buildListObjectVersionsRequest(bucket, pageOptions), this::parseListObjectVersionsResponse);
+        }, page -> {
+            List<S3ObjectVersion> versions = new ArrayList<>(page.getResults().size() + page.getDeleteMarkers().size());
+            versions.addAll(page.getResults());
+            versions.addAll(page.getDeleteMarkers());
+            return versions;
+        }, listPrefetchPages);
+    }
+
+    Request buildListObjectVersionsRequest(String bucket, ListObjectVersionsOptions options) throws IOException {
         Map<String, String> params = new HashMap<>();
         params.put("versions", "");
         if (!StringUtils.isEmpty(options.getKeyMarker())) {
@@ -1586,63 +2024,19 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                S3ServerError serverError = parseErrorMessage(response);
-                if (response.code() == 404) {
-                    throw new CandyS3Exception(CommonErrorCode.NO_SUCH_BUCKET.getCode(), serverError);
-                }
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-            }
-
-            JsonNode root = xmlMapper.readTree(response.body().string());
-
-            JsonNode versionsNode = root.path("Version");
-            List<S3ObjectVersion> s3ObjectVersions = new ArrayList<>(0);
-            if (!versionsNode.isMissingNode()) {
-                // jackson cant recognize node as an array when it has only one child.
-                if (versionsNode.isArray()) {
-                    s3ObjectVersions = xmlMapper.treeToValue(versionsNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, S3ObjectVersion.class));
-                } else {
-                    s3ObjectVersions = new ArrayList<>(1);
-                    s3ObjectVersions.add(xmlMapper.treeToValue(versionsNode, S3ObjectVersion.class));
-                }
-            }
-
-            JsonNode deleteMakersNode = root.path("DeleteMarker");
-            List<S3ObjectVersion> deleteMakers = new ArrayList<>(0);
-            if (!deleteMakersNode.isMissingNode()) {
-                // jackson cant recognize node as an array when it has only one child.
-                if (deleteMakersNode.isArray()) {
-                    deleteMakers = xmlMapper.treeToValue(deleteMakersNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, S3ObjectVersion.class));
-                } else {
-                    deleteMakers = new ArrayList<>(1);
-                    deleteMakers.add(xmlMapper.treeToValue(deleteMakersNode, S3ObjectVersion.class));
-                }
-            }
-
-            ListPaginationResult<S3ObjectVersion> paginationResult = new ListPaginationResult<>(s3ObjectVersions, deleteMakers,
-                    root.path("NextKeyMarker").asText(),
-                    root.path("NextVersionIdMarker").asText());
+        return requestBuilder.build();
+    }
 
-            JsonNode commonPrefixesNode = root.path("CommonPrefixes");
-            List<ListPaginationResult.CommonPrefix> commonPrefixes = new ArrayList<>();
-            if (!commonPrefixesNode.isMissingNode()) {
-                if (commonPrefixesNode.isArray()) {
-                    commonPrefixes = xmlMapper.treeToValue(commonPrefixesNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, ListPaginationResult.CommonPrefix.class));
-                } else {
-                    commonPrefixes.add(xmlMapper.treeToValue(commonPrefixesNode, ListPaginationResult.CommonPrefix.class));
-                }
+    ListPaginationResult<S3ObjectVersion> parseListObjectVersionsResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            S3ServerError serverError = parseErrorMessage(response);
+            if (response.code() == 404) {
+                throw new CandyS3Exception(CommonErrorCode.NO_SUCH_BUCKET.getCode(), serverError);
             }
-            paginationResult.setCommonPrefixes(commonPrefixes);
-
-            return paginationResult;
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
         }
+
+        return ListObjectsResponseParser.parseListObjectVersions(response.body().byteStream());
     }
 
 
@@ -1658,131 +2052,625 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_PutObject.html">PutObject</a>
      */
     public String putObject(String bucket, String objectKey, PutObjectOptions options) throws IOException, NoSuchAlgorithmException {
-        if (StringUtils.isEmpty(bucket)) {
-            throw new IllegalArgumentException("bucket is required.");
-        }
-        if (StringUtils.isEmpty(objectKey)) {
-            throw new IllegalArgumentException("objectKey is required.");
-        }
+        Map<String, String> headers = buildPutObjectHeaders(bucket, objectKey, options);
 
-        if (options.getObjectDataContentOptions() != null) {
-            checkDataInput(options.getObjectDataContentOptions());
-        }
-
-        Map<String, String> headers = parseUploadHeaders(options.getHeaderProperties());
-        headers.putAll(parseUploadHeaders(options.getObjectLockOptions()));
-        headers.putAll(parseUploadHeaders(options.getServerSideEncryptionOptions()));
-        if (options.getStorageClass() != null) {
-            headers.put(HttpConstants.HEADER_AMZ_STORAGE_CLASS, options.getStorageClass());
-        }
-        if (options.getTagSet() != null && !options.getTagSet().isEmpty()) {
-            headers.put(HttpConstants.HEADER_AMZ_TAGGING, buildUrlKVVariables(options.getTagSet()));
-        }
+        PayloadSigningMode signingMode = resolvePayloadSigningMode(options.getPayloadSigningMode());
+        RetryPolicy retryPolicy = options.getRetryPolicy();
 
         if (options.getObjectDataContentOptions() == null) {
             headers.putAll(parseUploadHeaders(options.getCondition()));
             // Create empty object
             return doUpload(bucket, objectKey, headers, null, null,
-                    new byte[0]);
+                    UploadPayload.ofBytes(new byte[0], 0, 0), signingMode, retryPolicy);
         } else {
             ObjectDataContentOptions dataContentOptions = options.getObjectDataContentOptions();
             if (ArrayUtils.isNotEmpty(dataContentOptions.getInputBytes())) {
                 headers.putAll(parseUploadHeaders(options.getCondition()));
                 // When use bytes in memory, upload directly.
+                byte[] data = dataContentOptions.getInputBytes();
                 return doUpload(bucket, objectKey, headers, null, null,
-                        dataContentOptions.getInputBytes());
-            } else {
-                BufferedInputStream bin;
-                long len;
-                if (dataContentOptions.getInputStream() != null) {
-                    bin = new BufferedInputStream(dataContentOptions.getInputStream());
-                    if (dataContentOptions.getInputStream() instanceof FileInputStream) {
-                        len = ((FileInputStream) dataContentOptions.getInputStream()).getChannel().size();
-                    } else {
-                        // available may be not accurate when used as length.
-                        len = dataContentOptions.getInputStream().available();
+                        UploadPayload.ofBytes(data, 0, data.length), signingMode, retryPolicy);
+            } else if (dataContentOptions.getInputFile() != null || dataContentOptions.getInputStream() instanceof FileInputStream) {
+                // Parts are read from the file when they are sent, without copying them into memory.
+                UploadPayload.FilePayload filePayload = toFilePayload(dataContentOptions);
+                try {
+                    long partSize = partSizePolicy.partSizeForLength(filePayload.length());
+                    if (filePayload.length() <= partSize) {
+                        // When size is not greater than a part, upload directly.
+                        headers.putAll(parseUploadHeaders(options.getCondition()));
+                        return doUpload(bucket, objectKey, headers, null, null, filePayload, signingMode, retryPolicy);
+                    }
+                    if (options.getCheckpointFile() != null) {
+                        return doResumableMultipartUpload(bucket, objectKey, headers, options.getCondition(), retryPolicy,
+                                new File(dataContentOptions.getInputFile()), filePayload, partSize, signingMode,
+                                new File(options.getCheckpointFile()));
+                    }
+                    return doMultipartUpload(bucket, objectKey, headers, options.getCondition(), retryPolicy,
+                            uploadId -> uploadFilePartsConcurrently(bucket, objectKey, uploadId, filePayload, partSize,
+                                    signingMode, retryPolicy));
+                } finally {
+                    if (dataContentOptions.getInputStream() != null) {
+                        dataContentOptions.getInputStream().close();
                     }
-                } else {
-                    File file = new File(dataContentOptions.getInputFile());
-                    bin = new BufferedInputStream(new FileInputStream(file));
-                    len = file.length();
                 }
+            } else {
+                BufferedInputStream bin = new BufferedInputStream(dataContentOptions.getInputStream());
 
-                if (len <= SIZE_5M) {
-                    headers.putAll(parseUploadHeaders(options.getCondition()));
-                    // When size is not greater to 5MB, upload directly.
-                    ByteArrayOutputStream bout = new ByteArrayOutputStream();
-                    byte[] bytes = new byte[SIZE_5M];
-                    int l = -1;
-                    while ((l = bin.read(bytes)) != -1) {
-                        bout.write(bytes, 0, l);
+                InputStream in = bin;
+                IntToLongFunction partSizes;
+                boolean multipart = false;
+                try {
+                    // The length of the stream is unknown,
+                    // read the first part to find out whether the stream fits in a single upload.
+                    byte[] firstPart = new byte[maxBufferedPartSize(partSizePolicy.partSizeForUnknownLength(1))];
+                    int l = readFully(bin, firstPart, firstPart.length);
+                    if (l < firstPart.length) {
+                        headers.putAll(parseUploadHeaders(options.getCondition()));
+                        return doUpload(bucket, objectKey, headers, null, null,
+                                UploadPayload.ofBytes(firstPart, 0, l), signingMode, retryPolicy);
                     }
-                    bin.close();
-
-                    byte[] data = bout.toByteArray();
-                    bout.close();
-                    return doUpload(bucket, objectKey, headers, null, null, data);
-
-                } else {
-                    String uploadId = this.createMultipartUpload(bucket, objectKey, headers);
-                    if (StringUtils.isEmpty(uploadId)) {
-                        throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), CommonErrorCode.SERVER_ERROR.getMsg());
+                    in = new SequenceInputStream(new ByteArrayInputStream(firstPart), bin);
+                    partSizes = partSizePolicy::partSizeForUnknownLength;
+                    multipart = true;
+                } finally {
+                    if (!multipart) {
+                        bin.close();
                     }
-                    try {
-                        List<S3Part> s3Parts = new ArrayList<>();
-                        int partNum = 1;
-                        ByteArrayOutputStream bout = null;
-                        byte[] buffer = new byte[SIZE_5M];
-                        int l = -1;
-                        while ((l = bin.read(buffer)) != -1) {
-                            bout = new ByteArrayOutputStream();
-                            bout.write(buffer, 0, l);
-                            // Part number must be an integer between 1 and 10000, inclusive.
-                            S3Part part = this.uploadPart(bucket, objectKey, uploadId, partNum,
-                                    new UploadPartOptions.UploadPartOptionsBuilder()
-                                            // Note: be care of data input order
-                                            // inputBytes is advanced to inputStream and then inputFile
-                                            .configureUploadData()
-                                            .withData(bout.toByteArray())
-                                            .endConfigureDataContent()
-                                            .build());
-                            bout.close();
-                            s3Parts.add(part);
-                            partNum++;
-                        }
+                }
 
-                        CompleteMultipartUploadOptions completeMultipartUploadOptions =
-                                new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build();
-                        completeMultipartUploadOptions.setCondition(options.getCondition());
-                        return this.completeMultipartUpload(bucket, objectKey, uploadId, s3Parts, completeMultipartUploadOptions);
-                    } catch (Exception ex) {
-                        if (StringUtils.isNotEmpty(uploadId)) {
-                            this.abortMultipartUpload(bucket, uploadId, objectKey,
-                                    new AbortMultipartUploadOptions());
-                        }
-                        throw ex;
-                    }
+                InputStream partsInput = in;
+                try {
+                    return doMultipartUpload(bucket, objectKey, headers, options.getCondition(), retryPolicy,
+                            uploadId -> uploadPartsConcurrently(bucket, objectKey, uploadId, partsInput, partSizes,
+                                    signingMode, retryPolicy));
+                } finally {
+                    in.close();
                 }
             }
         }
     }
 
     /**
-     * upload object or part
-     *
-     * @param bucket the bucket name.
-     * @param objectKey the object key.
-     * @param uploadId  for multipart upload only. null when upload directly
-     * @param partNum   for multipart upload only. null when upload directly
-     * @param data the data to upload.
-     * @return object/part etag
-     * @throws IOException if an error occurs when send request.
-     * @throws NoSuchAlgorithmException if error occurs when compute signature.
+     * Check the arguments of putObject, and build the headers of the object except the conditional write headers.
      */
-    private String doUpload(String bucket, String objectKey,
+    Map<String, String> buildPutObjectHeaders(String bucket, String objectKey, PutObjectOptions options) {
+        if (StringUtils.isEmpty(bucket)) {
+            throw new IllegalArgumentException("bucket is required.");
+        }
+        if (StringUtils.isEmpty(objectKey)) {
+            throw new IllegalArgumentException("objectKey is required.");
+        }
+
+        if (options.getObjectDataContentOptions() != null) {
+            checkDataInput(options.getObjectDataContentOptions());
+        }
+        if (options.getCheckpointFile() != null
+                && (options.getObjectDataContentOptions() == null || options.getObjectDataContentOptions().getInputFile() == null)) {
+            throw new IllegalArgumentException("checkpointFile requires the data to be uploaded from a file.");
+        }
+
+        Map<String, String> headers = parseUploadHeaders(options.getHeaderProperties());
+        headers.putAll(parseUploadHeaders(options.getObjectLockOptions()));
+        headers.putAll(parseUploadHeaders(options.getServerSideEncryptionOptions()));
+        if (options.getStorageClass() != null) {
+            headers.put(HttpConstants.HEADER_AMZ_STORAGE_CLASS, options.getStorageClass());
+        }
+        if (options.getTagSet() != null && !options.getTagSet().isEmpty()) {
+            headers.put(HttpConstants.HEADER_AMZ_TAGGING, buildUrlKVVariables(options.getTagSet()));
+        }
+        return headers;
+    }
+
+    /**
+     * Returns the payload of a file or FileInputStream input, it's read from the current position of the stream.
+     */
+    static UploadPayload.FilePayload toFilePayload(ObjectDataContentOptions dataContentOptions) throws IOException {
+        if (dataContentOptions.getInputFile() != null) {
+            File file = new File(dataContentOptions.getInputFile());
+            return UploadPayload.ofFile(file, 0, file.length());
+        }
+        FileChannel channel = ((FileInputStream) dataContentOptions.getInputStream()).getChannel();
+        return UploadPayload.ofChannel(channel, channel.position(), channel.size() - channel.position());
+    }
+
+    /**
+     * Upload parts of an object in a multipart upload, it's aborted if any part fails.
+     */
+    private interface PartsUploader {
+        List<S3Part> uploadParts(String uploadId) throws IOException, NoSuchAlgorithmException;
+    }
+
+    /**
+     * Create a multipart upload, upload the parts and complete it. The upload is aborted on failure.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param headers the headers of the object.
+     * @param condition the condition to complete the upload, may be null.
+     * @param retryPolicy overrides the retry policy of the client for the requests of the upload, may be null.
+     * @param partsUploader uploads the parts.
+     * @return ETag of the object.
+     * @throws IOException if an error occurs when send request.
+     * @throws NoSuchAlgorithmException if error occurs when compute signature.
+     */
+    private String doMultipartUpload(String bucket, String objectKey, Map<String, String> headers,
+                                     ObjectConditionalWriteOptions condition, RetryPolicy retryPolicy,
+                                     PartsUploader partsUploader) throws IOException, NoSuchAlgorithmException {
+        String uploadId = this.createMultipartUpload(bucket, objectKey, headers, retryPolicy);
+        if (StringUtils.isEmpty(uploadId)) {
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), CommonErrorCode.SERVER_ERROR.getMsg());
+        }
+        try {
+            List<S3Part> s3Parts = partsUploader.uploadParts(uploadId);
+
+            CompleteMultipartUploadOptions completeMultipartUploadOptions =
+                    new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build();
+            completeMultipartUploadOptions.setCondition(condition);
+            completeMultipartUploadOptions.setRetryPolicy(retryPolicy);
+            return this.completeMultipartUpload(bucket, objectKey, uploadId, s3Parts, completeMultipartUploadOptions);
+        } catch (Exception ex) {
+            this.abortMultipartUpload(bucket, objectKey, uploadId,
+                    new AbortMultipartUploadOptions());
+            throw ex;
+        }
+    }
+
+    /**
+     * Upload a file with a multipart upload which can be resumed, the progress is saved in the checkpoint file.
+     * If the checkpoint matches the upload, including the headers of the object, the upload of it is continued: the parts listed by the server are reconciled
+     * with the checkpoint, and only the missing parts are uploaded. Otherwise a new upload is created,
+     * and the upload of a stale checkpoint is aborted.
+     * The upload is not aborted on failure, the checkpoint is kept to resume it later, and it's deleted when the upload is completed.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param headers the headers of the object.
+     * @param condition the condition to complete the upload, may be null.
+     * @param retryPolicy overrides the retry policy of the client for the requests of the upload, may be null.
+     * @param source the file to upload.
+     * @param filePayload the payload of the file.
+     * @param partSize the size of each part for a new upload, a resumed upload uses the part size of the checkpoint.
+     * @param signingMode how the parts are signed.
+     * @param checkpointFile the checkpoint file.
+     * @return ETag of the object.
+     * @throws IOException if an error occurs when send request, or read or write the files.
+     * @throws NoSuchAlgorithmException if error occurs when compute signature.
+     */
+    private String doResumableMultipartUpload(String bucket, String objectKey, Map<String, String> headers,
+                                              ObjectConditionalWriteOptions condition, RetryPolicy retryPolicy,
+                                              File source, UploadPayload.FilePayload filePayload, long partSize,
+                                              PayloadSigningMode signingMode, File checkpointFile) throws IOException, NoSuchAlgorithmException {
+        UploadCheckpoint checkpoint = UploadCheckpoint.load(checkpointFile);
+        Map<Integer, S3Part> uploadedParts = new HashMap<>();
+        if (checkpoint != null && !checkpoint.matches(bucket, objectKey, headers, source)) {
+            // The checkpoint is of another upload, the headers of the object or the file are changed, so its parts can't be used.
+            try {
+                this.abortMultipartUpload(checkpoint.getBucket(), checkpoint.getObjectKey(), checkpoint.getUploadId(),
+                        new AbortMultipartUploadOptions());
+            } catch (CandyS3Exception ignored) {
+                // The upload may be completed or aborted already.
+            }
+            checkpoint.delete();
+            checkpoint = null;
+        }
+        if (checkpoint != null) {
+            try {
+                uploadedParts = reconcileUploadedParts(checkpoint, filePayload.length());
+            } catch (CandyS3Exception e) {
+                if (e.getCode() != CommonErrorCode.MULTIPART_UPLOAD_NOT_EXISTS.getCode()) {
+                    throw e;
+                }
+                // The upload is completed or aborted, start over.
+                checkpoint.delete();
+                checkpoint = null;
+            }
+        }
+        if (checkpoint == null) {
+            // The request adds the signing headers to the map, the checkpoint saves the headers of the object only.
+            String uploadId = this.createMultipartUpload(bucket, objectKey, new HashMap<>(headers), retryPolicy);
+            if (StringUtils.isEmpty(uploadId)) {
+                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), CommonErrorCode.SERVER_ERROR.getMsg());
+            }
+            checkpoint = UploadCheckpoint.create(checkpointFile, bucket, objectKey, uploadId, partSize, headers, source);
+        }
+
+        UploadCheckpoint progress = checkpoint;
+        String uploadId = progress.getUploadId();
+        long length = filePayload.length();
+        long resumedPartSize = progress.getPartSize();
+        int partCount = (int) ((length + resumedPartSize - 1) / resumedPartSize);
+        List<Integer> missingPartNums = new ArrayList<>();
+        for (int partNum = 1; partNum <= partCount; partNum++) {
+            if (!uploadedParts.containsKey(partNum)) {
+                missingPartNums.add(partNum);
+            }
+        }
+        try {
+            List<S3Part> newParts = transferConcurrently(missingPartNums.size(), index -> {
+                int partNum = missingPartNums.get(index);
+                long offset = (partNum - 1) * resumedPartSize;
+                S3Part part = new S3Part();
+                part.setPartNum(partNum);
+                part.setEtag(doUpload(bucket, objectKey, null, uploadId, partNum,
+                        filePayload.slice(offset, Math.min(resumedPartSize, length - offset)), signingMode, retryPolicy));
+                progress.addPart(partNum, part.getEtag());
+                return part;
+            });
+            for (S3Part part : newParts) {
+                uploadedParts.put(part.getPartNum(), part);
+            }
+            List<S3Part> s3Parts = new ArrayList<>(uploadedParts.values());
+            s3Parts.sort(Comparator.comparing(S3Part::getPartNum));
+
+            CompleteMultipartUploadOptions completeMultipartUploadOptions =
+                    new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build();
+            completeMultipartUploadOptions.setCondition(condition);
+            completeMultipartUploadOptions.setRetryPolicy(retryPolicy);
+            String etag = this.completeMultipartUpload(bucket, objectKey, uploadId, s3Parts, completeMultipartUploadOptions);
+            progress.delete();
+            return etag;
+        } finally {
+            progress.close();
+        }
+    }
+
+    /**
+     * List the parts of the upload of a checkpoint, and keep the parts which are uploaded completely.
+     * A listed part is kept if its size is the size of the part in the file, and its ETag is the ETag in the checkpoint, if it's there.
+     * The parts uploaded after the checkpoint was last saved are kept too, since the file is not changed.
+     *
+     * @return the uploaded parts by part number.
+     * @throws IOException if an error occurs when send request.
+     */
+    private Map<Integer, S3Part> reconcileUploadedParts(UploadCheckpoint checkpoint, long length) throws IOException {
+        Map<Integer, String> savedEtags = checkpoint.getPartEtags();
+        long partSize = checkpoint.getPartSize();
+        int partCount = (int) ((length + partSize - 1) / partSize);
+        Map<Integer, S3Part> uploadedParts = new HashMap<>();
+        try {
+            for (S3Part part : listPartsIterable(checkpoint.getBucket(), checkpoint.getObjectKey(),
+                    new ListPartsOptions(checkpoint.getUploadId()))) {
+                int partNum = part.getPartNum();
+                if (partNum < 1 || partNum > partCount || part.getSize() == null
+                        || part.getSize() != Math.min(partSize, length - (partNum - 1) * partSize)) {
+                    continue;
+                }
+                String savedEtag = savedEtags.get(partNum);
+                if (savedEtag != null && !StringUtils.strip(savedEtag, "\"").equals(StringUtils.strip(part.getEtag(), "\""))) {
+                    continue;
+                }
+                uploadedParts.put(partNum, part);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return uploadedParts;
+    }
+
+    /**
+     * Upload the parts of a file concurrently with the transfer executor, each part is read from the file when it's sent.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId the upload ID.
+     * @param filePayload the region of the file to upload.
+     * @param partSize the size of each part, the last part may be smaller.
+     * @param signingMode how the parts are signed.
+     * @param retryPolicy overrides the retry policy of the client, may be null.
+     * @return the uploaded parts, ordered by part number.
+     * @throws IOException if an error occurs when read the file or send request.
+     */
+    private List<S3Part> uploadFilePartsConcurrently(String bucket, String objectKey, String uploadId,
+                                                     UploadPayload.FilePayload filePayload, long partSize,
+                                                     PayloadSigningMode signingMode, RetryPolicy retryPolicy) throws IOException {
+        long length = filePayload.length();
+        int partCount = (int) ((length + partSize - 1) / partSize);
+        return transferConcurrently(partCount, index -> {
+            long offset = index * partSize;
+            S3Part part = new S3Part();
+            part.setPartNum(index + 1);
+            part.setEtag(doUpload(bucket, objectKey, null, uploadId, index + 1,
+                    filePayload.slice(offset, Math.min(partSize, length - offset)), signingMode, retryPolicy));
+            return part;
+        });
+    }
+
+    /**
+     * Read parts from the input and upload them concurrently with the transfer executor.
+     * At most transferConcurrency parts are in flight, and their buffers are reused by the following parts.
+     * The part size is capped at uploadBufferMemoryLimit, and a new buffer is allocated only when the buffers fit in the limit.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId the upload ID.
+     * @param in the input to read parts from, it's read sequentially by the calling thread.
+     * @param partSizes returns the size of the part by part number, the last part may be smaller.
+     * @param signingMode how the parts are signed.
+     * @param retryPolicy overrides the retry policy of the client, may be null.
+     * @return the uploaded parts, ordered by part number.
+     * @throws IOException if an error occurs when read the input or send request.
+     * @throws NoSuchAlgorithmException if error occurs when compute signature.
+     */
+    private List<S3Part> uploadPartsConcurrently(String bucket, String objectKey, String uploadId,
+                                                 InputStream in, IntToLongFunction partSizes,
+                                                 PayloadSigningMode signingMode, RetryPolicy retryPolicy) throws IOException, NoSuchAlgorithmException {
+        ExecutorService executor = getTransferExecutor();
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(transferConcurrency);
+        int allocatedBuffers = 0;
+        long allocatedBytes = 0;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Future<S3Part>> futures = new ArrayList<>();
+        try {
+            int partNum = 1;
+            while (failure.get() == null) {
+                if (partNum > PartSizePolicy.MAX_PARTS) {
+                    if (in.read() == -1) {
+                        break;
+                    }
+                    throw new IllegalArgumentException("The content exceeds the maximum size of a multipart upload of 10000 parts.");
+                }
+                int partSize = maxBufferedPartSize(partSizes.applyAsLong(partNum));
+
+                // Take a free buffer, and allocate a new one only when all buffers are in flight and the new one fits
+                // in the memory limit, otherwise wait for a buffer to be free.
+                // Buffers smaller than the current part size are dropped, as the part size only grows.
+                byte[] buffer = buffers.poll();
+                while (buffer == null || buffer.length < partSize) {
+                    if (buffer != null) {
+                        allocatedBuffers--;
+                        allocatedBytes -= buffer.length;
+                    }
+                    if (allocatedBuffers == 0
+                            || (allocatedBuffers < transferConcurrency && allocatedBytes + partSize <= uploadBufferMemoryLimit)) {
+                        allocatedBuffers++;
+                        allocatedBytes += partSize;
+                        buffer = new byte[partSize];
+                    } else {
+                        buffer = buffers.take();
+                    }
+                }
+
+                int len = readFully(in, buffer, partSize);
+                if (len == 0) {
+                    break;
+                }
+
+                final byte[] partData = buffer;
+                final int partLength = len;
+                final int currentPartNum = partNum;
+                futures.add(executor.submit(() -> {
+                    try {
+                        S3Part part = new S3Part();
+                        part.setPartNum(currentPartNum);
+                        part.setEtag(doUpload(bucket, objectKey, null, uploadId, currentPartNum,
+                                UploadPayload.ofBytes(partData, 0, partLength), signingMode, retryPolicy));
+                        return part;
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                        throw t;
+                    } finally {
+                        buffers.offer(partData);
+                    }
+                }));
+                partNum++;
+                if (len < partSize) {
+                    break;
+                }
+            }
+
+            List<S3Part> s3Parts = new ArrayList<>(futures.size());
+            for (Future<S3Part> future : futures) {
+                s3Parts.add(future.get());
+            }
+            return s3Parts;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when upload parts.");
+        } catch (ExecutionException e) {
+            throw unwrapTransferException(failure.get() != null ? failure.get() : e.getCause());
+        } finally {
+            for (Future<S3Part> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * The size of a part read from a stream, capped at the size of a byte array and uploadBufferMemoryLimit.
+     */
+    private int maxBufferedPartSize(long partSize) {
+        return (int) Math.min(partSize, Math.min(MAX_BUFFERED_PART_SIZE, uploadBufferMemoryLimit));
+    }
+
+    /**
+     * A task of a concurrent transfer, like uploading a part or downloading a range.
+     */
+    interface TransferTask<T> {
+        T run(int index) throws Exception;
+    }
+
+    /**
+     * Run the tasks of index from 0 to taskCount - 1 with the transfer executor, at most transferConcurrency tasks at a time.
+     * Each worker takes the next index until no tasks left, and all workers stop at the first failure.
+     *
+     * @return the results of the tasks, ordered by index.
+     * @throws IOException the first failure of the tasks.
+     */
+    private <T> List<T> transferConcurrently(int taskCount, TransferTask<T> task) throws IOException {
+        return transferConcurrently(taskCount, transferConcurrency, task);
+    }
+
+    /**
+     * Run the tasks like {@link #transferConcurrently(int, TransferTask)}, at most concurrency tasks at a time.
+     */
+    <T> List<T> transferConcurrently(int taskCount, int concurrency, TransferTask<T> task) throws IOException {
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReferenceArray<T> results = new AtomicReferenceArray<>(taskCount);
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = getTransferExecutor();
+        try {
+            for (int i = 0; i < Math.min(concurrency, taskCount); i++) {
+                futures.add(executor.submit(() -> {
+                    int index;
+                    while (failure.get() == null && (index = nextIndex.getAndIncrement()) < taskCount) {
+                        try {
+                            results.set(index, task.run(index));
+                        } catch (Throwable t) {
+                            failure.compareAndSet(null, t);
+                            throw t;
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when wait for transfers.");
+        } catch (ExecutionException e) {
+            throw unwrapTransferException(failure.get() != null ? failure.get() : e.getCause());
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        List<T> resultList = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            resultList.add(results.get(i));
+        }
+        return resultList;
+    }
+
+    /**
+     * Convert the cause of a failed transfer task to an exception which can be thrown by the public api.
+     */
+    private static IOException unwrapTransferException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    /**
+     * Read from the input until length bytes are read or the end of input is reached.
+     *
+     * @return the number of bytes read, 0 if no more data.
+     */
+    static int readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int l = in.read(buffer, total, length - total);
+            if (l == -1) {
+                break;
+            }
+            total += l;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the payload signing mode of a request, the client's mode is used if the request does not specify it.
+     * Unsigned modes are rejected over HTTP unless allowUnsignedPayloadOverHttp is set.
+     */
+    PayloadSigningMode resolvePayloadSigningMode(PayloadSigningMode requestMode) {
+        PayloadSigningMode mode = requestMode != null ? requestMode : payloadSigningMode;
+        if ((mode == PayloadSigningMode.UNSIGNED || mode == PayloadSigningMode.UNSIGNED_CRC32) && !useSSL && !allowUnsignedPayloadOverHttp) {
+            throw new IllegalArgumentException("The payload signing mode " + mode + " requires HTTPS, "
+                    + "set allowUnsignedPayloadOverHttp to send unsigned payloads over HTTP.");
+        }
+        return mode;
+    }
+
+    /**
+     * Compute the Content-MD5 of the payload, base64 encoded.
+     */
+    private static String md5Checksum(UploadPayload payload) throws IOException {
+        MessageDigest md5 = BinaryUtils.md5Digest();
+        if (payload instanceof UploadPayload.BytesPayload) {
+            UploadPayload.BytesPayload bytesPayload = (UploadPayload.BytesPayload) payload;
+            md5.update(bytesPayload.data, bytesPayload.offset, bytesPayload.length);
+        } else {
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            try (InputStream in = payload.openStream()) {
+                int l;
+                while ((l = in.read(buffer)) != -1) {
+                    md5.update(buffer, 0, l);
+                }
+            }
+        }
+        return Base64.getEncoder().encodeToString(md5.digest());
+    }
+
+    /**
+     * Compute the CRC32 checksum of the payload, in the format of header 'x-amz-checksum-crc32'.
+     */
+    private static String crc32Checksum(UploadPayload payload) throws IOException {
+        CRC32 crc32 = new CRC32();
+        if (payload instanceof UploadPayload.BytesPayload) {
+            UploadPayload.BytesPayload bytesPayload = (UploadPayload.BytesPayload) payload;
+            crc32.update(bytesPayload.data, bytesPayload.offset, bytesPayload.length);
+        } else {
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            try (InputStream in = payload.openStream()) {
+                int l;
+                while ((l = in.read(buffer)) != -1) {
+                    crc32.update(buffer, 0, l);
+                }
+            }
+        }
+        long value = crc32.getValue();
+        byte[] checksum = new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        return Base64.getEncoder().encodeToString(checksum);
+    }
+
+    /**
+     * upload object or part
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId  for multipart upload only. null when upload directly
+     * @param partNum   for multipart upload only. null when upload directly
+     * @param payload the data to upload.
+     * @param signingMode how the payload is signed.
+     * @param retryPolicy overrides the retry policy of the client, may be null.
+     * @return object/part etag
+     * @throws IOException if an error occurs when send request.
+     * @throws NoSuchAlgorithmException if error occurs when compute signature.
+     */
+    private String doUpload(String bucket, String objectKey,
                             Map<String, String> includedHeaders,
                             String uploadId, Integer partNum,
-                            byte[] data) throws IOException, NoSuchAlgorithmException {
+                            UploadPayload payload, PayloadSigningMode signingMode,
+                            RetryPolicy retryPolicy) throws IOException, NoSuchAlgorithmException {
+        try {
+            return execute(withRetryPolicy(buildUploadRequest(bucket, objectKey, includedHeaders, uploadId, partNum, payload, signingMode),
+                    retryPolicy), this::parseUploadResponse);
+        } finally {
+            if (partNum == null) {
+                invalidateObjectMetadata(bucket, objectKey, null);
+            }
+        }
+    }
+
+    /**
+     * Overrides the retry policy of the client for a request, the policy of the client is used if retryPolicy is null.
+     */
+    static Request withRetryPolicy(Request request, RetryPolicy retryPolicy) {
+        return retryPolicy == null ? request : request.newBuilder().tag(RetryPolicy.class, retryPolicy).build();
+    }
+
+    Request buildUploadRequest(String bucket, String objectKey,
+                               Map<String, String> includedHeaders,
+                               String uploadId, Integer partNum,
+                               UploadPayload payload, PayloadSigningMode signingMode) throws IOException, NoSuchAlgorithmException {
 
         Map<String, String> params = new HashMap<>();
         if (StringUtils.isNotEmpty(uploadId) && partNum != null) {
@@ -1794,48 +2682,110 @@ public class CandyS3 {
             includedHeaders = new HashMap<>();
         }
 
-        includedHeaders.put("Content-Length", data.length + "");
+        URL url = new URL(buildUrl(bucket) + "/" + objectKey + buildParams(params));
 
-        String bodyHash = ArrayUtils.isEmpty(data) ? AWS4SignerBase.EMPTY_BODY_SHA256 : BinaryUtils.toHex(AWS4SignerBase.hash(data));
-        includedHeaders.put(HttpConstants.HEADER_AMZ_CONTENT_HASH, bodyHash);
-        String contentMD5 = null;
-        contentMD5 = BinaryUtils.md5(data);
-        includedHeaders.put(HttpConstants.HEADER_CONTENT_MD5, contentMD5);
+        RequestBody requestBody;
+        String authorization;
+        if (signingMode == PayloadSigningMode.STREAMING) {
+            // The payload is signed chunk by chunk when the request body is written.
+            includedHeaders.put(HttpConstants.HEADER_AMZ_CONTENT_HASH, AWS4SignerForChunkedUpload.STREAMING_BODY_SHA256);
+            String contentEncoding = includedHeaders.get("Content-Encoding");
+            includedHeaders.put("Content-Encoding", StringUtils.isEmpty(contentEncoding)
+                    ? AWS4SignerForChunkedUpload.CONTENT_ENCODING_AWS_CHUNKED
+                    : AWS4SignerForChunkedUpload.CONTENT_ENCODING_AWS_CHUNKED + "," + contentEncoding);
+            includedHeaders.put(AWS4SignerForChunkedUpload.HEADER_DECODED_CONTENT_LENGTH, payload.length() + "");
+            includedHeaders.put("Content-Length", AWS4SignerForChunkedUpload.calculateChunkedContentLength(
+                    payload.length(), ChunkedSigningRequestBody.DEFAULT_CHUNK_SIZE) + "");
+
+            AWS4SignerForChunkedUpload signer = new AWS4SignerForChunkedUpload(
+                    url, HttpConstants.HTTP_METHOD_PUT, HttpConstants.CONSTANT_AWS_SERVICENAME_S3, region);
+            authorization = signer.computeSignature(includedHeaders,
+                    params,
+                    accessKey,
+                    secretKey);
+            requestBody = new ChunkedSigningRequestBody(payload, signer, ChunkedSigningRequestBody.DEFAULT_CHUNK_SIZE);
+        } else if (signingMode == PayloadSigningMode.UNSIGNED || signingMode == PayloadSigningMode.UNSIGNED_CRC32) {
+            // The payload is protected by TLS, skip the SHA-256 of it but still send a checksum for the server to verify.
+            includedHeaders.put("Content-Length", payload.length() + "");
+            includedHeaders.put(HttpConstants.HEADER_AMZ_CONTENT_HASH, AWS4SignerBase.UNSIGNED_PAYLOAD);
+            if (signingMode == PayloadSigningMode.UNSIGNED_CRC32) {
+                includedHeaders.put(HttpConstants.HEADER_AMZ_CHECKSUM_CRC32, crc32Checksum(payload));
+            } else {
+                includedHeaders.put(HttpConstants.HEADER_CONTENT_MD5, md5Checksum(payload));
+            }
 
-        URL url = new URL(buildUrl(bucket) + "/" + objectKey + buildParams(params));
+            AWS4SignerForAuthorizationHeader signer = new AWS4SignerForAuthorizationHeader(
+                    url, HttpConstants.HTTP_METHOD_PUT, HttpConstants.CONSTANT_AWS_SERVICENAME_S3, region);
+            authorization = signer.computeSignature(includedHeaders,
+                    params,
+                    AWS4SignerBase.UNSIGNED_PAYLOAD,
+                    accessKey,
+                    secretKey);
+            requestBody = payload.toRequestBody();
+        } else {
+            // The whole payload is hashed before sending, so a file is read twice, once to hash it and once to send it.
+            // Use STREAMING or UNSIGNED to read it only once.
+            includedHeaders.put("Content-Length", payload.length() + "");
+
+            String bodyHash;
+            String contentMD5;
+            if (payload instanceof UploadPayload.BytesPayload) {
+                UploadPayload.BytesPayload bytesPayload = (UploadPayload.BytesPayload) payload;
+                bodyHash = bytesPayload.length == 0 ? AWS4SignerBase.EMPTY_BODY_SHA256
+                        : BinaryUtils.toHex(AWS4SignerBase.hash(bytesPayload.data, bytesPayload.offset, bytesPayload.length));
+                contentMD5 = BinaryUtils.md5(bytesPayload.data, bytesPayload.offset, bytesPayload.length);
+            } else {
+                // Compute both digests in a single pass over the file.
+                MessageDigest sha256 = AWS4SignerBase.sha256();
+                MessageDigest md5 = BinaryUtils.md5Digest();
+                byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+                try (InputStream in = payload.openStream()) {
+                    int l;
+                    while ((l = in.read(buffer)) != -1) {
+                        sha256.update(buffer, 0, l);
+                        md5.update(buffer, 0, l);
+                    }
+                }
+                bodyHash = BinaryUtils.toHex(sha256.digest());
+                contentMD5 = Base64.getEncoder().encodeToString(md5.digest());
+            }
+            includedHeaders.put(HttpConstants.HEADER_AMZ_CONTENT_HASH, bodyHash);
+            includedHeaders.put(HttpConstants.HEADER_CONTENT_MD5, contentMD5);
 
-        AWS4SignerForAuthorizationHeader signer = new AWS4SignerForAuthorizationHeader(
-                url, HttpConstants.HTTP_METHOD_PUT, HttpConstants.CONSTANT_AWS_SERVICENAME_S3, region);
-        String authorization = signer.computeSignature(includedHeaders,
-                params,
-                bodyHash,
-                accessKey,
-                secretKey);
+            AWS4SignerForAuthorizationHeader signer = new AWS4SignerForAuthorizationHeader(
+                    url, HttpConstants.HTTP_METHOD_PUT, HttpConstants.CONSTANT_AWS_SERVICENAME_S3, region);
+            authorization = signer.computeSignature(includedHeaders,
+                    params,
+                    bodyHash,
+                    accessKey,
+                    secretKey);
+            requestBody = payload.toRequestBody();
+        }
 
         includedHeaders.put(HttpConstants.HEADER_AUTHORIZATION, authorization);
 
         Request.Builder requestBuilder = new Request.Builder()
                 .url(url)
-                .put(RequestBody.create(data));
+                .put(requestBody);
         for (Map.Entry<String, String> header : includedHeaders.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                S3ServerError serverError = parseErrorMessage(response);
-                if (response.code() == 412 && "PreconditionFailed".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
-                } else if (response.code() == 409 && "ConditionalRequestConflict".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.OBJECT_CONDITIONAL_REQUEST_CONFLICT.getCode(), serverError);
-                } else {
-                    throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-                }
-            }
+        return requestBuilder.build();
+    }
 
-            return response.header("ETag");
+    String parseUploadResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            S3ServerError serverError = parseErrorMessage(response);
+            if (response.code() == 412 && "PreconditionFailed".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
+            } else if (response.code() == 409 && "ConditionalRequestConflict".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.OBJECT_CONDITIONAL_REQUEST_CONFLICT.getCode(), serverError);
+            } else {
+                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
+            }
         }
+
+        return response.header("ETag");
     }
 
     /**
@@ -1846,8 +2796,118 @@ public class CandyS3 {
      * @return S3Object which contains metadata only.
      * @throws IOException if an error occurs when send request.
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_HeadObject.html">HeadObject</a>
+     * @see #setObjectMetadataCache(ObjectMetadataCache)
      */
     public S3Object getObjectMetadata(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
+        ObjectMetadataCache cache = objectMetadataCache;
+        if (cache == null || !ObjectMetadataCache.isCacheable(options)) {
+            return execute(buildGetObjectMetadataRequest(bucket, objectKey, options), response -> parseGetObjectMetadataResponse(objectKey, response));
+        }
+
+        ObjectMetadataCache.Lookup lookup = cache.lookup(bucket, objectKey, options.getVersionId());
+        if (lookup.isFresh()) {
+            return parseObjectMetadataHeaders(objectKey, lookup.getHeaders());
+        }
+        return execute(buildCachedGetObjectMetadataRequest(bucket, objectKey, options, lookup),
+                response -> parseCachedGetObjectMetadataResponse(cache, lookup, objectKey, response));
+    }
+
+    /**
+     * Finds the part size an object is uploaded with, so the ETag of a local file can be computed for comparison,
+     * see {@link io.github.matian2014.candys3.signer.BinaryUtils#compositeMd5ETag(File, long)}.
+     * The metadata of the first part is requested, the x-amz-mp-parts-count header of the response tells the number of parts
+     * and its Content-Length is the part size. No request is sent if the ETag of the object doesn't end with the number of parts.
+     * @param bucket the bucket name.
+     * @param object the object from a listing or {@link #getObjectMetadata(String, String, DownloadObjectOptions)}, with the key, ETag and size.
+     * @return the part size, null if the object isn't uploaded in parts, or the parts except the last one don't have the same size.
+     * @throws IOException if an error occurs when send request.
+     */
+    public Long inferObjectPartSize(String bucket, S3Object object) throws IOException {
+        String eTag = StringUtils.strip(object.geteTag(), "\"");
+        int dash = eTag == null ? -1 : eTag.lastIndexOf('-');
+        int partsCount;
+        try {
+            partsCount = dash < 0 ? 0 : Integer.parseInt(eTag.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (partsCount < 1) {
+            return null;
+        }
+
+        DownloadObjectOptions.DownloadObjectOptionsBuilder builder = new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                .partNumber(1)
+                // The parts must be of the object listed, not of one uploaded since then.
+                .configureDownloadCondition().ifMatch(object.geteTag()).endConfigureCondition();
+        if (object.getVersionId() != null) {
+            builder.versionId(object.getVersionId());
+        }
+        S3Object firstPart = getObjectMetadata(bucket, object.getKey(), builder.build());
+        if (firstPart.getPartsCount() == null || firstPart.getPartsCount() != partsCount) {
+            return null;
+        }
+        long partSize = firstPart.getSize();
+        // Only the last part may be smaller, e.g. the parts of a stream of unknown length grow as it's uploaded.
+        if (partSize <= 0 || (object.getSize() + partSize - 1) / partSize != partsCount) {
+            return null;
+        }
+        return partSize;
+    }
+
+    /**
+     * Build the request of an object whose cache entry is missing or expired, an expired entry is revalidated by its ETag.
+     */
+    Request buildCachedGetObjectMetadataRequest(String bucket, String objectKey, DownloadObjectOptions options,
+                                                ObjectMetadataCache.Lookup lookup) throws IOException {
+        if (lookup.getETag() == null) {
+            return buildGetObjectMetadataRequest(bucket, objectKey, options);
+        }
+        DownloadObjectOptions revalidateOptions = new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                .versionId(options.getVersionId())
+                .configureDownloadCondition().ifNoneMatch(lookup.getETag()).endConfigureCondition()
+                .retryPolicy(options.getRetryPolicy())
+                .build();
+        return buildGetObjectMetadataRequest(bucket, objectKey, revalidateOptions);
+    }
+
+    S3Object parseCachedGetObjectMetadataResponse(ObjectMetadataCache cache, ObjectMetadataCache.Lookup lookup,
+                                                  String objectKey, Response response) throws IOException {
+        if (response.code() == 304 && lookup.getHeaders() != null) {
+            cache.revalidated(lookup);
+            return parseObjectMetadataHeaders(objectKey, lookup.getHeaders());
+        }
+        S3Object s3Object;
+        try {
+            s3Object = parseGetObjectMetadataResponse(objectKey, response);
+        } catch (IOException | RuntimeException e) {
+            cache.failed(lookup);
+            throw e;
+        }
+        cache.loaded(lookup, response.headers());
+        return s3Object;
+    }
+
+    /**
+     * Invalidates the cached metadata of an object version and of the latest version, when this client changes the object.
+     */
+    void invalidateObjectMetadata(String bucket, String objectKey, String versionId) {
+        ObjectMetadataCache cache = objectMetadataCache;
+        if (cache != null) {
+            cache.invalidate(bucket, objectKey, versionId);
+        }
+    }
+
+    /**
+     * Invalidates the cached metadata of all versions of an object, when this client changes the object lock properties.
+     */
+    private void invalidateObjectMetadata(String bucket, String objectKey) {
+        ObjectMetadataCache cache = objectMetadataCache;
+        if (cache != null) {
+            cache.invalidateObject(bucket, objectKey);
+        }
+    }
+
+    Request buildGetObjectMetadataRequest(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -1891,6 +2951,7 @@ public class CandyS3 {
             headers.put("Range", "bytes=" + options.getRange());
         }
         headers.putAll(parseDownloadHeaders(options.getCondition()));
+        headers.putAll(parseCustomerKeyHeaders(options.getCustomerKeyOptions()));
 
         headers.put(HttpConstants.HEADER_AMZ_CONTENT_HASH, AWS4SignerBase.EMPTY_BODY_SHA256);
 
@@ -1912,52 +2973,55 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                if (response.code() == 304) {
-                    throw new CandyS3Exception(CommonErrorCode.OBJECT_NOT_MODIFIED.getCode(),
-                            CommonErrorCode.OBJECT_NOT_MODIFIED.getMsg());
-                } else if (response.code() == 404) {
-                    if (response.headers().names().contains("x-amz-delete-marker") && Boolean.parseBoolean(response.headers().get("x-amz-delete-marker"))) {
-                        throw new CandyS3Exception(CommonErrorCode.OBJECT_VERSION_IS_DELETE_MARKER.getCode(),
-                                CommonErrorCode.OBJECT_VERSION_IS_DELETE_MARKER.getMsg());
-                    } else {
-                        throw new CandyS3Exception(CommonErrorCode.NO_SUCH_OBJECT.getCode(),
-                                CommonErrorCode.NO_SUCH_OBJECT.getMsg());
-                    }
+        requestBuilder.tag(RetryPolicy.class, options.getRetryPolicy());
+        return requestBuilder.build();
+    }
+
+    S3Object parseGetObjectMetadataResponse(String objectKey, Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            if (response.code() == 304) {
+                throw new CandyS3Exception(CommonErrorCode.OBJECT_NOT_MODIFIED.getCode(),
+                        CommonErrorCode.OBJECT_NOT_MODIFIED.getMsg());
+            } else if (response.code() == 404) {
+                if (response.headers().names().contains("x-amz-delete-marker") && Boolean.parseBoolean(response.headers().get("x-amz-delete-marker"))) {
+                    throw new CandyS3Exception(CommonErrorCode.OBJECT_VERSION_IS_DELETE_MARKER.getCode(),
+                            CommonErrorCode.OBJECT_VERSION_IS_DELETE_MARKER.getMsg());
                 } else {
-                    S3ServerError serverError = parseErrorMessage(response);
-                    if (response.code() == 412) {
-                        serverError.setCode("PreconditionFailed");
-                        throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
-                    } else {
-                        throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-                    }
+                    throw new CandyS3Exception(CommonErrorCode.NO_SUCH_OBJECT.getCode(),
+                            CommonErrorCode.NO_SUCH_OBJECT.getMsg());
+                }
+            } else {
+                S3ServerError serverError = parseErrorMessage(response);
+                if (response.code() == 412) {
+                    serverError.setCode("PreconditionFailed");
+                    throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
+                } else {
+                    throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
                 }
             }
+        }
 
-            Headers responseHeaders = response.headers();
+        return parseObjectMetadataHeaders(objectKey, response.headers());
+    }
 
-            S3Object s3Object = new S3Object();
-            s3Object.setKey(objectKey);
-            s3Object.setLastModified(responseHeaders.getDate("Last-Modified"));
-            s3Object.seteTag(responseHeaders.get("ETag"));
-            s3Object.setSize(Long.parseLong(responseHeaders.get("Content-Length")));
-            s3Object.setStorageClass(responseHeaders.get("x-amz-storage-class"));
-            s3Object.setVersionId(responseHeaders.get("x-amz-version-id"));
-            if (responseHeaders.names().contains("x-amz-mp-parts-count")) {
-                s3Object.setPartsCount(Integer.parseInt(responseHeaders.get("x-amz-mp-parts-count")));
-            }
-            if (responseHeaders.names().contains("x-amz-tagging-count")) {
-                s3Object.setTagCount(Integer.parseInt(responseHeaders.get("x-amz-tagging-count")));
-            }
-            parseObjectLockPropertiesFromResponseHeaders(s3Object, responseHeaders);
-            parseObjectSseConfigurationFromResponseHeaders(s3Object, responseHeaders);
-            s3Object.setObjectMetadata(parseObjectMetadataFromResponseHeaders(responseHeaders));
-            return s3Object;
-        }
+    S3Object parseObjectMetadataHeaders(String objectKey, Headers responseHeaders) {
+        S3Object s3Object = new S3Object();
+        s3Object.setKey(objectKey);
+        s3Object.setLastModified(responseHeaders.getDate("Last-Modified"));
+        s3Object.seteTag(responseHeaders.get("ETag"));
+        s3Object.setSize(Long.parseLong(responseHeaders.get("Content-Length")));
+        s3Object.setStorageClass(responseHeaders.get("x-amz-storage-class"));
+        s3Object.setVersionId(responseHeaders.get("x-amz-version-id"));
+        if (responseHeaders.names().contains("x-amz-mp-parts-count")) {
+            s3Object.setPartsCount(Integer.parseInt(responseHeaders.get("x-amz-mp-parts-count")));
+        }
+        if (responseHeaders.names().contains("x-amz-tagging-count")) {
+            s3Object.setTagCount(Integer.parseInt(responseHeaders.get("x-amz-tagging-count")));
+        }
+        parseObjectLockPropertiesFromResponseHeaders(s3Object, responseHeaders);
+        parseObjectSseConfigurationFromResponseHeaders(s3Object, responseHeaders);
+        s3Object.setObjectMetadata(parseObjectMetadataFromResponseHeaders(responseHeaders));
+        return s3Object;
     }
 
     /**
@@ -2113,6 +3177,8 @@ public class CandyS3 {
             if (!response.isSuccessful()) {
                 throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
             }
+        } finally {
+            invalidateObjectMetadata(bucket, objectKey);
         }
     }
 
@@ -2177,6 +3243,8 @@ public class CandyS3 {
             if (!response.isSuccessful()) {
                 throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
             }
+        } finally {
+            invalidateObjectMetadata(bucket, objectKey);
         }
     }
 
@@ -2251,6 +3319,21 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_GetObject.html">GetObject</a>
      */
     public S3Object downloadObject(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
+        checkDownloadOutput(bucket, objectKey, options);
+        if (options.getDataOutput() != null && options.getDataOutput().isResumable()) {
+            return downloadObjectResumable(bucket, objectKey, options);
+        }
+        if (options.getDataOutput() != null && options.getDataOutput().getParallelRangeSize() > 0) {
+            return downloadObjectInRanges(bucket, objectKey, options);
+        }
+        return execute(buildDownloadObjectRequest(bucket, objectKey, options),
+                response -> parseDownloadObjectResponse(objectKey, options, response));
+    }
+
+    /**
+     * Check the arguments of downloadObject, and whether the output file can be written.
+     */
+    void checkDownloadOutput(String bucket, String objectKey, DownloadObjectOptions options) {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -2266,7 +3349,21 @@ public class CandyS3 {
                 }
             }
         }
+    }
+
+    Request buildDownloadObjectRequest(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
+        return buildDownloadObjectRequest(bucket, objectKey, options, options.getRange(), null);
+    }
 
+    /**
+     * Build the GET request of downloadObject with the range instead of the range of the options,
+     * it's used by the range requests of a download in ranges.
+     *
+     * @param range the range without 'bytes=', null to request the whole object.
+     * @param ifMatch the ETag the object must match, it replaces If-Match of the options if it's not null.
+     */
+    private Request buildDownloadObjectRequest(String bucket, String objectKey, DownloadObjectOptions options,
+                                               String range, String ifMatch) throws IOException {
         Map<String, String> params = new HashMap<>();
         if (options.getPartNumber() != null) {
             params.put("partNumber", options.getPartNumber() + "");
@@ -2299,10 +3396,14 @@ public class CandyS3 {
         }
 
         Map<String, String> headers = new HashMap<String, String>();
-        if (StringUtils.isNotEmpty(options.getRange())) {
-            headers.put("Range", "bytes=" + options.getRange());
+        if (StringUtils.isNotEmpty(range)) {
+            headers.put("Range", "bytes=" + range);
         }
         headers.putAll(parseDownloadHeaders(options.getCondition()));
+        headers.putAll(parseCustomerKeyHeaders(options.getCustomerKeyOptions()));
+        if (StringUtils.isNotEmpty(ifMatch)) {
+            headers.put(HttpConstants.HEADER_IF_MATCH, ifMatch);
+        }
 
         headers.put(HttpConstants.HEADER_AMZ_CONTENT_HASH, AWS4SignerBase.EMPTY_BODY_SHA256);
 
@@ -2324,81 +3425,250 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                if (response.code() == 304) {
-                    throw new CandyS3Exception(CommonErrorCode.OBJECT_NOT_MODIFIED.getCode(),
-                            CommonErrorCode.OBJECT_NOT_MODIFIED.getMsg());
-                } else if (response.code() == 404) {
-                    throw new CandyS3Exception(CommonErrorCode.NO_SUCH_OBJECT.getCode(),
-                            CommonErrorCode.NO_SUCH_OBJECT.getMsg());
-                } else {
-                    S3ServerError serverError = parseErrorMessage(response);
-                    if (response.code() == 412 && "PreconditionFailed".equals(serverError.getCode())) {
-                        throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
-                    } else {
-                        throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-                    }
+        requestBuilder.tag(RetryPolicy.class, options.getRetryPolicy());
+        return requestBuilder.build();
+    }
+
+    S3Object parseDownloadObjectResponse(String objectKey, DownloadObjectOptions options, Response response) throws IOException {
+        checkDownloadObjectResponse(response);
+
+        Headers responseHeaders = response.headers();
+
+        S3Object s3Object = new S3Object();
+        s3Object.setKey(objectKey);
+        s3Object.setLastModified(responseHeaders.getDate("Last-Modified"));
+        s3Object.seteTag(responseHeaders.get("ETag"));
+        s3Object.setSize(Long.parseLong(responseHeaders.get("Content-Length")));
+        s3Object.setStorageClass(responseHeaders.get("x-amz-storage-class"));
+        s3Object.setVersionId(responseHeaders.get("x-amz-version-id"));
+        if (responseHeaders.names().contains("x-amz-mp-parts-count")) {
+            s3Object.setPartsCount(Integer.parseInt(responseHeaders.get("x-amz-mp-parts-count")));
+        }
+        if (responseHeaders.names().contains("x-amz-tagging-count")) {
+            s3Object.setTagCount(Integer.parseInt(responseHeaders.get("x-amz-tagging-count")));
+        }
+        parseObjectLockPropertiesFromResponseHeaders(s3Object, responseHeaders);
+        parseObjectSseConfigurationFromResponseHeaders(s3Object, responseHeaders);
+        s3Object.setObjectMetadata(parseObjectMetadataFromResponseHeaders(responseHeaders));
+
+        if (response.body() == null) {
+            return s3Object;
+        }
+
+        DownloadObjectOptions.DownloadObjectDataOutput dataOutput = options.getDataOutput();
+        if (dataOutput == null || (StringUtils.isEmpty(dataOutput.getOutputFile()) && dataOutput.getOutputStream() == null)) {
+            s3Object.setContentBytes(response.body().bytes());
+        } else {
+            BufferedOutputStream out = null;
+            if (StringUtils.isNotEmpty(dataOutput.getOutputFile())) {
+                File file = new File(dataOutput.getOutputFile());
+                // re-check if file can be overwritten when already exists.
+                if (file.exists() && !dataOutput.isCanOverwrite()) {
+                    throw new CandyS3Exception(CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getCode(),
+                            CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getMsg());
                 }
+                out = new BufferedOutputStream(new FileOutputStream(file));
+            } else if (dataOutput.getOutputStream() != null) {
+                out = new BufferedOutputStream(dataOutput.getOutputStream());
             }
 
-            Headers responseHeaders = response.headers();
+            assert out != null;
 
-            S3Object s3Object = new S3Object();
-            s3Object.setKey(objectKey);
-            s3Object.setLastModified(responseHeaders.getDate("Last-Modified"));
-            s3Object.seteTag(responseHeaders.get("ETag"));
-            s3Object.setSize(Long.parseLong(responseHeaders.get("Content-Length")));
-            s3Object.setStorageClass(responseHeaders.get("x-amz-storage-class"));
-            s3Object.setVersionId(responseHeaders.get("x-amz-version-id"));
-            if (responseHeaders.names().contains("x-amz-mp-parts-count")) {
-                s3Object.setPartsCount(Integer.parseInt(responseHeaders.get("x-amz-mp-parts-count")));
-            }
-            if (responseHeaders.names().contains("x-amz-tagging-count")) {
-                s3Object.setTagCount(Integer.parseInt(responseHeaders.get("x-amz-tagging-count")));
+            InputStream in = response.body().byteStream();
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            int len = -1;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
             }
-            parseObjectLockPropertiesFromResponseHeaders(s3Object, responseHeaders);
-            parseObjectSseConfigurationFromResponseHeaders(s3Object, responseHeaders);
-            s3Object.setObjectMetadata(parseObjectMetadataFromResponseHeaders(responseHeaders));
+            in.close();
+            out.flush();
+            out.close();
+        }
 
-            if (response.body() == null) {
-                return s3Object;
-            }
+        return s3Object;
+    }
 
-            DownloadObjectOptions.DownloadObjectDataOutput dataOutput = options.getDataOutput();
-            if (dataOutput == null || (StringUtils.isEmpty(dataOutput.getOutputFile()) && dataOutput.getOutputStream() == null)) {
-                s3Object.setContentBytes(response.body().bytes());
+    private void checkDownloadObjectResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            if (response.code() == 304) {
+                throw new CandyS3Exception(CommonErrorCode.OBJECT_NOT_MODIFIED.getCode(),
+                        CommonErrorCode.OBJECT_NOT_MODIFIED.getMsg());
+            } else if (response.code() == 404) {
+                throw new CandyS3Exception(CommonErrorCode.NO_SUCH_OBJECT.getCode(),
+                        CommonErrorCode.NO_SUCH_OBJECT.getMsg());
             } else {
-                BufferedOutputStream out = null;
-                if (StringUtils.isNotEmpty(dataOutput.getOutputFile())) {
-                    File file = new File(dataOutput.getOutputFile());
-                    // re-check if file can be overwritten when already exists.
-                    if (file.exists() && !dataOutput.isCanOverwrite()) {
-                        throw new CandyS3Exception(CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getCode(),
-                                CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getMsg());
-                    }
-                    out = new BufferedOutputStream(new FileOutputStream(file));
-                } else if (dataOutput.getOutputStream() != null) {
-                    out = new BufferedOutputStream(dataOutput.getOutputStream());
+                S3ServerError serverError = parseErrorMessage(response);
+                if (response.code() == 412 && "PreconditionFailed".equals(serverError.getCode())) {
+                    throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
+                } else {
+                    throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
                 }
+            }
+        }
+    }
 
-                assert out != null;
+    /**
+     * Download object to file with concurrent range requests.
+     * The object size and ETag are fetched by a HEAD request first, which bypasses the metadata cache, then the file is preallocated,
+     * and each range is written to its offset of the file. All ranges are requested with If-Match of the ETag,
+     * so the download fails with OBJECT_PRECONDITION_FAILED if the object is changed during the download.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to download object, output file and range size is required.
+     * @return the object metadata.
+     * @throws IOException if an error occurs when send request or write file.
+     */
+    private S3Object downloadObjectInRanges(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
+        S3Object s3Object = headObjectUncached(bucket, objectKey, options);
+        long size = s3Object.getSize();
+        long rangeSize = options.getDataOutput().getParallelRangeSize();
+        long rangeCount = (size + rangeSize - 1) / rangeSize;
+
+        File file = new File(options.getDataOutput().getOutputFile());
+        boolean completed = false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+            transferConcurrently((int) Math.min(rangeCount, Integer.MAX_VALUE), range -> {
+                long start = range * rangeSize;
+                long end = Math.min(start + rangeSize, size) - 1;
+                downloadRange(bucket, objectKey, options, s3Object.geteTag(), start, end, channel);
+                return null;
+            });
+            channel.force(false);
+            completed = true;
+        } finally {
+            if (!completed) {
+                file.delete();
+            }
+        }
+        return s3Object;
+    }
 
-                InputStream in = response.body().byteStream();
-                byte[] buffer = new byte[1024];
-                int len = -1;
-                while ((len = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, len);
+    /**
+     * Download object to file in ranges which can be resumed, see {@link DownloadObjectOptions.DownloadObjectDataOutput#resumable()}.
+     * The object size and ETag are fetched by a HEAD request first, which bypasses the metadata cache. If the checkpoint of the file matches them,
+     * only the ranges not recorded in it are downloaded, otherwise the download starts over.
+     * Each range is flushed to the partial file before it's recorded, and all ranges are requested with If-Match of the ETag.
+     * The partial file and the checkpoint are kept on failure, except when the object is changed during the download.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to download object, output file is required.
+     * @return the object metadata.
+     * @throws IOException if an error occurs when send request or write file.
+     */
+    private S3Object downloadObjectResumable(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
+        S3Object s3Object = headObjectUncached(bucket, objectKey, options);
+        if (StringUtils.isEmpty(s3Object.geteTag())) {
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), "The object has no ETag, the download can't be resumed.");
+        }
+        DownloadObjectOptions.DownloadObjectDataOutput dataOutput = options.getDataOutput();
+        File file = new File(dataOutput.getOutputFile());
+        File partialFile = DownloadCheckpoint.partialFileOf(file);
+
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(file);
+        if (checkpoint != null && (!checkpoint.matches(bucket, objectKey, options.getVersionId(), s3Object.geteTag(), s3Object.getSize())
+                || partialFile.length() != checkpoint.getSize())) {
+            // The object is changed since the download started, or the partial file is lost, so the downloaded ranges can't be used.
+            checkpoint.delete();
+            checkpoint = null;
+        }
+        if (checkpoint == null) {
+            Files.deleteIfExists(partialFile.toPath());
+            long rangeSize = dataOutput.getParallelRangeSize() > 0 ? dataOutput.getParallelRangeSize() : DEFAULT_RESUMABLE_RANGE_SIZE;
+            checkpoint = DownloadCheckpoint.create(file, bucket, objectKey, options.getVersionId(),
+                    s3Object.geteTag(), s3Object.getSize(), rangeSize);
+        }
+
+        DownloadCheckpoint progress = checkpoint;
+        long size = progress.getSize();
+        long rangeSize = progress.getRangeSize();
+        List<Integer> missingRanges = new ArrayList<>();
+        for (int range = 0; range < progress.getRangeCount(); range++) {
+            if (!progress.isDownloaded(range)) {
+                missingRanges.add(range);
+            }
+        }
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(partialFile, "rw")) {
+                if (raf.length() != size) {
+                    raf.setLength(size);
                 }
-                in.close();
-                out.flush();
-                out.close();
+                FileChannel channel = raf.getChannel();
+                transferConcurrently(missingRanges.size(), index -> {
+                    int range = missingRanges.get(index);
+                    long start = range * rangeSize;
+                    long end = Math.min(start + rangeSize, size) - 1;
+                    downloadRange(bucket, objectKey, options, progress.getETag(), start, end, channel);
+                    channel.force(false);
+                    progress.addRange(range);
+                    return null;
+                });
             }
+        } catch (CandyS3Exception e) {
+            if (e.getCode() == CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode()) {
+                // The object is changed during the download, the downloaded ranges can't be used.
+                progress.delete();
+                Files.deleteIfExists(partialFile.toPath());
+            }
+            throw e;
+        } finally {
+            progress.close();
+        }
 
-            return s3Object;
+        // re-check if file can be overwritten when already exists.
+        if (file.exists() && !dataOutput.isCanOverwrite()) {
+            throw new CandyS3Exception(CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getCode(),
+                    CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getMsg());
         }
+        Files.move(partialFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        progress.delete();
+        return s3Object;
+    }
+
+    /**
+     * Get the metadata of the object from the server, bypassing the metadata cache.
+     * The size and ETag of a download in ranges must be of the current object, not of a cached entry which may be stale.
+     */
+    private S3Object headObjectUncached(String bucket, String objectKey, DownloadObjectOptions options) throws IOException {
+        return execute(buildGetObjectMetadataRequest(bucket, objectKey, options), response -> parseGetObjectMetadataResponse(objectKey, response));
+    }
+
+    /**
+     * Download a byte range of the object, and write it to the same offset of the file channel.
+     * The request has the version, conditions, customer key and response header options of the options, and If-Match of the ETag.
+     *
+     * @param eTag ETag of the object when the download started.
+     * @param start the first byte of the range, inclusive.
+     * @param end the last byte of the range, inclusive.
+     */
+    private void downloadRange(String bucket, String objectKey, DownloadObjectOptions options, String eTag,
+                               long start, long end, FileChannel channel) throws IOException {
+        execute(buildDownloadObjectRequest(bucket, objectKey, options, start + "-" + end, eTag), response -> {
+            checkDownloadObjectResponse(response);
+            if (response.code() != 206 && (start != 0 || end != response.body().contentLength() - 1)) {
+                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), "Range request is not supported by server.");
+            }
+
+            InputStream in = response.body().byteStream();
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long position = start;
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                byteBuffer.clear();
+                byteBuffer.limit(len);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+            }
+            if (position != end + 1) {
+                throw new IOException("Unexpected end of range " + start + "-" + end + ", received " + (position - start) + " bytes.");
+            }
+            return null;
+        });
     }
 
     /**
@@ -2462,6 +3732,8 @@ public class CandyS3 {
                     throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
                 }
             }
+        } finally {
+            invalidateObjectMetadata(bucket, options.getKey(), options.getVersionId());
         }
     }
 
@@ -2474,7 +3746,26 @@ public class CandyS3 {
      * @throws NoSuchAlgorithmException if error occurs when compute signature.
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_DeleteObjects.html">DeleteObjects</a>
      */
-    public DeleteObjectsBatchResult deleteObjectsBatch(String bucket, DeleteObjectsBatchOptions options) throws IOException, NoSuchAlgorithmException {
+    public DeleteObjectsBatchResult deleteObjectsBatch(String bucket, DeleteObjectsBatchOptions options) throws IOException, NoSuchAlgorithmException {
+        try {
+            return execute(buildDeleteObjectsBatchRequest(bucket, options), this::parseDeleteObjectsBatchResponse);
+        } finally {
+            invalidateObjectMetadata(bucket, options);
+        }
+    }
+
+    /**
+     * Invalidates the cached metadata of the objects in a DeleteObjects request.
+     */
+    void invalidateObjectMetadata(String bucket, DeleteObjectsBatchOptions options) {
+        if (objectMetadataCache != null) {
+            for (DeleteObjectsBatchOptions.DeleteObjectsBatchItem item : options.getDeleteObjectKeys()) {
+                invalidateObjectMetadata(bucket, item.getKey(), item.getVersionId());
+            }
+        }
+    }
+
+    Request buildDeleteObjectsBatchRequest(String bucket, DeleteObjectsBatchOptions options) throws IOException, NoSuchAlgorithmException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -2488,6 +3779,9 @@ public class CandyS3 {
         }
 
         Delete delete = new Delete();
+        if (options.isQuiet()) {
+            delete.quiet = true;
+        }
         delete.deleteObjects = new ArrayList<>(options.getDeleteObjectKeys().size());
         for (DeleteObjectsBatchOptions.DeleteObjectsBatchItem deleteObjectItem : options.getDeleteObjectKeys()) {
             DeleteObject deleteObject = new DeleteObject();
@@ -2525,48 +3819,111 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
-            }
+        return requestBuilder.build();
+    }
 
-            JsonNode root = xmlMapper.readTree(response.body().string());
+    /**
+     * Deletes any number of objects or object versions with DeleteObjects requests.
+     * The items are cut into batches as the iterator is consumed, and several batches are sent concurrently,
+     * so it can be fed by a listing, like {@code listObjectsIterable(bucket, options).stream().map(o -> new DeleteObjectsBatchItem(o.getKey())).iterator()}.
+     * Objects which fail with a transient error are retried, other failed objects are returned in the result.
+     * @param bucket the bucket name.
+     * @param items the objects to delete.
+     * @param options the options to delete objects in bulk.
+     * @return the aggregated result of all batches.
+     * @throws IOException if an error occurs when send request, no more batches are sent after the first error.
+     * @see #deleteObjectsBatch(String, DeleteObjectsBatchOptions)
+     */
+    public DeleteObjectsBulkResult deleteObjectsBulk(String bucket, Iterator<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> items,
+                                                     DeleteObjectsBulkOptions options) throws IOException {
+        return new BulkObjectDeleter(this, bucket, options).delete(items);
+    }
+
+    /**
+     * Deletes any number of objects or object versions with DeleteObjects requests, see {@link #deleteObjectsBulk(String, Iterator, DeleteObjectsBulkOptions)}.
+     * The stream is consumed but not closed.
+     * @param bucket the bucket name.
+     * @param items the objects to delete.
+     * @param options the options to delete objects in bulk.
+     * @return the aggregated result of all batches.
+     * @throws IOException if an error occurs when send request.
+     */
+    public DeleteObjectsBulkResult deleteObjectsBulk(String bucket, Stream<DeleteObjectsBatchOptions.DeleteObjectsBatchItem> items,
+                                                     DeleteObjectsBulkOptions options) throws IOException {
+        return deleteObjectsBulk(bucket, items.iterator(), options);
+    }
+
+    /**
+     * Uploads the files of a local directory and its subdirectories to the objects under a prefix.
+     * The objects under the prefix are listed and compared with the files, the files which are the same as their objects are skipped,
+     * see {@link DirectorySyncer}. The other files are uploaded concurrently, a large file is uploaded in parts.
+     * A file which fails to upload is recorded in the result, the other files are still uploaded.
+     * The objects which don't have a local file are kept.
+     * @param bucket the bucket name.
+     * @param directory the local directory.
+     * @param options the options to sync the directory.
+     * @return the counts of the files transferred and skipped, and the files which failed.
+     * @throws IOException if the directory can't be walked or the objects can't be listed.
+     */
+    public DirectorySyncResult uploadDirectory(String bucket, String directory, DirectorySyncOptions options) throws IOException {
+        return new DirectorySyncer(this, bucket, directory, options).upload();
+    }
+
+    /**
+     * Downloads the objects under a prefix to the files of a local directory, the directory is created if it doesn't exist.
+     * The objects are compared with the existing files as they are listed, the files which are the same as their objects are skipped,
+     * see {@link DirectorySyncer}. The other objects are downloaded concurrently, and the modification time of each file is set to
+     * the last modified time of its object. An object which fails to download is recorded in the result, the other objects are still downloaded.
+     * The files which don't have an object are kept, and the keys ending with '/' are not downloaded.
+     * @param bucket the bucket name.
+     * @param directory the local directory.
+     * @param options the options to sync the directory.
+     * @return the counts of the files transferred and skipped, and the files which failed.
+     * @throws IOException if the directory can't be created or the objects can't be listed.
+     */
+    public DirectorySyncResult downloadDirectory(String bucket, String directory, DirectorySyncOptions options) throws IOException {
+        return new DirectorySyncer(this, bucket, directory, options).download();
+    }
+
+    DeleteObjectsBatchResult parseDeleteObjectsBatchResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
+        }
+
+        JsonNode root = xmlMapper.readTree(response.body().string());
 
-            DeleteObjectsBatchResult result = new DeleteObjectsBatchResult();
+        DeleteObjectsBatchResult result = new DeleteObjectsBatchResult();
 
-            JsonNode errorsNode = root.path("Error");
-            if (errorsNode.isMissingNode()) {
-                result.setSuccessful(true);
+        JsonNode errorsNode = root.path("Error");
+        if (errorsNode.isMissingNode()) {
+            result.setSuccessful(true);
+        } else {
+            result.setSuccessful(false);
+            List<DeleteObjectsBatchResult.DeleteError> errors = new ArrayList<>(0);
+            if (errorsNode.isArray()) {
+                errors = xmlMapper.treeToValue(errorsNode,
+                        xmlMapper.getTypeFactory()
+                                .constructCollectionType(List.class, DeleteObjectsBatchResult.DeleteError.class));
             } else {
-                result.setSuccessful(false);
-                List<DeleteObjectsBatchResult.DeleteError> errors = new ArrayList<>(0);
-                if (errorsNode.isArray()) {
-                    errors = xmlMapper.treeToValue(errorsNode,
-                            xmlMapper.getTypeFactory()
-                                    .constructCollectionType(List.class, DeleteObjectsBatchResult.DeleteError.class));
-                } else {
-                    errors.add(xmlMapper.treeToValue(errorsNode, DeleteObjectsBatchResult.DeleteError.class));
-                }
-                result.setErrors(errors);
+                errors.add(xmlMapper.treeToValue(errorsNode, DeleteObjectsBatchResult.DeleteError.class));
             }
+            result.setErrors(errors);
+        }
 
-            JsonNode deletedObjectsNode = root.path("Deleted");
-            if (!deletedObjectsNode.isMissingNode()) {
-                List<DeleteObjectsBatchResult.DeletedObject> deletedObjects = new ArrayList<>(0);
-                if (deletedObjectsNode.isArray()) {
-                    deletedObjects = xmlMapper.treeToValue(deletedObjectsNode,
-                            xmlMapper.getTypeFactory()
-                                    .constructCollectionType(List.class, DeleteObjectsBatchResult.DeletedObject.class));
-                } else {
-                    deletedObjects.add(xmlMapper.treeToValue(deletedObjectsNode, DeleteObjectsBatchResult.DeletedObject.class));
-                }
-                result.setDeleted(deletedObjects);
+        JsonNode deletedObjectsNode = root.path("Deleted");
+        if (!deletedObjectsNode.isMissingNode()) {
+            List<DeleteObjectsBatchResult.DeletedObject> deletedObjects = new ArrayList<>(0);
+            if (deletedObjectsNode.isArray()) {
+                deletedObjects = xmlMapper.treeToValue(deletedObjectsNode,
+                        xmlMapper.getTypeFactory()
+                                .constructCollectionType(List.class, DeleteObjectsBatchResult.DeletedObject.class));
+            } else {
+                deletedObjects.add(xmlMapper.treeToValue(deletedObjectsNode, DeleteObjectsBatchResult.DeletedObject.class));
             }
-
-            return result;
+            result.setDeleted(deletedObjects);
         }
+
+        return result;
     }
 
 
@@ -2618,6 +3975,7 @@ public class CandyS3 {
         }
 
         headers.putAll(parseCopySourceConditionHeaders(options.getCopySourceCondition()));
+        headers.putAll(parseCopySourceCustomerKeyHeaders(options.getCopySourceCustomerKeyOptions()));
         headers.putAll(parseUploadHeaders(options.getWriteTargetCondition()));
 
         String bodyHash = AWS4SignerBase.EMPTY_BODY_SHA256;
@@ -2657,6 +4015,139 @@ public class CandyS3 {
 
             JsonNode root = xmlMapper.readTree(response.body().string());
             return root.path("ETag").asText();
+        } finally {
+            invalidateObjectMetadata(bucket, objectKey, null);
+        }
+    }
+
+    /**
+     * Creates a copy of an object of any size, the copy of an object larger than 5GB can't be done by {@link #copyObject}.
+     * The source object is fetched by getObjectMetadata first. If it's not larger than a part, it's copied by copyObject,
+     * otherwise it's copied by a multipart upload, whose parts are copied from the byte ranges of the source
+     * concurrently with the transfer executor. The bytes are copied by the server, they don't pass through the client.
+     * <p>
+     * The parts are copied with If-Match of the ETag of the source, so the copy fails if the source is changed during the copy,
+     * and the upload is aborted on failure. The part size is the copy part size of the client,
+     * or larger if the object has more than 10000 parts of it.
+     * <p>
+     * A multipart copy sets the metadata headers of the source on the copy, unless the metadata directive is replaced.
+     * The tags of the source can't be copied, so the copy of a source with tags must replace the tagging directive.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to copy object.
+     * @return the eTag of the copied object.
+     * @throws IOException if an error occurs when send request.
+     * @throws NoSuchAlgorithmException if error occurs when compute signature.
+     * @see #copyObject(String, String, CopyObjectOptions)
+     * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_UploadPartCopy.html">UploadPartCopy</a>
+     */
+    public String parallelCopyObject(String bucket, String objectKey, CopyObjectOptions options) throws IOException, NoSuchAlgorithmException {
+        if (StringUtils.isEmpty(bucket)) {
+            throw new IllegalArgumentException("bucket is required.");
+        }
+        if (StringUtils.isEmpty(objectKey)) {
+            throw new IllegalArgumentException("objectKey is required.");
+        }
+
+        // The copy source is '/bucket/key'.
+        int keyStart = options.getCopySource().indexOf('/', 1);
+        String sourceBucket = options.getCopySource().substring(1, keyStart);
+        String sourceKey = options.getCopySource().substring(keyStart + 1);
+
+        DownloadObjectOptions.DownloadObjectOptionsBuilder sourceOptionsBuilder = new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                .versionId(options.getCopySourceVersionId());
+        DownloadObjectOptions.DownloadObjectCondition sourceCondition = options.getCopySourceCondition();
+        if (sourceCondition != null) {
+            sourceOptionsBuilder.configureDownloadCondition()
+                    .ifMatch(sourceCondition.getIfMatch())
+                    .ifNoneMatch(sourceCondition.getIfNoneMatch())
+                    .ifModifiedSince(sourceCondition.getIfModifiedSince())
+                    .ifUnmodifiedSince(sourceCondition.getIfUnmodifiedSince());
+        }
+        ServerSideEncryptionCustomerKeyOptions sourceCustomerKey = options.getCopySourceCustomerKeyOptions();
+        if (sourceCustomerKey != null) {
+            // The source is read by the HEAD request itself, so its key is sent as the customer key of the request.
+            sourceOptionsBuilder.configureCustomerKey()
+                    .algorithm(sourceCustomerKey.getAlgorithm())
+                    .key(sourceCustomerKey.getKey())
+                    .keyMd5(sourceCustomerKey.getKeyMd5())
+                    .endConfigureCustomerKey();
+        }
+        Map<String, String> userMetadata = new HashMap<>();
+        S3Object source = execute(buildGetObjectMetadataRequest(sourceBucket, sourceKey, sourceOptionsBuilder.build()), response -> {
+            S3Object s3Object = parseGetObjectMetadataResponse(sourceKey, response);
+            for (String name : response.headers().names()) {
+                if (name.toLowerCase().startsWith("x-amz-meta-")) {
+                    userMetadata.put(name, response.header(name));
+                }
+            }
+            return s3Object;
+        });
+
+        long size = source.getSize();
+        long partSize = Math.max(copyPartSize, partSizePolicy.partSizeForLength(size));
+        if (size <= partSize) {
+            return copyObject(bucket, objectKey, options);
+        }
+        if (source.getTagCount() != null && source.getTagCount() > 0 && !options.isReplaceTaggingDirective()) {
+            throw new IllegalArgumentException("The tags of the copy source can't be copied in parts, replace the tagging directive.");
+        }
+
+        Map<String, String> headers;
+        if (options.isReplaceMetadataDirective()) {
+            headers = parseUploadHeaders(options.getHeaderProperties());
+        } else {
+            headers = new HashMap<>(userMetadata);
+            S3Object.S3ObjectMetadata metadata = source.getObjectMetadata();
+            putIfNotEmpty(headers, "Cache-Control", metadata.getCacheControl());
+            putIfNotEmpty(headers, "Content-Disposition", metadata.getContentDisposition());
+            putIfNotEmpty(headers, "Content-Encoding", metadata.getContentEncoding());
+            putIfNotEmpty(headers, "Content-Language", metadata.getContentLanguage());
+            putIfNotEmpty(headers, "Content-Type", metadata.getContentType());
+            if (metadata.getExpires() != null) {
+                headers.put("Expires", formatHttpDate(metadata.getExpires()));
+            }
+        }
+        headers.putAll(parseUploadHeaders(options.getObjectLockOptions()));
+        headers.putAll(parseUploadHeaders(options.getServerSideEncryptionOptions()));
+        if (options.getStorageClass() != null) {
+            headers.put(HttpConstants.HEADER_AMZ_STORAGE_CLASS, options.getStorageClass());
+        }
+        if (options.getTagSet() != null && !options.getTagSet().isEmpty()) {
+            headers.put(HttpConstants.HEADER_AMZ_TAGGING, buildUrlKVVariables(options.getTagSet()));
+        }
+
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        try {
+            return doMultipartUpload(bucket, objectKey, headers, options.getWriteTargetCondition(), null,
+                    uploadId -> transferConcurrently(partCount, index -> {
+                        long start = index * partSize;
+                        CopyPartOptions.CopyPartOptionsBuilder copyPartOptionsBuilder = new CopyPartOptions.CopyPartOptionsBuilder()
+                                .copySource(sourceBucket, sourceKey, options.getCopySourceVersionId())
+                                .copySourceRange(start, Math.min(start + partSize, size) - 1)
+                                .configureCopySourceCondition().ifMatch(source.geteTag()).endConfigureCondition();
+                        if (sourceCustomerKey != null) {
+                            copyPartOptionsBuilder.configureCopySourceCustomerKey()
+                                    .algorithm(sourceCustomerKey.getAlgorithm())
+                                    .key(sourceCustomerKey.getKey())
+                                    .keyMd5(sourceCustomerKey.getKeyMd5())
+                                    .endConfigureCopySourceCustomerKey();
+                        }
+                        CopyPartOptions copyPartOptions = copyPartOptionsBuilder.build();
+                        S3Part part = new S3Part();
+                        part.setPartNum(index + 1);
+                        part.setEtag(copyPart(bucket, objectKey, uploadId, index + 1, copyPartOptions));
+                        return part;
+                    }));
+        } finally {
+            invalidateObjectMetadata(bucket, objectKey, null);
+        }
+    }
+
+    private static void putIfNotEmpty(Map<String, String> headers, String name, String value) {
+        if (StringUtils.isNotEmpty(value)) {
+            headers.put(name, value);
         }
     }
 
@@ -2685,7 +4176,7 @@ public class CandyS3 {
                 url, options.getMethod(), HttpConstants.CONSTANT_AWS_SERVICENAME_S3, region);
         String authorizationQueryParams = signer.computeSignature(new HashMap<>(),
                 params,
-                "UNSIGNED-PAYLOAD",
+                AWS4SignerBase.UNSIGNED_PAYLOAD,
                 accessKey,
                 secretKey);
 
@@ -2702,6 +4193,10 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_CreateMultipartUpload.html">CreateMultipartUpload</a>
      */
     public String createMultipartUpload(String bucket, String objectKey, CreateMultipartUploadOptions options) throws IOException {
+        return execute(buildCreateMultipartUploadRequest(bucket, objectKey, options), this::parseCreateMultipartUploadResponse);
+    }
+
+    Request buildCreateMultipartUploadRequest(String bucket, String objectKey, CreateMultipartUploadOptions options) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -2726,10 +4221,16 @@ public class CandyS3 {
             headers.putAll(parseUploadHeaders(options.getObjectLockOptions()));
         }
 
-        return createMultipartUpload(bucket, objectKey, headers);
+        return buildCreateMultipartUploadRequest(bucket, objectKey, headers);
+    }
+
+    private String createMultipartUpload(String bucket, String objectKey, Map<String, String> includedHeaders,
+                                         RetryPolicy retryPolicy) throws IOException {
+        return execute(withRetryPolicy(buildCreateMultipartUploadRequest(bucket, objectKey, includedHeaders), retryPolicy),
+                this::parseCreateMultipartUploadResponse);
     }
 
-    private String createMultipartUpload(String bucket, String objectKey, Map<String, String> includedHeaders) throws IOException {
+    Request buildCreateMultipartUploadRequest(String bucket, String objectKey, Map<String, String> includedHeaders) throws IOException {
         Map<String, String> params = new HashMap<>();
         params.put("uploads", "");
 
@@ -2754,16 +4255,16 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : includedHeaders.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
-            }
+        return requestBuilder.build();
+    }
 
-            JsonNode root = xmlMapper.readTree(response.body().string());
-            return root.path("UploadId").asText("");
+    String parseCreateMultipartUploadResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
         }
+
+        JsonNode root = xmlMapper.readTree(response.body().string());
+        return root.path("UploadId").asText("");
     }
 
     /**
@@ -2776,6 +4277,13 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_AbortMultipartUpload.html">AbortMultipartUpload</a>
      */
     public void abortMultipartUpload(String bucket, String objectKey, String uploadId, AbortMultipartUploadOptions options) throws IOException {
+        execute(buildAbortMultipartUploadRequest(bucket, objectKey, uploadId, options), response -> {
+            parseAbortMultipartUploadResponse(response);
+            return null;
+        });
+    }
+
+    Request buildAbortMultipartUploadRequest(String bucket, String objectKey, String uploadId, AbortMultipartUploadOptions options) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -2808,12 +4316,12 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
-            }
+        return requestBuilder.build();
+    }
+
+    void parseAbortMultipartUploadResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), parseErrorMessage(response));
         }
     }
 
@@ -2830,6 +4338,15 @@ public class CandyS3 {
      */
     public String completeMultipartUpload(String bucket, String objectKey, String uploadId, List<S3Part> s3Parts,
                                           CompleteMultipartUploadOptions options) throws IOException {
+        try {
+            return execute(buildCompleteMultipartUploadRequest(bucket, objectKey, uploadId, s3Parts, options), this::parseCompleteMultipartUploadResponse);
+        } finally {
+            invalidateObjectMetadata(bucket, objectKey, null);
+        }
+    }
+
+    Request buildCompleteMultipartUploadRequest(String bucket, String objectKey, String uploadId, List<S3Part> s3Parts,
+                                          CompleteMultipartUploadOptions options) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -2876,31 +4393,32 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                S3ServerError serverError = parseErrorMessage(response);
-                if (response.code() == 412 && "PreconditionFailed".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
-                } else if (response.code() == 409 && "ConditionalRequestConflict".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.OBJECT_CONDITIONAL_REQUEST_CONFLICT.getCode(), serverError);
-                } else if (response.code() == 400 && "EntityTooSmall".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_ENTITY_TOO_SMALL.getCode(), serverError);
-                } else if (response.code() == 404 && "NoSuchUpload".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_NOT_EXISTS.getCode(), serverError);
-                } else if (response.code() == 400 && "InvalidPart".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_INVALID_PART.getCode(), serverError);
-                } else if (response.code() == 400 && "InvalidPartOrder".equals(serverError.getCode())) {
-                    throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_INVALID_PART_ORDER.getCode(), serverError);
-                } else {
-                    throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-                }
-            }
+        requestBuilder.tag(RetryPolicy.class, options.getRetryPolicy());
+        return requestBuilder.build();
+    }
 
-            JsonNode root = xmlMapper.readTree(response.body().string());
-            return root.path("ETag").asText("");
+    String parseCompleteMultipartUploadResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            S3ServerError serverError = parseErrorMessage(response);
+            if (response.code() == 412 && "PreconditionFailed".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), serverError);
+            } else if (response.code() == 409 && "ConditionalRequestConflict".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.OBJECT_CONDITIONAL_REQUEST_CONFLICT.getCode(), serverError);
+            } else if (response.code() == 400 && "EntityTooSmall".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_ENTITY_TOO_SMALL.getCode(), serverError);
+            } else if (response.code() == 404 && "NoSuchUpload".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_NOT_EXISTS.getCode(), serverError);
+            } else if (response.code() == 400 && "InvalidPart".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_INVALID_PART.getCode(), serverError);
+            } else if (response.code() == 400 && "InvalidPartOrder".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_INVALID_PART_ORDER.getCode(), serverError);
+            } else {
+                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
+            }
         }
+
+        JsonNode root = xmlMapper.readTree(response.body().string());
+        return root.path("ETag").asText("");
     }
 
     /**
@@ -2912,6 +4430,30 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_ListMultipartUploads.html">ListMultipartUploads</a>
      */
     public ListPaginationResult<S3MultipartUpload> listMultipartUploads(String bucket, ListMultipartUploadOptions options) throws IOException {
+        return execute(buildListMultipartUploadsRequest(bucket, options), this::parseListMultipartUploadsResponse);
+    }
+
+    /**
+     * Lists all in-progress multipart uploads in a bucket, the pages are requested as the result is iterated.
+     * The next pages are requested in the background while the current page is consumed, see {@link #setListPrefetchPages(int)}.
+     * @param bucket the bucket name.
+     * @param options the options to list multipart uploads, the markers of it are used for the first page.
+     * @return the multipart uploads of all pages, common prefixes are not included.
+     * @see #listMultipartUploads(String, ListMultipartUploadOptions)
+     */
+    public ListPaginationIterable<S3MultipartUpload> listMultipartUploadsIterable(String bucket, ListMultipartUploadOptions options) {
+        return new ListPaginationIterable<>(previous -> {
+            ListMultipartUploadOptions pageOptions = previous == null ? options : new ListMultipartUploadOptions()
+                    .delimiter(options.getDelimiter())
+                    .maxUploads(options.getMaxUploads())
+                    .prefix(options.getPrefix())
+                    .keyMarker(previous.getNextPaginationMarker())
+                    .uploadIdMarker(previous.getNextPaginationMarker2());
+            return executeAsync(buildListMultipartUploadsRequest(bucket, pageOptions), this::parseListMultipartUploadsResponse);
+        }, ListPaginationResult::getResults, listPrefetchPages);
+    }
+
+    Request buildListMultipartUploadsRequest(String bucket, ListMultipartUploadOptions options) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -2955,53 +4497,54 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                S3ServerError serverError = parseErrorMessage(response);
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
-            }
+        return requestBuilder.build();
+    }
 
-            JsonNode root = xmlMapper.readTree(response.body().string());
+    ListPaginationResult<S3MultipartUpload> parseListMultipartUploadsResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            S3ServerError serverError = parseErrorMessage(response);
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
+        }
 
-            JsonNode uploadsNode = root.path("Upload");
-            List<S3MultipartUpload> s3MultipartUploads = new ArrayList<>(0);
-            if (!uploadsNode.isMissingNode()) {
-                // jackson cant recognize node as an array when it has only one child.
-                if (uploadsNode.isArray()) {
-                    s3MultipartUploads = xmlMapper.treeToValue(uploadsNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, S3MultipartUpload.class));
-                } else {
-                    s3MultipartUploads = new ArrayList<>(1);
-                    s3MultipartUploads.add(xmlMapper.treeToValue(uploadsNode, S3MultipartUpload.class));
-                }
+        JsonNode root = xmlMapper.readTree(response.body().string());
+
+        JsonNode uploadsNode = root.path("Upload");
+        List<S3MultipartUpload> s3MultipartUploads = new ArrayList<>(0);
+        if (!uploadsNode.isMissingNode()) {
+            // jackson cant recognize node as an array when it has only one child.
+            if (uploadsNode.isArray()) {
+                s3MultipartUploads = xmlMapper.treeToValue(uploadsNode,
+                        xmlMapper.getTypeFactory().constructCollectionType(List.class, S3MultipartUpload.class));
+            } else {
+                s3MultipartUploads = new ArrayList<>(1);
+                s3MultipartUploads.add(xmlMapper.treeToValue(uploadsNode, S3MultipartUpload.class));
             }
+        }
 
-            ListPaginationResult<S3MultipartUpload> paginationResult =
-                    new ListPaginationResult<>(s3MultipartUploads,
-                            root.path("NextKeyMarker").asText(""),
-                            root.path("NextUploadIdMarker").asText(""));
+        ListPaginationResult<S3MultipartUpload> paginationResult =
+                new ListPaginationResult<>(s3MultipartUploads,
+                        root.path("NextKeyMarker").asText(""),
+                        root.path("NextUploadIdMarker").asText(""));
 
-            JsonNode commonPrefixesNode = root.path("CommonPrefixes");
-            List<ListPaginationResult.CommonPrefix> commonPrefixes = new ArrayList<>();
-            if (!commonPrefixesNode.isMissingNode()) {
-                if (commonPrefixesNode.isArray()) {
-                    commonPrefixes = xmlMapper.treeToValue(commonPrefixesNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, ListPaginationResult.CommonPrefix.class));
-                } else {
-                    commonPrefixes.add(xmlMapper.treeToValue(commonPrefixesNode, ListPaginationResult.CommonPrefix.class));
-                }
+        JsonNode commonPrefixesNode = root.path("CommonPrefixes");
+        List<ListPaginationResult.CommonPrefix> commonPrefixes = new ArrayList<>();
+        if (!commonPrefixesNode.isMissingNode()) {
+            if (commonPrefixesNode.isArray()) {
+                commonPrefixes = xmlMapper.treeToValue(commonPrefixesNode,
+                        xmlMapper.getTypeFactory().constructCollectionType(List.class, ListPaginationResult.CommonPrefix.class));
+            } else {
+                commonPrefixes.add(xmlMapper.treeToValue(commonPrefixesNode, ListPaginationResult.CommonPrefix.class));
             }
-            paginationResult.setCommonPrefixes(commonPrefixes);
-
-            return paginationResult;
         }
+        paginationResult.setCommonPrefixes(commonPrefixes);
+
+        return paginationResult;
     }
 
     /**
      * Uploads a part in a multipart upload.
-     * S3 part size can be 5MB to 5GB. Should use a reasonable size when call this part because it read all data into memory directly.
+     * S3 part size can be 5MB to 5GB. Files are read when the request is sent,
+     * but other input streams are read into memory, so should use a reasonable size for them.
      *
      * @param bucket the bucket name.
      * @param objectKey the object key.
@@ -3016,7 +4559,19 @@ public class CandyS3 {
     public S3Part uploadPart(String bucket, String objectKey,
                              String uploadId, int partNum,
                              UploadPartOptions options) throws IOException, NoSuchAlgorithmException {
+        try {
+            return execute(buildUploadPartRequest(bucket, objectKey, uploadId, partNum, options),
+                    response -> parseUploadPartResponse(partNum, response));
+        } finally {
+            if (options.getInputStream() != null) {
+                options.getInputStream().close();
+            }
+        }
+    }
 
+    Request buildUploadPartRequest(String bucket, String objectKey,
+                                   String uploadId, int partNum,
+                                   UploadPartOptions options) throws IOException, NoSuchAlgorithmException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -3029,44 +4584,35 @@ public class CandyS3 {
 
         checkDataInput(options.getDataContentOptions());
 
-        String resultEtag = null;
+        PayloadSigningMode signingMode = resolvePayloadSigningMode(options.getPayloadSigningMode());
 
+        UploadPayload payload;
         if (ArrayUtils.isNotEmpty(options.getInputBytes())) {
-            resultEtag = this.doUpload(bucket, objectKey, null, uploadId, partNum,
-                    options.getInputBytes());
+            byte[] data = options.getInputBytes();
+            payload = UploadPayload.ofBytes(data, 0, data.length);
+        } else if (options.getInputFile() != null || options.getInputStream() instanceof FileInputStream) {
+            // The file is read when the request is sent, without copying it into memory.
+            payload = toFilePayload(options.getDataContentOptions());
         } else {
-            BufferedInputStream bin;
-            long len;
-            if (options.getInputStream() != null) {
-                bin = new BufferedInputStream(options.getInputStream());
-                if (options.getInputStream() instanceof FileInputStream) {
-                    len = ((FileInputStream) options.getInputStream()).getChannel().size();
-                } else {
-                    // available may be not accurate when used as length.
-                    len = options.getInputStream().available();
-                }
-            } else {
-                File file = new File(options.getInputFile());
-                bin = new BufferedInputStream(new FileInputStream(file));
-                len = file.length();
-            }
-
             ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            byte[] bytes = new byte[(int) len];
-            int l = -1;
-            while ((l = bin.read(bytes)) != -1) {
-                bout.write(bytes, 0, l);
+            try (InputStream in = options.getInputStream()) {
+                byte[] bytes = new byte[DOWNLOAD_BUFFER_SIZE];
+                int l = -1;
+                while ((l = in.read(bytes)) != -1) {
+                    bout.write(bytes, 0, l);
+                }
             }
-            bin.close();
-
-            resultEtag = this.doUpload(bucket, objectKey, null, uploadId, partNum,
-                    bout.toByteArray());
-            bout.close();
+            payload = UploadPayload.ofBytes(bout.toByteArray(), 0, bout.size());
         }
 
+        return withRetryPolicy(buildUploadRequest(bucket, objectKey, null, uploadId, partNum, payload, signingMode),
+                options.getRetryPolicy());
+    }
+
+    S3Part parseUploadPartResponse(int partNum, Response response) throws IOException {
         S3Part part = new S3Part();
         part.setPartNum(partNum);
-        part.setEtag(resultEtag);
+        part.setEtag(parseUploadResponse(response));
         return part;
     }
 
@@ -3091,6 +4637,7 @@ public class CandyS3 {
         }
 
         Map<String, String> headers = parseCopySourceConditionHeaders(options.getCopySourceCondition());
+        headers.putAll(parseCopySourceCustomerKeyHeaders(options.getCopySourceCustomerKeyOptions()));
         headers.put("x-amz-copy-source", HttpUtils.urlEncode(options.getCopySource(), true));
         if (StringUtils.isNotEmpty(options.getCopySourceVersionId())) {
             headers.put("x-amz-copy-source", headers.get("x-amz-copy-source") + "?versionId=" + options.getCopySourceVersionId());
@@ -3156,6 +4703,28 @@ public class CandyS3 {
      * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/API_ListParts.html">ListParts</a>
      */
     public ListPaginationResult<S3Part> listParts(String bucket, String objectKey, ListPartsOptions options) throws IOException {
+        return execute(buildListPartsRequest(bucket, objectKey, options), this::parseListPartsResponse);
+    }
+
+    /**
+     * Lists all uploaded parts of a multipart upload, the pages are requested as the result is iterated.
+     * The next pages are requested in the background while the current page is consumed, see {@link #setListPrefetchPages(int)}.
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to list parts, the part number marker of it is used for the first page.
+     * @return the parts of all pages.
+     * @see #listParts(String, String, ListPartsOptions)
+     */
+    public ListPaginationIterable<S3Part> listPartsIterable(String bucket, String objectKey, ListPartsOptions options) {
+        return new ListPaginationIterable<>(previous -> {
+            ListPartsOptions pageOptions = previous == null ? options : new ListPartsOptions(options.getUploadId())
+                    .maxParts(options.getMaxParts())
+                    .startAfterPartNumber(previous.getNextPaginationMarker());
+            return executeAsync(buildListPartsRequest(bucket, objectKey, pageOptions), this::parseListPartsResponse);
+        }, ListPaginationResult::getResults, listPrefetchPages);
+    }
+
+    Request buildListPartsRequest(String bucket, String objectKey, ListPartsOptions options) throws IOException {
         if (StringUtils.isEmpty(bucket)) {
             throw new IllegalArgumentException("bucket is required.");
         }
@@ -3197,54 +4766,56 @@ public class CandyS3 {
         for (Map.Entry<String, String> header : headers.entrySet()) {
             requestBuilder.addHeader(header.getKey(), header.getValue());
         }
-        Call call = okHttpClient.newCall(requestBuilder.build());
-        call.timeout().timeout(timeout, TimeUnit.SECONDS);
-        try (Response response = call.execute()) {
-            if (!response.isSuccessful()) {
-                S3ServerError serverError = parseErrorMessage(response);
-                if (response.code() == 404) {
-                    throw new CandyS3Exception(CommonErrorCode.NO_SUCH_BUCKET.getCode(), serverError);
-                }
-                throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
+        return requestBuilder.build();
+    }
+
+    ListPaginationResult<S3Part> parseListPartsResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            S3ServerError serverError = parseErrorMessage(response);
+            if (response.code() == 404 && "NoSuchUpload".equals(serverError.getCode())) {
+                throw new CandyS3Exception(CommonErrorCode.MULTIPART_UPLOAD_NOT_EXISTS.getCode(), serverError);
+            } else if (response.code() == 404) {
+                throw new CandyS3Exception(CommonErrorCode.NO_SUCH_BUCKET.getCode(), serverError);
             }
+            throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), serverError);
+        }
 
-            JsonNode root = xmlMapper.readTree(response.body().string());
+        JsonNode root = xmlMapper.readTree(response.body().string());
 
-            JsonNode partsNode = root.path("Part");
-            List<S3Part> s3Parts = new ArrayList<>(0);
-            if (!partsNode.isMissingNode()) {
-                // jackson cant recognize node as an array when it has only one child.
-                if (partsNode.isArray()) {
-                    s3Parts = xmlMapper.treeToValue(partsNode,
-                            xmlMapper.getTypeFactory().constructCollectionType(List.class, S3Part.class));
-                } else {
-                    s3Parts = new ArrayList<>(1);
-                    s3Parts.add(xmlMapper.treeToValue(partsNode, S3Part.class));
-                }
+        JsonNode partsNode = root.path("Part");
+        List<S3Part> s3Parts = new ArrayList<>(0);
+        if (!partsNode.isMissingNode()) {
+            // jackson cant recognize node as an array when it has only one child.
+            if (partsNode.isArray()) {
+                s3Parts = xmlMapper.treeToValue(partsNode,
+                        xmlMapper.getTypeFactory().constructCollectionType(List.class, S3Part.class));
+            } else {
+                s3Parts = new ArrayList<>(1);
+                s3Parts.add(xmlMapper.treeToValue(partsNode, S3Part.class));
             }
+        }
 
-            JsonNode ownerNode = root.path("Owner");
-            Owner owner = null;
-            if (!ownerNode.isMissingNode()) {
-                owner = xmlMapper.treeToValue(ownerNode, Owner.class);
-            }
-            JsonNode initiatorNode = root.path("Initiator");
-            Owner initiator = null;
-            if (!initiatorNode.isMissingNode()) {
-                initiator = xmlMapper.treeToValue(initiatorNode, Owner.class);
-            }
-            for (S3Part part : s3Parts) {
-                part.setOwner(owner);
-                part.setInitiator(initiator);
-            }
+        JsonNode ownerNode = root.path("Owner");
+        Owner owner = null;
+        if (!ownerNode.isMissingNode()) {
+            owner = xmlMapper.treeToValue(ownerNode, Owner.class);
+        }
+        JsonNode initiatorNode = root.path("Initiator");
+        Owner initiator = null;
+        if (!initiatorNode.isMissingNode()) {
+            initiator = xmlMapper.treeToValue(initiatorNode, Owner.class);
+        }
+        for (S3Part part : s3Parts) {
+            part.setOwner(owner);
+            part.setInitiator(initiator);
+        }
 
-            boolean isTruncated = root.path("IsTruncated").asBoolean(false);
-            String nextPartNumberMarker = "";
-            if (isTruncated) {
-                nextPartNumberMarker = root.path("NextPartNumberMarker").asText();
-            }
-            return new ListPaginationResult<>(s3Parts, nextPartNumberMarker);
+        boolean isTruncated = root.path("IsTruncated").asBoolean(false);
+        String nextPartNumberMarker = "";
+        if (isTruncated) {
+            nextPartNumberMarker = root.path("NextPartNumberMarker").asText();
         }
+        return new ListPaginationResult<>(s3Parts, nextPartNumberMarker);
     }
 
 
@@ -3293,7 +4864,7 @@ public class CandyS3 {
         return parsedHeaders;
     }
 
-    private Map<String, String> parseUploadHeaders(ObjectConditionalWriteOptions condition) {
+    Map<String, String> parseUploadHeaders(ObjectConditionalWriteOptions condition) {
         Map<String, String> parsedHeaders = new HashMap<>();
         if (condition != null) {
             if (StringUtils.isNotEmpty(condition.getIfMatch())) {
@@ -3381,6 +4952,26 @@ public class CandyS3 {
         return parsedHeaders;
     }
 
+    private Map<String, String> parseCustomerKeyHeaders(ServerSideEncryptionCustomerKeyOptions customerKeyOptions) {
+        Map<String, String> parsedHeaders = new HashMap<>();
+        if (customerKeyOptions != null) {
+            parsedHeaders.put(HttpConstants.HEADER_AMZ_SSE_CUSTOMER_ALGORITHM, customerKeyOptions.getAlgorithm());
+            parsedHeaders.put(HttpConstants.HEADER_AMZ_SSE_CUSTOMER_KEY, customerKeyOptions.getKey());
+            parsedHeaders.put(HttpConstants.HEADER_AMZ_SSE_CUSTOMER_KEY_MD5, customerKeyOptions.getKeyMd5());
+        }
+        return parsedHeaders;
+    }
+
+    private Map<String, String> parseCopySourceCustomerKeyHeaders(ServerSideEncryptionCustomerKeyOptions customerKeyOptions) {
+        Map<String, String> parsedHeaders = new HashMap<>();
+        if (customerKeyOptions != null) {
+            parsedHeaders.put(HttpConstants.HEADER_AMZ_COPY_SOURCE_SSE_CUSTOMER_ALGORITHM, customerKeyOptions.getAlgorithm());
+            parsedHeaders.put(HttpConstants.HEADER_AMZ_COPY_SOURCE_SSE_CUSTOMER_KEY, customerKeyOptions.getKey());
+            parsedHeaders.put(HttpConstants.HEADER_AMZ_COPY_SOURCE_SSE_CUSTOMER_KEY_MD5, customerKeyOptions.getKeyMd5());
+        }
+        return parsedHeaders;
+    }
+
     private S3Object.S3ObjectMetadata parseObjectMetadataFromResponseHeaders(Headers responseHeaders) {
         S3Object.S3ObjectMetadata objectMetadata = new S3Object.S3ObjectMetadata();
         objectMetadata.setCacheControl(responseHeaders.get("Cache-Control"));
@@ -3641,6 +5232,9 @@ public class CandyS3 {
         @JacksonXmlProperty(isAttribute = true)
         private final String xmlns = "http://s3.amazonaws.com/doc/2006-03-01/"; // for serialize
 
+        @JacksonXmlProperty(localName = "Quiet")
+        private Boolean quiet;
+
         @JacksonXmlProperty(localName = "Object")
         @JacksonXmlElementWrapper(useWrapping = false)
         private List<DeleteObject> deleteObjects;
@@ -3679,6 +5273,99 @@ public class CandyS3 {
         return builder.toString();
     }
 
+    /**
+     * Converts the response of a request to the result of an operation, or throws the error of the operation.
+     * It's shared by the blocking and the async client, so both map the responses the same way.
+     */
+    interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * Send the request and handle its response in the current thread.
+     */
+    <T> T execute(Request request, ResponseHandler<T> handler) throws IOException {
+        Call call = okHttpClient.newCall(request);
+        call.timeout().timeout(timeout, TimeUnit.SECONDS);
+        try (Response response = call.execute()) {
+            return handler.handle(response);
+        }
+    }
+
+    /**
+     * Send the request with the dispatcher of OkHttp, and handle its response in the dispatcher thread.
+     * The call is canceled if the returned future is canceled.
+     * <p>
+     * A failed attempt is retried by the retry policy like the blocking calls, but the delay before a retry is scheduled
+     * instead of sleeping in the dispatcher thread. The timeout applies to all attempts, like the timeout of a blocking call.
+     */
+    <T> CompletableFuture<T> executeAsync(Request request, ResponseHandler<T> handler) {
+        RetryPolicy policy = request.tag(RetryPolicy.class);
+        if (policy == null) {
+            policy = retryPolicy;
+        }
+        long deadline = timeout > 0 ? System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout) : 0;
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // The attempts are sent without the retries of RetryInterceptor, which block the thread during the delay.
+        enqueueAttempt(withRetryPolicy(request, RetryPolicy.NONE), 1, policy, deadline, handler, future);
+        return future;
+    }
+
+    private <T> void enqueueAttempt(Request request, int attempt, RetryPolicy policy, long deadline,
+                                    ResponseHandler<T> handler, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            return;
+        }
+        Call call = okHttpClient.newCall(request);
+        if (deadline != 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                future.completeExceptionally(new InterruptedIOException("timeout"));
+                return;
+            }
+            call.timeout().timeout(remaining, TimeUnit.NANOSECONDS);
+        }
+        future.whenComplete((result, ex) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        boolean retryable = attempt < policy.getMaxAttempts() && (request.body() == null || !request.body().isOneShot());
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (retryable && !call.isCanceled() && policy.isRetryable(e)) {
+                    scheduleRetry(request, attempt, policy, deadline, handler, future);
+                } else {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (Response r = response) {
+                    if (retryable && !r.isSuccessful() && policy.isRetryable(r.code(), RetryInterceptor.peekErrorCode(r))) {
+                        scheduleRetry(request, attempt, policy, deadline, handler, future);
+                        return;
+                    }
+                    future.complete(handler.handle(r));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    private <T> void scheduleRetry(Request request, int attempt, RetryPolicy policy, long deadline,
+                                   ResponseHandler<T> handler, CompletableFuture<T> future) {
+        RetryInterceptor.schedule(() -> {
+            try {
+                enqueueAttempt(retryInterceptor.resign(request), attempt + 1, policy, deadline, handler, future);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, policy.delayMillis(attempt));
+    }
 
     private S3ServerError parseErrorMessage(Response response) throws IOException {
         ResponseBody body = response.body();
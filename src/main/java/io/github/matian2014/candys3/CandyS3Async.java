@@ -0,0 +1,396 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.exceptions.CandyS3Exception;
+import io.github.matian2014.candys3.exceptions.CommonErrorCode;
+import io.github.matian2014.candys3.options.*;
+import okhttp3.Request;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous client of object operations, the requests are sent with the dispatcher of OkHttp instead of blocking a thread each.
+ * <p>
+ * It shares the configuration, the HTTP client and the request building and signing of the CandyS3 it wraps,
+ * so the requests and the mapping of responses and errors are the same as the blocking methods.
+ * A future completes exceptionally with the exception the blocking method would throw, including invalid arguments.
+ * <p>
+ * Putting an input stream which is not a FileInputStream, and downloading with parallel ranges, read or write local data
+ * in large blocks, they run the blocking methods in the transfer executor of the CandyS3.
+ * <p>
+ * The requests in flight are limited by the dispatcher of the transport of the CandyS3, 64 in all and 5 per host by default.
+ * The dispatcher is shared by all clients of the transport, so its limits are set with
+ * {@link CandyS3Transport.CandyS3TransportBuilder#maxRequests(int)} and
+ * {@link CandyS3Transport.CandyS3TransportBuilder#maxRequestsPerHost(int)}.
+ */
+public class CandyS3Async {
+
+    private final CandyS3 candyS3;
+
+    public CandyS3Async(CandyS3 candyS3) {
+        this.candyS3 = candyS3;
+    }
+
+    public CandyS3 getCandyS3() {
+        return candyS3;
+    }
+
+    /**
+     * Adds an object to a bucket, it's uploaded with multipart upload if it's larger than a part.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to put object.
+     * @return the future of the ETag of the object.
+     * @see CandyS3#putObject(String, String, PutObjectOptions)
+     */
+    public CompletableFuture<String> putObject(String bucket, String objectKey, PutObjectOptions options) {
+        ObjectDataContentOptions dataContentOptions = options.getObjectDataContentOptions();
+        InputStream inputStream = dataContentOptions == null ? null : dataContentOptions.getInputStream();
+        if (inputStream != null && !(inputStream instanceof FileInputStream)) {
+            // Parts are read from the stream one by one, which blocks the reading thread.
+            return runBlocking(() -> candyS3.putObject(bucket, objectKey, options));
+        }
+
+        CompletableFuture<String> future;
+        try {
+            Map<String, String> headers = candyS3.buildPutObjectHeaders(bucket, objectKey, options);
+            PayloadSigningMode signingMode = candyS3.resolvePayloadSigningMode(options.getPayloadSigningMode());
+            RetryPolicy retryPolicy = options.getRetryPolicy();
+
+            if (dataContentOptions == null || ArrayUtils.isNotEmpty(dataContentOptions.getInputBytes())) {
+                byte[] data = dataContentOptions == null ? new byte[0] : dataContentOptions.getInputBytes();
+                headers.putAll(candyS3.parseUploadHeaders(options.getCondition()));
+                return send(() -> CandyS3.withRetryPolicy(candyS3.buildUploadRequest(bucket, objectKey, headers, null, null,
+                        UploadPayload.ofBytes(data, 0, data.length), signingMode), retryPolicy), candyS3::parseUploadResponse)
+                        .whenComplete((eTag, ex) -> candyS3.invalidateObjectMetadata(bucket, objectKey, null));
+            }
+
+            UploadPayload.FilePayload filePayload = CandyS3.toFilePayload(dataContentOptions);
+            long partSize = candyS3.getPartSizePolicy().partSizeForLength(filePayload.length());
+            if (filePayload.length() <= partSize) {
+                headers.putAll(candyS3.parseUploadHeaders(options.getCondition()));
+                future = send(() -> CandyS3.withRetryPolicy(candyS3.buildUploadRequest(bucket, objectKey, headers, null, null,
+                        filePayload, signingMode), retryPolicy), candyS3::parseUploadResponse)
+                        .whenComplete((eTag, ex) -> candyS3.invalidateObjectMetadata(bucket, objectKey, null));
+            } else {
+                future = multipartUpload(bucket, objectKey, headers, options.getCondition(), filePayload, partSize,
+                        signingMode, retryPolicy);
+            }
+        } catch (Exception e) {
+            future = failed(e);
+        }
+        return future.whenComplete((result, ex) -> closeQuietly(inputStream));
+    }
+
+    /**
+     * Retrieves an object.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to download object.
+     * @return the future of the object.
+     * @see CandyS3#downloadObject(String, String, DownloadObjectOptions)
+     */
+    public CompletableFuture<S3Object> downloadObject(String bucket, String objectKey, DownloadObjectOptions options) {
+        try {
+            candyS3.checkDownloadOutput(bucket, objectKey, options);
+        } catch (Exception e) {
+            return failed(e);
+        }
+        if (options.getDataOutput() != null
+                && (options.getDataOutput().getParallelRangeSize() > 0 || options.getDataOutput().isResumable())) {
+            return runBlocking(() -> candyS3.downloadObject(bucket, objectKey, options));
+        }
+        return send(() -> candyS3.buildDownloadObjectRequest(bucket, objectKey, options),
+                response -> candyS3.parseDownloadObjectResponse(objectKey, options, response));
+    }
+
+    /**
+     * Retrieves metadata from an object without returning the object itself.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to get object metadata.
+     * @return the future of the object metadata.
+     * @see CandyS3#getObjectMetadata(String, String, DownloadObjectOptions)
+     */
+    public CompletableFuture<S3Object> getObjectMetadata(String bucket, String objectKey, DownloadObjectOptions options) {
+        ObjectMetadataCache cache = candyS3.getObjectMetadataCache();
+        if (cache == null || !ObjectMetadataCache.isCacheable(options)) {
+            return send(() -> candyS3.buildGetObjectMetadataRequest(bucket, objectKey, options),
+                    response -> candyS3.parseGetObjectMetadataResponse(objectKey, response));
+        }
+
+        ObjectMetadataCache.Lookup lookup = cache.lookup(bucket, objectKey, options.getVersionId());
+        if (lookup.isFresh()) {
+            return CompletableFuture.completedFuture(candyS3.parseObjectMetadataHeaders(objectKey, lookup.getHeaders()));
+        }
+        return send(() -> candyS3.buildCachedGetObjectMetadataRequest(bucket, objectKey, options, lookup),
+                response -> candyS3.parseCachedGetObjectMetadataResponse(cache, lookup, objectKey, response));
+    }
+
+    /**
+     * Returns some or all (up to 1,000) of the objects in a bucket.
+     *
+     * @param bucket the bucket name.
+     * @param options the options to list objects.
+     * @return the future of the list pagination result of objects.
+     * @see CandyS3#listObjects(String, ListObjectOptions)
+     */
+    public CompletableFuture<ListPaginationResult<S3Object>> listObjects(String bucket, ListObjectOptions options) {
+        return send(() -> candyS3.buildListObjectsRequest(bucket, options), candyS3::parseListObjectsResponse);
+    }
+
+    /**
+     * Deletes multiple objects from a bucket using a single request.
+     *
+     * @param bucket the bucket name.
+     * @param options the options to delete objects.
+     * @return the future of the result of deleting objects.
+     * @see CandyS3#deleteObjectsBatch(String, DeleteObjectsBatchOptions)
+     */
+    public CompletableFuture<DeleteObjectsBatchResult> deleteObjectsBatch(String bucket, DeleteObjectsBatchOptions options) {
+        return send(() -> candyS3.buildDeleteObjectsBatchRequest(bucket, options), candyS3::parseDeleteObjectsBatchResponse)
+                .whenComplete((result, ex) -> candyS3.invalidateObjectMetadata(bucket, options));
+    }
+
+    /**
+     * Initiates a multipart upload.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to create multipart upload.
+     * @return the future of the upload ID.
+     * @see CandyS3#createMultipartUpload(String, String, CreateMultipartUploadOptions)
+     */
+    public CompletableFuture<String> createMultipartUpload(String bucket, String objectKey, CreateMultipartUploadOptions options) {
+        return send(() -> candyS3.buildCreateMultipartUploadRequest(bucket, objectKey, options),
+                candyS3::parseCreateMultipartUploadResponse);
+    }
+
+    /**
+     * Uploads a part in a multipart upload. An input stream which is not a FileInputStream is read into memory
+     * in the calling thread before the request is sent.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId the upload ID.
+     * @param partNum Part number of part being uploaded. This is a positive integer between 1 and 10,000.
+     * @param options the options to upload part.
+     * @return the future of the S3Part.
+     * @see CandyS3#uploadPart(String, String, String, int, UploadPartOptions)
+     */
+    public CompletableFuture<S3Part> uploadPart(String bucket, String objectKey, String uploadId, int partNum,
+                                                UploadPartOptions options) {
+        return send(() -> candyS3.buildUploadPartRequest(bucket, objectKey, uploadId, partNum, options),
+                response -> candyS3.parseUploadPartResponse(partNum, response))
+                .whenComplete((result, ex) -> closeQuietly(options.getInputStream()));
+    }
+
+    /**
+     * Completes a multipart upload by assembling previously uploaded parts.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId the upload ID.
+     * @param s3Parts the uploaded parts.
+     * @param options the options to complete multipart upload.
+     * @return the future of the ETag of the object.
+     * @see CandyS3#completeMultipartUpload(String, String, String, List, CompleteMultipartUploadOptions)
+     */
+    public CompletableFuture<String> completeMultipartUpload(String bucket, String objectKey, String uploadId,
+                                                             List<S3Part> s3Parts, CompleteMultipartUploadOptions options) {
+        return send(() -> candyS3.buildCompleteMultipartUploadRequest(bucket, objectKey, uploadId, s3Parts, options),
+                candyS3::parseCompleteMultipartUploadResponse)
+                .whenComplete((eTag, ex) -> candyS3.invalidateObjectMetadata(bucket, objectKey, null));
+    }
+
+    /**
+     * Aborts a multipart upload.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId the upload ID.
+     * @param options the options to abort multipart upload.
+     * @return the future completes when the upload is aborted.
+     * @see CandyS3#abortMultipartUpload(String, String, String, AbortMultipartUploadOptions)
+     */
+    public CompletableFuture<Void> abortMultipartUpload(String bucket, String objectKey, String uploadId,
+                                                        AbortMultipartUploadOptions options) {
+        return send(() -> candyS3.buildAbortMultipartUploadRequest(bucket, objectKey, uploadId, options), response -> {
+            candyS3.parseAbortMultipartUploadResponse(response);
+            return null;
+        });
+    }
+
+    /**
+     * Lists in-progress multipart uploads in a bucket.
+     *
+     * @param bucket the bucket name.
+     * @param options the options to list multipart uploads.
+     * @return the future of the list pagination result of multipart uploads.
+     * @see CandyS3#listMultipartUploads(String, ListMultipartUploadOptions)
+     */
+    public CompletableFuture<ListPaginationResult<S3MultipartUpload>> listMultipartUploads(String bucket, ListMultipartUploadOptions options) {
+        return send(() -> candyS3.buildListMultipartUploadsRequest(bucket, options), candyS3::parseListMultipartUploadsResponse);
+    }
+
+    /**
+     * Lists the parts that have been uploaded for a specific multipart upload.
+     *
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param options the options to list parts.
+     * @return the future of the list pagination result of parts.
+     * @see CandyS3#listParts(String, String, ListPartsOptions)
+     */
+    public CompletableFuture<ListPaginationResult<S3Part>> listParts(String bucket, String objectKey, ListPartsOptions options) {
+        return send(() -> candyS3.buildListPartsRequest(bucket, objectKey, options), candyS3::parseListPartsResponse);
+    }
+
+    /**
+     * Create a multipart upload, upload the parts of the file and complete it. The upload is aborted on failure.
+     */
+    private CompletableFuture<String> multipartUpload(String bucket, String objectKey, Map<String, String> headers,
+                                                      ObjectConditionalWriteOptions condition,
+                                                      UploadPayload.FilePayload filePayload, long partSize,
+                                                      PayloadSigningMode signingMode, RetryPolicy retryPolicy) {
+        return send(() -> CandyS3.withRetryPolicy(candyS3.buildCreateMultipartUploadRequest(bucket, objectKey, headers), retryPolicy),
+                candyS3::parseCreateMultipartUploadResponse)
+                .thenCompose(uploadId -> {
+                    if (StringUtils.isEmpty(uploadId)) {
+                        throw new CandyS3Exception(CommonErrorCode.SERVER_ERROR.getCode(), CommonErrorCode.SERVER_ERROR.getMsg());
+                    }
+
+                    CompletableFuture<String> result = new CompletableFuture<>();
+                    uploadFileParts(bucket, objectKey, uploadId, filePayload, partSize, signingMode, retryPolicy)
+                            .thenCompose(s3Parts -> {
+                                CompleteMultipartUploadOptions completeMultipartUploadOptions =
+                                        new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build();
+                                completeMultipartUploadOptions.setCondition(condition);
+                                completeMultipartUploadOptions.setRetryPolicy(retryPolicy);
+                                return completeMultipartUpload(bucket, objectKey, uploadId, s3Parts, completeMultipartUploadOptions);
+                            })
+                            .whenComplete((eTag, ex) -> {
+                                if (ex == null) {
+                                    result.complete(eTag);
+                                } else {
+                                    abortMultipartUpload(bucket, objectKey, uploadId, new AbortMultipartUploadOptions())
+                                            .whenComplete((v, abortEx) -> result.completeExceptionally(unwrap(ex)));
+                                }
+                            });
+                    return result;
+                });
+    }
+
+    /**
+     * Upload the parts of the file, at most transferConcurrency parts at a time.
+     */
+    private CompletableFuture<List<S3Part>> uploadFileParts(String bucket, String objectKey, String uploadId,
+                                                            UploadPayload.FilePayload filePayload, long partSize,
+                                                            PayloadSigningMode signingMode, RetryPolicy retryPolicy) {
+        int partCount = (int) ((filePayload.length() + partSize - 1) / partSize);
+        S3Part[] s3Parts = new S3Part[partCount];
+        AtomicInteger nextPart = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture[Math.min(candyS3.getTransferConcurrency(), partCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = uploadNextPart(bucket, objectKey, uploadId, filePayload, partSize, signingMode, retryPolicy,
+                    nextPart, s3Parts);
+        }
+        return CompletableFuture.allOf(workers).thenApply(v -> Arrays.asList(s3Parts));
+    }
+
+    /**
+     * Upload the next part which is not taken by other workers, until no parts left or any part fails.
+     */
+    private CompletableFuture<Void> uploadNextPart(String bucket, String objectKey, String uploadId,
+                                                   UploadPayload.FilePayload filePayload, long partSize,
+                                                   PayloadSigningMode signingMode, RetryPolicy retryPolicy,
+                                                   AtomicInteger nextPart, S3Part[] s3Parts) {
+        int index = nextPart.getAndIncrement();
+        if (index >= s3Parts.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long offset = index * partSize;
+        UploadPayload partPayload = filePayload.slice(offset, Math.min(partSize, filePayload.length() - offset));
+        return send(() -> CandyS3.withRetryPolicy(
+                        candyS3.buildUploadRequest(bucket, objectKey, null, uploadId, index + 1, partPayload, signingMode), retryPolicy),
+                response -> candyS3.parseUploadPartResponse(index + 1, response))
+                .whenComplete((s3Part, ex) -> {
+                    if (ex != null) {
+                        // stop other workers
+                        nextPart.set(s3Parts.length);
+                    }
+                })
+                .thenCompose(s3Part -> {
+                    s3Parts[index] = s3Part;
+                    return uploadNextPart(bucket, objectKey, uploadId, filePayload, partSize, signingMode, retryPolicy,
+                            nextPart, s3Parts);
+                });
+    }
+
+    /**
+     * Builds a request, it may throw like the blocking methods.
+     */
+    private interface RequestFactory {
+        Request build() throws Exception;
+    }
+
+    /**
+     * A blocking operation of CandyS3.
+     */
+    private interface BlockingOperation<T> {
+        T run() throws Exception;
+    }
+
+    private <T> CompletableFuture<T> send(RequestFactory requestFactory, CandyS3.ResponseHandler<T> handler) {
+        Request request;
+        try {
+            request = requestFactory.build();
+        } catch (Exception e) {
+            return failed(e);
+        }
+        return candyS3.executeAsync(request, handler);
+    }
+
+    private <T> CompletableFuture<T> runBlocking(BlockingOperation<T> operation) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return operation.run();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, candyS3.getTransferExecutor());
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable t) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(t);
+        return future;
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        return t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.matian2014.candys3;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP transport of CandyS3, which holds the connection pool and the dispatcher of asynchronous requests.
+ * <p>
+ * Each CandyS3 created without a transport has its own one. Share a transport between the CandyS3 instances of different
+ * credentials or regions with {@link CandyS3#CandyS3(S3Provider, CandyS3Transport)}, then the instances which send requests
+ * to the same endpoint reuse the idle connections of each other, and the requests in flight are limited for all of them.
+ */
+public final class CandyS3Transport implements AutoCloseable {
+
+    private final OkHttpClient okHttpClient;
+
+    private CandyS3Transport(OkHttpClient okHttpClient) {
+        this.okHttpClient = okHttpClient;
+    }
+
+    OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+
+    /**
+     * @return the number of open connections, in use or idle.
+     */
+    public int getConnectionCount() {
+        return okHttpClient.connectionPool().connectionCount();
+    }
+
+    public int getIdleConnectionCount() {
+        return okHttpClient.connectionPool().idleConnectionCount();
+    }
+
+    public int getMaxRequests() {
+        return okHttpClient.dispatcher().getMaxRequests();
+    }
+
+    public int getMaxRequestsPerHost() {
+        return okHttpClient.dispatcher().getMaxRequestsPerHost();
+    }
+
+    /**
+     * Closes the idle connections, and stops the threads of asynchronous requests after the requests in flight complete.
+     * The CandyS3 instances using this transport cannot send asynchronous requests after it's closed.
+     */
+    @Override
+    public void close() {
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+    }
+
+    public static final class CandyS3TransportBuilder {
+        // The defaults are the same as OkHttp.
+        private int maxIdleConnections = 5;
+        private long keepAliveMillis = TimeUnit.MINUTES.toMillis(5);
+        private int maxRequests = 64;
+        private int maxRequestsPerHost = 5;
+        private List<Protocol> protocols;
+
+        public CandyS3Transport build() {
+            if (maxIdleConnections < 0) {
+                throw new IllegalArgumentException("maxIdleConnections must not be negative.");
+            }
+            if (keepAliveMillis <= 0) {
+                throw new IllegalArgumentException("keepAlive must be positive.");
+            }
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("maxRequests must be a positive integer.");
+            }
+            if (maxRequestsPerHost < 1) {
+                throw new IllegalArgumentException("maxRequestsPerHost must be a positive integer.");
+            }
+
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            OkHttpClient.Builder builder = new OkHttpClient().newBuilder()
+                    .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS))
+                    .dispatcher(dispatcher);
+            if (protocols != null) {
+                builder.protocols(protocols);
+            }
+            return new CandyS3Transport(builder.build());
+        }
+
+        /**
+         * The maximum number of idle connections kept in the pool, 5 by default.
+         * @param maxIdleConnections the number of connections.
+         * @return this builder.
+         */
+        public CandyS3TransportBuilder maxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * How long an idle connection is kept in the pool, 5 minutes by default.
+         * @param keepAlive the duration.
+         * @param unit the unit of keepAlive.
+         * @return this builder.
+         */
+        public CandyS3TransportBuilder keepAlive(long keepAlive, TimeUnit unit) {
+            this.keepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * The maximum number of asynchronous requests in flight, 64 by default.
+         * @param maxRequests the number of requests.
+         * @return this builder.
+         */
+        public CandyS3TransportBuilder maxRequests(int maxRequests) {
+            this.maxRequests = maxRequests;
+            return this;
+        }
+
+        /**
+         * The maximum number of asynchronous requests in flight to a host, 5 by default.
+         * @param maxRequestsPerHost the number of requests.
+         * @return this builder.
+         */
+        public CandyS3TransportBuilder maxRequestsPerHost(int maxRequestsPerHost) {
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            return this;
+        }
+
+        /**
+         * The protocols to negotiate with the server, HTTP/2 and HTTP/1.1 by default.
+         * It must contain HTTP/1.1, unless it's only H2_PRIOR_KNOWLEDGE for servers which accept HTTP/2 without TLS.
+         * @param protocols the protocols in order of preference.
+         * @return this builder.
+         */
+        public CandyS3TransportBuilder protocols(List<Protocol> protocols) {
+            this.protocols = protocols == null ? null : new ArrayList<>(protocols);
+            return this;
+        }
+    }
+}
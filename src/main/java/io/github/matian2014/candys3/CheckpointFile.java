@@ -0,0 +1,193 @@
+package io.github.matian2014.candys3;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small text file which saves the progress of a transfer, so the transfer can be resumed after a crash.
+ * <p>
+ * The file starts with a magic line and the fields of the transfer, they are written to a temporary file
+ * which is then moved over the checkpoint file. Each step of the progress is appended as a record line,
+ * so saving a step doesn't rewrite the file. A line torn by a crash is ignored when the file is loaded,
+ * and it's cut off before the next record is appended.
+ */
+final class CheckpointFile {
+
+    private static final String RECORD = "record";
+
+    private final File file;
+    private final Map<String, String> fields;
+    private final List<String> records;
+    /** The length of the complete lines of a loaded file, -1 if the file is created. **/
+    private final long completeLength;
+
+    private FileChannel appendChannel;
+
+    private CheckpointFile(File file, Map<String, String> fields, List<String> records, long completeLength) {
+        this.file = file;
+        this.fields = fields;
+        this.records = records;
+        this.completeLength = completeLength;
+    }
+
+    /**
+     * Create a checkpoint file without records, an existing file is replaced.
+     *
+     * @param file the checkpoint file.
+     * @param magic the first line, which tells the kind and version of the checkpoint.
+     * @param fields the fields of the transfer, the values must not be null.
+     * @return the checkpoint file.
+     * @throws IOException if the file can't be written.
+     */
+    static CheckpointFile create(File file, String magic, Map<String, String> fields) throws IOException {
+        StringBuilder sb = new StringBuilder(magic).append('\n');
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            appendLine(sb, field.getKey(), field.getValue());
+        }
+
+        Path target = file.getAbsoluteFile().toPath();
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new CheckpointFile(file, new HashMap<>(fields), new ArrayList<>(), -1);
+    }
+
+    /**
+     * Load a checkpoint file.
+     *
+     * @param file the checkpoint file.
+     * @param magic the expected first line.
+     * @return the checkpoint file, null if the file doesn't exist or doesn't start with the magic line.
+     * @throws IOException if the file can't be read.
+     */
+    static CheckpointFile load(File file, String magic) throws IOException {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // Only complete lines are read, the last line is torn if the process died while it's appended.
+        int end = content.length - 1;
+        while (end >= 0 && content[end] != '\n') {
+            end--;
+        }
+        if (end < 0) {
+            return null;
+        }
+        String[] lines = new String(content, 0, end, StandardCharsets.UTF_8).split("\n");
+        if (!magic.equals(lines[0])) {
+            return null;
+        }
+
+        Map<String, String> fields = new HashMap<>();
+        List<String> records = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            int eq = lines[i].indexOf('=');
+            if (eq < 0) {
+                return null;
+            }
+            String name = lines[i].substring(0, eq);
+            String value;
+            try {
+                value = URLDecoder.decode(lines[i].substring(eq + 1), "UTF-8");
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (RECORD.equals(name)) {
+                records.add(value);
+            } else {
+                fields.put(name, value);
+            }
+        }
+        return new CheckpointFile(file, fields, records, end + 1);
+    }
+
+    /**
+     * @return the value of the field, null if the checkpoint doesn't have it.
+     */
+    String getField(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * @return the records loaded from the file, the records appended since then are not included.
+     */
+    List<String> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * Append a record, it's flushed to the storage device before this method returns.
+     * It can be called by the workers of a transfer concurrently.
+     *
+     * @param record the record.
+     * @throws IOException if the file can't be written.
+     */
+    synchronized void append(String record) throws IOException {
+        if (appendChannel == null) {
+            appendChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (completeLength >= 0) {
+                // Cut off a torn line, or the record would be appended to it.
+                appendChannel.truncate(completeLength);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        appendLine(sb, RECORD, record);
+        ByteBuffer line = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            appendChannel.write(line);
+        }
+        appendChannel.force(false);
+    }
+
+    /**
+     * Close the file, it's kept to resume the transfer later.
+     */
+    synchronized void close() throws IOException {
+        if (appendChannel != null) {
+            appendChannel.close();
+            appendChannel = null;
+        }
+    }
+
+    /**
+     * Close and delete the file, after the transfer is completed or can't be resumed.
+     */
+    synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static void appendLine(StringBuilder sb, String name, String value) {
+        try {
+            sb.append(name).append('=').append(URLEncoder.encode(value, "UTF-8")).append('\n');
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
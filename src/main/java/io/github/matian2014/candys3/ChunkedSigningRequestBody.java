@@ -0,0 +1,73 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.signer.AWS4SignerForChunkedUpload;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request body which streams the payload with 'aws-chunked' encoding, and signs each chunk as it's written.
+ * The signer must have computed the seed signature of the request.
+ */
+final class ChunkedSigningRequestBody extends RequestBody {
+
+    /**
+     * The size of each chunk except the last one.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.UTF_8);
+
+    private final UploadPayload payload;
+    private final AWS4SignerForChunkedUpload signer;
+    private final int chunkSize;
+
+    ChunkedSigningRequestBody(UploadPayload payload, AWS4SignerForChunkedUpload signer, int chunkSize) {
+        this.payload = payload;
+        this.signer = signer;
+        this.chunkSize = chunkSize;
+    }
+
+    AWS4SignerForChunkedUpload getSigner() {
+        return signer;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return null;
+    }
+
+    @Override
+    public long contentLength() {
+        return AWS4SignerForChunkedUpload.calculateChunkedContentLength(payload.length(), chunkSize);
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // Chunk signatures are chained from the seed signature, so a rewrite starts over from it.
+        String previousSignature = signer.getSeedSignature();
+        byte[] buffer = new byte[(int) Math.min(chunkSize, Math.max(payload.length(), 1))];
+        long remaining = payload.length();
+        try (InputStream in = payload.openStream()) {
+            while (remaining > 0) {
+                int len = CandyS3.readFully(in, buffer, (int) Math.min(buffer.length, remaining));
+                if (len == 0) {
+                    throw new IOException("Unexpected end of payload, " + remaining + " bytes remaining.");
+                }
+                previousSignature = signer.computeChunkSignature(previousSignature, buffer, 0, len);
+                sink.write(AWS4SignerForChunkedUpload.chunkHeader(len, previousSignature));
+                sink.write(buffer, 0, len);
+                sink.write(CRLF);
+                remaining -= len;
+            }
+        }
+
+        String finalSignature = signer.computeChunkSignature(previousSignature, buffer, 0, 0);
+        sink.write(AWS4SignerForChunkedUpload.chunkHeader(0, finalSignature));
+        sink.write(CRLF);
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.matian2014.candys3;
+
+import java.util.List;
+
+public class DeleteObjectsBulkResult {
+
+    private long deletedCount;
+    private long batchCount;
+    private long retriedCount;
+    // the objects which failed to delete after retries
+    private List<DeleteObjectsBatchResult.DeleteError> errors;
+
+    public DeleteObjectsBulkResult(long deletedCount, long batchCount, long retriedCount, List<DeleteObjectsBatchResult.DeleteError> errors) {
+        this.deletedCount = deletedCount;
+        this.batchCount = batchCount;
+        this.retriedCount = retriedCount;
+        this.errors = errors;
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getRetriedCount() {
+        return retriedCount;
+    }
+
+    public List<DeleteObjectsBatchResult.DeleteError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "DeleteObjectsBulkResult{" +
+                "deletedCount=" + deletedCount +
+                ", batchCount=" + batchCount +
+                ", retriedCount=" + retriedCount +
+                ", errors=" + errors.size() +
+                '}';
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.matian2014.candys3;
+
+import java.io.File;
+
+/**
+ * Receives the progress of a directory sync, see {@link CandyS3#uploadDirectory(String, String, io.github.matian2014.candys3.options.DirectorySyncOptions)}
+ * and {@link CandyS3#downloadDirectory(String, String, io.github.matian2014.candys3.options.DirectorySyncOptions)}.
+ * <p>
+ * It's called by the threads which transfer the files concurrently, so it must be thread-safe and return quickly.
+ * The exceptions it throws are ignored.
+ */
+public interface DirectorySyncListener {
+
+    /**
+     * Called when a file is uploaded or downloaded.
+     * @param key the object key.
+     * @param file the local file.
+     * @param bytes the size of the file.
+     */
+    default void onFileTransferred(String key, File file, long bytes) {
+    }
+
+    /**
+     * Called when a file is skipped since the local file and the object are the same.
+     * @param key the object key.
+     * @param file the local file.
+     */
+    default void onFileSkipped(String key, File file) {
+    }
+
+    /**
+     * Called when a file fails to transfer, the sync goes on with the other files.
+     * @param key the object key.
+     * @param file the local file.
+     * @param e the error.
+     */
+    default void onFileFailed(String key, File file, Exception e) {
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.matian2014.candys3;
+
+import java.io.File;
+import java.util.List;
+
+public class DirectorySyncResult {
+
+    private long transferredCount;
+    private long skippedCount;
+    private long transferredBytes;
+    // the files which failed to transfer
+    private List<FileError> errors;
+
+    public DirectorySyncResult(long transferredCount, long skippedCount, long transferredBytes, List<FileError> errors) {
+        this.transferredCount = transferredCount;
+        this.skippedCount = skippedCount;
+        this.transferredBytes = transferredBytes;
+        this.errors = errors;
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    public long getTransferredCount() {
+        return transferredCount;
+    }
+
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public List<FileError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "DirectorySyncResult{" +
+                "transferredCount=" + transferredCount +
+                ", skippedCount=" + skippedCount +
+                ", transferredBytes=" + transferredBytes +
+                ", errors=" + errors.size() +
+                '}';
+    }
+
+    public static class FileError {
+        private String key;
+        private File file;
+        private Exception exception;
+
+        public FileError(String key, File file, Exception exception) {
+            this.key = key;
+            this.file = file;
+            this.exception = exception;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public Exception getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return "FileError{" +
+                    "key='" + key + '\'' +
+                    ", file=" + file +
+                    ", exception=" + exception +
+                    '}';
+        }
+    }
+}
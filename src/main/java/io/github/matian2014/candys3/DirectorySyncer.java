@@ -0,0 +1,330 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.exceptions.CandyS3Exception;
+import io.github.matian2014.candys3.exceptions.CommonErrorCode;
+import io.github.matian2014.candys3.options.DirectorySyncOptions;
+import io.github.matian2014.candys3.options.DownloadObjectOptions;
+import io.github.matian2014.candys3.options.ListObjectOptions;
+import io.github.matian2014.candys3.options.PutObjectOptions;
+import io.github.matian2014.candys3.signer.BinaryUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Syncs a local directory with the objects under a prefix, in either direction.
+ * <p>
+ * The objects are listed page by page and compared with the local files, a file is skipped if it has the same size
+ * and the same content as the object. The content is compared by the ETag computed from the file when the ETag of the object
+ * is an MD5 of its content or its parts, otherwise the file is transferred, unless the modification time is compared,
+ * see {@link DirectorySyncOptions.DirectorySyncOptionsBuilder#compareModifiedTime(boolean)}.
+ * <p>
+ * The files are transferred by a pool of concurrency threads of each sync, the parts of a large file are transferred by
+ * the transfer executor of the client. So a bounded transfer executor isn't filled up by file tasks waiting for their parts.
+ * A file which fails to transfer is recorded without stopping the others.
+ */
+final class DirectorySyncer {
+
+    /** ETag of an object uploaded in a single request without SSE-KMS, which is the MD5 of the content. **/
+    private static final Pattern MD5_ETAG = Pattern.compile("[0-9a-fA-F]{32}");
+    /** ETag of an object uploaded in parts, which is the MD5 of the MD5s of the parts and the number of parts. **/
+    private static final Pattern MULTIPART_ETAG = Pattern.compile("[0-9a-fA-F]{32}-[0-9]+");
+
+    private final CandyS3 candyS3;
+    private final String bucket;
+    private final Path directory;
+    private final DirectorySyncOptions options;
+    private final int concurrency;
+
+    private final AtomicLong transferredCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong transferredBytes = new AtomicLong();
+    private final Queue<DirectorySyncResult.FileError> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    DirectorySyncer(CandyS3 candyS3, String bucket, String directory, DirectorySyncOptions options) {
+        if (StringUtils.isEmpty(bucket)) {
+            throw new IllegalArgumentException("bucket is required.");
+        }
+        if (StringUtils.isEmpty(directory)) {
+            throw new IllegalArgumentException("directory is required.");
+        }
+        this.candyS3 = candyS3;
+        this.bucket = bucket;
+        this.directory = new File(directory).getAbsoluteFile().toPath().normalize();
+        this.options = options;
+        this.concurrency = options.getConcurrency() == null ? candyS3.getTransferConcurrency() : options.getConcurrency();
+    }
+
+    DirectorySyncResult upload() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IllegalArgumentException("directory " + directory + " doesn't exist.");
+        }
+        // The files are walked before the objects are listed, so each object is looked up by key while it's listed.
+        Map<String, File> localFiles = new TreeMap<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    localFiles.put(keyOf(file), file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                fail(keyOf(file), file.toFile(), e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return run(() -> {
+            for (S3Object object : candyS3.listObjectsIterable(bucket, new ListObjectOptions().prefix(options.getPrefix()))) {
+                if (failure.get() != null) {
+                    return;
+                }
+                File file = localFiles.remove(object.getKey());
+                if (file != null) {
+                    submit(object.getKey(), file, () -> uploadFile(object.getKey(), file, object));
+                }
+            }
+            // The files which don't have an object yet.
+            for (Map.Entry<String, File> entry : localFiles.entrySet()) {
+                if (failure.get() != null) {
+                    return;
+                }
+                submit(entry.getKey(), entry.getValue(), () -> uploadFile(entry.getKey(), entry.getValue(), null));
+            }
+        });
+    }
+
+    DirectorySyncResult download() throws IOException {
+        Files.createDirectories(directory);
+        return run(() -> {
+            for (S3Object object : candyS3.listObjectsIterable(bucket, new ListObjectOptions().prefix(options.getPrefix()))) {
+                if (failure.get() != null) {
+                    return;
+                }
+                String relativePath = object.getKey().substring(options.getPrefix().length());
+                if (relativePath.isEmpty() || relativePath.endsWith("/")) {
+                    // 'folder' objects have no content to download.
+                    continue;
+                }
+                Path target = directory.resolve(relativePath).normalize();
+                if (!target.startsWith(directory)) {
+                    fail(object.getKey(), target.toFile(),
+                            new IllegalArgumentException("The key " + object.getKey() + " is out of the directory."));
+                    continue;
+                }
+                submit(object.getKey(), target.toFile(), () -> downloadFile(object.getKey(), target.toFile(), object));
+            }
+        });
+    }
+
+    private void uploadFile(String key, File file, S3Object object) throws Exception {
+        if (object != null && isSame(file, object, true)) {
+            skip(key, file);
+            return;
+        }
+        long length = file.length();
+        candyS3.putObject(bucket, key, new PutObjectOptions.PutObjectOptionsBuilder()
+                .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                .build());
+        transferred(key, file, length);
+    }
+
+    private void downloadFile(String key, File file, S3Object object) throws Exception {
+        if (file.isFile() && isSame(file, object, false)) {
+            skip(key, file);
+            return;
+        }
+        Files.createDirectories(file.getParentFile().toPath());
+        // The object must be the one compared, so the modification time set below is right.
+        candyS3.downloadObject(bucket, key, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                .configureDownloadCondition().ifMatch(object.geteTag()).endConfigureCondition()
+                .configureDataOutput().toFile(file.getPath(), true).endConfigureDataOutput()
+                .build());
+        if (object.getLastModified() != null) {
+            file.setLastModified(object.getLastModified().getTime());
+        }
+        transferred(key, file, object.getSize());
+    }
+
+    /**
+     * Whether the file has the same content as the object.
+     * The ETag of an object uploaded in parts is compared with the ETag computed from the file with the same part size.
+     * If the ETag of the object isn't an MD5, or the part size can't be found, the file isn't the same unless the modification
+     * time is compared. Then an uploaded file is the same if it's not modified after the object, and a downloaded file
+     * is the same if it has the modification time of the object, which is set when it's downloaded.
+     */
+    private boolean isSame(File file, S3Object object, boolean upload) throws IOException {
+        if (file.length() != object.getSize() || object.geteTag() == null) {
+            return false;
+        }
+        String eTag = StringUtils.strip(object.geteTag(), "\"");
+        if (MD5_ETAG.matcher(eTag).matches()) {
+            try {
+                return eTag.equalsIgnoreCase(BinaryUtils.md5Hex(file));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (MULTIPART_ETAG.matcher(eTag).matches()) {
+            Long partSize;
+            try {
+                partSize = candyS3.inferObjectPartSize(bucket, object);
+            } catch (CandyS3Exception e) {
+                if (e.getCode() == CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode()) {
+                    // The object is changed since it's listed.
+                    return false;
+                }
+                throw e;
+            }
+            if (partSize != null) {
+                return eTag.equalsIgnoreCase(BinaryUtils.compositeMd5ETag(file, partSize, candyS3.getTransferExecutor()));
+            }
+        }
+        if (!options.isCompareModifiedTime() || object.getLastModified() == null) {
+            return false;
+        }
+        // The last modified time of an object is in seconds.
+        long localSeconds = file.lastModified() / 1000;
+        long remoteSeconds = object.getLastModified().getTime() / 1000;
+        return upload ? localSeconds <= remoteSeconds : localSeconds == remoteSeconds;
+    }
+
+    private interface FileTask {
+        void run() throws Exception;
+    }
+
+    private interface Producer {
+        void run() throws IOException, InterruptedException;
+    }
+
+    private DirectorySyncResult run(Producer producer) throws IOException {
+        AtomicInteger threadNum = new AtomicInteger(1);
+        executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "candy-s3-directory-sync-" + threadNum.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        permits = new Semaphore(concurrency);
+        try {
+            try {
+                producer.run();
+            } catch (UncheckedIOException e) {
+                // The listing fails, stop sending files but wait for those in flight.
+                failure.compareAndSet(null, e.getCause());
+            } catch (RuntimeException | IOException e) {
+                failure.compareAndSet(null, e);
+            }
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when wait for file transfers.");
+        } finally {
+            // The files in flight are left to finish if it's interrupted.
+            executor.shutdown();
+        }
+
+        Throwable t = failure.get();
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IOException(t);
+        }
+        return new DirectorySyncResult(transferredCount.get(), skippedCount.get(), transferredBytes.get(), new ArrayList<>(errors));
+    }
+
+    private void submit(String key, File file, FileTask task) throws InterruptedException {
+        permits.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    // A file which fails is recorded, the other files are still transferred.
+                    fail(key, file, e);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private String keyOf(Path file) {
+        StringBuilder key = new StringBuilder(options.getPrefix());
+        for (Path name : directory.relativize(file)) {
+            if (key.length() > options.getPrefix().length()) {
+                key.append('/');
+            }
+            key.append(name);
+        }
+        return key.toString();
+    }
+
+    private void transferred(String key, File file, long bytes) {
+        transferredCount.incrementAndGet();
+        transferredBytes.addAndGet(bytes);
+        DirectorySyncListener listener = options.getListener();
+        if (listener != null) {
+            try {
+                listener.onFileTransferred(key, file, bytes);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    private void skip(String key, File file) {
+        skippedCount.incrementAndGet();
+        DirectorySyncListener listener = options.getListener();
+        if (listener != null) {
+            try {
+                listener.onFileSkipped(key, file);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    private void fail(String key, File file, Exception e) {
+        errors.add(new DirectorySyncResult.FileError(key, file, e));
+        DirectorySyncListener listener = options.getListener();
+        if (listener != null) {
+            try {
+                listener.onFileFailed(key, file, e);
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.github.matian2014.candys3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The checkpoint of a resumable download to a file, saved in a {@link CheckpointFile} next to the file.
+ * The object is downloaded in ranges to a partial file next to the file, and the checkpoint holds the ETag,
+ * the size of the object, the range size and the indexes of the downloaded ranges.
+ * The partial file is moved to the file when all ranges are downloaded.
+ */
+final class DownloadCheckpoint {
+
+    private static final String MAGIC = "candy-s3 download checkpoint v1";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String PARTIAL_SUFFIX = ".partial";
+
+    private final CheckpointFile checkpointFile;
+    private final String bucket;
+    private final String objectKey;
+    private final String versionId;
+    private final String eTag;
+    private final long size;
+    private final long rangeSize;
+    private final BitSet downloadedRanges = new BitSet();
+
+    private DownloadCheckpoint(CheckpointFile checkpointFile, String bucket, String objectKey, String versionId,
+                               String eTag, long size, long rangeSize) {
+        this.checkpointFile = checkpointFile;
+        this.bucket = bucket;
+        this.objectKey = objectKey;
+        this.versionId = versionId;
+        this.eTag = eTag;
+        this.size = size;
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @return the checkpoint file of a download to the output file.
+     */
+    static File checkpointFileOf(File outputFile) {
+        return new File(outputFile.getPath() + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * @return the partial file which the ranges of a download to the output file are written to.
+     */
+    static File partialFileOf(File outputFile) {
+        return new File(outputFile.getPath() + PARTIAL_SUFFIX);
+    }
+
+    /**
+     * Create the checkpoint of a new download, an existing checkpoint is replaced.
+     *
+     * @param outputFile the file to download to.
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param versionId the version ID requested, may be null.
+     * @param eTag ETag of the object, the ranges are requested with If-Match of it.
+     * @param size the size of the object.
+     * @param rangeSize the size of each range, the last range may be smaller.
+     * @return the checkpoint without ranges.
+     * @throws IOException if the checkpoint file can't be written.
+     */
+    static DownloadCheckpoint create(File outputFile, String bucket, String objectKey, String versionId,
+                                     String eTag, long size, long rangeSize) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("bucket", bucket);
+        fields.put("objectKey", objectKey);
+        if (versionId != null) {
+            fields.put("versionId", versionId);
+        }
+        fields.put("eTag", eTag);
+        fields.put("size", String.valueOf(size));
+        fields.put("rangeSize", String.valueOf(rangeSize));
+        return new DownloadCheckpoint(CheckpointFile.create(checkpointFileOf(outputFile), MAGIC, fields),
+                bucket, objectKey, versionId, eTag, size, rangeSize);
+    }
+
+    /**
+     * Load the checkpoint of a download to the output file.
+     *
+     * @param outputFile the file to download to.
+     * @return the checkpoint, null if there is no valid checkpoint.
+     * @throws IOException if the checkpoint file can't be read.
+     */
+    static DownloadCheckpoint load(File outputFile) throws IOException {
+        CheckpointFile checkpointFile = CheckpointFile.load(checkpointFileOf(outputFile), MAGIC);
+        if (checkpointFile == null) {
+            return null;
+        }
+        try {
+            DownloadCheckpoint checkpoint = new DownloadCheckpoint(checkpointFile, checkpointFile.getField("bucket"),
+                    checkpointFile.getField("objectKey"), checkpointFile.getField("versionId"),
+                    checkpointFile.getField("eTag"), Long.parseLong(checkpointFile.getField("size")),
+                    Long.parseLong(checkpointFile.getField("rangeSize")));
+            if (checkpoint.bucket == null || checkpoint.objectKey == null || checkpoint.eTag == null
+                    || checkpoint.size < 0 || checkpoint.rangeSize <= 0 || checkpoint.getRangeCount() > Integer.MAX_VALUE) {
+                return null;
+            }
+            // Each record is the index of a downloaded range.
+            for (String record : checkpointFile.getRecords()) {
+                int range = Integer.parseInt(record);
+                if (range >= 0 && range < checkpoint.getRangeCount()) {
+                    checkpoint.downloadedRanges.set(range);
+                }
+            }
+            return checkpoint;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the checkpoint is of a download of the object, and the object isn't changed since the download started.
+     */
+    boolean matches(String bucket, String objectKey, String versionId, String eTag, long size) {
+        return this.bucket.equals(bucket) && this.objectKey.equals(objectKey)
+                && Objects.equals(this.versionId, versionId)
+                && this.eTag.equals(eTag) && this.size == size;
+    }
+
+    /**
+     * Save a downloaded range, it can be called by the workers downloading ranges concurrently.
+     * The range must be flushed to the partial file before it's saved.
+     *
+     * @param range the index of the range.
+     * @throws IOException if the checkpoint file can't be written.
+     */
+    void addRange(int range) throws IOException {
+        checkpointFile.append(String.valueOf(range));
+        synchronized (downloadedRanges) {
+            downloadedRanges.set(range);
+        }
+    }
+
+    boolean isDownloaded(int range) {
+        synchronized (downloadedRanges) {
+            return downloadedRanges.get(range);
+        }
+    }
+
+    /**
+     * Close the checkpoint file, the checkpoint is kept to resume the download later.
+     */
+    void close() throws IOException {
+        checkpointFile.close();
+    }
+
+    /**
+     * Close and delete the checkpoint file, after the download is completed or can't be resumed.
+     */
+    void delete() throws IOException {
+        checkpointFile.delete();
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getRangeSize() {
+        return rangeSize;
+    }
+
+    long getRangeCount() {
+        return (size + rangeSize - 1) / rangeSize;
+    }
+}
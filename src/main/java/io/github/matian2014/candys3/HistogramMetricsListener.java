@@ -0,0 +1,225 @@
+package io.github.matian2014.candys3;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the metrics of requests by operation, with latency histograms of time to first byte and duration,
+ * the bytes moved, and the errors by error code. Recording a request takes no locks.
+ * <p>
+ * Read the metrics with {@link #getOperationMetrics()}, or scrape all of them as text with {@link #scrape()}.
+ */
+public final class HistogramMetricsListener implements RequestMetricsListener {
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequest(RequestMetrics metrics) {
+        OperationMetrics operationMetrics = operations.computeIfAbsent(metrics.getOperation(), OperationMetrics::new);
+        operationMetrics.record(metrics);
+    }
+
+    /**
+     * @return the metrics of each operation which has requests, sorted by operation name.
+     */
+    public Map<String, OperationMetrics> getOperationMetrics() {
+        return Collections.unmodifiableMap(new TreeMap<>(operations));
+    }
+
+    /**
+     * @param operation the operation name, like 'UploadPart'.
+     * @return the metrics of the operation, null if it has no requests.
+     */
+    public OperationMetrics getOperationMetrics(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * Removes the metrics of all operations.
+     */
+    public void reset() {
+        operations.clear();
+    }
+
+    /**
+     * Writes the metrics in the Prometheus text format, the latencies are in seconds.
+     * @return the metrics text.
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# TYPE candys3_requests_total counter\n");
+        for (OperationMetrics metrics : getOperationMetrics().values()) {
+            appendSample(sb, "candys3_requests_total", metrics.operation, null, metrics.getRequestCount());
+        }
+        sb.append("# TYPE candys3_request_errors_total counter\n");
+        for (OperationMetrics metrics : getOperationMetrics().values()) {
+            for (Map.Entry<String, Long> error : metrics.getErrorCounts().entrySet()) {
+                appendSample(sb, "candys3_request_errors_total", metrics.operation, "error=\"" + escape(error.getKey()) + "\"", error.getValue());
+            }
+        }
+        sb.append("# TYPE candys3_bytes_sent_total counter\n");
+        for (OperationMetrics metrics : getOperationMetrics().values()) {
+            appendSample(sb, "candys3_bytes_sent_total", metrics.operation, null, metrics.getBytesSent());
+        }
+        sb.append("# TYPE candys3_bytes_received_total counter\n");
+        for (OperationMetrics metrics : getOperationMetrics().values()) {
+            appendSample(sb, "candys3_bytes_received_total", metrics.operation, null, metrics.getBytesReceived());
+        }
+        appendSummary(sb, "candys3_time_to_first_byte_seconds", true);
+        appendSummary(sb, "candys3_request_duration_seconds", false);
+        return sb.toString();
+    }
+
+    private void appendSummary(StringBuilder sb, String name, boolean timeToFirstByte) {
+        sb.append("# TYPE ").append(name).append(" summary\n");
+        for (OperationMetrics metrics : getOperationMetrics().values()) {
+            LatencyHistogram histogram = timeToFirstByte ? metrics.getTimeToFirstByte() : metrics.getDuration();
+            for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+                appendSample(sb, name, metrics.operation, "quantile=\"" + quantile + "\"",
+                        histogram.getValueAtPercentile(quantile * 100) / 1e9);
+            }
+            appendSample(sb, name + "_sum", metrics.operation, null, histogram.getSum() / 1e9);
+            appendSample(sb, name + "_count", metrics.operation, null, histogram.getCount());
+        }
+    }
+
+    private static void appendSample(StringBuilder sb, String name, String operation, String label, Object value) {
+        sb.append(name).append("{operation=\"").append(escape(operation)).append('"');
+        if (label != null) {
+            sb.append(',').append(label);
+        }
+        sb.append("} ").append(value).append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        return "HistogramMetricsListener{" +
+                "operations=" + getOperationMetrics().values() +
+                '}';
+    }
+
+    /**
+     * The metrics of the requests of an operation.
+     */
+    public static final class OperationMetrics {
+        private final String operation;
+        private final LongAdder requestCount = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LatencyHistogram timeToFirstByte = new LatencyHistogram();
+        private final LatencyHistogram duration = new LatencyHistogram();
+
+        OperationMetrics(String operation) {
+            this.operation = operation;
+        }
+
+        void record(RequestMetrics metrics) {
+            requestCount.increment();
+            if (!metrics.isSuccessful()) {
+                errorCounts.computeIfAbsent(errorOf(metrics), error -> new LongAdder()).increment();
+            }
+            bytesSent.add(metrics.getBytesSent());
+            bytesReceived.add(metrics.getBytesReceived());
+            if (metrics.getTimeToFirstByteNanos() >= 0) {
+                timeToFirstByte.record(metrics.getTimeToFirstByteNanos());
+            }
+            duration.record(metrics.getDurationNanos());
+        }
+
+        /**
+         * The error of a failed request is its error code, or the HTTP status, or the exception class.
+         */
+        private static String errorOf(RequestMetrics metrics) {
+            if (metrics.getErrorCode() != null) {
+                return metrics.getErrorCode();
+            }
+            if (metrics.getStatusCode() != 0 && (metrics.getStatusCode() < 200 || metrics.getStatusCode() >= 300)) {
+                return "HTTP " + metrics.getStatusCode();
+            }
+            return metrics.getException() == null ? "Unknown" : metrics.getException().getClass().getSimpleName();
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getRequestCount() {
+            return requestCount.sum();
+        }
+
+        /**
+         * @return the number of failed requests.
+         */
+        public long getErrorCount() {
+            long errorCount = 0;
+            for (LongAdder adder : errorCounts.values()) {
+                errorCount += adder.sum();
+            }
+            return errorCount;
+        }
+
+        /**
+         * @return the number of failed requests by error, which is the S3 error code like 'NoSuchKey',
+         * or 'HTTP 503' for an error response without error code, or the exception class like 'SocketTimeoutException'.
+         */
+        public Map<String, Long> getErrorCounts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : errorCounts.entrySet()) {
+                counts.put(entry.getKey(), entry.getValue().sum());
+            }
+            return counts;
+        }
+
+        /**
+         * @return the ratio of failed requests, 0 if there are no requests.
+         */
+        public double getErrorRate() {
+            long requests = getRequestCount();
+            return requests == 0 ? 0 : (double) getErrorCount() / requests;
+        }
+
+        public long getBytesSent() {
+            return bytesSent.sum();
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived.sum();
+        }
+
+        /**
+         * @return the histogram of time to first byte, in nanoseconds.
+         */
+        public LatencyHistogram getTimeToFirstByte() {
+            return timeToFirstByte;
+        }
+
+        /**
+         * @return the histogram of duration, in nanoseconds.
+         */
+        public LatencyHistogram getDuration() {
+            return duration;
+        }
+
+        @Override
+        public String toString() {
+            return "OperationMetrics{" +
+                    "operation='" + operation + '\'' +
+                    ", requestCount=" + getRequestCount() +
+                    ", errorCounts=" + getErrorCounts() +
+                    ", bytesSent=" + getBytesSent() +
+                    ", bytesReceived=" + getBytesReceived() +
+                    ", timeToFirstByte=" + timeToFirstByte +
+                    ", duration=" + duration +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package io.github.matian2014.candys3;
+
+import com.fasterxml.jackson.databind.util.StdDateFormat;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Parses ListObjectsV2 and ListObjectVersions responses with a pull parser.
+ * <p>
+ * The response body is read incrementally and each entry is built as its element is read,
+ * the body is not held as a String or as a tree.
+ * Elements which are not known are skipped.
+ * <p>
+ * The keys and prefixes are decoded if the response has 'EncodingType' url, and the page is the last one only if
+ * 'IsTruncated' is false.
+ */
+final class ListObjectsResponseParser {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private static final ThreadLocal<StdDateFormat> DATE_FORMAT = ThreadLocal.withInitial(StdDateFormat::new);
+
+    private ListObjectsResponseParser() {
+    }
+
+    /**
+     * Parses the body of a ListObjectsV2 response.
+     *
+     * @param in the response body, it's not closed.
+     * @return the objects, common prefixes and 'NextContinuationToken'.
+     */
+    static ListPaginationResult<S3Object> parseListObjects(InputStream in) throws IOException {
+        List<S3Object> s3Objects = new ArrayList<>();
+        List<ListPaginationResult.CommonPrefix> commonPrefixes = new ArrayList<>();
+        String nextContinuationToken = "";
+        Boolean truncated = null;
+        boolean urlEncoded = false;
+
+        XMLStreamReader reader = createReader(in);
+        try {
+            reader.nextTag();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "Contents":
+                        s3Objects.add(readObject(reader));
+                        break;
+                    case "CommonPrefixes":
+                        commonPrefixes.add(readCommonPrefix(reader));
+                        break;
+                    case "NextContinuationToken":
+                        nextContinuationToken = reader.getElementText();
+                        break;
+                    case "IsTruncated":
+                        truncated = Boolean.valueOf(reader.getElementText().trim());
+                        break;
+                    case "EncodingType":
+                        urlEncoded = isUrlEncoding(reader.getElementText());
+                        break;
+                    default:
+                        skipElement(reader);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse ListObjectsV2 response.", e);
+        } finally {
+            closeQuietly(reader);
+        }
+
+        if (Boolean.FALSE.equals(truncated)) {
+            nextContinuationToken = "";
+        } else if (Boolean.TRUE.equals(truncated) && nextContinuationToken.isEmpty()) {
+            // The next page can only be requested with the token, a listing without it would silently end here.
+            throw new IOException("The ListObjectsV2 response is truncated without 'NextContinuationToken'.");
+        }
+        if (urlEncoded) {
+            for (S3Object s3Object : s3Objects) {
+                s3Object.setKey(urlDecode(s3Object.getKey()));
+            }
+            decodeCommonPrefixes(commonPrefixes);
+        }
+
+        ListPaginationResult<S3Object> paginationResult = new ListPaginationResult<>(s3Objects, nextContinuationToken);
+        paginationResult.setCommonPrefixes(commonPrefixes);
+        return paginationResult;
+    }
+
+    /**
+     * Parses the body of a ListObjectVersions response.
+     *
+     * @param in the response body, it's not closed.
+     * @return the versions, delete markers, common prefixes, 'NextKeyMarker' and 'NextVersionIdMarker'.
+     */
+    static ListPaginationResult<S3ObjectVersion> parseListObjectVersions(InputStream in) throws IOException {
+        List<S3ObjectVersion> versions = new ArrayList<>();
+        List<S3ObjectVersion> deleteMarkers = new ArrayList<>();
+        List<ListPaginationResult.CommonPrefix> commonPrefixes = new ArrayList<>();
+        String nextKeyMarker = "";
+        String nextVersionIdMarker = "";
+        S3ObjectVersion last = null;
+        Boolean truncated = null;
+        boolean urlEncoded = false;
+
+        XMLStreamReader reader = createReader(in);
+        try {
+            reader.nextTag();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "Version":
+                        last = readObjectVersion(reader);
+                        versions.add(last);
+                        break;
+                    case "DeleteMarker":
+                        last = readObjectVersion(reader);
+                        last.setDeleteMarker(true);
+                        deleteMarkers.add(last);
+                        break;
+                    case "CommonPrefixes":
+                        commonPrefixes.add(readCommonPrefix(reader));
+                        break;
+                    case "NextKeyMarker":
+                        nextKeyMarker = reader.getElementText();
+                        break;
+                    case "NextVersionIdMarker":
+                        nextVersionIdMarker = reader.getElementText();
+                        break;
+                    case "IsTruncated":
+                        truncated = Boolean.valueOf(reader.getElementText().trim());
+                        break;
+                    case "EncodingType":
+                        urlEncoded = isUrlEncoding(reader.getElementText());
+                        break;
+                    default:
+                        skipElement(reader);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse ListObjectVersions response.", e);
+        } finally {
+            closeQuietly(reader);
+        }
+
+        if (Boolean.FALSE.equals(truncated)) {
+            nextKeyMarker = "";
+            nextVersionIdMarker = "";
+        } else if (Boolean.TRUE.equals(truncated) && nextKeyMarker.isEmpty() && last != null) {
+            // Like the markers of ListObjects, the next page starts after the last entry of this page.
+            nextKeyMarker = last.getKey();
+            nextVersionIdMarker = last.getVersionId() == null ? "" : last.getVersionId();
+        }
+        if (urlEncoded) {
+            for (S3ObjectVersion version : versions) {
+                version.setKey(urlDecode(version.getKey()));
+            }
+            for (S3ObjectVersion deleteMarker : deleteMarkers) {
+                deleteMarker.setKey(urlDecode(deleteMarker.getKey()));
+            }
+            decodeCommonPrefixes(commonPrefixes);
+            nextKeyMarker = urlDecode(nextKeyMarker);
+        }
+
+        ListPaginationResult<S3ObjectVersion> paginationResult = new ListPaginationResult<>(versions, deleteMarkers,
+                nextKeyMarker, nextVersionIdMarker);
+        paginationResult.setCommonPrefixes(commonPrefixes);
+        return paginationResult;
+    }
+
+    private static S3Object readObject(XMLStreamReader reader) throws XMLStreamException, IOException {
+        S3Object s3Object = new S3Object();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Key":
+                    s3Object.setKey(reader.getElementText());
+                    break;
+                case "LastModified":
+                    s3Object.setLastModified(parseDate(reader.getElementText()));
+                    break;
+                case "ETag":
+                    s3Object.seteTag(reader.getElementText());
+                    break;
+                case "Size":
+                    s3Object.setSize(parseLong(reader.getElementText()));
+                    break;
+                case "StorageClass":
+                    s3Object.setStorageClass(reader.getElementText());
+                    break;
+                case "Owner":
+                    s3Object.setOwner(readOwner(reader));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return s3Object;
+    }
+
+    private static S3ObjectVersion readObjectVersion(XMLStreamReader reader) throws XMLStreamException, IOException {
+        S3ObjectVersion version = new S3ObjectVersion();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Key":
+                    version.setKey(reader.getElementText());
+                    break;
+                case "VersionId":
+                    version.setVersionId(reader.getElementText());
+                    break;
+                case "IsLatest":
+                    version.setIsLatest(Boolean.valueOf(reader.getElementText().trim()));
+                    break;
+                case "LastModified":
+                    version.setLastModified(parseDate(reader.getElementText()));
+                    break;
+                case "ETag":
+                    version.seteTag(reader.getElementText());
+                    break;
+                case "Size":
+                    version.setSize(parseLong(reader.getElementText()));
+                    break;
+                case "StorageClass":
+                    version.setStorageClass(reader.getElementText());
+                    break;
+                case "Owner":
+                    version.setOwner(readOwner(reader));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return version;
+    }
+
+    private static Owner readOwner(XMLStreamReader reader) throws XMLStreamException {
+        Owner owner = new Owner();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "ID":
+                    owner.setId(reader.getElementText());
+                    break;
+                case "DisplayName":
+                    owner.setDisplayName(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return owner;
+    }
+
+    private static ListPaginationResult.CommonPrefix readCommonPrefix(XMLStreamReader reader) throws XMLStreamException {
+        ListPaginationResult.CommonPrefix commonPrefix = new ListPaginationResult.CommonPrefix();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if ("Prefix".equals(reader.getLocalName())) {
+                commonPrefix.setPrefix(reader.getElementText());
+            } else {
+                skipElement(reader);
+            }
+        }
+        return commonPrefix;
+    }
+
+    private static boolean isUrlEncoding(String encodingType) {
+        return "url".equalsIgnoreCase(encodingType.trim());
+    }
+
+    private static void decodeCommonPrefixes(List<ListPaginationResult.CommonPrefix> commonPrefixes) throws IOException {
+        for (ListPaginationResult.CommonPrefix commonPrefix : commonPrefixes) {
+            commonPrefix.setPrefix(urlDecode(commonPrefix.getPrefix()));
+        }
+    }
+
+    /**
+     * Decodes a value of a response with 'EncodingType' url, S3 encodes '+' as '%2B', so a '+' is a space.
+     */
+    private static String urlDecode(String value) throws IOException {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid url encoded value '" + value + "' in list response.", e);
+        }
+    }
+
+    /**
+     * Skips the current element and all of its children, the reader is left at its end element.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static long parseLong(String text) throws IOException {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid number '" + text + "' in list response.", e);
+        }
+    }
+
+    /**
+     * S3 returns dates like '2009-10-12T17:50:30.000Z', which are parsed without a SimpleDateFormat.
+     * Other ISO-8601 forms are parsed the same way as jackson does.
+     */
+    private static Date parseDate(String text) throws IOException {
+        String value = text.trim();
+        try {
+            return new Date(Instant.parse(value).toEpochMilli());
+        } catch (DateTimeParseException e) {
+            try {
+                return DATE_FORMAT.get().parse(value);
+            } catch (ParseException pe) {
+                throw new IOException("Invalid date '" + text + "' in list response.", pe);
+            }
+        }
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws IOException {
+        try {
+            return XML_INPUT_FACTORY.createXMLStreamReader(in);
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse list response.", e);
+        }
+    }
+
+    private static void closeQuietly(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        return factory;
+    }
+}
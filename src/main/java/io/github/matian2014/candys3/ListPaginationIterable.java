@@ -0,0 +1,46 @@
+package io.github.matian2014.candys3;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The entries of all pages of a list request.
+ * No request is sent until it is iterated, and each iteration lists from the first page again.
+ *
+ * @param <T> the type of entries.
+ * @see ListPaginationIterator
+ */
+public final class ListPaginationIterable<T> implements Iterable<T> {
+
+    private final ListPaginationIterator.PageFetcher<T> fetcher;
+    private final Function<ListPaginationResult<T>, List<T>> entries;
+    private final int prefetchPages;
+
+    ListPaginationIterable(ListPaginationIterator.PageFetcher<T> fetcher,
+                           Function<ListPaginationResult<T>, List<T>> entries, int prefetchPages) {
+        this.fetcher = fetcher;
+        this.entries = entries;
+        this.prefetchPages = prefetchPages;
+    }
+
+    /**
+     * Starts listing from the first page, the first pages are requested immediately.
+     */
+    @Override
+    public ListPaginationIterator<T> iterator() {
+        return new ListPaginationIterator<>(fetcher, entries, prefetchPages);
+    }
+
+    /**
+     * Returns a sequential stream of the entries, close the stream to cancel the requests if it is not consumed to the end.
+     */
+    public Stream<T> stream() {
+        ListPaginationIterator<T> iterator = iterator();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+}
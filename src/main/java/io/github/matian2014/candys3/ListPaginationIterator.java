@@ -0,0 +1,161 @@
+package io.github.matian2014.candys3;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Iterates the entries of all pages of a list request, the next pages are requested when the iterator is created or advanced.
+ * <p>
+ * While the caller consumes a page, up to prefetchPages following pages are requested in the background,
+ * so at most prefetchPages + 1 pages are held in memory.
+ * Pages are requested one after another, since the request of a page needs the pagination marker of the previous page.
+ * <p>
+ * Errors of requests are thrown by hasNext or next, an IOException is wrapped in an UncheckedIOException.
+ * Close the iterator if it is not iterated to the end, to cancel the requests in flight.
+ *
+ * @param <T> the type of entries.
+ */
+public final class ListPaginationIterator<T> implements Iterator<T>, AutoCloseable {
+
+    /**
+     * Sends the request of a page.
+     */
+    interface PageFetcher<T> {
+        /**
+         * @param previous the previous page, or null to request the first page.
+         */
+        CompletableFuture<ListPaginationResult<T>> fetch(ListPaginationResult<T> previous) throws IOException;
+    }
+
+    private final PageFetcher<T> fetcher;
+    private final Function<ListPaginationResult<T>, List<T>> entries;
+    private final int prefetchPages;
+
+    /** pages requested but not consumed, a null page means there are no more pages **/
+    private final Deque<CompletableFuture<ListPaginationResult<T>>> pages = new ArrayDeque<>();
+    private CompletableFuture<ListPaginationResult<T>> lastRequested;
+    private volatile CompletableFuture<ListPaginationResult<T>> inFlight;
+    private Iterator<T> current = Collections.emptyIterator();
+    private boolean exhausted;
+    private volatile boolean closed;
+
+    ListPaginationIterator(PageFetcher<T> fetcher, Function<ListPaginationResult<T>, List<T>> entries, int prefetchPages) {
+        this.fetcher = fetcher;
+        this.entries = entries;
+        this.prefetchPages = prefetchPages;
+        requestPages(prefetchPages + 1);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed) {
+                return false;
+            }
+            if (pages.isEmpty()) {
+                requestPages(1);
+                if (pages.isEmpty()) {
+                    return false;
+                }
+            }
+            CompletableFuture<ListPaginationResult<T>> next = pages.poll();
+            // Chain the following requests before waiting, so they are sent as soon as this page arrives.
+            requestPages(prefetchPages);
+            ListPaginationResult<T> page = await(next);
+            if (page == null) {
+                close();
+                return false;
+            }
+            current = entries.apply(page).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Cancels the requests which are in flight or not consumed. The iterator has no more entries after closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        exhausted = true;
+        current = Collections.emptyIterator();
+        for (CompletableFuture<ListPaginationResult<T>> page : pages) {
+            page.cancel(true);
+        }
+        pages.clear();
+        CompletableFuture<ListPaginationResult<T>> call = inFlight;
+        if (call != null) {
+            call.cancel(true);
+        }
+    }
+
+    private void requestPages(int count) {
+        while (pages.size() < count && !exhausted) {
+            if (lastRequested != null && lastRequested.isDone() && !lastRequested.isCompletedExceptionally()
+                    && !hasNextPage(lastRequested.join())) {
+                exhausted = true;
+                return;
+            }
+            CompletableFuture<ListPaginationResult<T>> page = lastRequested == null
+                    ? fetch(null)
+                    : lastRequested.thenCompose(previous -> hasNextPage(previous) ? fetch(previous) : CompletableFuture.completedFuture(null));
+            pages.add(page);
+            lastRequested = page;
+        }
+    }
+
+    private CompletableFuture<ListPaginationResult<T>> fetch(ListPaginationResult<T> previous) {
+        CompletableFuture<ListPaginationResult<T>> call;
+        try {
+            call = fetcher.fetch(previous);
+        } catch (IOException | RuntimeException e) {
+            call = new CompletableFuture<>();
+            call.completeExceptionally(e);
+        }
+        inFlight = call;
+        if (closed) {
+            call.cancel(true);
+        }
+        return call;
+    }
+
+    private boolean hasNextPage(ListPaginationResult<T> page) {
+        return page != null && StringUtils.isNotEmpty(page.getNextPaginationMarker());
+    }
+
+    private ListPaginationResult<T> await(CompletableFuture<ListPaginationResult<T>> page) {
+        try {
+            return page.join();
+        } catch (CompletionException | CancellationException e) {
+            close();
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.matian2014.candys3;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ForwardingSink;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reports the metrics of each request to the {@link RequestMetricsListener} of the client, if it has one.
+ * It runs inside the {@link RetryInterceptor} and the {@link RateLimitInterceptor}, so each retry is reported separately,
+ * and the time waiting for a retry or for the rate limit is not counted.
+ * <p>
+ * A request with a response is reported when its response body is read to the end or closed.
+ * The time to first byte is measured from the end of the request body, so it doesn't include the upload.
+ */
+final class MetricsInterceptor implements Interceptor {
+
+    private final CandyS3 candyS3;
+
+    MetricsInterceptor(CandyS3 candyS3) {
+        this.candyS3 = candyS3;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        RequestMetricsListener listener = candyS3.getMetricsListener();
+        if (listener == null) {
+            return chain.proceed(chain.request());
+        }
+
+        Request request = chain.request();
+        String[] bucketAndKey = candyS3.parseBucketAndKey(request.url());
+        RequestRecorder recorder = new RequestRecorder(listener, S3Operations.nameOf(request, bucketAndKey),
+                bucketAndKey == null ? null : bucketAndKey[0], request.method(),
+                request.header("If-None-Match") != null || request.header("If-Modified-Since") != null);
+
+        if (request.body() != null) {
+            request = request.newBuilder()
+                    .method(request.method(), new CountingRequestBody(request.body(), recorder))
+                    .build();
+        }
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            // a RuntimeException of an inner interceptor or the request body fails the request too
+            recorder.failed(e);
+            throw e;
+        }
+        recorder.responseReceived(response);
+        if (response.body() == null) {
+            recorder.completed(null);
+            return response;
+        }
+        return response.newBuilder()
+                .body(new CountingResponseBody(response.body(), recorder))
+                .build();
+    }
+
+    /**
+     * Collects the metrics of a request, and reports them once.
+     */
+    private static final class RequestRecorder {
+        private final RequestMetricsListener listener;
+        private final String operation;
+        private final String bucket;
+        private final String method;
+        private final boolean conditional;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean reported = new AtomicBoolean();
+
+        private volatile long bytesSent;
+        private volatile long bytesReceived;
+        private volatile int statusCode;
+        private volatile String errorCode;
+        private volatile long timeToFirstByteNanos = -1;
+        // the time when the request body is sent, the start of the request if it has no body
+        private volatile long requestSentNanos = startNanos;
+
+        RequestRecorder(RequestMetricsListener listener, String operation, String bucket, String method, boolean conditional) {
+            this.listener = listener;
+            this.operation = operation;
+            this.bucket = bucket;
+            this.method = method;
+            this.conditional = conditional;
+        }
+
+        void requestSent() {
+            requestSentNanos = System.nanoTime();
+        }
+
+        void responseReceived(Response response) throws IOException {
+            timeToFirstByteNanos = Math.max(0, System.nanoTime() - requestSentNanos);
+            statusCode = response.code();
+            if (!response.isSuccessful() && response.body() != null) {
+                errorCode = RetryInterceptor.peekErrorCode(response);
+            }
+        }
+
+        void failed(Exception e) {
+            completed(e);
+        }
+
+        void completed(Exception e) {
+            if (!reported.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                listener.onRequest(new RequestMetrics(operation, bucket, method, conditional, statusCode, errorCode, e,
+                        bytesSent, bytesReceived, timeToFirstByteNanos, System.nanoTime() - startNanos));
+            } catch (RuntimeException ignored) {
+                // the metrics must not fail the request
+            }
+        }
+    }
+
+    private static final class CountingRequestBody extends RequestBody {
+        private final RequestBody delegate;
+        private final RequestRecorder recorder;
+
+        CountingRequestBody(RequestBody delegate, RequestRecorder recorder) {
+            this.delegate = delegate;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return delegate.isOneShot();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            Sink countingSink = new ForwardingSink(sink) {
+                @Override
+                public void write(Buffer source, long byteCount) throws IOException {
+                    super.write(source, byteCount);
+                    recorder.bytesSent += byteCount;
+                }
+            };
+            BufferedSink bufferedSink = Okio.buffer(countingSink);
+            delegate.writeTo(bufferedSink);
+            bufferedSink.emit();
+            recorder.requestSent();
+        }
+    }
+
+    private static final class CountingResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        CountingResponseBody(ResponseBody delegate, RequestRecorder recorder) {
+            this.delegate = delegate;
+            Source countingSource = new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read;
+                    try {
+                        read = super.read(sink, byteCount);
+                    } catch (IOException | RuntimeException e) {
+                        recorder.completed(e);
+                        throw e;
+                    }
+                    if (read == -1) {
+                        recorder.completed(null);
+                    } else {
+                        recorder.bytesReceived += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    recorder.completed(null);
+                    super.close();
+                }
+            };
+            this.source = Okio.buffer(countingSource);
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
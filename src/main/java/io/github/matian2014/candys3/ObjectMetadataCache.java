@@ -0,0 +1,288 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.options.DownloadObjectOptions;
+import okhttp3.Headers;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of the object metadata returned by getObjectMetadata, set it with {@link CandyS3#setObjectMetadataCache(ObjectMetadataCache)}.
+ * <p>
+ * Entries are keyed by bucket, object key and version ID, and the least recently used entry is evicted when the cache is full.
+ * An entry is returned without a request until its TTL expires, then it's revalidated with a HEAD request
+ * conditional on its ETag, and a '304 Not Modified' response renews the entry without transferring the metadata again.
+ * <p>
+ * The writes of the CandyS3 which owns the cache invalidate the entries of the objects they change,
+ * but writes of other clients are only seen when the entries expire.
+ * Only requests without range, part number, response header options or condition are cached.
+ */
+public final class ObjectMetadataCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    // guarded by this
+    private final LinkedHashMap<Key, Entry> entries;
+    // increased on every invalidation, a loaded entry is not cached if any invalidation happened while it's loaded
+    private long invalidationSequence;
+    private long hitCount;
+    private long revalidationCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxEntries the maximum number of entries.
+     * @param ttl how long an entry is returned without revalidation, 0 to revalidate on every request.
+     * @param unit the unit of ttl.
+     */
+    public ObjectMetadataCache(int maxEntries, long ttl, TimeUnit unit) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be a positive integer.");
+        }
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl must not be negative.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = unit.toMillis(ttl);
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ObjectMetadataCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of requests answered by an unexpired entry, without a request.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of requests answered by an expired entry, after the server responded it's not modified.
+     */
+    public synchronized long getRevalidationCount() {
+        return revalidationCount;
+    }
+
+    /**
+     * @return the number of requests which have no entry, or whose entry is changed on the server.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of entries removed because the cache is full.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the ratio of requests answered without a request, 0 if there are no requests.
+     */
+    public synchronized double getHitRate() {
+        long requestCount = hitCount + revalidationCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Removes all entries, the statistics are kept.
+     */
+    public synchronized void invalidateAll() {
+        invalidationSequence++;
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ObjectMetadataCache{" +
+                "size=" + entries.size() +
+                ", maxEntries=" + maxEntries +
+                ", ttlMillis=" + ttlMillis +
+                ", hitCount=" + hitCount +
+                ", revalidationCount=" + revalidationCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+
+    static boolean isCacheable(DownloadObjectOptions options) {
+        return options != null
+                && StringUtils.isEmpty(options.getRange())
+                && options.getPartNumber() == null
+                && options.getResponseHeaderOptions() == null
+                && options.getCondition() == null
+                // a cached entry would be returned without checking the customer key
+                && options.getCustomerKeyOptions() == null;
+    }
+
+    /**
+     * Looks up the entry of an object, a hit is counted if it's not expired.
+     */
+    synchronized Lookup lookup(String bucket, String objectKey, String versionId) {
+        Key key = new Key(bucket, objectKey, versionId);
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() < entry.expiresAt) {
+            hitCount++;
+            return new Lookup(key, entry.headers, true, invalidationSequence);
+        }
+        return new Lookup(key, entry == null ? null : entry.headers, false, invalidationSequence);
+    }
+
+    /**
+     * The server responded the expired entry of the lookup is not modified.
+     */
+    synchronized void revalidated(Lookup lookup) {
+        revalidationCount++;
+        if (lookup.sequence == invalidationSequence) {
+            entries.put(lookup.key, new Entry(lookup.headers, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * The metadata of the lookup is loaded from the server.
+     */
+    synchronized void loaded(Lookup lookup, Headers headers) {
+        missCount++;
+        if (lookup.sequence == invalidationSequence) {
+            entries.put(lookup.key, new Entry(headers, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * The server failed to return the metadata of the lookup, like the object is deleted.
+     */
+    synchronized void failed(Lookup lookup) {
+        missCount++;
+        entries.remove(lookup.key);
+    }
+
+    /**
+     * Invalidates the entry of an object version, and the entry of the latest version of the object which may be the same.
+     */
+    synchronized void invalidate(String bucket, String objectKey, String versionId) {
+        invalidationSequence++;
+        entries.remove(new Key(bucket, objectKey, null));
+        if (StringUtils.isNotEmpty(versionId)) {
+            entries.remove(new Key(bucket, objectKey, versionId));
+        }
+    }
+
+    /**
+     * Invalidates the entries of all versions of an object.
+     */
+    synchronized void invalidateObject(String bucket, String objectKey) {
+        invalidationSequence++;
+        entries.keySet().removeIf(key -> key.bucket.equals(bucket) && key.objectKey.equals(objectKey));
+    }
+
+    /**
+     * Invalidates the entries of all objects of a bucket.
+     */
+    synchronized void invalidateBucket(String bucket) {
+        invalidationSequence++;
+        entries.keySet().removeIf(key -> key.bucket.equals(bucket));
+    }
+
+    /**
+     * The result of looking up an object, it's used to complete the request when the entry is missing or expired.
+     */
+    static final class Lookup {
+        private final Key key;
+        private final Headers headers;
+        private final boolean fresh;
+        private final long sequence;
+
+        private Lookup(Key key, Headers headers, boolean fresh, long sequence) {
+            this.key = key;
+            this.headers = headers;
+            this.fresh = fresh;
+            this.sequence = sequence;
+        }
+
+        /**
+         * @return the response headers of the entry, null if there's no entry.
+         */
+        Headers getHeaders() {
+            return headers;
+        }
+
+        /**
+         * @return whether the entry can be returned without a request.
+         */
+        boolean isFresh() {
+            return fresh;
+        }
+
+        /**
+         * @return the ETag to revalidate the expired entry, null if there's no entry.
+         */
+        String getETag() {
+            return headers == null ? null : headers.get("ETag");
+        }
+    }
+
+    private static final class Key {
+        private final String bucket;
+        private final String objectKey;
+        // empty for the latest version
+        private final String versionId;
+
+        Key(String bucket, String objectKey, String versionId) {
+            this.bucket = bucket;
+            this.objectKey = objectKey;
+            this.versionId = StringUtils.defaultString(versionId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return bucket.equals(other.bucket) && objectKey.equals(other.objectKey) && versionId.equals(other.versionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucket, objectKey, versionId);
+        }
+    }
+
+    private static final class Entry {
+        // okhttp headers are immutable, each hit parses a new S3Object from them
+        private final Headers headers;
+        private final long expiresAt;
+
+        Entry(Headers headers, long expiresAt) {
+            this.headers = headers;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.options.ListObjectOptions;
+import io.github.matian2014.candys3.options.ParallelListObjectOptions;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists the objects of a bucket in partitions, which are listed concurrently.
+ * <p>
+ * The partitions are found by listing with the delimiter level by level, each common prefix is a partition,
+ * and the objects found when walking the levels are returned as they are.
+ * A partition is a contiguous range of keys, so the sorted result is the partitions and objects in key order,
+ * with the partitions ahead of the consumed one prefetched.
+ */
+final class ParallelObjectLister {
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final CandyS3 candyS3;
+    private final String bucket;
+    private final ListObjectOptions listOptions;
+    private final char delimiter;
+    private final int partitionDepth;
+    private final int concurrency;
+
+    ParallelObjectLister(CandyS3 candyS3, String bucket, ParallelListObjectOptions options) {
+        if (options.getPartitionDepth() < 0) {
+            throw new IllegalArgumentException("partitionDepth must not be negative.");
+        }
+        if (options.getConcurrency() != null && options.getConcurrency() < 1) {
+            throw new IllegalArgumentException("concurrency must be a positive integer.");
+        }
+        this.candyS3 = candyS3;
+        this.bucket = bucket;
+        this.listOptions = options.getListObjectOptions() == null ? new ListObjectOptions() : options.getListObjectOptions();
+        this.delimiter = listOptions.getDelimiter() == null ? '/' : listOptions.getDelimiter();
+        this.partitionDepth = options.getPartitionDepth();
+        this.concurrency = options.getConcurrency() == null ? candyS3.getTransferConcurrency() : options.getConcurrency();
+    }
+
+    /**
+     * An object found when walking the levels, or a common prefix to be listed as a partition.
+     */
+    private static final class Segment {
+        final String key;
+        final S3Object object;
+
+        Segment(String key, S3Object object) {
+            this.key = key;
+            this.object = object;
+        }
+
+        boolean isPartition() {
+            return object == null;
+        }
+    }
+
+    Stream<S3Object> list(boolean sorted) throws IOException {
+        List<Segment> segments = walk();
+        CloseableIterator iterator = sorted ? new SortedIterator(segments) : new UnorderedIterator(segments);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL | (sorted ? Spliterator.ORDERED : 0)), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Walks partitionDepth levels of common prefixes, the partitions of a level are listed concurrently.
+     *
+     * @return the segments in key order.
+     */
+    private List<Segment> walk() throws IOException {
+        List<Segment> segments = Collections.singletonList(new Segment(StringUtils.defaultString(listOptions.getPrefix()), null));
+        for (int level = 0; level < partitionDepth; level++) {
+            List<Segment> partitions = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment.isPartition()) {
+                    partitions.add(segment);
+                }
+            }
+            if (partitions.isEmpty()) {
+                break;
+            }
+            List<List<Segment>> children = candyS3.transferConcurrently(partitions.size(), concurrency,
+                    index -> listLevel(partitions.get(index).key));
+
+            List<Segment> nextSegments = new ArrayList<>();
+            int partitionIndex = 0;
+            for (Segment segment : segments) {
+                if (segment.isPartition()) {
+                    nextSegments.addAll(children.get(partitionIndex++));
+                } else {
+                    nextSegments.add(segment);
+                }
+            }
+            segments = nextSegments;
+        }
+        return segments;
+    }
+
+    /**
+     * Lists the objects and common prefixes directly under the prefix.
+     */
+    private List<Segment> listLevel(String prefix) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        ListObjectOptions options = partitionOptions(prefix).delimiter(delimiter);
+        ListPaginationResult<S3Object> result;
+        do {
+            result = candyS3.listObjects(bucket, options);
+            for (S3Object s3Object : result.getResults()) {
+                segments.add(new Segment(s3Object.getKey(), s3Object));
+            }
+            for (ListPaginationResult.CommonPrefix commonPrefix : result.getCommonPrefixes()) {
+                segments.add(new Segment(commonPrefix.getPrefix(), null));
+            }
+            options.continuationToken(result.getNextPaginationMarker());
+        } while (StringUtils.isNotEmpty(result.getNextPaginationMarker()));
+
+        // S3 sorts keys by UTF-8 bytes, which is the order of code points.
+        segments.sort((s1, s2) -> compareCodePoints(s1.key, s2.key));
+        return segments;
+    }
+
+    private ListObjectOptions partitionOptions(String prefix) {
+        return new ListObjectOptions()
+                .prefix(prefix)
+                .startAfter(listOptions.getStartAfter())
+                .maxKeys(listOptions.getMaxKeys())
+                .fetchOwner(listOptions.isFetchOwner());
+    }
+
+    private static int compareCodePoints(String s1, String s2) {
+        int i1 = 0;
+        int i2 = 0;
+        while (i1 < s1.length() && i2 < s2.length()) {
+            int c1 = s1.codePointAt(i1);
+            int c2 = s2.codePointAt(i2);
+            if (c1 != c2) {
+                return Integer.compare(c1, c2);
+            }
+            i1 += Character.charCount(c1);
+            i2 += Character.charCount(c2);
+        }
+        return Integer.compare(s1.length() - i1, s2.length() - i2);
+    }
+
+    private interface CloseableIterator extends Iterator<S3Object>, AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Returns the segments in order, at most concurrency partitions are listed ahead with their own prefetching iterators.
+     */
+    private final class SortedIterator implements CloseableIterator {
+        private final List<Segment> segments;
+        private final Deque<ListPaginationIterator<S3Object>> openedPartitions = new ArrayDeque<>();
+        private int nextSegment;
+        private int nextPartitionToOpen;
+        private Iterator<S3Object> current = Collections.emptyIterator();
+        private boolean closed;
+
+        SortedIterator(List<Segment> segments) {
+            this.segments = segments;
+            openPartitions();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (closed || nextSegment >= segments.size()) {
+                    return false;
+                }
+                Segment segment = segments.get(nextSegment++);
+                if (segment.isPartition()) {
+                    openPartitions();
+                    current = openedPartitions.poll();
+                    openPartitions();
+                } else {
+                    current = Collections.singletonList(segment.object).iterator();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public S3Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        private void openPartitions() {
+            while (openedPartitions.size() < concurrency && nextPartitionToOpen < segments.size()) {
+                Segment segment = segments.get(nextPartitionToOpen++);
+                if (segment.isPartition()) {
+                    openedPartitions.add(candyS3.listObjectsIterable(bucket, partitionOptions(segment.key)).iterator());
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (current instanceof ListPaginationIterator) {
+                ((ListPaginationIterator<S3Object>) current).close();
+            }
+            for (ListPaginationIterator<S3Object> partition : openedPartitions) {
+                partition.close();
+            }
+            openedPartitions.clear();
+        }
+    }
+
+    /**
+     * Lists the partitions with concurrency workers of the transfer executor, and returns the pages as they are listed.
+     * The pages listed but not consumed are bounded by the queue, workers wait when it's full.
+     */
+    private final class UnorderedIterator implements CloseableIterator {
+        private final List<S3Object> endOfPages = new ArrayList<>(0);
+        private final BlockingQueue<List<S3Object>> pages = new ArrayBlockingQueue<>(concurrency * 2);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final List<Future<?>> workers = new ArrayList<>();
+        private final Iterator<Segment> objects;
+        private Iterator<S3Object> current = Collections.emptyIterator();
+        private int runningWorkers;
+        private volatile boolean closed;
+
+        UnorderedIterator(List<Segment> segments) {
+            List<String> partitions = new ArrayList<>();
+            List<Segment> objectSegments = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment.isPartition()) {
+                    partitions.add(segment.key);
+                } else {
+                    objectSegments.add(segment);
+                }
+            }
+            this.objects = objectSegments.iterator();
+
+            AtomicInteger nextPartition = new AtomicInteger();
+            ExecutorService executor = candyS3.getTransferExecutor();
+            runningWorkers = Math.min(concurrency, partitions.size());
+            for (int i = 0; i < runningWorkers; i++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        int index;
+                        while (!closed && failure.get() == null && (index = nextPartition.getAndIncrement()) < partitions.size()) {
+                            listPartition(partitions.get(index));
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        offer(endOfPages);
+                    }
+                }));
+            }
+        }
+
+        private void listPartition(String prefix) throws IOException {
+            ListObjectOptions options = partitionOptions(prefix);
+            ListPaginationResult<S3Object> result;
+            do {
+                result = candyS3.listObjects(bucket, options);
+                if (!result.getResults().isEmpty() && !offer(result.getResults())) {
+                    return;
+                }
+                options.continuationToken(result.getNextPaginationMarker());
+            } while (!closed && StringUtils.isNotEmpty(result.getNextPaginationMarker()));
+        }
+
+        /**
+         * @return false if the iterator is closed before the page is queued.
+         */
+        private boolean offer(List<S3Object> page) {
+            try {
+                while (!closed) {
+                    if (pages.offer(page, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (closed) {
+                    return false;
+                }
+                if (objects.hasNext()) {
+                    current = Collections.singletonList(objects.next().object).iterator();
+                    continue;
+                }
+                if (runningWorkers == 0) {
+                    return false;
+                }
+                List<S3Object> page;
+                try {
+                    page = pages.take();
+                } catch (InterruptedException e) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("Interrupted when wait for list results."));
+                }
+                if (page == endOfPages) {
+                    runningWorkers--;
+                    Throwable t = failure.get();
+                    if (t != null) {
+                        close();
+                        if (t instanceof IOException) {
+                            throw new UncheckedIOException((IOException) t);
+                        }
+                        if (t instanceof RuntimeException) {
+                            throw (RuntimeException) t;
+                        }
+                        throw new IllegalStateException(t);
+                    }
+                } else {
+                    current = page.iterator();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public S3Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            current = Collections.emptyIterator();
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+            pages.clear();
+        }
+    }
+}
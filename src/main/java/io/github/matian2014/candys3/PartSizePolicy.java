@@ -0,0 +1,136 @@
+package io.github.matian2014.candys3;
+
+/**
+ * Decides the part size of multipart uploads made by putObject.
+ * <p>
+ * When the content length is known, the part size is derived from the length to target a number of parts,
+ * and it always stays under the limit of 10000 parts.
+ * When the content length is unknown, like uploading from a generic input stream, the part size starts at
+ * the minimum part size and doubles every partsPerGrowth parts.
+ *
+ * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/userguide/qfacts.html">Amazon S3 multipart upload limits</a>
+ */
+public class PartSizePolicy {
+
+    /**
+     * The minimum size of a part, except the last part.
+     */
+    public static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    /**
+     * The maximum size of a part.
+     */
+    public static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+    /**
+     * The maximum number of parts of a multipart upload.
+     */
+    public static final int MAX_PARTS = 10000;
+
+    /**
+     * Part sizes are rounded up to a multiple of 1MB.
+     */
+    private static final long PART_SIZE_ALIGNMENT = 1024 * 1024;
+
+    private long minPartSize = MIN_PART_SIZE;
+    private long maxPartSize = MAX_PART_SIZE;
+    /**
+     * The expected number of parts when the content length is known.
+     * A smaller count means larger parts, fewer requests and more memory used by part buffers.
+     */
+    private int targetPartCount = MAX_PARTS;
+    /**
+     * The number of parts between doubling the part size when the content length is unknown.
+     * The default value lets an upload grow to about 5TB within 10000 parts.
+     */
+    private int partsPerGrowth = 1000;
+
+    public long getMinPartSize() {
+        return minPartSize;
+    }
+
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    public int getTargetPartCount() {
+        return targetPartCount;
+    }
+
+    public int getPartsPerGrowth() {
+        return partsPerGrowth;
+    }
+
+    public PartSizePolicy minPartSize(long minPartSize) {
+        if (minPartSize < MIN_PART_SIZE || minPartSize > maxPartSize) {
+            throw new IllegalArgumentException("Min part size must be between 5MB and max part size.");
+        }
+        this.minPartSize = minPartSize;
+        return this;
+    }
+
+    public PartSizePolicy maxPartSize(long maxPartSize) {
+        if (maxPartSize > MAX_PART_SIZE || maxPartSize < minPartSize) {
+            throw new IllegalArgumentException("Max part size must be between min part size and 5GB.");
+        }
+        this.maxPartSize = maxPartSize;
+        return this;
+    }
+
+    public PartSizePolicy targetPartCount(int targetPartCount) {
+        if (targetPartCount < 1 || targetPartCount > MAX_PARTS) {
+            throw new IllegalArgumentException("Target part count must be an integer between 1 and 10000, inclusive.");
+        }
+        this.targetPartCount = targetPartCount;
+        return this;
+    }
+
+    public PartSizePolicy partsPerGrowth(int partsPerGrowth) {
+        if (partsPerGrowth < 1) {
+            throw new IllegalArgumentException("Parts per growth must be a positive integer.");
+        }
+        this.partsPerGrowth = partsPerGrowth;
+        return this;
+    }
+
+    /**
+     * Returns the size of all parts except the last one for content of the known length.
+     *
+     * @param contentLength the length of the content to upload.
+     * @return the part size.
+     * @throws IllegalArgumentException if the content cannot be uploaded within 10000 parts of max part size.
+     */
+    public long partSizeForLength(long contentLength) {
+        if (contentLength < 0) {
+            throw new IllegalArgumentException("Content length must be a positive integer or 0.");
+        }
+        long partSize = Math.max(ceilDiv(contentLength, targetPartCount), ceilDiv(contentLength, MAX_PARTS));
+        partSize = ceilDiv(partSize, PART_SIZE_ALIGNMENT) * PART_SIZE_ALIGNMENT;
+        partSize = Math.min(Math.max(partSize, minPartSize), maxPartSize);
+        if (ceilDiv(contentLength, partSize) > MAX_PARTS) {
+            throw new IllegalArgumentException("Content length " + contentLength
+                    + " exceeds the maximum size of a multipart upload with max part size " + maxPartSize + ".");
+        }
+        return partSize;
+    }
+
+    /**
+     * Returns the size of the given part when the content length is unknown.
+     *
+     * @param partNumber the part number, from 1 to 10000.
+     * @return the part size.
+     */
+    public long partSizeForUnknownLength(int partNumber) {
+        if (partNumber < 1 || partNumber > MAX_PARTS) {
+            throw new IllegalArgumentException("Part number must be an integer between 1 and 10000, inclusive.");
+        }
+        int growth = (partNumber - 1) / partsPerGrowth;
+        if (growth >= Long.numberOfLeadingZeros(minPartSize) - 1) {
+            return maxPartSize;
+        }
+        return Math.min(minPartSize << growth, maxPartSize);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return (x + y - 1) / y;
+    }
+
+}
@@ -0,0 +1,42 @@
+package io.github.matian2014.candys3;
+
+/**
+ * How the payload of PutObject and UploadPart requests is signed.
+ */
+public enum PayloadSigningMode {
+
+    /**
+     * The SHA-256 hash of the whole payload is computed before the request is sent, and set as 'x-amz-content-sha256'.
+     * Files are read once more to be hashed, other streams are buffered in memory. The MD5 is sent as 'Content-MD5'.
+     */
+    SIGNED,
+
+    /**
+     * The payload is sent with 'aws-chunked' content encoding, and each chunk is signed as it streams,
+     * so the payload is read only once and need not be buffered in memory.
+     * The length of the payload must be known before the request is sent.
+     * <p>
+     * Only files and FileInputStreams are streamed from the disk. Other InputStreams have no known length,
+     * so their parts are still read into buffers bounded by the uploadBufferMemoryLimit of the client before they are sent,
+     * and only the signing of the buffered parts is chunked.
+     *
+     * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html">Transferring Payload in Multiple Chunks</a>
+     */
+    STREAMING,
+
+    /**
+     * The payload is not signed, 'x-amz-content-sha256' is 'UNSIGNED-PAYLOAD' and the SHA-256 of the payload is not computed,
+     * the integrity of the payload relies on TLS. The MD5 is still sent as 'Content-MD5' for the server to verify.
+     * It requires HTTPS, unless allowUnsignedPayloadOverHttp is set on the client.
+     */
+    UNSIGNED,
+
+    /**
+     * Same as UNSIGNED, but the CRC32 checksum of the payload is sent as 'x-amz-checksum-crc32' instead of the MD5, and verified by the server.
+     * CRC32 is much cheaper to compute than SHA-256, but the server must support additional checksums.
+     * It requires HTTPS, unless allowUnsignedPayloadOverHttp is set on the client.
+     *
+     * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/userguide/checking-object-integrity.html">Checking object integrity</a>
+     */
+    UNSIGNED_CRC32;
+}
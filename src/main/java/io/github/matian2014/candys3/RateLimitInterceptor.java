@@ -0,0 +1,127 @@
+package io.github.matian2014.candys3;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+
+/**
+ * Sends each attempt of a request through the {@link AdaptiveRateLimiter} of the client, if it has one.
+ * It runs inside the {@link RetryInterceptor}, so each retry waits for the limit like a new request.
+ * <p>
+ * The permit of a request with a response is released when its response body is read to the end or closed,
+ * so a download counts as in flight while its body is being read.
+ */
+final class RateLimitInterceptor implements Interceptor {
+
+    private final CandyS3 candyS3;
+
+    RateLimitInterceptor(CandyS3 candyS3) {
+        this.candyS3 = candyS3;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        AdaptiveRateLimiter rateLimiter = candyS3.getRateLimiter();
+        Request request = chain.request();
+        String[] bucketAndKey = rateLimiter == null ? null : candyS3.parseBucketAndKey(request.url());
+        if (bucketAndKey == null) {
+            return chain.proceed(request);
+        }
+
+        AdaptiveRateLimiter.Permit permit = rateLimiter.acquire(bucketAndKey[0], bucketAndKey[1], chain.call()::isCanceled);
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            permit.onFailure();
+            throw e;
+        }
+        boolean throttled;
+        try {
+            throttled = isThrottled(response);
+        } catch (IOException | RuntimeException e) {
+            permit.onFailure();
+            response.close();
+            throw e;
+        }
+        if (response.body() == null) {
+            release(permit, throttled);
+            return response;
+        }
+        return response.newBuilder()
+                .body(new PermitReleasingResponseBody(response.body(), permit, throttled))
+                .build();
+    }
+
+    private static void release(AdaptiveRateLimiter.Permit permit, boolean throttled) {
+        if (throttled) {
+            permit.onThrottled();
+        } else {
+            permit.onSuccess();
+        }
+    }
+
+    private static boolean isThrottled(Response response) throws IOException {
+        if (response.code() == 503 || response.code() == 429) {
+            return true;
+        }
+        return !response.isSuccessful() && "SlowDown".equals(RetryInterceptor.peekErrorCode(response));
+    }
+
+    /**
+     * Releases the permit when the body is read to the end or closed, the permit is released only once.
+     */
+    private static final class PermitReleasingResponseBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        PermitReleasingResponseBody(ResponseBody delegate, AdaptiveRateLimiter.Permit permit, boolean throttled) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read;
+                    try {
+                        read = super.read(sink, byteCount);
+                    } catch (IOException e) {
+                        permit.onFailure();
+                        throw e;
+                    }
+                    if (read == -1) {
+                        release(permit, throttled);
+                    }
+                    return read;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    release(permit, throttled);
+                    super.close();
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
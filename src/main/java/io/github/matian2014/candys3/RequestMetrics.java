@@ -0,0 +1,141 @@
+package io.github.matian2014.candys3;
+
+/**
+ * The metrics of a request sent by CandyS3, each retry of a request is a separate request.
+ *
+ * @see RequestMetricsListener
+ */
+public final class RequestMetrics {
+
+    private final String operation;
+    private final String bucket;
+    private final String method;
+    private final boolean conditional;
+    private final int statusCode;
+    private final String errorCode;
+    private final Exception exception;
+    private final long bytesSent;
+    private final long bytesReceived;
+    private final long timeToFirstByteNanos;
+    private final long durationNanos;
+
+    RequestMetrics(String operation, String bucket, String method, boolean conditional, int statusCode, String errorCode,
+                   Exception exception, long bytesSent, long bytesReceived, long timeToFirstByteNanos, long durationNanos) {
+        this.operation = operation;
+        this.bucket = bucket;
+        this.method = method;
+        this.conditional = conditional;
+        this.statusCode = statusCode;
+        this.errorCode = errorCode;
+        this.exception = exception;
+        this.bytesSent = bytesSent;
+        this.bytesReceived = bytesReceived;
+        this.timeToFirstByteNanos = timeToFirstByteNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return the name of the S3 operation, like 'PutObject', 'UploadPart' or 'CompleteMultipartUpload'.
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the bucket name, null for the requests without a bucket, like ListBuckets.
+     */
+    public String getBucket() {
+        return bucket;
+    }
+
+    /**
+     * @return the HTTP method.
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return whether the request is conditional on 'If-None-Match' or 'If-Modified-Since', like the revalidation of a cached entry.
+     */
+    public boolean isConditional() {
+        return conditional;
+    }
+
+    /**
+     * @return the HTTP status code, 0 if no response is received.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the error code in the body of an error response, like 'NoSuchKey' or 'SlowDown', null if it has no error code.
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    /**
+     * @return the exception of sending the request or reading its response, null if it doesn't fail.
+     * It's an IOException, or a RuntimeException thrown when the request is sent, like by the source of the request body.
+     */
+    public Exception getException() {
+        return exception;
+    }
+
+    /**
+     * @return whether a successful response is received and read without exception.
+     * A '304 Not Modified' response of a conditional request is successful.
+     */
+    public boolean isSuccessful() {
+        return exception == null && ((statusCode >= 200 && statusCode < 300) || (statusCode == 304 && conditional));
+    }
+
+    /**
+     * @return the number of bytes of the request body sent.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * @return the number of bytes of the response body received.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return the time from the end of the request body, or the start of a request without a body, to the response headers.
+     * It doesn't include the upload of the request body, but includes connecting for a request without a body.
+     * -1 if no response is received.
+     */
+    public long getTimeToFirstByteNanos() {
+        return timeToFirstByteNanos;
+    }
+
+    /**
+     * @return the time from the start of the request to the end of its response body, or to its failure.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RequestMetrics{" +
+                "operation='" + operation + '\'' +
+                ", bucket='" + bucket + '\'' +
+                ", method='" + method + '\'' +
+                ", conditional=" + conditional +
+                ", statusCode=" + statusCode +
+                ", errorCode='" + errorCode + '\'' +
+                ", exception=" + exception +
+                ", bytesSent=" + bytesSent +
+                ", bytesReceived=" + bytesReceived +
+                ", timeToFirstByteNanos=" + timeToFirstByteNanos +
+                ", durationNanos=" + durationNanos +
+                '}';
+    }
+}
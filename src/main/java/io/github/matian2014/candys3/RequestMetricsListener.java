@@ -0,0 +1,18 @@
+package io.github.matian2014.candys3;
+
+/**
+ * Receives the metrics of each request sent by CandyS3, set it with {@link CandyS3#setMetricsListener(RequestMetricsListener)}.
+ * <p>
+ * It's called by the threads which send the requests or read their responses, so it must be thread-safe and return quickly.
+ * The exceptions it throws are ignored.
+ *
+ * @see HistogramMetricsListener
+ */
+public interface RequestMetricsListener {
+
+    /**
+     * Called when the response body of a request is read or closed, or when the request fails.
+     * @param metrics the metrics of the request.
+     */
+    void onRequest(RequestMetrics metrics);
+}
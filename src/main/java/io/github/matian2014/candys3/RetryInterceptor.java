@@ -0,0 +1,174 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.signer.AWS4SignerForAuthorizationHeader;
+import io.github.matian2014.candys3.signer.AWS4SignerForChunkedUpload;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends a request again when it fails with a retryable error of the {@link RetryPolicy},
+ * the policy of a request is its RetryPolicy tag, or the policy of the client if it's not tagged.
+ * <p>
+ * A retry is signed again with the current time, from the method, URL, headers and body hash of the signed request.
+ * The request body is not copied, a body which is not one-shot is written again from its source.
+ * <p>
+ * The delay before a retry blocks the thread of the call, it ends early when the call is canceled or times out.
+ * Asynchronous calls are not retried here, which would hold a thread and a slot of the dispatcher during the delay,
+ * {@link CandyS3#executeAsync} sends them without a retry policy and schedules each retry with {@link #schedule(Runnable, long)}.
+ */
+final class RetryInterceptor implements Interceptor {
+
+    /** The error response of S3 is a small XML document, its code is read without consuming the body. */
+    private static final long ERROR_BODY_PEEK_BYTES = 64 * 1024;
+    private static final Pattern ERROR_CODE_PATTERN = Pattern.compile("<Code>([^<]*)</Code>");
+    private static final Pattern CREDENTIAL_SCOPE_PATTERN = Pattern.compile("Credential=[^/]*/[^/]*/([^/]*)/([^/]*)/");
+    /** The delay before a retry is waited in slices, to see whether the call is canceled. */
+    private static final long CANCEL_CHECK_MILLIS = 50;
+
+    private final CandyS3 candyS3;
+
+    RetryInterceptor(CandyS3 candyS3) {
+        this.candyS3 = candyS3;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        RetryPolicy retryPolicy = request.tag(RetryPolicy.class);
+        if (retryPolicy == null) {
+            retryPolicy = candyS3.getRetryPolicy();
+        }
+
+        RequestBody body = request.body();
+        boolean replayable = body == null || !body.isOneShot();
+        for (int attempt = 1; ; attempt++) {
+            boolean retryable = replayable && attempt < retryPolicy.getMaxAttempts();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (!retryable || chain.call().isCanceled() || !retryPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                request = prepareRetry(chain, request, retryPolicy, attempt);
+                continue;
+            }
+
+            if (!retryable || response.isSuccessful() || !retryPolicy.isRetryable(response.code(), peekErrorCode(response))) {
+                return response;
+            }
+            response.close();
+            request = prepareRetry(chain, request, retryPolicy, attempt);
+        }
+    }
+
+    private Request prepareRetry(Chain chain, Request request, RetryPolicy retryPolicy, int attempt) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryPolicy.delayMillis(attempt));
+        try {
+            long remaining;
+            while (!chain.call().isCanceled() && (remaining = deadline - System.nanoTime()) > 0) {
+                // the call timeout cancels the call, so it's not exceeded by the delay
+                Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1, CANCEL_CHECK_MILLIS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted when wait to retry.");
+        }
+        if (chain.call().isCanceled()) {
+            throw new IOException("Canceled");
+        }
+        return resign(request);
+    }
+
+    /**
+     * Runs the task after the delay in a shared daemon thread, the task must not block.
+     */
+    static void schedule(Runnable task, long delayMillis) {
+        RetryScheduler.INSTANCE.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class RetryScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "candy-s3-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the S3 error code of an error response, null if it has no error code.
+     */
+    static String peekErrorCode(Response response) throws IOException {
+        if (response.body() == null) {
+            return null;
+        }
+        Matcher matcher = ERROR_CODE_PATTERN.matcher(response.peekBody(ERROR_BODY_PEEK_BYTES).string());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Signs the request again with the current time, the signed headers of the request are kept.
+     */
+    Request resign(Request request) throws IOException {
+        String authorization = request.header(HttpConstants.HEADER_AUTHORIZATION);
+        String bodyHash = request.header(HttpConstants.HEADER_AMZ_CONTENT_HASH);
+        if (authorization == null || bodyHash == null) {
+            return request;
+        }
+        Matcher scope = CREDENTIAL_SCOPE_PATTERN.matcher(authorization);
+        if (!scope.find()) {
+            return request;
+        }
+        String region = scope.group(1);
+        String serviceName = scope.group(2);
+
+        Map<String, String> headers = new HashMap<>();
+        for (String name : request.headers().names()) {
+            if (!HttpConstants.HEADER_AUTHORIZATION.equalsIgnoreCase(name)) {
+                headers.put(name, request.header(name));
+            }
+        }
+
+        // The signer encodes the path and the query parameters, so they are decoded from the URL of the request.
+        HttpUrl httpUrl = request.url();
+        Map<String, String> params = new HashMap<>();
+        for (int i = 0; i < httpUrl.querySize(); i++) {
+            params.put(httpUrl.queryParameterName(i), StringUtils.defaultString(httpUrl.queryParameterValue(i)));
+        }
+        String host = StringUtils.defaultIfEmpty(request.header("Host"), httpUrl.host());
+        URL url = new URL(httpUrl.scheme() + "://" + host + "/" + String.join("/", httpUrl.pathSegments()));
+
+        String newAuthorization;
+        if (request.body() instanceof ChunkedSigningRequestBody) {
+            // The chunk signatures are chained from the seed signature of the signer which the body holds.
+            AWS4SignerForChunkedUpload signer = ((ChunkedSigningRequestBody) request.body()).getSigner();
+            newAuthorization = signer.computeSignature(headers, params, candyS3.getAccessKey(), candyS3.getSecretKey());
+        } else {
+            AWS4SignerForAuthorizationHeader signer = new AWS4SignerForAuthorizationHeader(
+                    url, request.method(), serviceName, region);
+            newAuthorization = signer.computeSignature(headers, params, bodyHash, candyS3.getAccessKey(), candyS3.getSecretKey());
+        }
+
+        Request.Builder requestBuilder = request.newBuilder();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            requestBuilder.header(header.getKey(), header.getValue());
+        }
+        requestBuilder.header(HttpConstants.HEADER_AUTHORIZATION, newAuthorization);
+        return requestBuilder.build();
+    }
+}
@@ -0,0 +1,216 @@
+package io.github.matian2014.candys3;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which failed requests are sent again, and how long to wait before each retry.
+ * <p>
+ * A request is retried when the response has a retryable status code or S3 error code, or when it fails with a retryable exception,
+ * like a connection reset. The delay before the n-th retry is a random duration between 0 and min(maxDelay, baseDelay * 2^(n-1)),
+ * which is the exponential backoff with full jitter, so the clients throttled at the same time don't retry at the same time.
+ * <p>
+ * Each retry is signed again with the current time, and the request body is sent again from its source,
+ * a request whose body can be read only once, like a part read from an input stream which is not a file, is not retried.
+ * The timeout of the client is the timeout of the whole call, which is set on each call of a request,
+ * so it applies to a request with all its retries and the delays between them.
+ * The retries of an asynchronous request are scheduled, they don't hold a thread of the dispatcher during the delays.
+ */
+public final class RetryPolicy {
+
+    /** Sends each request once. */
+    public static final RetryPolicy NONE = new RetryPolicyBuilder().maxAttempts(1).build();
+
+    /** The reset of an HTTP/2 stream, it's matched by name as OkHttp doesn't keep its internal classes compatible. */
+    private static final String STREAM_RESET_EXCEPTION = "okhttp3.internal.http2.StreamResetException";
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final Set<Integer> retryableStatusCodes;
+    private final Set<String> retryableErrorCodes;
+    private final List<Class<? extends IOException>> retryableExceptions;
+    private final boolean retryStreamReset;
+
+    private RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Set<Integer> retryableStatusCodes,
+                        Set<String> retryableErrorCodes, List<Class<? extends IOException>> retryableExceptions,
+                        boolean retryStreamReset) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryableStatusCodes = retryableStatusCodes;
+        this.retryableErrorCodes = retryableErrorCodes;
+        this.retryableExceptions = retryableExceptions;
+        this.retryStreamReset = retryStreamReset;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    public Set<String> getRetryableErrorCodes() {
+        return retryableErrorCodes;
+    }
+
+    public List<Class<? extends IOException>> getRetryableExceptions() {
+        return retryableExceptions;
+    }
+
+    public boolean isRetryStreamReset() {
+        return retryStreamReset;
+    }
+
+    boolean isRetryable(int statusCode, String errorCode) {
+        return retryableStatusCodes.contains(statusCode) || (errorCode != null && retryableErrorCodes.contains(errorCode));
+    }
+
+    boolean isRetryable(IOException e) {
+        for (Class<? extends IOException> retryableException : retryableExceptions) {
+            if (retryableException.isInstance(e)) {
+                return true;
+            }
+        }
+        return retryStreamReset && STREAM_RESET_EXCEPTION.equals(e.getClass().getName());
+    }
+
+    /**
+     * @param retry the number of the retry, starts from 1.
+     * @return the delay before the retry, in milliseconds.
+     */
+    long delayMillis(int retry) {
+        long ceiling = baseDelayMillis << Math.min(retry - 1, 30);
+        if (ceiling <= 0 || ceiling > maxDelayMillis) {
+            ceiling = maxDelayMillis;
+        }
+        return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", baseDelayMillis=" + baseDelayMillis +
+                ", maxDelayMillis=" + maxDelayMillis +
+                ", retryableStatusCodes=" + retryableStatusCodes +
+                ", retryableErrorCodes=" + retryableErrorCodes +
+                ", retryableExceptions=" + retryableExceptions +
+                ", retryStreamReset=" + retryStreamReset +
+                '}';
+    }
+
+    public static final class RetryPolicyBuilder {
+        private int maxAttempts = 3;
+        private long baseDelayMillis = 100;
+        private long maxDelayMillis = 20_000;
+        private Set<Integer> retryableStatusCodes = new HashSet<>(Arrays.asList(429, 500, 502, 503, 504));
+        private Set<String> retryableErrorCodes = new HashSet<>(Arrays.asList(
+                "RequestTimeout", "SlowDown", "InternalError", "ServiceUnavailable",
+                "Throttling", "ThrottlingException", "RequestLimitExceeded", "BandwidthLimitExceeded"));
+        private List<Class<? extends IOException>> retryableExceptions = new ArrayList<>(Arrays.asList(
+                SocketException.class, SocketTimeoutException.class));
+        private boolean retryStreamReset = true;
+
+        public RetryPolicy build() {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be a positive integer.");
+            }
+            if (baseDelayMillis < 0 || maxDelayMillis < 0) {
+                throw new IllegalArgumentException("delay must not be negative.");
+            }
+            return new RetryPolicy(maxAttempts, baseDelayMillis, maxDelayMillis,
+                    Collections.unmodifiableSet(new HashSet<>(retryableStatusCodes)),
+                    Collections.unmodifiableSet(new HashSet<>(retryableErrorCodes)),
+                    Collections.unmodifiableList(new ArrayList<>(retryableExceptions)), retryStreamReset);
+        }
+
+        /**
+         * The number of times a request is sent at most, including the first one, 3 by default.
+         * @param maxAttempts the number of attempts, 1 for no retries.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder maxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * The upper bound of the delay before the first retry, it doubles for each following retry. 100 milliseconds by default.
+         * @param baseDelay the delay.
+         * @param unit the unit of baseDelay.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder baseDelay(long baseDelay, TimeUnit unit) {
+            this.baseDelayMillis = unit.toMillis(baseDelay);
+            return this;
+        }
+
+        /**
+         * The upper bound of the delay before any retry, 20 seconds by default.
+         * @param maxDelay the delay.
+         * @param unit the unit of maxDelay.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder maxDelay(long maxDelay, TimeUnit unit) {
+            this.maxDelayMillis = unit.toMillis(maxDelay);
+            return this;
+        }
+
+        /**
+         * The HTTP status codes to retry, 429, 500, 502, 503 and 504 by default.
+         * @param retryableStatusCodes the status codes.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder retryableStatusCodes(Collection<Integer> retryableStatusCodes) {
+            this.retryableStatusCodes = new HashSet<>(retryableStatusCodes);
+            return this;
+        }
+
+        /**
+         * The error codes in the response body to retry whatever the status code is, like 'RequestTimeout' and 'SlowDown'.
+         * @param retryableErrorCodes the S3 error codes.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder retryableErrorCodes(Collection<String> retryableErrorCodes) {
+            this.retryableErrorCodes = new HashSet<>(retryableErrorCodes);
+            return this;
+        }
+
+        /**
+         * The exceptions of sending a request to retry, including their subclasses.
+         * SocketException and SocketTimeoutException by default, the stream reset of HTTP/2 is set by {@link #retryStreamReset(boolean)}.
+         * @param retryableExceptions the exception classes.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder retryableExceptions(Collection<Class<? extends IOException>> retryableExceptions) {
+            this.retryableExceptions = new ArrayList<>(retryableExceptions);
+            return this;
+        }
+
+        /**
+         * Whether to retry the reset of an HTTP/2 stream, like a REFUSED_STREAM of a server which is closing the connection.
+         * True by default.
+         * @param retryStreamReset whether to retry the stream reset.
+         * @return this builder.
+         */
+        public RetryPolicyBuilder retryStreamReset(boolean retryStreamReset) {
+            this.retryStreamReset = retryStreamReset;
+            return this;
+        }
+    }
+}
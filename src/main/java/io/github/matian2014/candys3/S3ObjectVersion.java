@@ -32,6 +32,9 @@ public class S3ObjectVersion {
     @JsonAlias("Owner")
     private Owner owner;
 
+    // true when the version is a delete marker
+    private boolean deleteMarker;
+
     public String getKey() {
         return key;
     }
@@ -88,6 +91,14 @@ public class S3ObjectVersion {
         this.owner = owner;
     }
 
+    public boolean isDeleteMarker() {
+        return deleteMarker;
+    }
+
+    public void setDeleteMarker(boolean deleteMarker) {
+        this.deleteMarker = deleteMarker;
+    }
+
     public String getVersionId() {
         return versionId;
     }
@@ -107,6 +118,7 @@ public class S3ObjectVersion {
                 ", size=" + size +
                 ", storageClass=" + storageClass +
                 ", owner=" + owner +
+                ", deleteMarker=" + deleteMarker +
                 '}';
     }
 }
@@ -0,0 +1,113 @@
+package io.github.matian2014.candys3;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Names the S3 operation of a request by its method, sub-resource and headers, the names are the same as the S3 API reference.
+ */
+final class S3Operations {
+
+    private S3Operations() {
+    }
+
+    /**
+     * @param request the request.
+     * @param bucketAndKey the bucket and the object key of the request, null if it has no bucket.
+     * @return the operation name, like 'PutObject'.
+     */
+    static String nameOf(Request request, String[] bucketAndKey) {
+        String method = request.method();
+        HttpUrl url = request.url();
+        boolean copy = request.header("x-amz-copy-source") != null;
+        if (bucketAndKey == null) {
+            return "GET".equals(method) ? "ListBuckets" : method;
+        }
+        boolean onObject = StringUtils.isNotEmpty(bucketAndKey[1]);
+
+        if (url.queryParameterNames().contains("uploadId")) {
+            switch (method) {
+                case "PUT":
+                    return copy ? "UploadPartCopy" : "UploadPart";
+                case "POST":
+                    return "CompleteMultipartUpload";
+                case "DELETE":
+                    return "AbortMultipartUpload";
+                case "GET":
+                    return "ListParts";
+                default:
+                    return method;
+            }
+        }
+        if (url.queryParameterNames().contains("uploads")) {
+            return "POST".equals(method) ? "CreateMultipartUpload" : "ListMultipartUploads";
+        }
+        if (url.queryParameterNames().contains("delete")) {
+            return "DeleteObjects";
+        }
+        if (url.queryParameterNames().contains("versions")) {
+            return "ListObjectVersions";
+        }
+        if (url.queryParameterNames().contains("location")) {
+            return "GetBucketLocation";
+        }
+        if (url.queryParameterNames().contains("policyStatus")) {
+            return "GetBucketPolicyStatus";
+        }
+        String[][] subResources = {
+                {"accelerate", "BucketAccelerateConfiguration"},
+                {"encryption", "BucketEncryption"},
+                {"legal-hold", "ObjectLegalHold"},
+                {"object-lock", "ObjectLockConfiguration"},
+                {"policy", "BucketPolicy"},
+                {"publicAccessBlock", "PublicAccessBlock"},
+                {"retention", "ObjectRetention"},
+                {"tagging", onObject ? "ObjectTagging" : "BucketTagging"},
+                {"versioning", "BucketVersioning"},
+        };
+        for (String[] subResource : subResources) {
+            if (url.queryParameterNames().contains(subResource[0])) {
+                return verbOf(method) + subResource[1];
+            }
+        }
+
+        if (!onObject) {
+            switch (method) {
+                case "GET":
+                    return "2".equals(url.queryParameter("list-type")) ? "ListObjectsV2" : "ListObjects";
+                case "PUT":
+                    return "CreateBucket";
+                case "DELETE":
+                    return "DeleteBucket";
+                case "HEAD":
+                    return "HeadBucket";
+                default:
+                    return method;
+            }
+        }
+        switch (method) {
+            case "GET":
+                return "GetObject";
+            case "HEAD":
+                return "HeadObject";
+            case "PUT":
+                return copy ? "CopyObject" : "PutObject";
+            case "DELETE":
+                return "DeleteObject";
+            default:
+                return method;
+        }
+    }
+
+    private static String verbOf(String method) {
+        switch (method) {
+            case "PUT":
+                return "Put";
+            case "DELETE":
+                return "Delete";
+            default:
+                return "Get";
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.github.matian2014.candys3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The checkpoint of a resumable multipart upload of a file, saved in a {@link CheckpointFile}.
+ * It holds the upload ID, the part size, the headers of the object, the fingerprint of the source file
+ * and the ETags of the uploaded parts, so an upload interrupted by a crash can be continued with the missing parts only.
+ */
+final class UploadCheckpoint {
+
+    private static final String MAGIC = "candy-s3 upload checkpoint v1";
+
+    private final CheckpointFile checkpointFile;
+    private final String bucket;
+    private final String objectKey;
+    private final String uploadId;
+    private final long partSize;
+    // the headers of the object the upload is created with, like the metadata and the encryption
+    private final String headers;
+    private final String sourcePath;
+    private final long sourceLength;
+    private final long sourceLastModified;
+    private final Map<Integer, String> partEtags = new TreeMap<>();
+
+    private UploadCheckpoint(CheckpointFile checkpointFile, String bucket, String objectKey, String uploadId, long partSize,
+                             String headers, String sourcePath, long sourceLength, long sourceLastModified) {
+        this.checkpointFile = checkpointFile;
+        this.bucket = bucket;
+        this.objectKey = objectKey;
+        this.uploadId = uploadId;
+        this.partSize = partSize;
+        this.headers = headers;
+        this.sourcePath = sourcePath;
+        this.sourceLength = sourceLength;
+        this.sourceLastModified = sourceLastModified;
+    }
+
+    /**
+     * Create the checkpoint of a new upload, an existing checkpoint file is replaced.
+     *
+     * @param file the checkpoint file.
+     * @param bucket the bucket name.
+     * @param objectKey the object key.
+     * @param uploadId the upload ID.
+     * @param partSize the size of each part, the last part may be smaller.
+     * @param headers the headers of the object the upload is created with.
+     * @param source the file to upload.
+     * @return the checkpoint without parts.
+     * @throws IOException if the checkpoint file can't be written.
+     */
+    static UploadCheckpoint create(File file, String bucket, String objectKey, String uploadId, long partSize,
+                                   Map<String, String> headers, File source) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("bucket", bucket);
+        fields.put("objectKey", objectKey);
+        fields.put("uploadId", uploadId);
+        fields.put("partSize", String.valueOf(partSize));
+        fields.put("headers", canonicalHeaders(headers));
+        fields.put("sourcePath", source.getAbsolutePath());
+        fields.put("sourceLength", String.valueOf(source.length()));
+        fields.put("sourceLastModified", String.valueOf(source.lastModified()));
+        return new UploadCheckpoint(CheckpointFile.create(file, MAGIC, fields), bucket, objectKey, uploadId, partSize,
+                canonicalHeaders(headers), source.getAbsolutePath(), source.length(), source.lastModified());
+    }
+
+    /**
+     * Load a checkpoint.
+     *
+     * @param file the checkpoint file.
+     * @return the checkpoint, null if the file doesn't exist or isn't a valid checkpoint.
+     * @throws IOException if the checkpoint file can't be read.
+     */
+    static UploadCheckpoint load(File file) throws IOException {
+        CheckpointFile checkpointFile = CheckpointFile.load(file, MAGIC);
+        if (checkpointFile == null) {
+            return null;
+        }
+        try {
+            UploadCheckpoint checkpoint = new UploadCheckpoint(checkpointFile, checkpointFile.getField("bucket"),
+                    checkpointFile.getField("objectKey"), checkpointFile.getField("uploadId"),
+                    Long.parseLong(checkpointFile.getField("partSize")), checkpointFile.getField("headers"),
+                    checkpointFile.getField("sourcePath"),
+                    Long.parseLong(checkpointFile.getField("sourceLength")),
+                    Long.parseLong(checkpointFile.getField("sourceLastModified")));
+            if (checkpoint.bucket == null || checkpoint.objectKey == null || checkpoint.uploadId == null
+                    || checkpoint.sourcePath == null || checkpoint.partSize <= 0) {
+                return null;
+            }
+            // Each record is the part number and the ETag of a part.
+            for (String record : checkpointFile.getRecords()) {
+                int space = record.indexOf(' ');
+                checkpoint.partEtags.put(Integer.parseInt(record.substring(0, space)), record.substring(space + 1));
+            }
+            return checkpoint;
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the checkpoint is of an upload of the file to the object with the same headers,
+     * and the file isn't changed since the upload started.
+     * The headers are given when the upload is created, so an upload with other headers can't be resumed.
+     */
+    boolean matches(String bucket, String objectKey, Map<String, String> headers, File source) {
+        return this.bucket.equals(bucket) && this.objectKey.equals(objectKey)
+                && canonicalHeaders(headers).equals(this.headers)
+                && sourcePath.equals(source.getAbsolutePath())
+                && sourceLength == source.length() && sourceLastModified == source.lastModified()
+                && (sourceLength + partSize - 1) / partSize <= PartSizePolicy.MAX_PARTS;
+    }
+
+    /**
+     * Save an uploaded part, it can be called by the workers uploading parts concurrently.
+     *
+     * @param partNum the part number.
+     * @param etag ETag of the part.
+     * @throws IOException if the checkpoint file can't be written.
+     */
+    void addPart(int partNum, String etag) throws IOException {
+        checkpointFile.append(partNum + " " + etag);
+        synchronized (partEtags) {
+            partEtags.put(partNum, etag);
+        }
+    }
+
+    /**
+     * Close the checkpoint file, the checkpoint is kept to resume the upload later.
+     */
+    void close() throws IOException {
+        checkpointFile.close();
+    }
+
+    /**
+     * Close and delete the checkpoint file, after the upload is completed or can't be resumed.
+     */
+    void delete() throws IOException {
+        checkpointFile.delete();
+    }
+
+    /**
+     * The headers sorted by lowercase name, one 'name:value' line for each header.
+     */
+    private static String canonicalHeaders(Map<String, String> headers) {
+        Map<String, String> sorted = new TreeMap<>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            sorted.put(header.getKey().toLowerCase(Locale.ROOT), header.getValue());
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> header : sorted.entrySet()) {
+            sb.append(header.getKey()).append(':').append(header.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    String getBucket() {
+        return bucket;
+    }
+
+    String getObjectKey() {
+        return objectKey;
+    }
+
+    String getUploadId() {
+        return uploadId;
+    }
+
+    long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * @return ETags of the saved parts by part number.
+     */
+    Map<Integer, String> getPartEtags() {
+        synchronized (partEtags) {
+            return Collections.unmodifiableMap(new TreeMap<>(partEtags));
+        }
+    }
+}
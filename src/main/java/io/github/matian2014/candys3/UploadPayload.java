@@ -0,0 +1,237 @@
+package io.github.matian2014.candys3;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The payload of an upload request, with a known length.
+ * It may be a slice of a byte array or a region of a file, a file is read when the request is sent.
+ */
+abstract class UploadPayload {
+
+    /**
+     * Returns the length of the payload.
+     */
+    abstract long length();
+
+    /**
+     * Opens a stream to read the payload from the beginning.
+     * The stream returns exactly length bytes, unless the underlying source ends early.
+     */
+    abstract InputStream openStream() throws IOException;
+
+    /**
+     * Returns a request body which sends the payload as is.
+     */
+    RequestBody toRequestBody() {
+        return new PayloadRequestBody(this);
+    }
+
+    static UploadPayload ofBytes(byte[] data, int offset, int length) {
+        return new BytesPayload(data, offset, length);
+    }
+
+    static FilePayload ofFile(File file, long position, long length) {
+        return new FilePayload(file, null, position, length);
+    }
+
+    /**
+     * The channel is read with positional reads, so its position is not changed and it's not closed.
+     */
+    static FilePayload ofChannel(FileChannel channel, long position, long length) {
+        return new FilePayload(null, channel, position, length);
+    }
+
+    static final class BytesPayload extends UploadPayload {
+        final byte[] data;
+        final int offset;
+        final int length;
+
+        BytesPayload(byte[] data, int offset, int length) {
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        InputStream openStream() {
+            return new ByteArrayInputStream(data, offset, length);
+        }
+
+        @Override
+        RequestBody toRequestBody() {
+            return RequestBody.create(data, null, offset, length);
+        }
+    }
+
+    /**
+     * A region of a file, it's read from the file when the request is sent without copying into a byte array.
+     */
+    static final class FilePayload extends UploadPayload {
+        /** null when the payload reads a channel owned by the caller **/
+        final File file;
+        final FileChannel channel;
+        final long position;
+        final long length;
+
+        FilePayload(File file, FileChannel channel, long position, long length) {
+            this.file = file;
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+        }
+
+        /**
+         * Returns a payload of a sub region of this region.
+         */
+        FilePayload slice(long offset, long length) {
+            return new FilePayload(file, channel, position + offset, length);
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        InputStream openStream() throws IOException {
+            return new ChannelInputStream(this, openChannel());
+        }
+
+        @Override
+        RequestBody toRequestBody() {
+            return new FileRegionRequestBody(this);
+        }
+
+        private FileChannel openChannel() throws IOException {
+            return file != null ? FileChannel.open(file.toPath(), StandardOpenOption.READ) : channel;
+        }
+
+        private void releaseChannel(FileChannel fileChannel) throws IOException {
+            if (file != null) {
+                fileChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a region of a file channel with positional reads.
+     */
+    private static final class ChannelInputStream extends InputStream {
+        private final FilePayload payload;
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        ChannelInputStream(FilePayload payload, FileChannel channel) {
+            this.payload = payload;
+            this.channel = channel;
+            this.position = payload.position;
+            this.remaining = payload.length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int l = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (l > 0) {
+                position += l;
+                remaining -= l;
+            }
+            return l;
+        }
+
+        @Override
+        public void close() throws IOException {
+            payload.releaseChannel(channel);
+        }
+    }
+
+    /**
+     * Sends a region of a file with FileChannel.transferTo, the data is not copied into a byte array.
+     */
+    private static final class FileRegionRequestBody extends RequestBody {
+        private final FilePayload payload;
+
+        FileRegionRequestBody(FilePayload payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return null;
+        }
+
+        @Override
+        public long contentLength() {
+            return payload.length;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            FileChannel channel = payload.openChannel();
+            try {
+                long position = payload.position;
+                long remaining = payload.length;
+                while (remaining > 0) {
+                    long transferred = channel.transferTo(position, remaining, sink);
+                    if (transferred <= 0) {
+                        throw new IOException("Unexpected end of file, " + remaining + " bytes remaining.");
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            } finally {
+                payload.releaseChannel(channel);
+            }
+        }
+    }
+
+    private static final class PayloadRequestBody extends RequestBody {
+        private final UploadPayload payload;
+
+        PayloadRequestBody(UploadPayload payload) {
+            this.payload = payload;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return null;
+        }
+
+        @Override
+        public long contentLength() {
+            return payload.length();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (InputStream in = payload.openStream()) {
+                long written = sink.writeAll(Okio.source(in));
+                if (written != payload.length()) {
+                    throw new IOException("Unexpected end of payload, expected " + payload.length() + " bytes but was " + written + ".");
+                }
+            }
+        }
+    }
+}
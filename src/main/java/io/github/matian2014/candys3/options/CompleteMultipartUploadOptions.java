@@ -1,11 +1,15 @@
 package io.github.matian2014.candys3.options;
 
+import io.github.matian2014.candys3.RetryPolicy;
+
 public final class CompleteMultipartUploadOptions {
 
     private ObjectConditionalWriteOptions condition;
+    private RetryPolicy retryPolicy;
 
-    private CompleteMultipartUploadOptions(ObjectConditionalWriteOptions condition) {
+    private CompleteMultipartUploadOptions(ObjectConditionalWriteOptions condition, RetryPolicy retryPolicy) {
         this.condition = condition;
+        this.retryPolicy = retryPolicy;
     }
 
     public void setCondition(ObjectConditionalWriteOptions condition) {
@@ -16,19 +20,36 @@ public final class CompleteMultipartUploadOptions {
         return condition;
     }
 
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     public static class CompleteMultipartUploadOptionsBuilder {
         private ObjectConditionalWriteOptions conditionalWriteOptions;
+        private RetryPolicy retryPolicy;
 
         public CompleteMultipartUploadOptionsBuilder() {
         }
 
+        /**
+         * Overrides the retry policy of the client for this request.
+         */
+        public CompleteMultipartUploadOptionsBuilder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         public CompleteMultipartUploadConditionBuilder configureCondition() {
             this.conditionalWriteOptions = new ObjectConditionalWriteOptions();
             return new CompleteMultipartUploadConditionBuilder(this);
         }
 
         public CompleteMultipartUploadOptions build() {
-            return new CompleteMultipartUploadOptions(conditionalWriteOptions);
+            return new CompleteMultipartUploadOptions(conditionalWriteOptions, retryPolicy);
         }
 
         public static final class CompleteMultipartUploadConditionBuilder {
@@ -20,6 +20,7 @@ public final class CopyObjectOptions {
     private final String copySource;
     private final String copySourceVersionId;
     private final DownloadObjectOptions.DownloadObjectCondition copySourceCondition;
+    private final ServerSideEncryptionCustomerKeyOptions copySourceCustomerKeyOptions;
 
     private final ObjectConditionalWriteOptions writeTargetCondition;
 
@@ -40,6 +41,7 @@ public final class CopyObjectOptions {
                               ObjectLockOptions objectLockOptions,
                               String copySource, String copySourceVersionId,
                               DownloadObjectOptions.DownloadObjectCondition copySourceCondition,
+                              ServerSideEncryptionCustomerKeyOptions copySourceCustomerKeyOptions,
                               ObjectConditionalWriteOptions writeTargetCondition,
                               String storageClass,
                               Map<String, String> tagSet, boolean replaceTaggingDirective, boolean excludeTaggingDirective) {
@@ -50,6 +52,7 @@ public final class CopyObjectOptions {
         this.copySource = copySource;
         this.copySourceVersionId = copySourceVersionId;
         this.copySourceCondition = copySourceCondition;
+        this.copySourceCustomerKeyOptions = copySourceCustomerKeyOptions;
         this.writeTargetCondition = writeTargetCondition;
         this.storageClass = storageClass;
         this.tagSet = tagSet;
@@ -85,6 +88,13 @@ public final class CopyObjectOptions {
         return copySourceCondition;
     }
 
+    /**
+     * @return the customer key of a copy source encrypted with SSE-C, null if the source isn't.
+     */
+    public ServerSideEncryptionCustomerKeyOptions getCopySourceCustomerKeyOptions() {
+        return copySourceCustomerKeyOptions;
+    }
+
     public ObjectConditionalWriteOptions getWriteTargetCondition() {
         return writeTargetCondition;
     }
@@ -115,6 +125,7 @@ public final class CopyObjectOptions {
         private String copySource;
         private String copySourceVersionId;
         private DownloadObjectOptions.DownloadObjectCondition copySourceCondition;
+        private ServerSideEncryptionCustomerKeyOptions copySourceCustomerKeyOptions;
         private ObjectConditionalWriteOptions writeTargetCondition;
 
         private String storageClass;
@@ -143,6 +154,14 @@ public final class CopyObjectOptions {
             return new CopySourceConditionOptionsBuilder(this);
         }
 
+        /**
+         * Configure the customer key of a copy source encrypted with SSE-C, it's sent as the copy source customer key headers,
+         * and by parallelCopyObject as the customer key of the HEAD request of the source.
+         */
+        public CopySourceCustomerKeyBuilder configureCopySourceCustomerKey() {
+            return new CopySourceCustomerKeyBuilder(this);
+        }
+
         public WriteTargetConditionOptionsBuilder configureTargetWriteCondition() {
             return new WriteTargetConditionOptionsBuilder(this);
         }
@@ -198,7 +217,43 @@ public final class CopyObjectOptions {
                 throw new IllegalArgumentException("copy source is required.");
             }
             return new CopyObjectOptions(objectHeaderOptions, replaceMetadataDirective, serverSideEncryptionOptions, objectLockOptions,
-                    copySource, copySourceVersionId, copySourceCondition, writeTargetCondition, storageClass, tagSet, replaceTaggingDirective, excludeTaggingDirective);
+                    copySource, copySourceVersionId, copySourceCondition, copySourceCustomerKeyOptions, writeTargetCondition,
+                    storageClass, tagSet, replaceTaggingDirective, excludeTaggingDirective);
+        }
+
+        public static final class CopySourceCustomerKeyBuilder {
+            private final CopyObjectOptionsBuilder parentBuilder;
+            private final ServerSideEncryptionCustomerKeyOptions.ServerSideEncryptionCustomerKeyOptionsBuilder innerBuilder;
+
+            CopySourceCustomerKeyBuilder(CopyObjectOptionsBuilder parentBuilder) {
+                this.parentBuilder = parentBuilder;
+                this.innerBuilder = new ServerSideEncryptionCustomerKeyOptions.ServerSideEncryptionCustomerKeyOptionsBuilder();
+            }
+
+            public CopyObjectOptionsBuilder endConfigureCopySourceCustomerKey() {
+                this.parentBuilder.copySourceCustomerKeyOptions = this.innerBuilder.build();
+                return this.parentBuilder;
+            }
+
+            public CopySourceCustomerKeyBuilder algorithm(String algorithm) {
+                this.innerBuilder.algorithm(algorithm);
+                return this;
+            }
+
+            public CopySourceCustomerKeyBuilder key(byte[] key) {
+                this.innerBuilder.key(key);
+                return this;
+            }
+
+            public CopySourceCustomerKeyBuilder key(String base64Key) {
+                this.innerBuilder.key(base64Key);
+                return this;
+            }
+
+            public CopySourceCustomerKeyBuilder keyMd5(String base64KeyMd5) {
+                this.innerBuilder.keyMd5(base64KeyMd5);
+                return this;
+            }
         }
 
         public static final class CopyObjectHeaderOptionsBuilder {
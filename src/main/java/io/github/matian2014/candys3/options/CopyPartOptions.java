@@ -10,12 +10,16 @@ public final class CopyPartOptions {
     private final String copySourceVersionId;
     private final String copySourceRange; // You can copy a range only if the source object is greater than 5 MB.
     private final DownloadObjectOptions.DownloadObjectCondition copySourceCondition;
+    private final ServerSideEncryptionCustomerKeyOptions copySourceCustomerKeyOptions;
 
-    private CopyPartOptions(String copySource, String copySourceVersionId, String copySourceRange, DownloadObjectOptions.DownloadObjectCondition copySourceCondition) {
+    private CopyPartOptions(String copySource, String copySourceVersionId, String copySourceRange,
+                            DownloadObjectOptions.DownloadObjectCondition copySourceCondition,
+                            ServerSideEncryptionCustomerKeyOptions copySourceCustomerKeyOptions) {
         this.copySource = copySource;
         this.copySourceVersionId = copySourceVersionId;
         this.copySourceRange = copySourceRange;
         this.copySourceCondition = copySourceCondition;
+        this.copySourceCustomerKeyOptions = copySourceCustomerKeyOptions;
     }
 
     public String getCopySource() {
@@ -34,11 +38,19 @@ public final class CopyPartOptions {
         return copySourceCondition;
     }
 
+    /**
+     * @return the customer key of a copy source encrypted with SSE-C, null if the source isn't.
+     */
+    public ServerSideEncryptionCustomerKeyOptions getCopySourceCustomerKeyOptions() {
+        return copySourceCustomerKeyOptions;
+    }
+
     public static class CopyPartOptionsBuilder {
         private String copySource;
         private String copySourceVersionId;
         private String copySourceRange;
         private DownloadObjectOptions.DownloadObjectCondition copySourceCondition;
+        private ServerSideEncryptionCustomerKeyOptions copySourceCustomerKeyOptions;
 
         public CopyPartOptionsBuilder() {
         }
@@ -54,12 +66,25 @@ public final class CopyPartOptions {
             return this;
         }
 
+        /**
+         * Same as {@link #copySourceRange(long, long)}, it's kept for the callers compiled against the int version.
+         */
         public CopyPartOptionsBuilder copySourceRange(int startBytes, int endBytes) {
+            return copySourceRange((long) startBytes, (long) endBytes);
+        }
+
+        /**
+         * The range of bytes to copy from the source object, it may be past 2GB.
+         * @param startBytes the first byte of the range, inclusive.
+         * @param endBytes the last byte of the range, inclusive.
+         * @return this builder.
+         */
+        public CopyPartOptionsBuilder copySourceRange(long startBytes, long endBytes) {
             if (startBytes < 0) {
                 throw new IllegalArgumentException("Range start-bytes must be a positive integer or 0.");
             }
-            if (endBytes <= startBytes) {
-                throw new IllegalArgumentException("Range end-bytes must be a positive integer and greater to start-bytes.");
+            if (endBytes < startBytes) {
+                throw new IllegalArgumentException("Range end-bytes must not be less than start-bytes.");
             }
             this.copySourceRange = startBytes + "-" + endBytes;
             return this;
@@ -69,11 +94,54 @@ public final class CopyPartOptions {
             return new CopySourceConditionOptionsBuilder(this);
         }
 
+        /**
+         * Configure the customer key of a copy source encrypted with SSE-C, it's sent as the copy source customer key headers.
+         */
+        public CopySourceCustomerKeyBuilder configureCopySourceCustomerKey() {
+            return new CopySourceCustomerKeyBuilder(this);
+        }
+
         public CopyPartOptions build() {
             if (StringUtils.isEmpty(copySource)) {
                 throw new IllegalArgumentException("copy source is required.");
             }
-            return new CopyPartOptions(copySource, copySourceVersionId, copySourceRange, copySourceCondition);
+            return new CopyPartOptions(copySource, copySourceVersionId, copySourceRange, copySourceCondition,
+                    copySourceCustomerKeyOptions);
+        }
+
+        public static final class CopySourceCustomerKeyBuilder {
+            private final CopyPartOptionsBuilder parentBuilder;
+            private final ServerSideEncryptionCustomerKeyOptions.ServerSideEncryptionCustomerKeyOptionsBuilder innerBuilder;
+
+            CopySourceCustomerKeyBuilder(CopyPartOptionsBuilder parentBuilder) {
+                this.parentBuilder = parentBuilder;
+                this.innerBuilder = new ServerSideEncryptionCustomerKeyOptions.ServerSideEncryptionCustomerKeyOptionsBuilder();
+            }
+
+            public CopyPartOptionsBuilder endConfigureCopySourceCustomerKey() {
+                this.parentBuilder.copySourceCustomerKeyOptions = this.innerBuilder.build();
+                return this.parentBuilder;
+            }
+
+            public CopySourceCustomerKeyBuilder algorithm(String algorithm) {
+                this.innerBuilder.algorithm(algorithm);
+                return this;
+            }
+
+            public CopySourceCustomerKeyBuilder key(byte[] key) {
+                this.innerBuilder.key(key);
+                return this;
+            }
+
+            public CopySourceCustomerKeyBuilder key(String base64Key) {
+                this.innerBuilder.key(base64Key);
+                return this;
+            }
+
+            public CopySourceCustomerKeyBuilder keyMd5(String base64KeyMd5) {
+                this.innerBuilder.keyMd5(base64KeyMd5);
+                return this;
+            }
         }
 
         public static final class CopySourceConditionOptionsBuilder {
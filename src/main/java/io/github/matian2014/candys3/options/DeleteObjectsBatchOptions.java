@@ -9,10 +9,12 @@ public final class DeleteObjectsBatchOptions {
 
     private final List<DeleteObjectsBatchItem> deleteObjectKeys;
     private final boolean bypassGovernanceRetention;
+    private final boolean quiet;
 
-    private DeleteObjectsBatchOptions(List<DeleteObjectsBatchItem> deleteObjectKeys, boolean bypassGovernanceRetention) {
+    private DeleteObjectsBatchOptions(List<DeleteObjectsBatchItem> deleteObjectKeys, boolean bypassGovernanceRetention, boolean quiet) {
         this.deleteObjectKeys = deleteObjectKeys;
         this.bypassGovernanceRetention = bypassGovernanceRetention;
+        this.quiet = quiet;
     }
 
     public List<DeleteObjectsBatchItem> getDeleteObjectKeys() {
@@ -23,6 +25,10 @@ public final class DeleteObjectsBatchOptions {
         return bypassGovernanceRetention;
     }
 
+    public boolean isQuiet() {
+        return quiet;
+    }
+
     public static class DeleteObjectsBatchItem {
         private final String key;
         private final String versionId;
@@ -58,12 +64,13 @@ public final class DeleteObjectsBatchOptions {
     public static final class DeleteObjectsBatchOptionsBuilder {
         List<DeleteObjectsBatchItem> deleteObjectKeys;
         private boolean bypassGovernanceRetention;
+        private boolean quiet;
 
         public DeleteObjectsBatchOptions build() {
             if (deleteObjectKeys == null || deleteObjectKeys.isEmpty()) {
                 throw new IllegalArgumentException("At least one delete object option is required when do delete objects batch.");
             }
-            return new DeleteObjectsBatchOptions(deleteObjectKeys, bypassGovernanceRetention);
+            return new DeleteObjectsBatchOptions(deleteObjectKeys, bypassGovernanceRetention, quiet);
         }
 
         public DeleteObjectsBatchOptionsBuilder addDeleteObject(String deleteObjectKey) {
@@ -86,6 +93,15 @@ public final class DeleteObjectsBatchOptions {
             return this;
         }
 
+        public DeleteObjectsBatchOptionsBuilder addDeleteObjectItems(Collection<DeleteObjectsBatchItem> deleteObjectItems) {
+            if (this.deleteObjectKeys == null) {
+                this.deleteObjectKeys = new ArrayList<>();
+            }
+
+            this.deleteObjectKeys.addAll(deleteObjectItems);
+            return this;
+        }
+
         public DeleteObjectsBatchOptionsBuilder addDeleteObject(String deleteObjectKey, String deleteVersionId) {
             if (this.deleteObjectKeys == null) {
                 this.deleteObjectKeys = new ArrayList<>();
@@ -114,6 +130,15 @@ public final class DeleteObjectsBatchOptions {
             this.bypassGovernanceRetention = true;
             return this;
         }
+
+        /**
+         * Use quiet mode, the result only contains the keys which failed to delete.
+         * @return this builder.
+         */
+        public DeleteObjectsBatchOptionsBuilder quiet() {
+            this.quiet = true;
+            return this;
+        }
     }
 
 }
@@ -0,0 +1,93 @@
+package io.github.matian2014.candys3.options;
+
+/**
+ * Options to delete any number of objects, they are deleted in batches of at most 1000 objects.
+ */
+public final class DeleteObjectsBulkOptions {
+
+    /** The maximum number of objects S3 accepts in a DeleteObjects request. */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    private final int batchSize;
+    private final Integer concurrency;
+    private final int maxRetries;
+    private final boolean bypassGovernanceRetention;
+
+    private DeleteObjectsBulkOptions(int batchSize, Integer concurrency, int maxRetries, boolean bypassGovernanceRetention) {
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.maxRetries = maxRetries;
+        this.bypassGovernanceRetention = bypassGovernanceRetention;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public boolean isBypassGovernanceRetention() {
+        return bypassGovernanceRetention;
+    }
+
+    public static final class DeleteObjectsBulkOptionsBuilder {
+        private int batchSize = MAX_BATCH_SIZE;
+        private Integer concurrency;
+        private int maxRetries = 3;
+        private boolean bypassGovernanceRetention;
+
+        public DeleteObjectsBulkOptions build() {
+            if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+                throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE + ".");
+            }
+            if (concurrency != null && concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be a positive integer.");
+            }
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative.");
+            }
+            return new DeleteObjectsBulkOptions(batchSize, concurrency, maxRetries, bypassGovernanceRetention);
+        }
+
+        /**
+         * The number of objects in each DeleteObjects request, 1000 by default.
+         * @param batchSize the batch size, at most 1000.
+         * @return this builder.
+         */
+        public DeleteObjectsBulkOptionsBuilder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * The maximum number of batches in flight, it's the transferConcurrency of the client if not set.
+         * @param concurrency the number of batches.
+         * @return this builder.
+         */
+        public DeleteObjectsBulkOptionsBuilder concurrency(Integer concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * The number of times an object is retried when it fails with a transient error like 'SlowDown' or 'InternalError', 3 by default.
+         * @param maxRetries the number of retries.
+         * @return this builder.
+         */
+        public DeleteObjectsBulkOptionsBuilder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public DeleteObjectsBulkOptionsBuilder bypassGovernanceRetention() {
+            this.bypassGovernanceRetention = true;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.matian2014.candys3.options;
+
+import io.github.matian2014.candys3.DirectorySyncListener;
+
+/**
+ * Options to upload a local directory to the objects under a prefix, or download the objects under a prefix to a local directory.
+ */
+public final class DirectorySyncOptions {
+
+    private final String prefix;
+    private final Integer concurrency;
+    private final DirectorySyncListener listener;
+    private final boolean compareModifiedTime;
+
+    private DirectorySyncOptions(String prefix, Integer concurrency, DirectorySyncListener listener, boolean compareModifiedTime) {
+        this.prefix = prefix;
+        this.concurrency = concurrency;
+        this.listener = listener;
+        this.compareModifiedTime = compareModifiedTime;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    public DirectorySyncListener getListener() {
+        return listener;
+    }
+
+    public boolean isCompareModifiedTime() {
+        return compareModifiedTime;
+    }
+
+    public static final class DirectorySyncOptionsBuilder {
+        private String prefix = "";
+        private Integer concurrency;
+        private DirectorySyncListener listener;
+        private boolean compareModifiedTime;
+
+        public DirectorySyncOptions build() {
+            if (prefix == null) {
+                throw new IllegalArgumentException("prefix must not be null.");
+            }
+            if (concurrency != null && concurrency < 1) {
+                throw new IllegalArgumentException("concurrency must be a positive integer.");
+            }
+            return new DirectorySyncOptions(prefix, concurrency, listener, compareModifiedTime);
+        }
+
+        /**
+         * The key of a file is the prefix followed by the path of the file relative to the directory, separated by '/'.
+         * It's empty by default, end it with '/' to sync the directory with a 'folder'.
+         * @param prefix the key prefix.
+         * @return this builder.
+         */
+        public DirectorySyncOptionsBuilder prefix(String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * The maximum number of files in flight, it's the transferConcurrency of the client if not set.
+         * The files are transferred by a pool of that many threads of each sync, and the parts of a large file
+         * are transferred concurrently by the transfer executor of the client.
+         * @param concurrency the number of files.
+         * @return this builder.
+         */
+        public DirectorySyncOptionsBuilder concurrency(Integer concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * The listener of the progress, it's told about each file transferred, skipped or failed.
+         * @param listener the listener.
+         * @return this builder.
+         */
+        public DirectorySyncOptionsBuilder listener(DirectorySyncListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * Compare a file with its object by the modification time when their content can't be compared,
+         * i.e. the ETag of the object isn't an MD5 of its content, or the part size of a multipart object can't be found.
+         * Then an uploaded file is skipped if it's not modified after the object, and a downloaded file is skipped
+         * if it has the modification time of the object. By default such files are always transferred,
+         * since a file changed without changing its size or modification time would be missed.
+         * @param compareModifiedTime whether to compare the modification time.
+         * @return this builder.
+         */
+        public DirectorySyncOptionsBuilder compareModifiedTime(boolean compareModifiedTime) {
+            this.compareModifiedTime = compareModifiedTime;
+            return this;
+        }
+    }
+}
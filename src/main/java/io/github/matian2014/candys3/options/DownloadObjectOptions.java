@@ -1,5 +1,6 @@
 package io.github.matian2014.candys3.options;
 
+import io.github.matian2014.candys3.RetryPolicy;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.OutputStream;
@@ -13,6 +14,7 @@ public final class DownloadObjectOptions {
 
     private final DownloadObjectResponseHeaderOptions responseHeaderOptions;
     private final DownloadObjectCondition condition;
+    private final ServerSideEncryptionCustomerKeyOptions customerKeyOptions;
 
     /**
      * configure the data output of the download object operation.
@@ -22,16 +24,22 @@ public final class DownloadObjectOptions {
      */
     private final DownloadObjectDataOutput dataOutput;
 
+    private final RetryPolicy retryPolicy;
+
     private DownloadObjectOptions(String range, String versionId, Integer partNumber,
                                   DownloadObjectResponseHeaderOptions responseHeaderOptions,
                                   DownloadObjectCondition condition,
-                                  DownloadObjectDataOutput dataOutput) {
+                                  ServerSideEncryptionCustomerKeyOptions customerKeyOptions,
+                                  DownloadObjectDataOutput dataOutput,
+                                  RetryPolicy retryPolicy) {
         this.range = range;
         this.versionId = versionId;
         this.partNumber = partNumber;
         this.responseHeaderOptions = responseHeaderOptions;
         this.condition = condition;
+        this.customerKeyOptions = customerKeyOptions;
         this.dataOutput = dataOutput;
+        this.retryPolicy = retryPolicy;
     }
 
     public String getVersionId() {
@@ -50,6 +58,13 @@ public final class DownloadObjectOptions {
         return condition;
     }
 
+    /**
+     * @return the customer key of an object encrypted with SSE-C, null if the object isn't.
+     */
+    public ServerSideEncryptionCustomerKeyOptions getCustomerKeyOptions() {
+        return customerKeyOptions;
+    }
+
     public DownloadObjectDataOutput getDataOutput() {
         return dataOutput;
     }
@@ -58,6 +73,10 @@ public final class DownloadObjectOptions {
         return responseHeaderOptions;
     }
 
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     public static final class DownloadObjectResponseHeaderOptions {
         private String responseCacheControl;
         private String responseContentDisposition;
@@ -184,6 +203,15 @@ public final class DownloadObjectOptions {
          * the output stream to read the downloaded object content.
          */
         private OutputStream outputStream;
+        /**
+         * the size of each byte range when download to file with concurrent range requests.
+         * 0 means download with a single request.
+         */
+        private long parallelRangeSize;
+        /**
+         * if the downloaded ranges are recorded next to the output file, so an interrupted download can be resumed.
+         */
+        private boolean resumable;
 
         DownloadObjectDataOutput() {
         }
@@ -205,6 +233,39 @@ public final class DownloadObjectOptions {
             return this;
         }
 
+        /**
+         * Download to file with concurrent range requests, each range is written to its offset of the file.
+         * Only take effect when output to file.
+         *
+         * @param rangeSize the size of each range in bytes.
+         * @return this
+         */
+        public DownloadObjectDataOutput parallelRanges(long rangeSize) {
+            if (rangeSize <= 0) {
+                throw new IllegalArgumentException("Range size must be a positive integer.");
+            }
+            this.parallelRangeSize = rangeSize;
+            return this;
+        }
+
+        /**
+         * Download to file in ranges which can be resumed. The object is written to a partial file next to the output file,
+         * and the downloaded ranges are recorded in a checkpoint file next to it, they are named like the output file
+         * with the suffix '.partial' and '.checkpoint'. When the download is interrupted, they are kept,
+         * and downloading the object to the same file again only requests the missing ranges, with If-Match of the ETag
+         * of the object when the download started. The partial file is moved to the output file when all ranges are downloaded.
+         * <p>
+         * If the object is changed since the download started, the download starts over.
+         * The ranges are downloaded concurrently with the range size of {@link #parallelRanges(long)}, or 8MB if not set.
+         * Only take effect when output to file.
+         *
+         * @return this
+         */
+        public DownloadObjectDataOutput resumable() {
+            this.resumable = true;
+            return this;
+        }
+
         public String getOutputFile() {
             return outputFile;
         }
@@ -216,6 +277,14 @@ public final class DownloadObjectOptions {
         public OutputStream getOutputStream() {
             return outputStream;
         }
+
+        public long getParallelRangeSize() {
+            return parallelRangeSize;
+        }
+
+        public boolean isResumable() {
+            return resumable;
+        }
     }
 
     public static class DownloadObjectOptionsBuilder {
@@ -225,16 +294,35 @@ public final class DownloadObjectOptions {
 
         private DownloadObjectResponseHeaderOptions responseHeaderOptions;
         private DownloadObjectCondition condition;
+        private ServerSideEncryptionCustomerKeyOptions customerKeyOptions;
         private DownloadObjectDataOutput dataOutput;
+        private RetryPolicy retryPolicy;
 
         public DownloadObjectOptions build() {
             if (!StringUtils.isEmpty(range) && partNumber != null) {
                 throw new IllegalArgumentException("Cannot specify both Range header and partNumber query parameter.");
             }
-            return new DownloadObjectOptions(range, versionId, partNumber, responseHeaderOptions, condition, dataOutput);
+            if (dataOutput != null && dataOutput.parallelRangeSize > 0) {
+                if (StringUtils.isEmpty(dataOutput.outputFile)) {
+                    throw new IllegalArgumentException("Parallel ranges download is only supported when output to file.");
+                }
+                if (!StringUtils.isEmpty(range) || partNumber != null) {
+                    throw new IllegalArgumentException("Cannot specify Range header or partNumber query parameter when download with parallel ranges.");
+                }
+            }
+            if (dataOutput != null && dataOutput.resumable) {
+                if (StringUtils.isEmpty(dataOutput.outputFile)) {
+                    throw new IllegalArgumentException("Resumable download is only supported when output to file.");
+                }
+                if (!StringUtils.isEmpty(range) || partNumber != null) {
+                    throw new IllegalArgumentException("Cannot specify Range header or partNumber query parameter when download resumable.");
+                }
+            }
+            return new DownloadObjectOptions(range, versionId, partNumber, responseHeaderOptions, condition, customerKeyOptions,
+                    dataOutput, retryPolicy);
         }
 
-        public DownloadObjectOptionsBuilder range(int startBytes, int endBytes) {
+        public DownloadObjectOptionsBuilder range(long startBytes, long endBytes) {
             if (startBytes < 0) {
                 throw new IllegalArgumentException("Range start-bytes must be a positive integer or 0.");
             }
@@ -246,7 +334,21 @@ public final class DownloadObjectOptions {
             return this;
         }
 
+        /**
+         * Same as {@link #range(long, long)}, it's kept for the callers compiled against the int version.
+         */
+        public DownloadObjectOptionsBuilder range(int startBytes, int endBytes) {
+            return range((long) startBytes, (long) endBytes);
+        }
+
+        /**
+         * Same as {@link #range(long)}, it's kept for the callers compiled against the int version.
+         */
         public DownloadObjectOptionsBuilder range(int startBytes) {
+            return range((long) startBytes);
+        }
+
+        public DownloadObjectOptionsBuilder range(long startBytes) {
             if (startBytes < 0) {
                 throw new IllegalArgumentException("Range start-bytes must be a positive integer or 0.");
             }
@@ -254,6 +356,14 @@ public final class DownloadObjectOptions {
             return this;
         }
 
+        /**
+         * Overrides the retry policy of the client for this request, and for each range request of a parallel ranges download.
+         */
+        public DownloadObjectOptionsBuilder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         public DownloadObjectOptionsBuilder versionId(String versionId) {
             this.versionId = versionId;
             return this;
@@ -279,6 +389,49 @@ public final class DownloadObjectOptions {
             return new DownloadObjectDataOutputBuilder(this);
         }
 
+        /**
+         * Configure the customer key of an object encrypted with SSE-C. The key is sent with the request,
+         * and with each request of a download in ranges.
+         */
+        public DownloadObjectCustomerKeyBuilder configureCustomerKey() {
+            return new DownloadObjectCustomerKeyBuilder(this);
+        }
+
+        public static final class DownloadObjectCustomerKeyBuilder {
+            private final DownloadObjectOptionsBuilder parentBuilder;
+            private final ServerSideEncryptionCustomerKeyOptions.ServerSideEncryptionCustomerKeyOptionsBuilder innerBuilder;
+
+            DownloadObjectCustomerKeyBuilder(DownloadObjectOptionsBuilder parentBuilder) {
+                this.parentBuilder = parentBuilder;
+                this.innerBuilder = new ServerSideEncryptionCustomerKeyOptions.ServerSideEncryptionCustomerKeyOptionsBuilder();
+            }
+
+            public DownloadObjectOptionsBuilder endConfigureCustomerKey() {
+                this.parentBuilder.customerKeyOptions = this.innerBuilder.build();
+                return this.parentBuilder;
+            }
+
+            public DownloadObjectCustomerKeyBuilder algorithm(String algorithm) {
+                this.innerBuilder.algorithm(algorithm);
+                return this;
+            }
+
+            public DownloadObjectCustomerKeyBuilder key(byte[] key) {
+                this.innerBuilder.key(key);
+                return this;
+            }
+
+            public DownloadObjectCustomerKeyBuilder key(String base64Key) {
+                this.innerBuilder.key(base64Key);
+                return this;
+            }
+
+            public DownloadObjectCustomerKeyBuilder keyMd5(String base64KeyMd5) {
+                this.innerBuilder.keyMd5(base64KeyMd5);
+                return this;
+            }
+        }
+
         public static final class DownloadObjectResponseHeaderOptionsBuilder {
             private final DownloadObjectOptionsBuilder parentBuilder;
 
@@ -388,6 +541,16 @@ public final class DownloadObjectOptions {
             public DownloadObjectDataOutputBuilder toBytes() {
                 return this;
             }
+
+            public DownloadObjectDataOutputBuilder parallelRanges(long rangeSize) {
+                this.parentBuilder.dataOutput.parallelRanges(rangeSize);
+                return this;
+            }
+
+            public DownloadObjectDataOutputBuilder resumable() {
+                this.parentBuilder.dataOutput.resumable();
+                return this;
+            }
         }
     }
 
@@ -0,0 +1,63 @@
+package io.github.matian2014.candys3.options;
+
+/**
+ * Options to list objects of a bucket in parallel partitions.
+ * <p>
+ * The keyspace is split by walking the common prefixes of the delimiter, down to partitionDepth levels,
+ * and the objects under each common prefix are listed as a partition with its own continuation chain.
+ * The prefix, startAfter, maxKeys and fetchOwner of the list options apply to every partition,
+ * the delimiter of the list options is the partition delimiter, '/' if it's not set.
+ */
+public class ParallelListObjectOptions {
+
+    private final ListObjectOptions listObjectOptions;
+    private int partitionDepth = 1;
+    private boolean sorted = true;
+    private Integer concurrency;
+
+    public ParallelListObjectOptions(ListObjectOptions listObjectOptions) {
+        this.listObjectOptions = listObjectOptions;
+    }
+
+    public ListObjectOptions getListObjectOptions() {
+        return listObjectOptions;
+    }
+
+    public int getPartitionDepth() {
+        return partitionDepth;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * The number of delimiter levels to walk for partitions, 1 by default.
+     * Each level multiplies the partitions, and the levels are walked before any object is returned.
+     */
+    public ParallelListObjectOptions partitionDepth(int partitionDepth) {
+        this.partitionDepth = partitionDepth;
+        return this;
+    }
+
+    /**
+     * Whether objects are returned in key order like listObjects, true by default.
+     * When not sorted, objects are returned as soon as any partition lists them.
+     */
+    public ParallelListObjectOptions sorted(boolean sorted) {
+        this.sorted = sorted;
+        return this;
+    }
+
+    /**
+     * The maximum number of partitions listed at a time, it's the transferConcurrency of the client if not set.
+     */
+    public ParallelListObjectOptions concurrency(Integer concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+}
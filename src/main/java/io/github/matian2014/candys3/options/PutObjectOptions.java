@@ -1,6 +1,8 @@
 package io.github.matian2014.candys3.options;
 
 import io.github.matian2014.candys3.ObjectRetentionMode;
+import io.github.matian2014.candys3.PayloadSigningMode;
+import io.github.matian2014.candys3.RetryPolicy;
 import io.github.matian2014.candys3.ServerSideEncryptionAlgorithm;
 import io.github.matian2014.candys3.StorageClass;
 
@@ -21,11 +23,15 @@ public final class PutObjectOptions {
 
     private final String storageClass;
     private final Map<String, String> tagSet;
+    private final PayloadSigningMode payloadSigningMode;
+    private final RetryPolicy retryPolicy;
+    private final String checkpointFile;
 
     private PutObjectOptions(PutObjectHeaderOptions headerProperties,
                              UpdateServerSideEncryptionOptions serverSideEncryptionOptions, ObjectLockOptions objectLockOptions,
                              ObjectConditionalWriteOptions condition, ObjectDataContentOptions objectDataContentOptions,
-                             String storageClass, Map<String, String> tagSet) {
+                             String storageClass, Map<String, String> tagSet,
+                             PayloadSigningMode payloadSigningMode, RetryPolicy retryPolicy, String checkpointFile) {
         this.headerProperties = headerProperties;
         this.serverSideEncryptionOptions = serverSideEncryptionOptions;
         this.objectLockOptions = objectLockOptions;
@@ -33,6 +39,9 @@ public final class PutObjectOptions {
         this.objectDataContentOptions = objectDataContentOptions;
         this.storageClass = storageClass;
         this.tagSet = tagSet;
+        this.payloadSigningMode = payloadSigningMode;
+        this.retryPolicy = retryPolicy;
+        this.checkpointFile = checkpointFile;
     }
 
     public PutObjectHeaderOptions getHeaderProperties() {
@@ -63,9 +72,24 @@ public final class PutObjectOptions {
         return condition;
     }
 
+    public PayloadSigningMode getPayloadSigningMode() {
+        return payloadSigningMode;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
     public static class PutObjectOptionsBuilder {
         private String storageClass;
         private Map<String, String> tagSet;
+        private PayloadSigningMode payloadSigningMode;
+        private RetryPolicy retryPolicy;
+        private String checkpointFile;
 
         private PutObjectHeaderOptions objectHeaderOptions;
         private UpdateServerSideEncryptionOptions serverSideEncryptionOptions;
@@ -123,9 +147,41 @@ public final class PutObjectOptions {
             return this;
         }
 
+        /**
+         * Overrides the payload signing mode of the client for this request.
+         * See {@link PayloadSigningMode#STREAMING} for the inputs which are streamed without buffering.
+         */
+        public PutObjectOptionsBuilder payloadSigningMode(PayloadSigningMode payloadSigningMode) {
+            this.payloadSigningMode = payloadSigningMode;
+            return this;
+        }
+
+        /**
+         * Overrides the retry policy of the client for the requests of this upload, including the parts of a multipart upload.
+         */
+        public PutObjectOptionsBuilder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * Makes a multipart upload of a file resumable. The progress of the upload is saved in the checkpoint file,
+         * and the upload is not aborted when it fails. When the object is put again with the same file and checkpoint file,
+         * only the parts which are not uploaded yet are uploaded. The checkpoint file is deleted when the upload is completed.
+         * <p>
+         * The data must be uploaded from a file, see {@link PutObjectDataContentBuilder#withData(String)}.
+         * If the file or the headers of the object, like its content type, encryption or tags, are changed after the upload started,
+         * the upload starts over.
+         */
+        public PutObjectOptionsBuilder checkpointFile(String checkpointFile) {
+            this.checkpointFile = checkpointFile;
+            return this;
+        }
+
         public PutObjectOptions build() {
             return new PutObjectOptions(objectHeaderOptions, serverSideEncryptionOptions, objectLockOptions,
-                    conditionalWriteOptions, dataOutput, storageClass, tagSet);
+                    conditionalWriteOptions, dataOutput, storageClass, tagSet, payloadSigningMode, retryPolicy,
+                    checkpointFile);
         }
 
         public static final class PutObjectHeaderOptionsBuilder {
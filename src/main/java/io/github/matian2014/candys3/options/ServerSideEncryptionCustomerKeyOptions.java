@@ -0,0 +1,113 @@
+package io.github.matian2014.candys3.options;
+
+import io.github.matian2014.candys3.signer.BinaryUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Base64;
+
+/**
+ * The customer provided key of an object encrypted with SSE-C, which must be sent with each request to read the object.
+ * The key is not stored by the server, so an object can't be read without it.
+ *
+ * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/userguide/ServerSideEncryptionCustomerKeys.html">Using server-side encryption with customer-provided keys (SSE-C)</a>
+ */
+public final class ServerSideEncryptionCustomerKeyOptions {
+
+    public static final String DEFAULT_ALGORITHM = "AES256";
+
+    private final String algorithm;
+    private final String key;
+    private final String keyMd5;
+
+    private ServerSideEncryptionCustomerKeyOptions(String algorithm, String key, String keyMd5) {
+        this.algorithm = algorithm;
+        this.key = key;
+        this.keyMd5 = keyMd5;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the base64 encoded key.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the base64 encoded MD5 of the key.
+     */
+    public String getKeyMd5() {
+        return keyMd5;
+    }
+
+    @Override
+    public String toString() {
+        // the key is a secret
+        return "ServerSideEncryptionCustomerKeyOptions{" +
+                "algorithm='" + algorithm + '\'' +
+                ", keyMd5='" + keyMd5 + '\'' +
+                '}';
+    }
+
+    public static final class ServerSideEncryptionCustomerKeyOptionsBuilder {
+        private String algorithm = DEFAULT_ALGORITHM;
+        private String key;
+        private String keyMd5;
+
+        public ServerSideEncryptionCustomerKeyOptions build() {
+            if (StringUtils.isEmpty(key)) {
+                throw new IllegalArgumentException("The customer key is required.");
+            }
+            if (StringUtils.isEmpty(algorithm)) {
+                throw new IllegalArgumentException("The customer algorithm is required.");
+            }
+            String md5 = keyMd5;
+            if (md5 == null) {
+                md5 = Base64.getEncoder().encodeToString(BinaryUtils.md5Digest().digest(Base64.getDecoder().decode(key)));
+            }
+            return new ServerSideEncryptionCustomerKeyOptions(algorithm, key, md5);
+        }
+
+        /**
+         * The encryption algorithm, 'AES256' by default.
+         */
+        public ServerSideEncryptionCustomerKeyOptionsBuilder algorithm(String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * @param key the key, 256 bits for AES256.
+         */
+        public ServerSideEncryptionCustomerKeyOptionsBuilder key(byte[] key) {
+            this.key = key == null ? null : Base64.getEncoder().encodeToString(key);
+            return this;
+        }
+
+        /**
+         * @param base64Key the base64 encoded key.
+         */
+        public ServerSideEncryptionCustomerKeyOptionsBuilder key(String base64Key) {
+            if (base64Key != null) {
+                try {
+                    Base64.getDecoder().decode(base64Key);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("The customer key must be base64 encoded.", e);
+                }
+            }
+            this.key = base64Key;
+            return this;
+        }
+
+        /**
+         * @param base64KeyMd5 the base64 encoded MD5 of the key, it's computed from the key if it's not set.
+         */
+        public ServerSideEncryptionCustomerKeyOptionsBuilder keyMd5(String base64KeyMd5) {
+            this.keyMd5 = base64KeyMd5;
+            return this;
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package io.github.matian2014.candys3.options;
 
+import io.github.matian2014.candys3.PayloadSigningMode;
+import io.github.matian2014.candys3.RetryPolicy;
+
 import java.io.InputStream;
 
 public final class UploadPartOptions {
 
     private final ObjectDataContentOptions dataContentOptions;
+    private final PayloadSigningMode payloadSigningMode;
+    private final RetryPolicy retryPolicy;
 
-    private UploadPartOptions(ObjectDataContentOptions dataContentOptions) {
+    private UploadPartOptions(ObjectDataContentOptions dataContentOptions, PayloadSigningMode payloadSigningMode,
+                              RetryPolicy retryPolicy) {
         this.dataContentOptions = dataContentOptions;
+        this.payloadSigningMode = payloadSigningMode;
+        this.retryPolicy = retryPolicy;
     }
 
     public byte[] getInputBytes() {
@@ -26,8 +34,18 @@ public final class UploadPartOptions {
         return dataContentOptions;
     }
 
+    public PayloadSigningMode getPayloadSigningMode() {
+        return payloadSigningMode;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     public static class UploadPartOptionsBuilder {
         private ObjectDataContentOptions dataContentOptions;
+        private PayloadSigningMode payloadSigningMode;
+        private RetryPolicy retryPolicy;
 
         public UploadPartOptionsBuilder() {
         }
@@ -36,11 +54,27 @@ public final class UploadPartOptions {
             return new UploadPartDataContentOptionsBuilder(this);
         }
 
+        /**
+         * Overrides the payload signing mode of the client for this request.
+         */
+        public UploadPartOptionsBuilder payloadSigningMode(PayloadSigningMode payloadSigningMode) {
+            this.payloadSigningMode = payloadSigningMode;
+            return this;
+        }
+
+        /**
+         * Overrides the retry policy of the client for this request.
+         */
+        public UploadPartOptionsBuilder retryPolicy(RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         public UploadPartOptions build() {
             if (this.dataContentOptions == null) {
                 throw new IllegalArgumentException("Input is required when upload part.");
             }
-            return new UploadPartOptions(this.dataContentOptions);
+            return new UploadPartOptions(this.dataContentOptions, this.payloadSigningMode, this.retryPolicy);
         }
 
 
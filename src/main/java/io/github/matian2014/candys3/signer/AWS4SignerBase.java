@@ -17,6 +17,8 @@ public abstract class AWS4SignerBase {
 
     /** precomputed SHA256 hash of an empty request body **/
     public static final String EMPTY_BODY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    /** the value of header 'x-amz-content-sha256' when the payload is not signed **/
+    public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
 
     public static final String SCHEME = "AWS4";
     public static final String ALGORITHM = "HMAC-SHA256";
@@ -26,6 +28,25 @@ public abstract class AWS4SignerBase {
     public static final String ISO8601BasicFormat = "yyyyMMdd'T'HHmmss'Z'";
     public static final String DateStringFormat = "yyyyMMdd";
 
+    /**
+     * Mac and MessageDigest instances are not thread safe and expensive to create,
+     * so each thread reuses its own instances.
+     */
+    private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to create HmacSHA256 instance: " + e.getMessage(), e);
+        }
+    });
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to create SHA-256 instance: " + e.getMessage(), e);
+        }
+    });
+
     protected URL endpointUrl;
     protected String httpMethod;
     protected String serviceName;
@@ -218,7 +239,7 @@ public abstract class AWS4SignerBase {
      */
     public static byte[] hash(String text) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = localSha256();
             md.update(text.getBytes("UTF-8"));
             return md.digest();
         } catch (Exception e) {
@@ -233,7 +254,7 @@ public abstract class AWS4SignerBase {
      */
     public static byte[] hash(byte[] data) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = localSha256();
             md.update(data);
             return md.digest();
         } catch (Exception e) {
@@ -241,6 +262,23 @@ public abstract class AWS4SignerBase {
         }
     }
 
+    /**
+     * Hashes a slice of the byte array using the SHA-256 algorithm.
+     * @param data the buffer which contains the data to be hashed.
+     * @param offset the offset of the data in the buffer.
+     * @param length the length of the data.
+     * @return the hashed bytes.
+     */
+    public static byte[] hash(byte[] data, int offset, int length) {
+        try {
+            MessageDigest md = localSha256();
+            md.update(data, offset, length);
+            return md.digest();
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to compute hash while signing request: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Hashes the file using the SHA-256 algorithm.
      * @param file the file to be hashed.
@@ -248,13 +286,14 @@ public abstract class AWS4SignerBase {
      */
     public static byte[] hash(File file) {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = localSha256();
             byte[] dataBytes = new byte[1024];
             int bytesRead;
 
-            FileInputStream fis = new FileInputStream(file);
-            while ((bytesRead = fis.read(dataBytes)) != -1) {
-                md.update(dataBytes, 0, bytesRead);
+            try (FileInputStream fis = new FileInputStream(file)) {
+                while ((bytesRead = fis.read(dataBytes)) != -1) {
+                    md.update(dataBytes, 0, bytesRead);
+                }
             }
             return md.digest();
         } catch (Exception e) {
@@ -265,11 +304,34 @@ public abstract class AWS4SignerBase {
     protected static byte[] sign(String stringData, byte[] key, String algorithm) {
         try {
             byte[] data = stringData.getBytes("UTF-8");
-            Mac mac = Mac.getInstance(algorithm);
+            Mac mac = "HmacSHA256".equals(algorithm) ? HMAC_SHA256.get() : Mac.getInstance(algorithm);
+            // init resets the instance, so it's safe to reuse after a failed computation.
             mac.init(new SecretKeySpec(key, algorithm));
             return mac.doFinal(data);
         } catch (Exception e) {
             throw new RuntimeException("Unable to calculate a request signature: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Returns a new SHA-256 MessageDigest, which the caller owns.
+     * @return the MessageDigest.
+     */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to create SHA-256 instance: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the SHA-256 MessageDigest of the current thread, it's reset and ready for use.
+     * It must not escape the calling method, as the next hash of the thread resets it.
+     */
+    static MessageDigest localSha256() {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        return md;
+    }
 }
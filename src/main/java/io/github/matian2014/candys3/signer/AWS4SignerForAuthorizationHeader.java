@@ -37,9 +37,20 @@ public class AWS4SignerForAuthorizationHeader extends AWS4SignerBase {
                                    String bodyHash,
                                    String awsAccessKey,
                                    String awsSecretKey) {
-        // first get the date and time for the subsequent request, and convert
-        // to ISO 8601 format for use in signature generation
-        Date now = new Date();
+        return computeSignature(headers, queryParameters, bodyHash, awsAccessKey, awsSecretKey, new Date());
+    }
+
+    /**
+     * Computes the signature at the given time, see {@link #computeSignature(Map, Map, String, String, String)}.
+     */
+    String computeSignature(Map<String, String> headers,
+                            Map<String, String> queryParameters,
+                            String bodyHash,
+                            String awsAccessKey,
+                            String awsSecretKey,
+                            Date now) {
+        // convert the date and time of the request to ISO 8601 format
+        // for use in signature generation
         String dateTimeStamp = dateTimeFormat.format(now);
 
         // update the headers with required 'x-amz-date' and 'host' values
@@ -77,11 +88,7 @@ public class AWS4SignerForAuthorizationHeader extends AWS4SignerBase {
         System.out.println("------------------------------------");*/
 
         // compute the signing key
-        byte[] kSecret = (SCHEME + awsSecretKey).getBytes();
-        byte[] kDate = sign(dateStamp, kSecret, "HmacSHA256");
-        byte[] kRegion = sign(regionName, kDate, "HmacSHA256");
-        byte[] kService = sign(serviceName, kRegion, "HmacSHA256");
-        byte[] kSigning = sign(TERMINATOR, kService, "HmacSHA256");
+        byte[] kSigning = SigningKeyCache.getSigningKey(awsSecretKey, dateStamp, regionName, serviceName);
         byte[] signature = sign(stringToSign, kSigning, "HmacSHA256");
 
         String credentialsAuthorizationHeader =
@@ -0,0 +1,186 @@
+package io.github.matian2014.candys3.signer;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.Map;
+
+
+/**
+ * AWS4 signer for streaming uploads to Amazon S3 with 'aws-chunked' content encoding.
+ * <p>
+ * The request headers are signed with the seed signature, then the payload is sent in chunks
+ * and each chunk is signed with the signature of the previous chunk, so the payload need not be hashed
+ * before the request is sent. The payload ends with a chunk of zero length.
+ *
+ * @see <a href="https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html">Signature Calculations for the Authorization Header: Transferring Payload in Multiple Chunks</a>
+ */
+public class AWS4SignerForChunkedUpload extends AWS4SignerBase {
+
+    /** the value of header 'x-amz-content-sha256' for chunked uploads **/
+    public static final String STREAMING_BODY_SHA256 = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+    /** the value of header 'Content-Encoding' for chunked uploads **/
+    public static final String CONTENT_ENCODING_AWS_CHUNKED = "aws-chunked";
+    /** the header carries the length of payload before chunked encoding **/
+    public static final String HEADER_DECODED_CONTENT_LENGTH = "x-amz-decoded-content-length";
+
+    private static final String CLRF = "\r\n";
+    private static final String CHUNK_STRING_TO_SIGN_PREFIX = "AWS4-HMAC-SHA256-PAYLOAD";
+    private static final String CHUNK_SIGNATURE_HEADER = ";chunk-signature=";
+    private static final int SIGNATURE_LENGTH = 64;
+
+    private String seedSignature;
+    private String dateTimeStamp;
+    private String scope;
+    private byte[] signingKey;
+
+    public AWS4SignerForChunkedUpload(URL endpointUrl, String httpMethod,
+                                      String serviceName, String regionName) {
+        super(endpointUrl, httpMethod, serviceName, regionName);
+    }
+
+    /**
+     * Computes an AWS4 signature for a chunked upload request, ready for inclusion as an
+     * 'Authorization' header. The signature is also the seed signature to sign the first chunk.
+     *
+     * @param headers         The request headers; 'Host' and 'X-Amz-Date' will be added to
+     *                        this set. 'x-amz-content-sha256', 'Content-Encoding' and
+     *                        'x-amz-decoded-content-length' should be set by the caller.
+     * @param queryParameters Any query parameters that will be added to the endpoint. The
+     *                        parameters should be specified in canonical format.
+     * @param awsAccessKey    The user's AWS Access Key.
+     * @param awsSecretKey    The user's AWS Secret Key.
+     * @return The computed authorization string for the request. This value
+     * needs to be set as the header 'Authorization' on the subsequent
+     * HTTP request.
+     */
+    public String computeSignature(Map<String, String> headers,
+                                   Map<String, String> queryParameters,
+                                   String awsAccessKey,
+                                   String awsSecretKey) {
+        // first get the date and time for the subsequent request, and convert
+        // to ISO 8601 format for use in signature generation
+        Date now = new Date();
+        this.dateTimeStamp = dateTimeFormat.format(now);
+
+        // update the headers with required 'x-amz-date' and 'host' values
+        headers.put("x-amz-date", dateTimeStamp);
+
+        String hostHeader = endpointUrl.getHost();
+        int port = endpointUrl.getPort();
+        if (port > -1) {
+            hostHeader = hostHeader.concat(":" + Integer.toString(port));
+        }
+        headers.put("Host", hostHeader);
+
+        // canonicalize the headers; we need the set of header names as well as the
+        // names and values to go into the signature process
+        String canonicalizedHeaderNames = getCanonicalizeHeaderNames(headers);
+        String canonicalizedHeaders = getCanonicalizedHeaderString(headers);
+
+        // if any query string parameters have been supplied, canonicalize them
+        String canonicalizedQueryParameters = getCanonicalizedQueryString(queryParameters);
+
+        // canonicalize the various components of the request
+        String canonicalRequest = getCanonicalRequest(endpointUrl, httpMethod,
+                canonicalizedQueryParameters, canonicalizedHeaderNames,
+                canonicalizedHeaders, STREAMING_BODY_SHA256);
+
+        // construct the string to be signed
+        String dateStamp = dateStampFormat.format(now);
+        this.scope = dateStamp + "/" + regionName + "/" + serviceName + "/" + TERMINATOR;
+        String stringToSign = getStringToSign(SCHEME, ALGORITHM, dateTimeStamp, scope, canonicalRequest);
+
+        // compute the signing key, it's kept to sign the chunks
+        this.signingKey = SigningKeyCache.getSigningKey(awsSecretKey, dateStamp, regionName, serviceName);
+        byte[] signature = sign(stringToSign, signingKey, "HmacSHA256");
+        this.seedSignature = BinaryUtils.toHex(signature);
+
+        return SCHEME + "-" + ALGORITHM + " "
+                + "Credential=" + awsAccessKey + "/" + scope + ", "
+                + "SignedHeaders=" + canonicalizedHeaderNames + ", "
+                + "Signature=" + seedSignature;
+    }
+
+    /**
+     * Returns the seed signature computed by computeSignature, it's the previous signature of the first chunk.
+     *
+     * @return the seed signature.
+     */
+    public String getSeedSignature() {
+        return seedSignature;
+    }
+
+    /**
+     * Computes the signature of a chunk.
+     *
+     * @param previousSignature the signature of the previous chunk, or the seed signature for the first chunk.
+     * @param data              the buffer which contains the chunk data.
+     * @param offset            the offset of the chunk data in the buffer.
+     * @param length            the length of the chunk data, 0 for the final chunk.
+     * @return the chunk signature.
+     */
+    public String computeChunkSignature(String previousSignature, byte[] data, int offset, int length) {
+        if (seedSignature == null) {
+            throw new IllegalStateException("computeSignature must be called before signing chunks.");
+        }
+        MessageDigest md = localSha256();
+        md.update(data, offset, length);
+        String chunkStringToSign =
+                CHUNK_STRING_TO_SIGN_PREFIX + "\n" +
+                        dateTimeStamp + "\n" +
+                        scope + "\n" +
+                        previousSignature + "\n" +
+                        EMPTY_BODY_SHA256 + "\n" +
+                        BinaryUtils.toHex(md.digest());
+        return BinaryUtils.toHex(sign(chunkStringToSign, signingKey, "HmacSHA256"));
+    }
+
+    /**
+     * Returns the header of a chunk, which is sent before the chunk data.
+     * The chunk data is followed by CRLF.
+     *
+     * @param length    the length of the chunk data.
+     * @param signature the signature of the chunk.
+     * @return the chunk header bytes.
+     */
+    public static byte[] chunkHeader(int length, String signature) {
+        return (Integer.toHexString(length) + CHUNK_SIGNATURE_HEADER + signature + CLRF)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Calculates the length of the payload after chunked encoding, it's the value of 'Content-Length' header.
+     *
+     * @param originalLength the length of the payload.
+     * @param chunkSize      the size of each chunk except the last one.
+     * @return the encoded length.
+     */
+    public static long calculateChunkedContentLength(long originalLength, int chunkSize) {
+        if (originalLength < 0) {
+            throw new IllegalArgumentException("Nonnegative content length expected.");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be a positive integer.");
+        }
+
+        long maxSizeChunks = originalLength / chunkSize;
+        long remainingBytes = originalLength % chunkSize;
+        return maxSizeChunks * calculateChunkLength(chunkSize)
+                + (remainingBytes > 0 ? calculateChunkLength(remainingBytes) : 0)
+                + calculateChunkLength(0);
+    }
+
+    /**
+     * Returns the length of an encoded chunk, including the header, the data and the trailing CRLF.
+     */
+    private static long calculateChunkLength(long dataLength) {
+        return Long.toHexString(dataLength).length()
+                + CHUNK_SIGNATURE_HEADER.length()
+                + SIGNATURE_LENGTH
+                + CLRF.length()
+                + dataLength
+                + CLRF.length();
+    }
+}
@@ -1,20 +1,47 @@
 package io.github.matian2014.candys3.signer;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Utilities for encoding and decoding binary data to and from different forms.
  */
 public class BinaryUtils {
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /** The maximum number of parts of a multipart upload. **/
+    private static final int MAX_PARTS = 10000;
+    private static final int PART_DIGEST_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * MessageDigest instances are not thread safe and expensive to create, so each thread reuses its own instance.
+     */
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to create MD5 instance: " + e.getMessage(), e);
+        }
+    });
+
     /**
      * Converts byte data to a Hex-encoded string.
      *
@@ -22,19 +49,12 @@ public class BinaryUtils {
      * @return hex-encoded string.
      */
     public static String toHex(byte[] data) {
-        StringBuilder sb = new StringBuilder(data.length * 2);
+        char[] chars = new char[data.length * 2];
         for (int i = 0; i < data.length; i++) {
-            String hex = Integer.toHexString(data[i]);
-            if (hex.length() == 1) {
-                // Append leading zero.
-                sb.append("0");
-            } else if (hex.length() == 8) {
-                // Remove ff prefix from negative numbers.
-                hex = hex.substring(6);
-            }
-            sb.append(hex);
+            chars[i * 2] = HEX_DIGITS[(data[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX_DIGITS[data[i] & 0x0f];
         }
-        return sb.toString().toLowerCase(Locale.getDefault());
+        return new String(chars);
     }
 
     /**
@@ -57,29 +77,168 @@ public class BinaryUtils {
     }
 
     public static String md5(String content) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("MD5");
+        MessageDigest md = localMd5();
         byte[] digest = md.digest(content.getBytes(StandardCharsets.UTF_8));
         return Base64.getEncoder().encodeToString(digest);
     }
 
     public static String md5(byte[] bytes) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("MD5");
+        MessageDigest md = localMd5();
         byte[] digest = md.digest(bytes);
         return Base64.getEncoder().encodeToString(digest);
     }
 
+    public static String md5(byte[] bytes, int offset, int length) throws NoSuchAlgorithmException {
+        MessageDigest md = localMd5();
+        md.update(bytes, offset, length);
+        return Base64.getEncoder().encodeToString(md.digest());
+    }
+
     public static String md5(File file) throws IOException, NoSuchAlgorithmException {
-        FileInputStream fis = new FileInputStream(file);
-        MessageDigest md = MessageDigest.getInstance("MD5");
-        byte[] dataBytes = new byte[1024];
+        MessageDigest md = localMd5();
+        byte[] dataBytes = new byte[8192];
         int bytesRead;
 
-        while ((bytesRead = fis.read(dataBytes)) != -1) {
-            md.update(dataBytes, 0, bytesRead);
+        try (FileInputStream fis = new FileInputStream(file)) {
+            while ((bytesRead = fis.read(dataBytes)) != -1) {
+                md.update(dataBytes, 0, bytesRead);
+            }
         }
 
         // Get the hash's byte array
         byte[] mdBytes = md.digest();
         return Base64.getEncoder().encodeToString(mdBytes);
     }
+
+    /**
+     * Hex-encoded MD5 of the file, which is the ETag of an object uploaded from the file in a single request without quotes,
+     * unless the object is encrypted with SSE-KMS or SSE-C.
+     */
+    public static String md5Hex(File file) throws IOException, NoSuchAlgorithmException {
+        return toHex(Base64.getDecoder().decode(md5(file)));
+    }
+
+    /**
+     * Computes the ETag of an object uploaded from the file in parts of partSize, see {@link #compositeMd5ETag(File, long, Executor)}.
+     * The parts are hashed by the common fork join pool and the calling thread.
+     */
+    public static String compositeMd5ETag(File file, long partSize) throws IOException {
+        return compositeMd5ETag(file, partSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes the ETag of an object uploaded from the file in parts of partSize, the last part may be smaller.
+     * It's the hex-encoded MD5 of the concatenated MD5 digests of the parts, followed by '-' and the number of parts, without quotes,
+     * unless the object is encrypted with SSE-KMS or SSE-C.
+     * <p>
+     * The parts are read from the file and hashed by up to one thread per processor, which are the calling thread and the tasks
+     * sent to the executor. Each thread reads a part at a time with a small buffer, so the file isn't loaded into memory.
+     * The calling thread hashes the parts no other thread takes, so the result doesn't depend on the tasks being run.
+     *
+     * @param file the file.
+     * @param partSize the size of each part.
+     * @param executor the executor to run the tasks which hash parts concurrently.
+     * @return the ETag, e.g. 'd41d8cd98f00b204e9800998ecf8427e-3'.
+     * @throws IOException if the file can't be read.
+     */
+    public static String compositeMd5ETag(File file, long partSize, Executor executor) throws IOException {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("partSize must be a positive integer.");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            // An empty object uploaded in parts has one empty part.
+            long parts = Math.max(1, (length + partSize - 1) / partSize);
+            if (parts > MAX_PARTS) {
+                throw new IllegalArgumentException("An object is uploaded in at most " + MAX_PARTS + " parts, the partSize is too small.");
+            }
+            int partCount = (int) parts;
+
+            byte[][] partDigests = new byte[partCount][];
+            AtomicInteger nextPart = new AtomicInteger();
+            CountDownLatch hashedParts = new CountDownLatch(partCount);
+            AtomicReference<IOException> failure = new AtomicReference<>();
+            Runnable hasher = () -> {
+                ByteBuffer buffer = ByteBuffer.allocate(PART_DIGEST_BUFFER_SIZE);
+                for (int part = nextPart.getAndIncrement(); part < partCount; part = nextPart.getAndIncrement()) {
+                    try {
+                        if (failure.get() == null) {
+                            long position = part * partSize;
+                            partDigests[part] = md5Range(channel, position, Math.min(partSize, length - position), buffer);
+                        }
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        hashedParts.countDown();
+                    }
+                }
+            };
+
+            int threads = Math.min(partCount, Runtime.getRuntime().availableProcessors());
+            for (int i = 1; i < threads; i++) {
+                try {
+                    executor.execute(hasher);
+                } catch (RejectedExecutionException e) {
+                    break;
+                }
+            }
+            hasher.run();
+            try {
+                // Wait for the parts taken by the other threads.
+                hashedParts.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted when wait for the parts to be hashed.");
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+
+            MessageDigest md = localMd5();
+            for (byte[] partDigest : partDigests) {
+                md.update(partDigest);
+            }
+            return toHex(md.digest()) + "-" + partCount;
+        }
+    }
+
+    private static byte[] md5Range(FileChannel channel, long position, long length, ByteBuffer buffer) throws IOException {
+        MessageDigest md = localMd5();
+        long end = position + length;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("The file is truncated when it's read.");
+            }
+            position += read;
+            buffer.flip();
+            md.update(buffer);
+        }
+        return md.digest();
+    }
+
+    /**
+     * Returns a new MD5 MessageDigest, which the caller owns.
+     *
+     * @return the MessageDigest.
+     */
+    public static MessageDigest md5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Unable to create MD5 instance: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the MD5 MessageDigest of the current thread, it's reset and ready for use.
+     * It must not escape the calling method, as the next digest of the thread resets it.
+     */
+    private static MessageDigest localMd5() {
+        MessageDigest md = MD5.get();
+        md.reset();
+        return md;
+    }
 }
@@ -0,0 +1,95 @@
+package io.github.matian2014.candys3.signer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of derived AWS4 signing keys.
+ * <p>
+ * The signing key only depends on the secret key, date stamp, region and service, so it's the same for all requests
+ * signed on the same day. Caching it saves the four HMAC steps (kDate, kRegion, kService, kSigning) per request.
+ * The cache is shared by all signers and threads. It's keyed by a SHA-256 hash of the four inputs,
+ * so the secret keys are not kept in the cache, and the least recently used key is evicted when it's full.
+ */
+public final class SigningKeyCache {
+
+    /**
+     * The maximum number of cached signing keys, old date stamps are never used again and are evicted first.
+     */
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Map<ByteBuffer, byte[]> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<ByteBuffer, byte[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, byte[]> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    private SigningKeyCache() {
+    }
+
+    /**
+     * Returns the signing key, derive and cache it if absent.
+     * The returned array is shared, it must not be modified.
+     *
+     * @param secretKey the user's AWS Secret Key.
+     * @param dateStamp the date stamp in 'yyyyMMdd' format.
+     * @param regionName the region name.
+     * @param serviceName the service name.
+     * @return the signing key.
+     */
+    public static byte[] getSigningKey(String secretKey, String dateStamp, String regionName, String serviceName) {
+        ByteBuffer key = cacheKey(secretKey, dateStamp, regionName, serviceName);
+        byte[] signingKey = CACHE.get(key);
+        if (signingKey == null) {
+            signingKey = deriveSigningKey(secretKey, dateStamp, regionName, serviceName);
+            CACHE.put(key, signingKey);
+        }
+        return signingKey;
+    }
+
+    /**
+     * Derives the signing key without cache.
+     *
+     * @param secretKey the user's AWS Secret Key.
+     * @param dateStamp the date stamp in 'yyyyMMdd' format.
+     * @param regionName the region name.
+     * @param serviceName the service name.
+     * @return the signing key.
+     */
+    public static byte[] deriveSigningKey(String secretKey, String dateStamp, String regionName, String serviceName) {
+        byte[] kSecret = (AWS4SignerBase.SCHEME + secretKey).getBytes(StandardCharsets.UTF_8);
+        byte[] kDate = AWS4SignerBase.sign(dateStamp, kSecret, "HmacSHA256");
+        byte[] kRegion = AWS4SignerBase.sign(regionName, kDate, "HmacSHA256");
+        byte[] kService = AWS4SignerBase.sign(serviceName, kRegion, "HmacSHA256");
+        return AWS4SignerBase.sign(AWS4SignerBase.TERMINATOR, kService, "HmacSHA256");
+    }
+
+    /**
+     * Removes all cached signing keys.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    /**
+     * Returns the number of cached signing keys.
+     *
+     * @return the number of keys.
+     */
+    static int size() {
+        return CACHE.size();
+    }
+
+    private static ByteBuffer cacheKey(String secretKey, String dateStamp, String regionName, String serviceName) {
+        // The inputs are separated by a character which none of them contains.
+        MessageDigest md = AWS4SignerBase.localSha256();
+        md.update((secretKey + '\0' + dateStamp + '\0' + regionName + '\0' + serviceName).getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(md.digest());
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.matian2014.candys3;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tests the partitions of {@link AdaptiveRateLimiter}, they don't need a server.
+ */
+public class AdaptiveRateLimiterTest {
+
+    @Test
+    public void pendingPartitionIsNotForgottenTest() throws Exception {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter.AdaptiveRateLimiterBuilder()
+                .initialLimit(1).maxPartitions(1).build();
+        AdaptiveRateLimiter.Permit first = limiter.acquire("bucket1", "a", () -> false);
+
+        AtomicBoolean released = new AtomicBoolean();
+        Thread other = new Thread(() -> {
+            try {
+                limiter.acquire("bucket2", "a", () -> false).onSuccess();
+            } catch (InterruptedIOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        // While the second request of bucket1 waits, its partition has nothing in flight
+        // when a request of bucket2 needs room for a new partition.
+        AdaptiveRateLimiter.Permit second = limiter.acquire("bucket1", "a", () -> {
+            if (released.compareAndSet(false, true)) {
+                first.onSuccess();
+                other.start();
+            }
+            return false;
+        });
+        other.join();
+
+        List<AdaptiveRateLimiter.PartitionStats> stats = limiter.getPartitionStats();
+        Assert.assertEquals("bucket1/", stats.get(0).getPartition());
+        Assert.assertEquals(1, stats.get(0).getInFlight());
+        second.onSuccess();
+        Assert.assertEquals(0, limiter.getPartitionStats().get(0).getInFlight());
+    }
+}
@@ -110,6 +110,31 @@ public class AliyunOSSTest {
         new CandyS3Test().listObjectsCommonPrefixTest(S3Provider.ALIYUN_OSS);
     }
 
+    @Test
+    public void aliyunOSSListIterableTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listIterableTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSListObjectsInParallelTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsInParallelTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSDeleteObjectsBulkTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBulkTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSPurgeBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeBucketTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSPurgeVersionedBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeVersionedBucketTest(S3Provider.ALIYUN_OSS);
+    }
+
     @Test
     public void aliyunOSSListObjectVersionsWithoutVersioningTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().listObjectVersionsWithoutVersioningTest(S3Provider.ALIYUN_OSS);
@@ -130,6 +155,31 @@ public class AliyunOSSTest {
         new CandyS3Test().getObjectVersionMetadataTest(S3Provider.ALIYUN_OSS);
     }
 
+    @Test
+    public void aliyunOSSObjectMetadataCacheTest() throws Exception {
+        new CandyS3Test().objectMetadataCacheTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSSharedTransportTest() throws Exception {
+        new CandyS3Test().sharedTransportTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSRetryPolicyTest() throws Exception {
+        new CandyS3Test().retryPolicyTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSRateLimiterTest() throws Exception {
+        new CandyS3Test().rateLimiterTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSMetricsListenerTest() throws Exception {
+        new CandyS3Test().metricsListenerTest(S3Provider.ALIYUN_OSS);
+    }
+
     @Test
     public void aliyunOSSDeleteVersioningObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().deleteVersioningObjectTest(S3Provider.ALIYUN_OSS);
@@ -195,6 +245,51 @@ public class AliyunOSSTest {
         new CandyS3Test().multipartUploadDownloadTest(S3Provider.ALIYUN_OSS);
     }
 
+    @Test
+    public void aliyunOSSParallelMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelMultipartUploadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSResumableMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableMultipartUploadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSParallelRangeDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelRangeDownloadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSResumableDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableDownloadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSPartSizePolicyTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().partSizePolicyTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSStreamingUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().streamingUploadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSUnsignedPayloadUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().unsignedPayloadUploadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSFileRegionUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().fileRegionUploadTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSAsyncClientTest() throws Exception {
+        new CandyS3Test().asyncClientTest(S3Provider.ALIYUN_OSS);
+    }
+
     @Test
     public void aliyunOSSMultipartUploadToExistsObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().multipartUploadToExistsObjectTest(S3Provider.ALIYUN_OSS);
@@ -277,6 +372,21 @@ public class AliyunOSSTest {
         new CandyS3Test().copyPartTest(S3Provider.ALIYUN_OSS);
     }
 
+    @Test
+    public void aliyunOSSParallelCopyObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelCopyObjectTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSDirectorySyncTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().directorySyncTest(S3Provider.ALIYUN_OSS);
+    }
+
+    @Test
+    public void aliyunOSSCompositeETagTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().compositeETagTest(S3Provider.ALIYUN_OSS);
+    }
+
     @Test
     public void aliyunOSSCopyPartConditionalTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().copyPartConditionalTest(S3Provider.ALIYUN_OSS);
@@ -109,6 +109,31 @@ public class AwsS3Test {
         new CandyS3Test().listObjectsCommonPrefixTest(S3Provider.AWS);
     }
 
+    @Test
+    public void awsListIterableTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listIterableTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsListObjectsInParallelTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsInParallelTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsDeleteObjectsBulkTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBulkTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsPurgeBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeBucketTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsPurgeVersionedBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeVersionedBucketTest(S3Provider.AWS);
+    }
+
     @Test
     public void awsListObjectVersionsWithoutVersioningTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().listObjectVersionsWithoutVersioningTest(S3Provider.AWS);
@@ -129,6 +154,31 @@ public class AwsS3Test {
         new CandyS3Test().getObjectVersionMetadataTest(S3Provider.AWS);
     }
 
+    @Test
+    public void awsObjectMetadataCacheTest() throws Exception {
+        new CandyS3Test().objectMetadataCacheTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsSharedTransportTest() throws Exception {
+        new CandyS3Test().sharedTransportTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsRetryPolicyTest() throws Exception {
+        new CandyS3Test().retryPolicyTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsRateLimiterTest() throws Exception {
+        new CandyS3Test().rateLimiterTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsMetricsListenerTest() throws Exception {
+        new CandyS3Test().metricsListenerTest(S3Provider.AWS);
+    }
+
     @Test
     public void awsDeleteVersioningObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().deleteVersioningObjectTest(S3Provider.AWS);
@@ -194,6 +244,51 @@ public class AwsS3Test {
         new CandyS3Test().multipartUploadDownloadTest(S3Provider.AWS);
     }
 
+    @Test
+    public void awsParallelMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelMultipartUploadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsResumableMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableMultipartUploadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsParallelRangeDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelRangeDownloadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsResumableDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableDownloadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsPartSizePolicyTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().partSizePolicyTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsStreamingUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().streamingUploadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsUnsignedPayloadUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().unsignedPayloadUploadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsFileRegionUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().fileRegionUploadTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsAsyncClientTest() throws Exception {
+        new CandyS3Test().asyncClientTest(S3Provider.AWS);
+    }
+
     @Test
     public void awsMultipartUploadToExistsObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().multipartUploadToExistsObjectTest(S3Provider.AWS);
@@ -277,6 +372,21 @@ public class AwsS3Test {
         new CandyS3Test().copyPartTest(S3Provider.AWS);
     }
 
+    @Test
+    public void awsParallelCopyObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelCopyObjectTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsDirectorySyncTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().directorySyncTest(S3Provider.AWS);
+    }
+
+    @Test
+    public void awsCompositeETagTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().compositeETagTest(S3Provider.AWS);
+    }
+
     @Test
     public void awsCopyPartConditionalTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().copyPartConditionalTest(S3Provider.AWS);
@@ -4,6 +4,7 @@ import io.github.matian2014.candys3.exceptions.CandyS3Exception;
 import io.github.matian2014.candys3.exceptions.CommonErrorCode;
 import io.github.matian2014.candys3.options.*;
 import io.github.matian2014.candys3.options.*;
+import io.github.matian2014.candys3.signer.BinaryUtils;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.AfterClass;
@@ -18,10 +19,13 @@ import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class CandyS3Test {
 
@@ -32,8 +36,26 @@ class CandyS3Test {
 
     private static String TENCENTCLOUD_COS_APPID;
 
+    /**
+     * The server of the CUSTOM provider when it's set, instead of the one in custom.ini.
+     */
+    static LocalS3Server localS3Server;
+
+    /**
+     * The directory of the temporary files of the tests.
+     */
+    static File tempDirectory = new File("./temp");
+
+    static String tempPath(String name) {
+        return new File(tempDirectory, name).getPath();
+    }
+
     private CandyS3 init(S3Provider provider) throws IOException {
-        CandyS3 candyS3 = new CandyS3(provider);
+        return init(provider, null);
+    }
+
+    private CandyS3 init(S3Provider provider, CandyS3Transport transport) throws IOException {
+        CandyS3 candyS3 = transport == null ? new CandyS3(provider) : new CandyS3(provider, transport);
 
         if (S3Provider.AWS.equals(provider)) {
             Map<String, String> properties = readIni("aws.ini");
@@ -57,6 +79,12 @@ class CandyS3Test {
             S3_ACCESSKEY = properties.get("access-key");
             S3_SECRETKEY = properties.get("secret-key");
             TENCENTCLOUD_COS_APPID = properties.get("cos-app-id");
+        } else if (S3Provider.CUSTOM.equals(provider) && localS3Server != null) {
+            S3_ACCESSKEY = LocalS3Server.ACCESS_KEY;
+            S3_SECRETKEY = LocalS3Server.SECRET_KEY;
+            S3_DEFAULT_REGION = localS3Server.getRegion();
+            S3_USE_SSL = false;
+            localS3Server.configure(candyS3);
         } else if (S3Provider.CUSTOM.equals(provider)) {
             Map<String, String> properties = readIni("custom.ini");
             S3_ACCESSKEY = properties.get("access-key");
@@ -661,6 +689,197 @@ class CandyS3Test {
         }
     }
 
+    void listIterableTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        candyS3.setListPrefetchPages(2);
+        String bucket = genTestBucketName("listIterableTest");
+        List<String> createdObjectKeys = new ArrayList<>();
+        String uploadObjectKey = "listIterableTest.data";
+        String uploadId = null;
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            for (int i = 0; i < 10; i++) {
+                String objectKey = "objectKey" + i;
+                createdObjectKeys.add(objectKey);
+                candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder().build());
+            }
+
+            List<String> listedKeys = new ArrayList<>();
+            for (S3Object s3Object : candyS3.listObjectsIterable(bucket, new ListObjectOptions().maxKeys(3))) {
+                listedKeys.add(s3Object.getKey());
+            }
+            Assert.assertEquals(createdObjectKeys, listedKeys);
+
+            try (Stream<S3Object> stream = candyS3.listObjectsIterable(bucket, new ListObjectOptions().maxKeys(3)).stream()) {
+                Assert.assertEquals(createdObjectKeys.subList(0, 4),
+                        stream.limit(4).map(S3Object::getKey).collect(Collectors.toList()));
+            }
+
+            candyS3.setListPrefetchPages(0);
+            Assert.assertEquals(10, candyS3.listObjectsIterable(bucket, new ListObjectOptions().maxKeys(4)).stream().count());
+            Assert.assertFalse(candyS3.listObjectsIterable(bucket, new ListObjectOptions().prefix("notExists")).iterator().hasNext());
+
+            uploadId = candyS3.createMultipartUpload(bucket, uploadObjectKey, new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            for (int i = 0; i < 5; i++) {
+                candyS3.uploadPart(bucket, uploadObjectKey, uploadId, i + 1, new UploadPartOptions.UploadPartOptionsBuilder()
+                        .configureUploadData().withData(new byte[]{(byte) i}).endConfigureDataContent()
+                        .build());
+            }
+            List<Integer> partNums = candyS3.listPartsIterable(bucket, uploadObjectKey, new ListPartsOptions(uploadId).maxParts(2))
+                    .stream().map(S3Part::getPartNum).collect(Collectors.toList());
+            Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), partNums);
+
+            String listedUploadId = uploadId;
+            Assert.assertTrue(candyS3.listMultipartUploadsIterable(bucket, new ListMultipartUploadOptions().maxUploads(1))
+                    .stream().anyMatch(upload -> listedUploadId.equals(upload.getUploadId())));
+        } finally {
+            if (uploadId != null) {
+                candyS3.abortMultipartUpload(bucket, uploadObjectKey, uploadId, new AbortMultipartUploadOptions());
+            }
+            candyS3.deleteObjectsBatch(bucket, new DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder()
+                    .addDeleteObjects(createdObjectKeys)
+                    .build());
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void listObjectsInParallelTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("listObjectsInParallelTest");
+        List<String> createdObjectKeys = Arrays.asList("a.txt", "a/1", "a/2", "a0", "b/x/1", "b/x/2", "b/y/1", "b/y/2",
+                "b/z", "c", "d/1", "d/2/3", "e/");
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            for (String objectKey : createdObjectKeys) {
+                candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder().build());
+            }
+
+            for (int depth = 0; depth <= 3; depth++) {
+                try (Stream<S3Object> stream = candyS3.listObjectsInParallel(bucket,
+                        new ParallelListObjectOptions(new ListObjectOptions().maxKeys(2)).partitionDepth(depth).concurrency(2))) {
+                    Assert.assertEquals(createdObjectKeys, stream.map(S3Object::getKey).collect(Collectors.toList()));
+                }
+                try (Stream<S3Object> stream = candyS3.listObjectsInParallel(bucket,
+                        new ParallelListObjectOptions(new ListObjectOptions().maxKeys(2)).partitionDepth(depth).sorted(false))) {
+                    Assert.assertEquals(createdObjectKeys, stream.map(S3Object::getKey).sorted().collect(Collectors.toList()));
+                }
+            }
+
+            try (Stream<S3Object> stream = candyS3.listObjectsInParallel(bucket,
+                    new ParallelListObjectOptions(new ListObjectOptions().prefix("b/").startAfter("b/x/2")).partitionDepth(2))) {
+                Assert.assertEquals(Arrays.asList("b/y/1", "b/y/2", "b/z"), stream.map(S3Object::getKey).collect(Collectors.toList()));
+            }
+
+            try (Stream<S3Object> stream = candyS3.listObjectsInParallel(bucket,
+                    new ParallelListObjectOptions(new ListObjectOptions().maxKeys(1)).sorted(false).concurrency(1))) {
+                Assert.assertEquals(3, stream.limit(3).count());
+            }
+        } finally {
+            candyS3.deleteObjectsBatch(bucket, new DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder()
+                    .addDeleteObjects(createdObjectKeys)
+                    .build());
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void deleteObjectsBulkTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("deleteObjectsBulkTest");
+        List<String> createdObjectKeys = new ArrayList<>();
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            for (int i = 0; i < 25; i++) {
+                createdObjectKeys.add("deleteObjectsBulkTest/" + i);
+            }
+            for (int i = 0; i < 3; i++) {
+                createdObjectKeys.add("flaky-deleteObjectsBulkTest/" + i);
+            }
+            for (String objectKey : createdObjectKeys) {
+                candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder().build());
+            }
+
+            DeleteObjectsBulkOptions options = new DeleteObjectsBulkOptions.DeleteObjectsBulkOptionsBuilder()
+                    .batchSize(7).concurrency(3).build();
+            // The listing is consumed while objects are deleted.
+            DeleteObjectsBulkResult result = candyS3.deleteObjectsBulk(bucket,
+                    Stream.concat(candyS3.listObjectsIterable(bucket, new ListObjectOptions().maxKeys(5)).stream()
+                                    .map(s3Object -> new DeleteObjectsBatchOptions.DeleteObjectsBatchItem(s3Object.getKey())),
+                            Stream.of(new DeleteObjectsBatchOptions.DeleteObjectsBatchItem("denied-deleteObjectsBulkTest"))),
+                    options);
+            Assert.assertEquals(createdObjectKeys.size() + 1, result.getDeletedCount() + result.getErrors().size());
+            Assert.assertTrue(result.getBatchCount() >= (createdObjectKeys.size() + 1 + 6) / 7);
+            for (DeleteObjectsBatchResult.DeleteError error : result.getErrors()) {
+                Assert.assertEquals("denied-deleteObjectsBulkTest", error.getKey());
+            }
+            Assert.assertEquals(0, candyS3.listObjects(bucket, new ListObjectOptions()).getResults().size());
+
+            result = candyS3.deleteObjectsBulk(bucket, Collections.<DeleteObjectsBatchOptions.DeleteObjectsBatchItem>emptyIterator(), options);
+            Assert.assertEquals(0, result.getDeletedCount());
+            Assert.assertEquals(0, result.getBatchCount());
+            Assert.assertTrue(result.isSuccessful());
+        } finally {
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void purgeBucketTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("purgeBucketTest");
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        for (int i = 0; i < 20; i++) {
+            candyS3.putObject(bucket, "purgeBucketTest/" + i, new PutObjectOptions.PutObjectOptionsBuilder().build());
+        }
+        for (int i = 0; i < 3; i++) {
+            String objectKey = "purgeBucketTestUpload" + i;
+            String uploadId = candyS3.createMultipartUpload(bucket, objectKey, new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            candyS3.uploadPart(bucket, objectKey, uploadId, 1, new UploadPartOptions.UploadPartOptionsBuilder()
+                    .configureUploadData().withData(new byte[]{(byte) i}).endConfigureDataContent()
+                    .build());
+        }
+
+        DeleteObjectsBulkResult result = candyS3.purgeBucket(bucket, new DeleteObjectsBulkOptions.DeleteObjectsBulkOptionsBuilder()
+                .batchSize(7).concurrency(2).build());
+        Assert.assertTrue(result.isSuccessful());
+        Assert.assertEquals(20, result.getDeletedCount());
+
+        try {
+            candyS3.listObjects(bucket, new ListObjectOptions());
+            Assert.fail();
+        } catch (CandyS3Exception e) {
+            Assert.assertEquals(CommonErrorCode.NO_SUCH_BUCKET.getCode(), e.getCode());
+        }
+    }
+
+    void purgeVersionedBucketTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("purgeVersionedBucketTest");
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        candyS3.setBucketVersioning(bucket, true);
+        for (int i = 0; i < 10; i++) {
+            String objectKey = "purgeVersionedBucketTest/" + i;
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder().build());
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder().build());
+            if (i % 2 == 0) {
+                candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            }
+        }
+        // Versions of a suspended bucket are purged too.
+        candyS3.setBucketVersioning(bucket, false);
+
+        DeleteObjectsBulkResult result = candyS3.purgeBucket(bucket, new DeleteObjectsBulkOptions.DeleteObjectsBulkOptionsBuilder()
+                .batchSize(4).build());
+        Assert.assertTrue(result.isSuccessful());
+        // 2 versions of each object, and a delete marker of every other object.
+        Assert.assertEquals(25, result.getDeletedCount());
+
+        try {
+            candyS3.listObjects(bucket, new ListObjectOptions());
+            Assert.fail();
+        } catch (CandyS3Exception e) {
+            Assert.assertEquals(CommonErrorCode.NO_SUCH_BUCKET.getCode(), e.getCode());
+        }
+    }
+
     void listObjectVersionsWithoutVersioningTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucketWithoutVersioning = genTestBucketName("lOVWithoutV");
@@ -1157,6 +1376,391 @@ class CandyS3Test {
         }
     }
 
+    void objectMetadataCacheTest(S3Provider provider) throws Exception {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("oMCTest");
+        String objectKey = "objectMetadataCacheTest.data";
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        try {
+            ObjectMetadataCache cache = new ObjectMetadataCache(2, 1, TimeUnit.HOURS);
+            candyS3.setObjectMetadataCache(cache);
+            DownloadObjectOptions options = new DownloadObjectOptions.DownloadObjectOptionsBuilder().build();
+
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new byte[1]).endConfigureDataContent()
+                    .build());
+            S3Object s3Object = candyS3.getObjectMetadata(bucket, objectKey, options);
+            Assert.assertEquals(1, s3Object.getSize());
+            S3Object cachedS3Object = candyS3.getObjectMetadata(bucket, objectKey, options);
+            Assert.assertEquals(s3Object.geteTag(), cachedS3Object.geteTag());
+            Assert.assertNotSame(s3Object, cachedS3Object);
+            Assert.assertEquals(1, cache.getMissCount());
+            Assert.assertEquals(1, cache.getHitCount());
+            Assert.assertEquals(0.5, cache.getHitRate(), 0.001);
+
+            // requests with a condition are not cached
+            candyS3.getObjectMetadata(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDownloadCondition().ifMatch(s3Object.geteTag()).endConfigureCondition()
+                    .build());
+            Assert.assertEquals(1, cache.getHitCount());
+            Assert.assertEquals(1, cache.getMissCount());
+
+            // writes of this client invalidate the entry
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new byte[2]).endConfigureDataContent()
+                    .build());
+            Assert.assertEquals(2, candyS3.getObjectMetadata(bucket, objectKey, options).getSize());
+            Assert.assertEquals(2, cache.getMissCount());
+
+            candyS3.putObject(bucket, objectKey + ".source", new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new byte[3]).endConfigureDataContent()
+                    .build());
+            candyS3.copyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                    .copySource(bucket, objectKey + ".source")
+                    .build());
+            Assert.assertEquals(3, candyS3.getObjectMetadata(bucket, objectKey, options).getSize());
+            Assert.assertEquals(3, new CandyS3Async(candyS3).getObjectMetadata(bucket, objectKey, options).get().getSize());
+            Assert.assertEquals(3, cache.getMissCount());
+            Assert.assertEquals(2, cache.getHitCount());
+
+            // the least recently used entry is evicted
+            candyS3.getObjectMetadata(bucket, objectKey + ".source", options);
+            candyS3.putObject(bucket, objectKey + ".other", new PutObjectOptions.PutObjectOptionsBuilder().build());
+            candyS3.getObjectMetadata(bucket, objectKey + ".other", options);
+            Assert.assertEquals(1, cache.getEvictionCount());
+            Assert.assertEquals(2, cache.size());
+
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey + ".other"));
+            try {
+                candyS3.getObjectMetadata(bucket, objectKey + ".other", options);
+                Assert.fail();
+            } catch (CandyS3Exception e) {
+                Assert.assertEquals(CommonErrorCode.NO_SUCH_OBJECT.getCode(), e.getCode());
+            }
+
+            candyS3.deleteObjectsBatch(bucket, new DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder()
+                    .addDeleteObject(objectKey + ".source")
+                    .build());
+            try {
+                candyS3.getObjectMetadata(bucket, objectKey + ".source", options);
+                Assert.fail();
+            } catch (CandyS3Exception e) {
+                Assert.assertEquals(CommonErrorCode.NO_SUCH_OBJECT.getCode(), e.getCode());
+            }
+
+            // an expired entry is revalidated by its ETag
+            ObjectMetadataCache expiredCache = new ObjectMetadataCache(10, 0, TimeUnit.MILLISECONDS);
+            candyS3.setObjectMetadataCache(expiredCache);
+            candyS3.getObjectMetadata(bucket, objectKey, options);
+            List<RequestMetrics> requests = Collections.synchronizedList(new ArrayList<>());
+            candyS3.setMetricsListener(requests::add);
+            S3Object revalidatedS3Object = candyS3.getObjectMetadata(bucket, objectKey, options);
+            candyS3.setMetricsListener(null);
+            // the 304 of the revalidation is not an error
+            Assert.assertEquals(1, requests.size());
+            Assert.assertEquals(304, requests.get(0).getStatusCode());
+            Assert.assertTrue(requests.get(0).isConditional());
+            Assert.assertTrue(requests.get(0).isSuccessful());
+            Assert.assertEquals(3, revalidatedS3Object.getSize());
+            Assert.assertEquals(1, expiredCache.getMissCount());
+            Assert.assertEquals(1, expiredCache.getRevalidationCount());
+            Assert.assertEquals(0, expiredCache.getHitCount());
+        } finally {
+            candyS3.setObjectMetadataCache(null);
+            candyS3.purgeBucket(bucket);
+        }
+    }
+
+    void sharedTransportTest(S3Provider provider) throws Exception {
+        CandyS3Transport transport = new CandyS3Transport.CandyS3TransportBuilder()
+                .maxIdleConnections(2)
+                .keepAlive(1, TimeUnit.MINUTES)
+                .maxRequestsPerHost(8)
+                .build();
+        Assert.assertEquals(8, transport.getMaxRequestsPerHost());
+        CandyS3 candyS3 = init(provider, transport);
+        CandyS3 otherCandyS3 = init(provider, transport);
+        Assert.assertSame(transport, otherCandyS3.getTransport());
+
+        String bucket = genTestBucketName("sharedTransportTest");
+        String objectKey = "sharedTransportTest.data";
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        try {
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new byte[1]).endConfigureDataContent()
+                    .build());
+            int connectionCount = transport.getConnectionCount();
+            Assert.assertTrue(transport.getIdleConnectionCount() > 0);
+
+            // the other client reuses the idle connection to the same endpoint
+            Assert.assertEquals(1, otherCandyS3.getObjectMetadata(bucket, objectKey,
+                    new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).getSize());
+            Assert.assertEquals(1, new CandyS3Async(otherCandyS3).getObjectMetadata(bucket, objectKey,
+                    new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).get().getSize());
+            Assert.assertEquals(connectionCount, transport.getConnectionCount());
+        } finally {
+            candyS3.purgeBucket(bucket);
+            transport.close();
+        }
+    }
+
+    void retryPolicyTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        RetryPolicy defaultPolicy = new RetryPolicy.RetryPolicyBuilder().build();
+        Assert.assertEquals(3, defaultPolicy.getMaxAttempts());
+        Assert.assertTrue(defaultPolicy.getRetryableStatusCodes().contains(503));
+        Assert.assertTrue(defaultPolicy.getRetryableErrorCodes().contains("SlowDown"));
+        // the stream reset of HTTP/2 is matched by the class name of OkHttp
+        Assert.assertTrue(defaultPolicy.isRetryable(new okhttp3.internal.http2.StreamResetException(okhttp3.internal.http2.ErrorCode.REFUSED_STREAM)));
+        Assert.assertFalse(new RetryPolicy.RetryPolicyBuilder().retryStreamReset(false).build()
+                .isRetryable(new okhttp3.internal.http2.StreamResetException(okhttp3.internal.http2.ErrorCode.REFUSED_STREAM)));
+        Assert.assertEquals(1, RetryPolicy.NONE.getMaxAttempts());
+        try {
+            new RetryPolicy.RetryPolicyBuilder().maxAttempts(0).build();
+            Assert.fail("Should not be here. maxAttempts must be positive");
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        CandyS3 candyS3 = init(provider);
+        Assert.assertEquals(3, candyS3.getRetryPolicy().getMaxAttempts());
+        try {
+            candyS3.setRetryPolicy(null);
+            Assert.fail("Should not be here. retryPolicy is required");
+        } catch (IllegalArgumentException ignored) {
+        }
+        candyS3.setRetryPolicy(RetryPolicy.NONE);
+        // all signing modes are retried, including the unsigned ones over HTTP
+        candyS3.setAllowUnsignedPayloadOverHttp(true);
+
+        // retry the error of a missing upload, so each attempt is signed again and sends the whole body again
+        RetryPolicy retryNoSuchUpload = new RetryPolicy.RetryPolicyBuilder()
+                .maxAttempts(3)
+                .baseDelay(10, TimeUnit.MILLISECONDS)
+                .retryableErrorCodes(Collections.singletonList("NoSuchUpload"))
+                .build();
+
+        String bucket = genTestBucketName("retryPolicyTest");
+        String objectKey = "retryPolicyTest.data";
+        File file = new File(tempDirectory, "tempRetryFile.data");
+        byte[] bytes = new byte[200 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            String uploadId = candyS3.createMultipartUpload(bucket, objectKey,
+                    new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            candyS3.abortMultipartUpload(bucket, objectKey, uploadId, new AbortMultipartUploadOptions());
+            for (PayloadSigningMode signingMode : PayloadSigningMode.values()) {
+                if (localS3Server != null) {
+                    localS3Server.resetStatistics();
+                }
+                try {
+                    candyS3.uploadPart(bucket, objectKey, uploadId, 1, new UploadPartOptions.UploadPartOptionsBuilder()
+                            .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                            .payloadSigningMode(signingMode)
+                            .retryPolicy(retryNoSuchUpload)
+                            .build());
+                    Assert.fail("Should not be here. Exception should be thrown when upload part of an aborted upload");
+                } catch (CandyS3Exception ex) {
+                    // not a signature error, the retries are signed and sent like the first attempt
+                    Assert.assertEquals("NoSuchUpload", ex.getParsedError().getCode());
+                }
+                if (localS3Server != null) {
+                    Assert.assertEquals(3, localS3Server.getReceivedRequests("PUT", objectKey).size());
+                }
+            }
+
+            if (localS3Server != null) {
+                // the retries of an asynchronous request are scheduled with the policy of the request
+                localS3Server.resetStatistics();
+                LocalS3Server.Fault slowDown = localS3Server.addFault(new LocalS3Server.FaultBuilder()
+                        .method("PUT").bucket(bucket).keyPrefix(objectKey).error(503, "SlowDown").times(2).build());
+                try {
+                    Assert.assertNotNull(new CandyS3Async(candyS3).putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                            .configureUploadData().withData(bytes).endConfigureDataContent()
+                            .retryPolicy(new RetryPolicy.RetryPolicyBuilder().maxAttempts(3).baseDelay(10, TimeUnit.MILLISECONDS).build())
+                            .build()).get());
+                    Assert.assertEquals(2, slowDown.getHits());
+                    Assert.assertEquals(3, localS3Server.getReceivedRequests("PUT", objectKey).size());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    localS3Server.removeFault(slowDown);
+                }
+
+                // the policy of the client is not retried
+                localS3Server.resetStatistics();
+                slowDown = localS3Server.addFault(new LocalS3Server.FaultBuilder()
+                        .method("PUT").bucket(bucket).keyPrefix(objectKey).error(503, "SlowDown").times(1).build());
+                try {
+                    new CandyS3Async(candyS3).putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                            .configureUploadData().withData(bytes).endConfigureDataContent()
+                            .build()).get();
+                    Assert.fail("Should not be here. The client has no retries");
+                } catch (InterruptedException | ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof CandyS3Exception);
+                } finally {
+                    localS3Server.removeFault(slowDown);
+                }
+                Assert.assertEquals(1, localS3Server.getReceivedRequests("PUT", objectKey).size());
+            }
+
+            // the per-request policy of putObject also applies to the parts of a multipart upload
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .retryPolicy(new RetryPolicy.RetryPolicyBuilder().maxAttempts(5).build())
+                    .build());
+            S3Object downloadObject = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .retryPolicy(defaultPolicy)
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject.getContentBytes());
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            candyS3.purgeBucket(bucket);
+        }
+    }
+
+    void rateLimiterTest(S3Provider provider) throws Exception {
+        try {
+            new AdaptiveRateLimiter.AdaptiveRateLimiterBuilder().initialLimit(8).maxLimit(4).build();
+            Assert.fail("Should not be here. initialLimit must not be greater than maxLimit");
+        } catch (IllegalArgumentException ignored) {
+        }
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter.AdaptiveRateLimiterBuilder()
+                .initialLimit(2)
+                .prefixDepth(1)
+                .build();
+        Assert.assertEquals("bucket/logs/", rateLimiter.partitionOf("bucket", "logs/2024/01.log"));
+        Assert.assertEquals("bucket/", rateLimiter.partitionOf("bucket", "root.log"));
+
+        CandyS3 candyS3 = init(provider);
+        candyS3.setRateLimiter(rateLimiter);
+        CandyS3Async candyS3Async = new CandyS3Async(candyS3);
+
+        String bucket = genTestBucketName("rateLimiterTest");
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        try {
+            List<CompletableFuture<String>> puts = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                puts.add(candyS3Async.putObject(bucket, (i % 2 == 0 ? "a/" : "b/") + i + ".data", new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(new byte[]{(byte) i}).endConfigureDataContent()
+                        .build()));
+            }
+            for (CompletableFuture<String> put : puts) {
+                Assert.assertNotNull(put.get());
+            }
+
+            // each prefix has its own limit, which grows with the successful requests
+            Map<String, AdaptiveRateLimiter.PartitionStats> stats = rateLimiter.getPartitionStats().stream()
+                    .collect(Collectors.toMap(AdaptiveRateLimiter.PartitionStats::getPartition, s -> s));
+            for (String prefix : new String[]{"a/", "b/"}) {
+                AdaptiveRateLimiter.PartitionStats prefixStats = stats.get(bucket + "/" + prefix);
+                Assert.assertNotNull(prefixStats);
+                Assert.assertEquals(0, prefixStats.getInFlight());
+                Assert.assertEquals(0, prefixStats.getThrottleCount());
+                Assert.assertTrue(prefixStats.getLimit() > 2);
+                Assert.assertEquals(prefixStats.getLimit(), rateLimiter.getLimit(bucket, prefix + "0.data"));
+            }
+
+            // a download holds its permit until its body is read
+            byte[] bytes = new byte[1024 * 1024];
+            candyS3.putObject(bucket, "a/large.data", new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(bytes).endConfigureDataContent()
+                    .build());
+            List<Integer> inFlightWhenRead = new ArrayList<>();
+            S3Object downloadObject = candyS3.downloadObject(bucket, "a/large.data", new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toStream(new OutputStream() {
+                        @Override
+                        public void write(int b) {
+                            write(new byte[]{(byte) b}, 0, 1);
+                        }
+
+                        @Override
+                        public void write(byte[] b, int off, int len) {
+                            rateLimiter.getPartitionStats().stream()
+                                    .filter(s -> s.getPartition().equals(bucket + "/a/"))
+                                    .forEach(s -> inFlightWhenRead.add(s.getInFlight()));
+                        }
+                    }).endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(bytes.length, downloadObject.getSize());
+            Assert.assertEquals(1, (int) inFlightWhenRead.get(0));
+            Assert.assertEquals(0, rateLimiter.getPartitionStats().stream()
+                    .filter(s -> s.getPartition().equals(bucket + "/a/"))
+                    .mapToInt(AdaptiveRateLimiter.PartitionStats::getInFlight).sum());
+        } finally {
+            candyS3.purgeBucket(bucket);
+        }
+    }
+
+    void metricsListenerTest(S3Provider provider) throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000_000, histogram.getMax());
+        long p50 = histogram.getValueAtPercentile(50);
+        Assert.assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125);
+        Assert.assertEquals(1000_000, histogram.getValueAtPercentile(100));
+
+        CandyS3 candyS3 = init(provider);
+        HistogramMetricsListener metricsListener = new HistogramMetricsListener();
+        List<RequestMetrics> requests = Collections.synchronizedList(new ArrayList<>());
+        candyS3.setMetricsListener(metrics -> {
+            metricsListener.onRequest(metrics);
+            requests.add(metrics);
+        });
+
+        String bucket = genTestBucketName("metricsListenerTest");
+        String objectKey = "metricsListenerTest.data";
+        byte[] bytes = new byte[12 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        try {
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new ByteArrayInputStream(bytes)).endConfigureDataContent()
+                    .build());
+            S3Object downloadObject = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject.getContentBytes());
+            try {
+                candyS3.getObjectMetadata(bucket, "notExists.data", new DownloadObjectOptions.DownloadObjectOptionsBuilder().build());
+                Assert.fail("Should not be here. Exception should be thrown when get metadata of a missing object");
+            } catch (CandyS3Exception ignored) {
+            }
+
+            Map<String, HistogramMetricsListener.OperationMetrics> operations = metricsListener.getOperationMetrics();
+            Assert.assertTrue(operations.containsKey("CreateBucket"));
+            Assert.assertEquals(1, operations.get("CreateMultipartUpload").getRequestCount());
+            Assert.assertEquals(1, operations.get("CompleteMultipartUpload").getRequestCount());
+            HistogramMetricsListener.OperationMetrics uploadPart = operations.get("UploadPart");
+            Assert.assertTrue(uploadPart.getRequestCount() >= 2);
+            Assert.assertEquals(0, uploadPart.getErrorCount());
+            Assert.assertTrue(uploadPart.getBytesSent() >= bytes.length);
+            Assert.assertEquals(uploadPart.getRequestCount(), uploadPart.getDuration().getCount());
+            Assert.assertTrue(uploadPart.getTimeToFirstByte().getMax() <= uploadPart.getDuration().getMax());
+
+            HistogramMetricsListener.OperationMetrics getObject = operations.get("GetObject");
+            Assert.assertEquals(bytes.length, getObject.getBytesReceived());
+            HistogramMetricsListener.OperationMetrics headObject = operations.get("HeadObject");
+            Assert.assertEquals(1, headObject.getErrorCount());
+            Assert.assertEquals(Long.valueOf(1), headObject.getErrorCounts().get("HTTP 404"));
+
+            for (RequestMetrics metrics : requests) {
+                Assert.assertEquals(bucket, metrics.getBucket());
+            }
+            String scraped = metricsListener.scrape();
+            Assert.assertTrue(scraped.contains("candys3_requests_total{operation=\"UploadPart\"} " + uploadPart.getRequestCount()));
+            Assert.assertTrue(scraped.contains("candys3_request_errors_total{operation=\"HeadObject\",error=\"HTTP 404\"} 1"));
+        } finally {
+            candyS3.setMetricsListener(null);
+            candyS3.purgeBucket(bucket);
+        }
+    }
+
     void deleteVersioningObjectTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucket = genTestBucketName("deleteVersioningObjectTest");
@@ -1319,7 +1923,7 @@ class CandyS3Test {
     void putDownloadSmallObjectTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucket = genTestBucketName("putDownloadSmallObjectTest");
-        File file = new File("./temp/tempFile.data");
+        File file = new File(tempDirectory, "tempFile.data");
         String content = StringUtils.repeat("x", 1024);
         try {
             candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
@@ -1399,7 +2003,7 @@ class CandyS3Test {
     void putDownloadLargeObjectTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucket = genTestBucketName("putDownloadLargeObjectTest");
-        File file = new File("./temp/tempFile.data");
+        File file = new File(tempDirectory, "tempFile.data");
         String content = StringUtils.repeat("x", 6 * 1024 * 1024); // 6MB
         try {
             candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
@@ -1486,10 +2090,10 @@ class CandyS3Test {
     void multipartUploadDownloadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucket = genTestBucketName("multipartUploadDownloadTest");
-        File file = new File("./temp/tempFile.data");
-        File filePart1 = new File("./temp/tempFilePart1.data");
-        File filePart2 = new File("./temp/tempFilePart2.data");
-        String outputFile = "./temp/tempFileOutput.data";
+        File file = new File(tempDirectory, "tempFile.data");
+        File filePart1 = new File(tempDirectory, "tempFilePart1.data");
+        File filePart2 = new File(tempDirectory, "tempFilePart2.data");
+        String outputFile = tempPath("tempFileOutput.data");
         String content = StringUtils.repeat("x", 6 * 1024 * 1024); // 6MB
         try {
             candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
@@ -1649,6 +2253,594 @@ class CandyS3Test {
         }
     }
 
+    void parallelMultipartUploadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        candyS3.setTransferConcurrency(3);
+        String bucket = genTestBucketName("parallelMpUTest");
+        String objectKey1 = "parallelMultipartUploadTest1.data";
+        String objectKey2 = "parallelMultipartUploadTest2.data";
+        File file = new File(tempDirectory, "tempParallelFile.data");
+        // 4 parts, the last part is smaller than 5MB
+        byte[] bytes = new byte[18 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            // upload from file
+            candyS3.putObject(bucket, objectKey1, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .build());
+            S3Object downloadObject1 = candyS3.downloadObject(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject1.getContentBytes());
+
+            // upload from a stream which may return less bytes than requested on each read
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1024)) {
+                candyS3.putObject(bucket, objectKey2, new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(in).endConfigureDataContent()
+                        .build());
+            }
+            S3Object downloadObject2 = candyS3.downloadObject(bucket, objectKey2, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject2.getContentBytes());
+
+            ListPaginationResult<S3MultipartUpload> uploads = candyS3.listMultipartUploads(bucket, new ListMultipartUploadOptions());
+            Assert.assertEquals(uploads.getResults().size(), 0);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey1));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey2));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void resumableMultipartUploadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("resumableMpUTest");
+        String objectKey = "resumableMultipartUploadTest.data";
+        File file = new File(tempDirectory, "tempResumableFile.data");
+        File checkpointFile = new File(tempDirectory, "tempResumableFile.checkpoint");
+        // 4 parts, the last part is smaller than 5MB
+        int partSize = 5 * 1024 * 1024;
+        byte[] bytes = new byte[18 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            // An upload interrupted after part 1 is saved in the checkpoint, and part 2 is uploaded but not saved.
+            String uploadId = candyS3.createMultipartUpload(bucket, objectKey, new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            UploadCheckpoint checkpoint = UploadCheckpoint.create(checkpointFile, bucket, objectKey, uploadId, partSize,
+                    Collections.emptyMap(), file);
+            for (int partNum = 1; partNum <= 2; partNum++) {
+                S3Part part = candyS3.uploadPart(bucket, objectKey, uploadId, partNum, new UploadPartOptions.UploadPartOptionsBuilder()
+                        .configureUploadData().withData(Arrays.copyOfRange(bytes, (partNum - 1) * partSize, partNum * partSize)).endConfigureDataContent()
+                        .build());
+                if (partNum == 1) {
+                    checkpoint.addPart(partNum, part.getEtag());
+                }
+            }
+            checkpoint.close();
+
+            PutObjectOptions putObjectOptions = new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .checkpointFile(checkpointFile.getPath())
+                    .build();
+            candyS3.putObject(bucket, objectKey, putObjectOptions);
+            S3Object downloadObject = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject.getContentBytes());
+            Assert.assertFalse(checkpointFile.exists());
+            Assert.assertEquals(0, candyS3.listMultipartUploads(bucket, new ListMultipartUploadOptions()).getResults().size());
+
+            // The file is changed after the checkpoint is saved, the upload starts over and the stale upload is aborted.
+            String staleUploadId = candyS3.createMultipartUpload(bucket, objectKey, new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            UploadCheckpoint.create(checkpointFile, bucket, objectKey, staleUploadId, partSize, Collections.emptyMap(), file).close();
+            bytes[0]++;
+            Files.write(file.toPath(), bytes);
+            Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+            candyS3.putObject(bucket, objectKey, putObjectOptions);
+            downloadObject = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject.getContentBytes());
+            Assert.assertFalse(checkpointFile.exists());
+            Assert.assertEquals(0, candyS3.listMultipartUploads(bucket, new ListMultipartUploadOptions()).getResults().size());
+
+            // The upload of the checkpoint is aborted by others, the upload starts over.
+            String abortedUploadId = candyS3.createMultipartUpload(bucket, objectKey, new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            UploadCheckpoint.create(checkpointFile, bucket, objectKey, abortedUploadId, partSize, Collections.emptyMap(), file).close();
+            candyS3.abortMultipartUpload(bucket, objectKey, abortedUploadId, new AbortMultipartUploadOptions());
+            candyS3.putObject(bucket, objectKey, putObjectOptions);
+            Assert.assertFalse(checkpointFile.exists());
+
+            // The headers of the object are changed, the upload created with the old headers is aborted and the upload starts over.
+            String otherHeadersUploadId = candyS3.createMultipartUpload(bucket, objectKey, new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            UploadCheckpoint.create(checkpointFile, bucket, objectKey, otherHeadersUploadId, partSize, Collections.emptyMap(), file).close();
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .configurePutObjectHeaderOptions().contentType("application/json").endConfigurePutObjectHeaderOptions()
+                    .checkpointFile(checkpointFile.getPath())
+                    .build());
+            Assert.assertFalse(checkpointFile.exists());
+            Assert.assertEquals(0, candyS3.listMultipartUploads(bucket, new ListMultipartUploadOptions()).getResults().size());
+            Assert.assertEquals("application/json", candyS3.getObjectMetadata(bucket, objectKey,
+                    new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).getObjectMetadata().getContentType());
+
+            try {
+                candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(bytes).endConfigureDataContent()
+                        .checkpointFile(checkpointFile.getPath())
+                        .build());
+                Assert.fail("Should not be here. A checkpoint requires a file input.");
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(checkpointFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void parallelRangeDownloadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        candyS3.setTransferConcurrency(3);
+        String bucket = genTestBucketName("parallelRangeDTest");
+        String objectKey = "parallelRangeDownloadTest.data";
+        String emptyObjectKey = "parallelRangeDownloadTestEmpty.data";
+        String outputFile = tempPath("tempParallelRangeOutput.data");
+        byte[] bytes = new byte[10 * 1024 * 1024 + 123];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(bytes).endConfigureDataContent()
+                    .build());
+            candyS3.putObject(bucket, emptyObjectKey, new PutObjectOptions.PutObjectOptionsBuilder().build());
+
+            // the last range is smaller than range size
+            S3Object s3Object = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toFile(outputFile, true).parallelRanges(3 * 1024 * 1024).endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(s3Object.getSize(), bytes.length);
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(Paths.get(outputFile)));
+
+            // single range, and overwrite a larger file
+            candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toFile(outputFile, true).parallelRanges(bytes.length).endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(Paths.get(outputFile)));
+
+            candyS3.downloadObject(bucket, emptyObjectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toFile(outputFile, true).parallelRanges(1024).endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(0, Files.size(Paths.get(outputFile)));
+
+            try {
+                candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                        .configureDataOutput().toFile(outputFile, false).parallelRanges(1024).endConfigureDataOutput()
+                        .build());
+                Assert.fail();
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals(CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getCode(), ex.getCode());
+            }
+
+            try {
+                new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                        .configureDataOutput().toBytes().parallelRanges(1024).endConfigureDataOutput()
+                        .build();
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            Files.deleteIfExists(Paths.get(outputFile));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(emptyObjectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void resumableDownloadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("resumableDTest");
+        String objectKey = "resumableDownloadTest.data";
+        File outputFile = new File(tempDirectory, "tempResumableOutput.data");
+        File partialFile = new File(outputFile.getPath() + ".partial");
+        File checkpointFile = new File(outputFile.getPath() + ".checkpoint");
+        // 3 ranges, the last range is smaller than range size
+        int rangeSize = 4 * 1024 * 1024;
+        byte[] bytes = new byte[10 * 1024 * 1024 + 123];
+        new Random().nextBytes(bytes);
+        DownloadObjectOptions downloadOptions = new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                .configureDataOutput().toFile(outputFile.getPath(), false).resumable().endConfigureDataOutput()
+                .build();
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            String eTag = candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(bytes).endConfigureDataContent()
+                    .build());
+
+            // A download interrupted after range 0 is recorded, and range 1 is partly written but not recorded.
+            byte[] partial = new byte[bytes.length];
+            System.arraycopy(bytes, 0, partial, 0, rangeSize + 1024);
+            Files.write(partialFile.toPath(), partial);
+            DownloadCheckpoint checkpoint = DownloadCheckpoint.create(outputFile, bucket, objectKey, null, eTag, bytes.length, rangeSize);
+            checkpoint.addRange(0);
+            checkpoint.close();
+
+            S3Object s3Object = candyS3.downloadObject(bucket, objectKey, downloadOptions);
+            Assert.assertEquals(bytes.length, (long) s3Object.getSize());
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(outputFile.toPath()));
+            Assert.assertFalse(partialFile.exists());
+            Assert.assertFalse(checkpointFile.exists());
+
+            // The output file exists.
+            try {
+                candyS3.downloadObject(bucket, objectKey, downloadOptions);
+                Assert.fail();
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals(CommonErrorCode.OUTPUT_FILE_ALREADY_EXISTS.getCode(), ex.getCode());
+            }
+            Files.delete(outputFile.toPath());
+
+            // The object is changed since the download started, all ranges are downloaded again.
+            Files.write(partialFile.toPath(), new byte[bytes.length]);
+            checkpoint = DownloadCheckpoint.create(outputFile, bucket, objectKey, null, "\"stale\"", bytes.length, rangeSize);
+            checkpoint.addRange(0);
+            checkpoint.addRange(1);
+            checkpoint.close();
+            candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toFile(outputFile.getPath(), true).resumable().parallelRanges(3 * 1024 * 1024).endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(outputFile.toPath()));
+            Assert.assertFalse(partialFile.exists());
+            Assert.assertFalse(checkpointFile.exists());
+
+            try {
+                new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                        .configureDataOutput().toBytes().resumable().endConfigureDataOutput()
+                        .build();
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            Files.deleteIfExists(outputFile.toPath());
+            Files.deleteIfExists(partialFile.toPath());
+            Files.deleteIfExists(checkpointFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void partSizePolicyTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        // part sizes of unknown length are 5MB, 10MB and 20MB
+        candyS3.setPartSizePolicy(new PartSizePolicy().partsPerGrowth(1));
+        String bucket = genTestBucketName("partSizePolicyTest");
+        String objectKey1 = "partSizePolicyTest1.data";
+        String objectKey2 = "partSizePolicyTest2.data";
+        String objectKey3 = "partSizePolicyTest3.data";
+        byte[] bytes = new byte[16 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+
+            // upload stream of unknown length with multipart upload
+            candyS3.putObject(bucket, objectKey1, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new ByteArrayInputStream(bytes)).endConfigureDataContent()
+                    .build());
+            S3Object s3Object1 = candyS3.getObjectMetadata(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .partNumber(2).build());
+            Assert.assertEquals(s3Object1.getPartsCount(), (Integer) 3);
+            Assert.assertEquals(s3Object1.getSize(), 10 * 1024 * 1024);
+            S3Object downloadObject1 = candyS3.downloadObject(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject1.getContentBytes());
+
+            // upload stream of unknown length smaller than a part directly
+            byte[] smallBytes = Arrays.copyOf(bytes, 1024 * 1024);
+            candyS3.putObject(bucket, objectKey2, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new ByteArrayInputStream(smallBytes)).endConfigureDataContent()
+                    .build());
+            S3Object downloadObject2 = candyS3.downloadObject(bucket, objectKey2, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(smallBytes, downloadObject2.getContentBytes());
+            Assert.assertFalse(downloadObject2.geteTag().contains("-"));
+
+            // the part size is capped at the buffer memory limit, one 5MB buffer at a time
+            candyS3.setUploadBufferMemoryLimit(PartSizePolicy.MIN_PART_SIZE);
+            candyS3.putObject(bucket, objectKey3, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(new ByteArrayInputStream(bytes)).endConfigureDataContent()
+                    .build());
+            S3Object s3Object3 = candyS3.getObjectMetadata(bucket, objectKey3, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .partNumber(2).build());
+            Assert.assertEquals(s3Object3.getPartsCount(), (Integer) 4);
+            Assert.assertEquals(s3Object3.getSize(), 5 * 1024 * 1024);
+            S3Object downloadObject3 = candyS3.downloadObject(bucket, objectKey3, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject3.getContentBytes());
+        } finally {
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey1));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey2));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey3));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void streamingUploadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        candyS3.setPayloadSigningMode(PayloadSigningMode.STREAMING);
+        String bucket = genTestBucketName("streamingUTest");
+        String objectKey1 = "streamingUploadTest1.data";
+        String objectKey2 = "streamingUploadTest2.data";
+        String objectKey3 = "streamingUploadTest3.data";
+        File file = new File(tempDirectory, "tempStreamingFile.data");
+        // 3 parts, and the last chunk of each part is smaller than the chunk size
+        byte[] bytes = new byte[12 * 1024 * 1024 + 1000];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            // multipart upload from file
+            candyS3.putObject(bucket, objectKey1, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .build());
+            S3Object downloadObject1 = candyS3.downloadObject(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject1.getContentBytes());
+
+            // small object from bytes, and empty object
+            byte[] smallBytes = Arrays.copyOfRange(bytes, 0, 1000);
+            candyS3.putObject(bucket, objectKey2, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(smallBytes).endConfigureDataContent()
+                    .build());
+            S3Object downloadObject2 = candyS3.downloadObject(bucket, objectKey2, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(smallBytes, downloadObject2.getContentBytes());
+            candyS3.putObject(bucket, objectKey3, new PutObjectOptions.PutObjectOptionsBuilder().build());
+            Assert.assertEquals(candyS3.getObjectMetadata(bucket, objectKey3, new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).getSize(), 0);
+
+            // upload parts from file and file input stream, the second part overrides the signing mode
+            String uploadId = candyS3.createMultipartUpload(bucket, objectKey3,
+                    new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            List<S3Part> parts = new ArrayList<>();
+            parts.add(candyS3.uploadPart(bucket, objectKey3, uploadId, 1,
+                    new UploadPartOptions.UploadPartOptionsBuilder()
+                            .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                            .build()));
+            try (InputStream in = new FileInputStream(file)) {
+                parts.add(candyS3.uploadPart(bucket, objectKey3, uploadId, 2,
+                        new UploadPartOptions.UploadPartOptionsBuilder()
+                                .configureUploadData().withData(in).endConfigureDataContent()
+                                .payloadSigningMode(PayloadSigningMode.SIGNED)
+                                .build()));
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                parts.add(candyS3.uploadPart(bucket, objectKey3, uploadId, 3,
+                        new UploadPartOptions.UploadPartOptionsBuilder()
+                                .configureUploadData().withData(in).endConfigureDataContent()
+                                .build()));
+            }
+            candyS3.completeMultipartUpload(bucket, objectKey3, uploadId, parts,
+                    new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build());
+            S3Object downloadObject3 = candyS3.downloadObject(bucket, objectKey3, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(downloadObject3.getContentBytes().length, bytes.length * 3);
+            Assert.assertArrayEquals(bytes, Arrays.copyOfRange(downloadObject3.getContentBytes(), bytes.length * 2, bytes.length * 3));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey1));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey2));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey3));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void unsignedPayloadUploadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        candyS3.setPayloadSigningMode(PayloadSigningMode.UNSIGNED);
+        // the test servers may be reached over HTTP
+        candyS3.setAllowUnsignedPayloadOverHttp(true);
+        String bucket = genTestBucketName("unsignedPUTest");
+        String objectKey1 = "unsignedPayloadUploadTest1.data";
+        String objectKey2 = "unsignedPayloadUploadTest2.data";
+        String objectKey3 = "unsignedPayloadUploadTest3.data";
+        File file = new File(tempDirectory, "tempUnsignedPayloadFile.data");
+        byte[] bytes = new byte[12 * 1024 * 1024 + 1000];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            // multipart upload from file
+            candyS3.putObject(bucket, objectKey1, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .build());
+            S3Object downloadObject1 = candyS3.downloadObject(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject1.getContentBytes());
+
+            // with crc32 checksum
+            byte[] smallBytes = Arrays.copyOfRange(bytes, 0, 1000);
+            candyS3.putObject(bucket, objectKey2, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(smallBytes).endConfigureDataContent()
+                    .payloadSigningMode(PayloadSigningMode.UNSIGNED_CRC32)
+                    .build());
+            S3Object downloadObject2 = candyS3.downloadObject(bucket, objectKey2, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(smallBytes, downloadObject2.getContentBytes());
+
+            // upload parts from file and file input stream
+            String uploadId = candyS3.createMultipartUpload(bucket, objectKey3,
+                    new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            List<S3Part> parts = new ArrayList<>();
+            parts.add(candyS3.uploadPart(bucket, objectKey3, uploadId, 1,
+                    new UploadPartOptions.UploadPartOptionsBuilder()
+                            .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                            .payloadSigningMode(PayloadSigningMode.UNSIGNED_CRC32)
+                            .build()));
+            try (InputStream in = new FileInputStream(file)) {
+                parts.add(candyS3.uploadPart(bucket, objectKey3, uploadId, 2,
+                        new UploadPartOptions.UploadPartOptionsBuilder()
+                                .configureUploadData().withData(in).endConfigureDataContent()
+                                .build()));
+            }
+            candyS3.completeMultipartUpload(bucket, objectKey3, uploadId, parts,
+                    new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build());
+            S3Object downloadObject3 = candyS3.downloadObject(bucket, objectKey3, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(downloadObject3.getContentBytes().length, bytes.length * 2);
+            Assert.assertArrayEquals(bytes, Arrays.copyOfRange(downloadObject3.getContentBytes(), bytes.length, bytes.length * 2));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey1));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey2));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey3));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void fileRegionUploadTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("fileRegionUTest");
+        String objectKey1 = "fileRegionUploadTest1.data";
+        String objectKey2 = "fileRegionUploadTest2.data";
+        File file = new File(tempDirectory, "tempFileRegionFile.data");
+        byte[] bytes = new byte[12 * 1024 * 1024 + 1000];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            // multipart upload from the current position of a file input stream
+            try (FileInputStream in = new FileInputStream(file)) {
+                Assert.assertEquals(in.skip(1000), 1000);
+                candyS3.putObject(bucket, objectKey1, new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(in).endConfigureDataContent()
+                        .build());
+            }
+            S3Object downloadObject1 = candyS3.downloadObject(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 1000, bytes.length), downloadObject1.getContentBytes());
+            Assert.assertTrue(downloadObject1.geteTag().endsWith("-3\""));
+
+            // upload part from the current position of a file input stream
+            String uploadId = candyS3.createMultipartUpload(bucket, objectKey2,
+                    new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+            List<S3Part> parts = new ArrayList<>();
+            try (FileInputStream in = new FileInputStream(file)) {
+                Assert.assertEquals(in.skip(1000), 1000);
+                parts.add(candyS3.uploadPart(bucket, objectKey2, uploadId, 1,
+                        new UploadPartOptions.UploadPartOptionsBuilder()
+                                .configureUploadData().withData(in).endConfigureDataContent()
+                                .build()));
+            }
+            candyS3.completeMultipartUpload(bucket, objectKey2, uploadId, parts,
+                    new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build());
+            S3Object downloadObject2 = candyS3.downloadObject(bucket, objectKey2, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 1000, bytes.length), downloadObject2.getContentBytes());
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey1));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey2));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void asyncClientTest(S3Provider provider) throws Exception {
+        CandyS3Transport transport = new CandyS3Transport.CandyS3TransportBuilder()
+                .maxRequests(16)
+                .maxRequestsPerHost(16)
+                .build();
+        CandyS3 candyS3 = init(provider, transport);
+        CandyS3Async candyS3Async = new CandyS3Async(candyS3);
+        String bucket = genTestBucketName("asyncClientTest");
+        String objectKey1 = "asyncClientTest1.data";
+        String objectKey2 = "asyncClientTest2.data";
+        File file = new File(tempDirectory, "tempAsyncClientFile.data");
+        byte[] bytes = new byte[12 * 1024 * 1024 + 1000];
+        new Random().nextBytes(bytes);
+        List<String> smallObjectKeys = new ArrayList<>();
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            Files.write(file.toPath(), bytes);
+
+            // multipart upload from file
+            String eTag = candyS3Async.putObject(bucket, objectKey1, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .build()).get();
+            S3Object downloadObject1 = candyS3Async.downloadObject(bucket, objectKey1, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build()).get();
+            Assert.assertEquals(eTag, downloadObject1.geteTag());
+            Assert.assertArrayEquals(bytes, downloadObject1.getContentBytes());
+
+            // upload from a stream
+            try (InputStream in = new ByteArrayInputStream(bytes)) {
+                candyS3Async.putObject(bucket, objectKey2, new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(in).endConfigureDataContent()
+                        .build()).get();
+            }
+            Assert.assertEquals(candyS3Async.getObjectMetadata(bucket, objectKey2, new DownloadObjectOptions.DownloadObjectOptionsBuilder().build())
+                    .get().getSize(), bytes.length);
+
+            // concurrent small objects
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String key = "asyncClientTest/" + i;
+                smallObjectKeys.add(key);
+                futures.add(candyS3Async.putObject(bucket, key, new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(key.getBytes(StandardCharsets.UTF_8)).endConfigureDataContent()
+                        .build()));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+            ListPaginationResult<S3Object> listResult = candyS3Async.listObjects(bucket,
+                    new ListObjectOptions().prefix("asyncClientTest/")).get();
+            Assert.assertEquals(listResult.getResults().size(), 20);
+
+            // errors are the same as the blocking client
+            try {
+                candyS3Async.getObjectMetadata(bucket, "asyncClientTestNotExists", new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).get();
+                Assert.fail();
+            } catch (ExecutionException ex) {
+                Assert.assertTrue(ex.getCause() instanceof CandyS3Exception);
+                Assert.assertEquals(CommonErrorCode.NO_SUCH_OBJECT.getCode(), ((CandyS3Exception) ex.getCause()).getCode());
+            }
+
+            DeleteObjectsBatchResult deleteResult = candyS3Async.deleteObjectsBatch(bucket, new DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder()
+                    .addDeleteObjects(smallObjectKeys)
+                    .build()).get();
+            Assert.assertEquals(deleteResult.getDeleted().size(), 20);
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey1));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey2));
+            candyS3.deleteObjectsBatch(bucket, new DeleteObjectsBatchOptions.DeleteObjectsBatchOptionsBuilder()
+                    .addDeleteObjects(smallObjectKeys)
+                    .build());
+            candyS3.deleteBucket(bucket);
+            transport.close();
+        }
+    }
+
     void multipartUploadToExistsObjectTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucket = genTestBucketName("mpUToExistsOTest");
@@ -3707,7 +4899,7 @@ class CandyS3Test {
             candyS3.completeMultipartUpload(bucket, objectKey, uploadId, parts, new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder()
                     .build());
 
-            String outputFile = "./temp/output.data";
+            String outputFile = tempPath("output.data");
             candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
                     .configureDataOutput().toFile(outputFile, true).endConfigureDataOutput()
                     .build());
@@ -3726,6 +4918,268 @@ class CandyS3Test {
         }
     }
 
+    void parallelCopyObjectTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        candyS3.setTransferConcurrency(3);
+        candyS3.setCopyPartSize(5 * 1024 * 1024);
+        String bucket = genTestBucketName("parallelCopyTest");
+        String sourceObjectKey = "parallelCopySource.data";
+        String smallSourceObjectKey = "parallelCopySmallSource.data";
+        String objectKey = "sub/parallelCopyTarget.data";
+        // 3 parts, the last part is smaller than the part size
+        byte[] bytes = new byte[12 * 1024 * 1024 + 7];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            candyS3.putObject(bucket, sourceObjectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configurePutObjectHeaderOptions().contentType("application/x-parallel-copy").cacheControl("max-age=60")
+                    .endConfigurePutObjectHeaderOptions()
+                    .configureUploadData().withData(bytes).endConfigureDataContent()
+                    .build());
+
+            // the metadata of the source is copied
+            String eTag = candyS3.parallelCopyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                    .copySource(bucket, sourceObjectKey)
+                    .build());
+            Assert.assertTrue(eTag.endsWith("-3\""));
+            S3Object downloadObject = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, downloadObject.getContentBytes());
+            Assert.assertEquals("application/x-parallel-copy", downloadObject.getObjectMetadata().getContentType());
+            Assert.assertEquals("max-age=60", downloadObject.getObjectMetadata().getCacheControl());
+
+            // replace the metadata
+            candyS3.parallelCopyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                    .copySource(bucket, sourceObjectKey)
+                    .configureCopyObjectHeaderOptions().replaceMetadataDirective().contentType("text/plain")
+                    .endConfigureCopyObjectHeaderOptions()
+                    .build());
+            S3Object metadata = candyS3.getObjectMetadata(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder().build());
+            Assert.assertEquals(bytes.length, metadata.getSize());
+            Assert.assertEquals("text/plain", metadata.getObjectMetadata().getContentType());
+
+            // the source doesn't match the condition
+            try {
+                candyS3.parallelCopyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                        .copySource(bucket, sourceObjectKey)
+                        .configureCopySourceCondition().ifMatch("\"00000000000000000000000000000000\"").endConfigureCondition()
+                        .build());
+                Assert.fail();
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), ex.getCode());
+            }
+
+            // a source not larger than a part is copied by copyObject
+            candyS3.putObject(bucket, smallSourceObjectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(Arrays.copyOf(bytes, 1024)).endConfigureDataContent()
+                    .build());
+            CopyObjectOptions.CopyObjectOptionsBuilder smallCopyOptions = new CopyObjectOptions.CopyObjectOptionsBuilder()
+                    .copySource(bucket, smallSourceObjectKey);
+            // Cloudflare R2 does not support 'x-amz-tagging-directive'
+            if (S3Provider.CLOUDFLARE_R2.equals(provider)) {
+                smallCopyOptions.excludeTaggingDirective();
+            }
+            eTag = candyS3.parallelCopyObject(bucket, objectKey, smallCopyOptions.build());
+            Assert.assertFalse(eTag.contains("-"));
+            downloadObject = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(Arrays.copyOf(bytes, 1024), downloadObject.getContentBytes());
+
+            // the tags of the source can't be copied in parts
+            if (!S3Provider.CLOUDFLARE_R2.equals(provider)) {
+                candyS3.putObject(bucket, sourceObjectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                        .addTag("k1", "v1")
+                        .configureUploadData().withData(bytes).endConfigureDataContent()
+                        .build());
+                try {
+                    candyS3.parallelCopyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                            .copySource(bucket, sourceObjectKey)
+                            .build());
+                    Assert.fail();
+                } catch (IllegalArgumentException ignored) {
+                }
+                candyS3.parallelCopyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                        .copySource(bucket, sourceObjectKey)
+                        .replaceTaggingDirective().addTag("k2", "v2")
+                        .build());
+                metadata = candyS3.getObjectMetadata(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder().build());
+                Assert.assertEquals(1, (int) metadata.getTagCount());
+            }
+
+            Assert.assertEquals(0, candyS3.listMultipartUploads(bucket, new ListMultipartUploadOptions()).getResults().size());
+        } finally {
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(sourceObjectKey));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(smallSourceObjectKey));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void directorySyncTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("directorySyncTest");
+        File uploadDirectory = new File(tempDirectory, "directorySyncUpload");
+        File downloadDirectory = new File(tempDirectory, "directorySyncDownload");
+        Set<String> failedKeys = Collections.synchronizedSet(new HashSet<>());
+        DirectorySyncOptions options = new DirectorySyncOptions.DirectorySyncOptionsBuilder()
+                .prefix("sync/").concurrency(3)
+                .listener(new DirectorySyncListener() {
+                    @Override
+                    public void onFileFailed(String key, File file, Exception e) {
+                        failedKeys.add(key);
+                    }
+                })
+                .build();
+        try {
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            byte[] small = new byte[1024];
+            new Random().nextBytes(small);
+            // uploaded in 2 parts, its ETag isn't the MD5 of the content
+            byte[] large = new byte[6 * 1024 * 1024];
+            new Random().nextBytes(large);
+            Files.createDirectories(new File(uploadDirectory, "sub/deep").toPath());
+            Files.write(new File(uploadDirectory, "a.txt").toPath(), small);
+            Files.write(new File(uploadDirectory, "sub/b.txt").toPath(), "b".getBytes(StandardCharsets.UTF_8));
+            Files.write(new File(uploadDirectory, "sub/deep/c.data").toPath(), large);
+            // an object out of the prefix isn't touched
+            candyS3.putObject(bucket, "other/a.txt", new PutObjectOptions.PutObjectOptionsBuilder().build());
+
+            DirectorySyncResult result = candyS3.uploadDirectory(bucket, uploadDirectory.getPath(), options);
+            Assert.assertTrue(result.toString(), result.isSuccessful());
+            Assert.assertEquals(3, result.getTransferredCount());
+            Assert.assertEquals(0, result.getSkippedCount());
+            Assert.assertEquals(small.length + 1 + large.length, result.getTransferredBytes());
+            Assert.assertTrue(candyS3.getObjectMetadata(bucket, "sync/sub/deep/c.data", new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).geteTag().endsWith("-2\""));
+
+            // nothing changed
+            result = candyS3.uploadDirectory(bucket, uploadDirectory.getPath(), options);
+            Assert.assertEquals(0, result.getTransferredCount());
+            Assert.assertEquals(3, result.getSkippedCount());
+
+            // files of the same size but other content, and a new file
+            small[0]++;
+            large[large.length - 1]++;
+            Files.write(new File(uploadDirectory, "a.txt").toPath(), small);
+            Files.write(new File(uploadDirectory, "sub/deep/c.data").toPath(), large);
+            Files.write(new File(uploadDirectory, "sub/d.txt").toPath(), "d".getBytes(StandardCharsets.UTF_8));
+            result = candyS3.uploadDirectory(bucket, uploadDirectory.getPath(), options);
+            Assert.assertEquals(3, result.getTransferredCount());
+            Assert.assertEquals(1, result.getSkippedCount());
+
+            result = candyS3.downloadDirectory(bucket, downloadDirectory.getPath(), options);
+            Assert.assertTrue(result.toString(), result.isSuccessful());
+            Assert.assertEquals(4, result.getTransferredCount());
+            Assert.assertArrayEquals(small, Files.readAllBytes(new File(downloadDirectory, "a.txt").toPath()));
+            Assert.assertArrayEquals(large, Files.readAllBytes(new File(downloadDirectory, "sub/deep/c.data").toPath()));
+            Assert.assertEquals("d", new String(Files.readAllBytes(new File(downloadDirectory, "sub/d.txt").toPath()), StandardCharsets.UTF_8));
+            Assert.assertFalse(new File(downloadDirectory, "other").exists());
+
+            // the multipart object is compared by the ETag computed with its part size
+            result = candyS3.downloadDirectory(bucket, downloadDirectory.getPath(), options);
+            Assert.assertEquals(0, result.getTransferredCount());
+            Assert.assertEquals(4, result.getSkippedCount());
+
+            // local changes are overwritten
+            Files.write(new File(downloadDirectory, "a.txt").toPath(), new byte[small.length]);
+            Files.write(new File(downloadDirectory, "sub/deep/c.data").toPath(), new byte[large.length]);
+            result = candyS3.downloadDirectory(bucket, downloadDirectory.getPath(), options);
+            Assert.assertEquals(2, result.getTransferredCount());
+            Assert.assertArrayEquals(small, Files.readAllBytes(new File(downloadDirectory, "a.txt").toPath()));
+            Assert.assertArrayEquals(large, Files.readAllBytes(new File(downloadDirectory, "sub/deep/c.data").toPath()));
+            Assert.assertTrue(failedKeys.isEmpty());
+
+            try {
+                candyS3.uploadDirectory(bucket, new File(uploadDirectory, "a.txt").getPath(), options);
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            deleteDirectory(uploadDirectory);
+            deleteDirectory(downloadDirectory);
+            candyS3.deleteObjectsBulk(bucket, candyS3.listObjectsIterable(bucket, new ListObjectOptions()).stream()
+                            .map(s3Object -> new DeleteObjectsBatchOptions.DeleteObjectsBatchItem(s3Object.getKey())),
+                    new DeleteObjectsBulkOptions.DeleteObjectsBulkOptionsBuilder().build());
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    void compositeETagTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
+        CandyS3 candyS3 = init(provider);
+        String bucket = genTestBucketName("compositeETagTest");
+        String objectKey = "compositeETagTest.data";
+        String singlePartObjectKey = "compositeETagSinglePart.data";
+        File file = new File(tempDirectory, "tempCompositeETag.data");
+        File emptyFile = new File(tempDirectory, "tempCompositeETagEmpty.data");
+        long partSize = 5 * 1024 * 1024;
+        // 3 parts, the last part is smaller than the part size
+        byte[] bytes = new byte[12 * 1024 * 1024 + 7];
+        new Random().nextBytes(bytes);
+        try {
+            Files.write(file.toPath(), bytes);
+            Files.write(emptyFile.toPath(), new byte[0]);
+
+            // the MD5 of the MD5s of the parts
+            ByteArrayOutputStream partDigests = new ByteArrayOutputStream();
+            for (int start = 0; start < bytes.length; start += partSize) {
+                partDigests.write(Base64.getDecoder().decode(BinaryUtils.md5(bytes, start, (int) Math.min(partSize, bytes.length - start))));
+            }
+            String expected = BinaryUtils.toHex(Base64.getDecoder().decode(BinaryUtils.md5(partDigests.toByteArray()))) + "-3";
+            Assert.assertEquals(expected, BinaryUtils.compositeMd5ETag(file, partSize));
+            // the calling thread hashes all parts if the executor doesn't run the tasks
+            Assert.assertEquals(expected, BinaryUtils.compositeMd5ETag(file, partSize, command -> {
+                throw new java.util.concurrent.RejectedExecutionException();
+            }));
+            Assert.assertEquals(expected, BinaryUtils.compositeMd5ETag(file, partSize, command -> {
+            }));
+            Assert.assertEquals(BinaryUtils.toHex(Base64.getDecoder().decode(BinaryUtils.md5(
+                    Base64.getDecoder().decode(BinaryUtils.md5(new byte[0]))))) + "-1", BinaryUtils.compositeMd5ETag(emptyFile, partSize));
+            try {
+                BinaryUtils.compositeMd5ETag(file, 1024);
+                Assert.fail();
+            } catch (IllegalArgumentException ignored) {
+            }
+
+            candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+            String eTag = candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                    .build());
+            Assert.assertEquals("\"" + expected + "\"", eTag);
+
+            // the part size is found from the first part
+            S3Object s3Object = candyS3.getObjectMetadata(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder().build());
+            Assert.assertEquals(partSize, (long) candyS3.inferObjectPartSize(bucket, s3Object));
+            S3Object listed = candyS3.listObjects(bucket, new ListObjectOptions().prefix(objectKey)).getResults().get(0);
+            Assert.assertEquals(partSize, (long) candyS3.inferObjectPartSize(bucket, listed));
+
+            candyS3.putObject(bucket, singlePartObjectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                    .configureUploadData().withData(bytes).endConfigureDataContent()
+                    .build());
+            Assert.assertNull(candyS3.inferObjectPartSize(bucket,
+                    candyS3.getObjectMetadata(bucket, singlePartObjectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder().build())));
+            Assert.assertEquals(StringUtils.strip(candyS3.getObjectMetadata(bucket, singlePartObjectKey,
+                    new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).geteTag(), "\""), BinaryUtils.md5Hex(file));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(emptyFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(singlePartObjectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    private static void deleteDirectory(File directory) throws IOException {
+        if (!directory.exists()) {
+            return;
+        }
+        try (Stream<java.nio.file.Path> paths = Files.walk(directory.toPath())) {
+            for (java.nio.file.Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
     void copyPartConditionalTest(S3Provider provider) throws IOException, NoSuchAlgorithmException {
         CandyS3 candyS3 = init(provider);
         String bucket = genTestBucketName("copyPartConditionalTest");
@@ -3871,7 +5325,7 @@ class CandyS3Test {
             candyS3.completeMultipartUpload(bucket, objectKey, uploadId, parts, new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder()
                     .build());
 
-            String outputFile = "./temp/output.txt";
+            String outputFile = tempPath("output.txt");
             candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
                     .configureDataOutput().toFile(outputFile, true).endConfigureDataOutput()
                     .build());
@@ -3963,7 +5417,7 @@ class CandyS3Test {
             candyS3.completeMultipartUpload(bucket, objectKey, uploadId, parts, new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder()
                     .build());
 
-            String outputFile = "./temp/output.txt";
+            String outputFile = tempPath("output.txt");
             candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
                     .configureDataOutput().toFile(outputFile, true).endConfigureDataOutput()
                     .build());
@@ -4067,7 +5521,7 @@ class CandyS3Test {
                     .build());
 
             {
-                String downloadToFile = "./temp/downloadToFile.data";
+                String downloadToFile = tempPath("downloadToFile.data");
                 // Download object and write to local file.
                 S3Object s3Object = candyS3.downloadObject(bucket, objectKey,
                         new DownloadObjectOptions.DownloadObjectOptionsBuilder()
@@ -4121,7 +5575,7 @@ class CandyS3Test {
                     .build());
 
             {
-                String downloadRangeToFile1 = "./temp/downloadRangeToFile1.data";
+                String downloadRangeToFile1 = tempPath("downloadRangeToFile1.data");
                 // Download object range and write to local file.
                 S3Object s3ObjectRange = candyS3.downloadObject(bucket, objectKey,
                         new DownloadObjectOptions.DownloadObjectOptionsBuilder()
@@ -4135,7 +5589,7 @@ class CandyS3Test {
                 Assert.assertArrayEquals(Arrays.copyOfRange(content.getBytes(StandardCharsets.UTF_8), 2, 6), downloadRangeToFileBytes1);
             }
             {
-                String downloadRangeToFile2 = "./temp/downloadRangeToFile2.data";
+                String downloadRangeToFile2 = tempPath("downloadRangeToFile2.data");
                 // Download object range and write to local file.
                 S3Object s3ObjectRange = candyS3.downloadObject(bucket, objectKey,
                         new DownloadObjectOptions.DownloadObjectOptionsBuilder()
@@ -4211,7 +5665,7 @@ class CandyS3Test {
                     .configureUploadData().withData(content.getBytes(StandardCharsets.UTF_8)).endConfigureDataContent()
                     .build());
 
-            String downloadToFileExists = "./temp/downloadToFileExists.data";
+            String downloadToFileExists = tempPath("downloadToFileExists.data");
 
             {
                 File file = new File(downloadToFileExists);
@@ -4444,7 +5898,7 @@ class CandyS3Test {
                     new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build());
 
             {
-                String downloadRangeToFile1 = "./temp/downloadObjectPartTest1.data";
+                String downloadRangeToFile1 = tempPath("downloadObjectPartTest1.data");
                 // Download object part and write to local file.
                 S3Object s3ObjectPart = candyS3.downloadObject(bucket, objectKey,
                         new DownloadObjectOptions.DownloadObjectOptionsBuilder()
@@ -6122,7 +7576,7 @@ class CandyS3Test {
     public static void mkTempFiles() {
         Logger.getLogger(OkHttpClient.class.getName()).setLevel(Level.FINE);
 
-        File tempDir = new File("./temp/");
+        File tempDir = tempDirectory;
         if (!tempDir.exists()) {
             tempDir.mkdirs();
         }
@@ -6130,7 +7584,7 @@ class CandyS3Test {
 
     @AfterClass
     public static void cleanUpTempFiles() throws IOException {
-        File tempDir = new File("./temp/");
+        File tempDir = tempDirectory;
         if (tempDir.exists() && tempDir.isDirectory()) {
             for (File f : tempDir.listFiles()) {
                 f.delete();
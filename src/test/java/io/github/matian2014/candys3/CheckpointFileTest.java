@@ -0,0 +1,62 @@
+package io.github.matian2014.candys3;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests {@link CheckpointFile} with files torn by a crash, they don't need a server.
+ */
+public class CheckpointFileTest {
+
+    private static final String MAGIC = "checkpoint-test-v1";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void appendAfterTornLineTest() throws IOException {
+        File file = temporaryFolder.newFile("torn.checkpoint");
+        CheckpointFile checkpointFile = CheckpointFile.create(file, MAGIC, Collections.singletonMap("name", "value 1"));
+        checkpointFile.append("1 \"a\"");
+        checkpointFile.append("2 \"b\"");
+        checkpointFile.close();
+        // the process died while the record 3 is appended
+        Files.write(file.toPath(), "record=3+%22a".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        checkpointFile = CheckpointFile.load(file, MAGIC);
+        Assert.assertNotNull(checkpointFile);
+        Assert.assertEquals("value 1", checkpointFile.getField("name"));
+        Assert.assertEquals(Arrays.asList("1 \"a\"", "2 \"b\""), checkpointFile.getRecords());
+
+        // the torn line is cut off, so the next record isn't appended to it
+        checkpointFile.append("4 \"d\"");
+        checkpointFile.append("3 \"c\"");
+        checkpointFile.close();
+        checkpointFile = CheckpointFile.load(file, MAGIC);
+        Assert.assertNotNull(checkpointFile);
+        Assert.assertEquals(Arrays.asList("1 \"a\"", "2 \"b\"", "4 \"d\"", "3 \"c\""), checkpointFile.getRecords());
+    }
+
+    @Test
+    public void loadTest() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "missing.checkpoint");
+        Assert.assertNull(CheckpointFile.load(file, MAGIC));
+
+        CheckpointFile.create(file, MAGIC, Collections.singletonMap("name", "value")).close();
+        Assert.assertNull(CheckpointFile.load(file, "checkpoint-test-v2"));
+
+        // the magic line is torn
+        Files.write(file.toPath(), MAGIC.getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(CheckpointFile.load(file, MAGIC));
+    }
+}
@@ -120,6 +120,32 @@ public class CloudflareR2Test {
         new CandyS3Test().listObjectsCommonPrefixTest(S3Provider.CLOUDFLARE_R2);
     }
 
+    @Test
+    public void cloudflareR2ListIterableTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listIterableTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2ListObjectsInParallelTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsInParallelTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2DeleteObjectsBulkTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBulkTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2PurgeBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeBucketTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Ignore("GetBucketVersioning and PutBucketVersioning not implemented")
+    @Test
+    public void cloudflareR2PurgeVersionedBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeVersionedBucketTest(S3Provider.CLOUDFLARE_R2);
+    }
+
     @Ignore("ListObjectVersions not implemented")
     @Test
     public void cloudflareR2ListObjectVersionsWithoutVersioningTest() throws IOException, NoSuchAlgorithmException {
@@ -144,6 +170,31 @@ public class CloudflareR2Test {
         new CandyS3Test().getObjectVersionMetadataTest(S3Provider.CLOUDFLARE_R2);
     }
 
+    @Test
+    public void cloudflareR2ObjectMetadataCacheTest() throws Exception {
+        new CandyS3Test().objectMetadataCacheTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2SharedTransportTest() throws Exception {
+        new CandyS3Test().sharedTransportTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2RetryPolicyTest() throws Exception {
+        new CandyS3Test().retryPolicyTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2RateLimiterTest() throws Exception {
+        new CandyS3Test().rateLimiterTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2MetricsListenerTest() throws Exception {
+        new CandyS3Test().metricsListenerTest(S3Provider.CLOUDFLARE_R2);
+    }
+
     @Ignore("GetBucketVersioning and PutBucketVersioning not implemented")
     @Test
     public void cloudflareR2DeleteVersioningObjectTest() throws IOException, NoSuchAlgorithmException {
@@ -211,6 +262,51 @@ public class CloudflareR2Test {
         new CandyS3Test().multipartUploadDownloadTest(S3Provider.CLOUDFLARE_R2);
     }
 
+    @Test
+    public void cloudflareR2ParallelMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelMultipartUploadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2ResumableMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableMultipartUploadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2ParallelRangeDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelRangeDownloadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2ResumableDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableDownloadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2PartSizePolicyTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().partSizePolicyTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2StreamingUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().streamingUploadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2UnsignedPayloadUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().unsignedPayloadUploadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2FileRegionUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().fileRegionUploadTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2AsyncClientTest() throws Exception {
+        new CandyS3Test().asyncClientTest(S3Provider.CLOUDFLARE_R2);
+    }
+
     @Test
     public void cloudflareR2MultipartUploadToExistsObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().multipartUploadToExistsObjectTest(S3Provider.CLOUDFLARE_R2);
@@ -300,6 +396,21 @@ public class CloudflareR2Test {
         new CandyS3Test().copyPartTest(S3Provider.CLOUDFLARE_R2);
     }
 
+    @Test
+    public void cloudflareR2ParallelCopyObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelCopyObjectTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2DirectorySyncTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().directorySyncTest(S3Provider.CLOUDFLARE_R2);
+    }
+
+    @Test
+    public void cloudflareR2CompositeETagTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().compositeETagTest(S3Provider.CLOUDFLARE_R2);
+    }
+
     @Ignore("CopyPart conditional operations not implemented")
     @Test
     public void cloudflareR2CopyPartConditionalTest() throws IOException, NoSuchAlgorithmException {
@@ -0,0 +1,155 @@
+package io.github.matian2014.candys3;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests {@link ListObjectsResponseParser} with canned response bodies.
+ */
+public class ListObjectsResponseParserTest {
+
+    private static InputStream xml(String body) {
+        return new ByteArrayInputStream(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void emptyResultTest() throws IOException {
+        ListPaginationResult<S3Object> result = ListObjectsResponseParser.parseListObjects(xml(
+                "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><Prefix>none/</Prefix><KeyCount>0</KeyCount><MaxKeys>1000</MaxKeys>"
+                        + "<IsTruncated>false</IsTruncated>"
+                        + "</ListBucketResult>"));
+        Assert.assertTrue(result.getResults().isEmpty());
+        Assert.assertTrue(result.getCommonPrefixes().isEmpty());
+        Assert.assertEquals("", result.getNextPaginationMarker());
+    }
+
+    @Test
+    public void contentsAndCommonPrefixesTest() throws IOException {
+        ListPaginationResult<S3Object> result = ListObjectsResponseParser.parseListObjects(xml(
+                "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><Prefix>photos/</Prefix><KeyCount>3</KeyCount><MaxKeys>1000</MaxKeys>"
+                        + "<Delimiter>/</Delimiter><IsTruncated>false</IsTruncated>"
+                        + "<Contents><Key>photos/a.jpg</Key><LastModified>2009-10-12T17:50:30.000Z</LastModified>"
+                        + "<ETag>&quot;fba9dede5f27731c9771645a39863328&quot;</ETag><Size>434234</Size>"
+                        + "<StorageClass>STANDARD</StorageClass>"
+                        + "<Owner><ID>owner-id</ID><DisplayName>owner</DisplayName></Owner>"
+                        + "<ChecksumAlgorithm>CRC32</ChecksumAlgorithm></Contents>"
+                        + "<CommonPrefixes><Prefix>photos/2006/</Prefix></CommonPrefixes>"
+                        + "<CommonPrefixes><Prefix>photos/2007/</Prefix></CommonPrefixes>"
+                        + "</ListBucketResult>"));
+        Assert.assertEquals(1, result.getResults().size());
+        S3Object s3Object = result.getResults().get(0);
+        Assert.assertEquals("photos/a.jpg", s3Object.getKey());
+        Assert.assertEquals(1255369830000L, s3Object.getLastModified().getTime());
+        Assert.assertEquals("\"fba9dede5f27731c9771645a39863328\"", s3Object.geteTag());
+        Assert.assertEquals(434234L, s3Object.getSize());
+        Assert.assertEquals("STANDARD", s3Object.getStorageClass());
+        Assert.assertEquals("owner-id", s3Object.getOwner().getId());
+        Assert.assertEquals(2, result.getCommonPrefixes().size());
+        Assert.assertEquals("photos/2006/", result.getCommonPrefixes().get(0).getPrefix());
+        Assert.assertEquals("photos/2007/", result.getCommonPrefixes().get(1).getPrefix());
+        Assert.assertEquals("", result.getNextPaginationMarker());
+    }
+
+    @Test
+    public void urlEncodingTypeTest() throws IOException {
+        ListPaginationResult<S3Object> result = ListObjectsResponseParser.parseListObjects(xml(
+                "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><Prefix>dir%20a%2F</Prefix><Delimiter>%2F</Delimiter>"
+                        + "<Contents><Key>dir%20a%2Fb%2Bc%E4%B8%AD.txt</Key><Size>1</Size></Contents>"
+                        + "<CommonPrefixes><Prefix>dir%20a%2Fsub%26dir%2F</Prefix></CommonPrefixes>"
+                        + "<EncodingType>url</EncodingType><IsTruncated>false</IsTruncated>"
+                        + "</ListBucketResult>"));
+        Assert.assertEquals("dir a/b+c中.txt", result.getResults().get(0).getKey());
+        Assert.assertEquals("dir a/sub&dir/", result.getCommonPrefixes().get(0).getPrefix());
+
+        ListPaginationResult<S3ObjectVersion> versions = ListObjectsResponseParser.parseListObjectVersions(xml(
+                "<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><EncodingType>url</EncodingType><IsTruncated>true</IsTruncated>"
+                        + "<NextKeyMarker>a%20b</NextKeyMarker><NextVersionIdMarker>v1</NextVersionIdMarker>"
+                        + "<Version><Key>a%20b</Key><VersionId>v1</VersionId><IsLatest>true</IsLatest><Size>1</Size></Version>"
+                        + "<DeleteMarker><Key>c%25d</Key><VersionId>v2</VersionId><IsLatest>true</IsLatest></DeleteMarker>"
+                        + "</ListVersionsResult>"));
+        Assert.assertEquals("a b", versions.getResults().get(0).getKey());
+        Assert.assertEquals("c%d", versions.getDeleteMarkers().get(0).getKey());
+        Assert.assertEquals("a b", versions.getNextPaginationMarker());
+        Assert.assertEquals("v1", versions.getNextPaginationMarker2());
+    }
+
+    @Test
+    public void continuationTokenTest() throws IOException {
+        ListPaginationResult<S3Object> result = ListObjectsResponseParser.parseListObjects(xml(
+                "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><KeyCount>1</KeyCount><MaxKeys>1</MaxKeys>"
+                        + "<ContinuationToken>1ueGcxLPRx1Tr/XYExHnhbYLgveDs2J/wm36Hy4vbOwM=</ContinuationToken>"
+                        + "<IsTruncated>true</IsTruncated>"
+                        + "<NextContinuationToken>1ueGcxLPRx1Tr/XYExHnhbYLgveDs2J/wm36Hy4vbOwN=</NextContinuationToken>"
+                        + "<Contents><Key>a</Key><Size>1</Size></Contents>"
+                        + "</ListBucketResult>"));
+        Assert.assertEquals("1ueGcxLPRx1Tr/XYExHnhbYLgveDs2J/wm36Hy4vbOwN=", result.getNextPaginationMarker());
+
+        // the last page
+        result = ListObjectsResponseParser.parseListObjects(xml(
+                "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><KeyCount>1</KeyCount><MaxKeys>1</MaxKeys>"
+                        + "<ContinuationToken>1ueGcxLPRx1Tr/XYExHnhbYLgveDs2J/wm36Hy4vbOwN=</ContinuationToken>"
+                        + "<IsTruncated>false</IsTruncated>"
+                        + "<Contents><Key>b</Key><Size>1</Size></Contents>"
+                        + "</ListBucketResult>"));
+        Assert.assertEquals("", result.getNextPaginationMarker());
+
+        // a truncated page can't be continued without the token
+        try {
+            ListObjectsResponseParser.parseListObjects(xml(
+                    "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                            + "<IsTruncated>true</IsTruncated><Contents><Key>a</Key><Size>1</Size></Contents>"
+                            + "</ListBucketResult>"));
+            Assert.fail();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    public void truncatedVersionsTest() throws IOException {
+        // with the next markers
+        ListPaginationResult<S3ObjectVersion> result = ListObjectsResponseParser.parseListObjectVersions(xml(
+                "<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><MaxKeys>2</MaxKeys><IsTruncated>true</IsTruncated>"
+                        + "<NextKeyMarker>b</NextKeyMarker><NextVersionIdMarker>v2</NextVersionIdMarker>"
+                        + "<Version><Key>a</Key><VersionId>v1</VersionId><IsLatest>true</IsLatest>"
+                        + "<LastModified>2009-10-12T17:50:30.000Z</LastModified><Size>1</Size></Version>"
+                        + "<Version><Key>b</Key><VersionId>v2</VersionId><IsLatest>false</IsLatest><Size>2</Size></Version>"
+                        + "</ListVersionsResult>"));
+        Assert.assertEquals(2, result.getResults().size());
+        Assert.assertTrue(result.getResults().get(0).getIsLatest());
+        Assert.assertEquals("b", result.getNextPaginationMarker());
+        Assert.assertEquals("v2", result.getNextPaginationMarker2());
+
+        // without the next markers, the next page starts after the last entry
+        result = ListObjectsResponseParser.parseListObjectVersions(xml(
+                "<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><MaxKeys>2</MaxKeys><IsTruncated>true</IsTruncated>"
+                        + "<Version><Key>a</Key><VersionId>v1</VersionId><Size>1</Size></Version>"
+                        + "<DeleteMarker><Key>b</Key><VersionId>v3</VersionId></DeleteMarker>"
+                        + "</ListVersionsResult>"));
+        Assert.assertEquals(1, result.getDeleteMarkers().size());
+        Assert.assertTrue(result.getDeleteMarkers().get(0).isDeleteMarker());
+        Assert.assertEquals("b", result.getNextPaginationMarker());
+        Assert.assertEquals("v3", result.getNextPaginationMarker2());
+
+        // the last page
+        result = ListObjectsResponseParser.parseListObjectVersions(xml(
+                "<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                        + "<Name>bucket</Name><IsTruncated>false</IsTruncated>"
+                        + "<Version><Key>c</Key><VersionId>v4</VersionId><Size>1</Size></Version>"
+                        + "</ListVersionsResult>"));
+        Assert.assertEquals("", result.getNextPaginationMarker());
+        Assert.assertEquals("", result.getNextPaginationMarker2());
+    }
+}
@@ -0,0 +1,2051 @@
+package io.github.matian2014.candys3;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * An in-memory S3 compatible server for the tests and benchmarks, which run without cloud credentials.
+ * It's reachable with {@link S3Provider#CUSTOM} and path style addressing, see {@link #configure(CandyS3)}.
+ * <p>
+ * It supports buckets, objects with ranges and conditions, copies, multipart uploads, versioning, batch deletes,
+ * and listings with prefixes, delimiters and pagination. The signatures are not checked, but the payload hashes are,
+ * including the chunks of streaming uploads. Other subresources, like tagging or object lock, are answered with 501 NotImplemented.
+ * <p>
+ * {@link Fault}s add latency, throttling, errors and connection resets to the requests they match,
+ * so the retries, the rate limits and the metrics of the client can be tested deterministically.
+ */
+public final class LocalS3Server implements AutoCloseable {
+
+    public static final String ACCESS_KEY = "local-access-key";
+    public static final String SECRET_KEY = "local-secret-key";
+
+    private static final int MAX_RECEIVED_REQUESTS = 10000;
+    private static final String OWNER_ID = "local";
+    private static final String NULL_VERSION_ID = "null";
+    private static final DateTimeFormatter ISO_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US).withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter HTTP_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private final String region;
+    private final long minPartSize;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // guarded by this
+    private final TreeMap<String, LocalBucket> buckets = new TreeMap<>();
+    private final Map<String, LocalUpload> uploads = new HashMap<>();
+
+    private final List<Fault> faults = new CopyOnWriteArrayList<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final ConcurrentHashMap<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedDeque<ReceivedRequest> receivedRequests = new ConcurrentLinkedDeque<>();
+
+    private LocalS3Server(String host, int port, String region, long minPartSize) throws IOException {
+        this.region = region;
+        this.minPartSize = minPartSize;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-s3-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    /**
+     * @return the host and port of the server, to use as the custom provider domain.
+     */
+    public String getDomain() {
+        return server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Points the client to this server, with path style addressing over plain HTTP,
+     * and sets the region and the keys if the client has none.
+     * @param candyS3 a client of {@link S3Provider#CUSTOM}.
+     */
+    public void configure(CandyS3 candyS3) {
+        if (candyS3.getProvider() != S3Provider.CUSTOM) {
+            throw new IllegalArgumentException("The local server is reachable only with S3Provider.CUSTOM.");
+        }
+        candyS3.setCustomProviderDomain(getDomain());
+        candyS3.setCustomProviderUsePathStyle(true);
+        candyS3.setUseSSL(false);
+        if (candyS3.getRegion() == null) {
+            candyS3.setRegion(region);
+        }
+        if (candyS3.getAccessKey() == null) {
+            candyS3.setAccessKey(ACCESS_KEY);
+        }
+        if (candyS3.getSecretKey() == null) {
+            candyS3.setSecretKey(SECRET_KEY);
+        }
+    }
+
+    /**
+     * Adds a fault, the faults are checked in order of addition for each request.
+     * @param fault the fault to add.
+     * @return the fault, to read its hits or remove it later.
+     */
+    public Fault addFault(Fault fault) {
+        faults.add(fault);
+        return fault;
+    }
+
+    public void removeFault(Fault fault) {
+        faults.remove(fault);
+    }
+
+    public void clearFaults() {
+        faults.clear();
+    }
+
+    /**
+     * @return the number of requests received, including the requests failed by a fault.
+     */
+    public long getRequestCount() {
+        long count = 0;
+        for (LongAdder adder : requestCounts.values()) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @param method the HTTP method, like 'PUT'.
+     * @return the number of requests received with the method.
+     */
+    public long getRequestCount(String method) {
+        LongAdder adder = requestCounts.get(method);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * @return the latest requests received since the statistics are reset, at most {@value #MAX_RECEIVED_REQUESTS}, in order of arrival.
+     */
+    public List<ReceivedRequest> getReceivedRequests() {
+        return new ArrayList<>(receivedRequests);
+    }
+
+    /**
+     * @param method the HTTP method, like 'PUT'.
+     * @param keyPrefix the prefix of the object key.
+     * @return the latest requests received with the method for the keys of the prefix, in order of arrival.
+     */
+    public List<ReceivedRequest> getReceivedRequests(String method, String keyPrefix) {
+        List<ReceivedRequest> requests = new ArrayList<>();
+        for (ReceivedRequest request : receivedRequests) {
+            if (request.method.equals(method) && request.key != null && request.key.startsWith(keyPrefix)) {
+                requests.add(request);
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * @return the maximum number of requests in flight at the same time.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    /**
+     * Resets the request counts and the maximum number of requests in flight.
+     */
+    public void resetStatistics() {
+        requestCounts.clear();
+        receivedRequests.clear();
+        maxInFlight.set(inFlight.get());
+    }
+
+    /**
+     * Removes all buckets, objects and multipart uploads.
+     */
+    public synchronized void clear() {
+        buckets.clear();
+        uploads.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "LocalS3Server{" +
+                "domain='" + getDomain() + '\'' +
+                ", region='" + region + '\'' +
+                ", requestCount=" + getRequestCount() +
+                ", maxInFlight=" + getMaxInFlight() +
+                '}';
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        requestCounts.computeIfAbsent(exchange.getRequestMethod(), method -> new LongAdder()).increment();
+        try {
+            LocalRequest request = new LocalRequest(exchange);
+            receivedRequests.add(new ReceivedRequest(request.method, request.bucket, request.key, request.query, request.headers));
+            while (receivedRequests.size() > MAX_RECEIVED_REQUESTS) {
+                receivedRequests.pollFirst();
+            }
+            for (Fault fault : faults) {
+                if (!fault.matches(request, current) || !fault.consume()) {
+                    continue;
+                }
+                if (fault.latencyMillis > 0) {
+                    Thread.sleep(fault.latencyMillis);
+                }
+                if (fault.resetConnection) {
+                    // closing the exchange before the response headers closes the connection
+                    exchange.close();
+                    return;
+                }
+                if (fault.statusCode > 0) {
+                    sendError(request, fault.statusCode, fault.errorCode, fault.errorMessage);
+                    return;
+                }
+            }
+            dispatch(request);
+        } catch (S3Error e) {
+            sendError(new LocalRequest(exchange, e), e.statusCode, e.code, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | IOException e) {
+            // the connection is closed if the response is sent already
+            if (exchange.getResponseCode() == -1) {
+                sendError(new LocalRequest(exchange, e), 500, "InternalError", String.valueOf(e));
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void dispatch(LocalRequest request) throws IOException {
+        checkPresignedUrlExpiry(request);
+        if (request.bucket == null) {
+            if ("GET".equals(request.method)) {
+                listBuckets(request);
+                return;
+            }
+            throw new S3Error(405, "MethodNotAllowed", "The specified method is not allowed against this resource.");
+        }
+        for (String subresource : new String[]{"policy", "policyStatus", "tagging", "encryption", "object-lock", "retention",
+                "legal-hold", "publicAccessBlock", "accelerate", "acl", "cors", "lifecycle", "website", "torrent"}) {
+            if (request.query.containsKey(subresource)) {
+                throw new S3Error(501, "NotImplemented", "The local server does not implement the '" + subresource + "' subresource.");
+            }
+        }
+        if (request.key == null) {
+            dispatchBucket(request);
+        } else {
+            dispatchObject(request);
+        }
+    }
+
+    private static void checkPresignedUrlExpiry(LocalRequest request) {
+        String date = request.query.get("X-Amz-Date");
+        String expires = request.query.get("X-Amz-Expires");
+        if (date == null || expires == null) {
+            return;
+        }
+        Instant signedAt;
+        try {
+            signedAt = ZonedDateTime.parse(date, DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC)).toInstant();
+        } catch (RuntimeException e) {
+            throw new S3Error(400, "AuthorizationQueryParametersError", "X-Amz-Date must be in the ISO8601 Long Format.");
+        }
+        if (Instant.now().isAfter(signedAt.plusSeconds(Long.parseLong(expires)))) {
+            throw new S3Error(403, "AccessDenied", "Request has expired");
+        }
+    }
+
+    private void dispatchBucket(LocalRequest request) throws IOException {
+        switch (request.method) {
+            case "PUT":
+                if (request.query.containsKey("versioning")) {
+                    putBucketVersioning(request);
+                } else {
+                    createBucket(request);
+                }
+                return;
+            case "DELETE":
+                deleteBucket(request);
+                return;
+            case "HEAD":
+                bucket(request.bucket);
+                send(request, 200, null, null);
+                return;
+            case "POST":
+                if (request.query.containsKey("delete")) {
+                    deleteObjects(request);
+                    return;
+                }
+                break;
+            case "GET":
+                if (request.query.containsKey("versioning")) {
+                    getBucketVersioning(request);
+                } else if (request.query.containsKey("location")) {
+                    bucket(request.bucket);
+                    sendXml(request, "<LocationConstraint>" + escape(region) + "</LocationConstraint>");
+                } else if (request.query.containsKey("versions")) {
+                    listObjectVersions(request);
+                } else if (request.query.containsKey("uploads")) {
+                    listMultipartUploads(request);
+                } else {
+                    listObjects(request);
+                }
+                return;
+            default:
+        }
+        throw new S3Error(405, "MethodNotAllowed", "The specified method is not allowed against this resource.");
+    }
+
+    private void dispatchObject(LocalRequest request) throws IOException {
+        switch (request.method) {
+            case "PUT":
+                if (request.query.containsKey("uploadId")) {
+                    uploadPart(request);
+                } else if (request.headers.containsKey("x-amz-copy-source")) {
+                    copyObject(request);
+                } else {
+                    putObject(request);
+                }
+                return;
+            case "POST":
+                if (request.query.containsKey("uploads")) {
+                    createMultipartUpload(request);
+                    return;
+                } else if (request.query.containsKey("uploadId")) {
+                    completeMultipartUpload(request);
+                    return;
+                }
+                break;
+            case "DELETE":
+                if (request.query.containsKey("uploadId")) {
+                    abortMultipartUpload(request);
+                } else {
+                    deleteObject(request);
+                }
+                return;
+            case "GET":
+                if (request.query.containsKey("uploadId")) {
+                    listParts(request);
+                } else {
+                    getObject(request);
+                }
+                return;
+            case "HEAD":
+                getObject(request);
+                return;
+            default:
+        }
+        throw new S3Error(405, "MethodNotAllowed", "The specified method is not allowed against this resource.");
+    }
+
+    // ---- buckets ----
+
+    private void listBuckets(LocalRequest request) throws IOException {
+        String prefix = request.query.getOrDefault("prefix", "");
+        String continuationToken = request.query.get("continuation-token");
+        int maxBuckets = request.intParameter("max-buckets", 10000);
+        StringBuilder xml = new StringBuilder("<ListAllMyBucketsResult><Owner>").append(owner()).append("</Owner><Buckets>");
+        String last = null;
+        boolean truncated = false;
+        int count = 0;
+        synchronized (this) {
+            NavigableMap<String, LocalBucket> candidates = continuationToken == null ? buckets
+                    : buckets.tailMap(decodeToken(continuationToken), false);
+            for (LocalBucket bucket : candidates.values()) {
+                if (!bucket.name.startsWith(prefix)) {
+                    continue;
+                }
+                if (count == maxBuckets) {
+                    truncated = true;
+                    break;
+                }
+                xml.append("<Bucket><Name>").append(escape(bucket.name)).append("</Name><CreationDate>")
+                        .append(ISO_DATE_FORMAT.format(bucket.created)).append("</CreationDate><BucketRegion>")
+                        .append(escape(region)).append("</BucketRegion></Bucket>");
+                last = bucket.name;
+                count++;
+            }
+        }
+        xml.append("</Buckets>");
+        if (truncated) {
+            xml.append("<ContinuationToken>").append(encodeToken(last)).append("</ContinuationToken>");
+        }
+        xml.append("<Prefix>").append(escape(prefix)).append("</Prefix></ListAllMyBucketsResult>");
+        sendXml(request, xml.toString());
+    }
+
+    private synchronized void createBucket(LocalRequest request) throws IOException {
+        if (!request.bucket.matches("[a-z0-9][a-z0-9.-]{1,61}[a-z0-9]")) {
+            throw new S3Error(400, "InvalidBucketName", "The specified bucket is not valid.");
+        }
+        if (buckets.containsKey(request.bucket)) {
+            throw new S3Error(409, "BucketAlreadyOwnedByYou", "Your previous request to create the named bucket succeeded and you already own it.");
+        }
+        LocalBucket bucket = new LocalBucket(request.bucket, now());
+        if (Boolean.parseBoolean(request.header("x-amz-bucket-object-lock-enabled"))) {
+            // object lock requires versioning
+            bucket.versioning = "Enabled";
+        }
+        buckets.put(request.bucket, bucket);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Location", "/" + request.bucket);
+        send(request, 200, headers, null);
+    }
+
+    private synchronized void deleteBucket(LocalRequest request) throws IOException {
+        LocalBucket bucket = bucket(request.bucket);
+        if (!bucket.objects.isEmpty()) {
+            throw new S3Error(409, "BucketNotEmpty", "The bucket you tried to delete is not empty.");
+        }
+        // like S3, the multipart uploads in progress don't keep a bucket from being deleted
+        uploads.values().removeIf(upload -> upload.bucket.equals(request.bucket));
+        buckets.remove(request.bucket);
+        send(request, 204, null, null);
+    }
+
+    private void putBucketVersioning(LocalRequest request) throws IOException {
+        String status = firstText(parseXml(request.body).getDocumentElement(), "Status");
+        if (!"Enabled".equals(status) && !"Suspended".equals(status)) {
+            throw new S3Error(400, "MalformedXML", "The versioning status must be Enabled or Suspended.");
+        }
+        synchronized (this) {
+            bucket(request.bucket).versioning = status;
+        }
+        send(request, 200, null, null);
+    }
+
+    private void getBucketVersioning(LocalRequest request) throws IOException {
+        String status;
+        synchronized (this) {
+            status = bucket(request.bucket).versioning;
+        }
+        sendXml(request, "<VersioningConfiguration xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                + (status == null ? "" : "<Status>" + status + "</Status>") + "</VersioningConfiguration>");
+    }
+
+    // ---- objects ----
+
+    private void putObject(LocalRequest request) throws IOException {
+        byte[] data = request.payload();
+        Map<String, String> metadata = storedHeaders(request.headers);
+        LocalVersion version;
+        synchronized (this) {
+            LocalBucket bucket = bucket(request.bucket);
+            checkWriteConditions(request, bucket.latest(request.key));
+            version = bucket.put(request.key, new LocalVersion(data, md5Etag(data), now(), metadata, null));
+        }
+        Map<String, String> headers = new HashMap<>();
+        headers.put("ETag", version.etag);
+        addVersionHeader(headers, version);
+        send(request, 200, headers, null);
+    }
+
+    private void copyObject(LocalRequest request) throws IOException {
+        LocalVersion copied;
+        synchronized (this) {
+            LocalVersion source = copySource(request);
+            LocalBucket bucket = bucket(request.bucket);
+            checkWriteConditions(request, bucket.latest(request.key));
+            copied = bucket.put(request.key, new LocalVersion(source.data, source.etag, now(), copiedHeaders(request, source.metadata),
+                    source.partSizes));
+        }
+        Map<String, String> headers = new HashMap<>();
+        addVersionHeader(headers, copied);
+        sendXml(request, 200, headers, "<CopyObjectResult><LastModified>" + ISO_DATE_FORMAT.format(copied.lastModified)
+                + "</LastModified><ETag>" + escape(copied.etag) + "</ETag></CopyObjectResult>");
+    }
+
+    private void getObject(LocalRequest request) throws IOException {
+        LocalVersion version;
+        synchronized (this) {
+            LocalBucket bucket = bucket(request.bucket);
+            String versionId = request.query.get("versionId");
+            if (versionId == null) {
+                version = bucket.latest(request.key);
+                if (version == null) {
+                    throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+                }
+                if (version.deleteMarker) {
+                    throw new S3Error(404, "NoSuchKey", "The specified key does not exist.")
+                            .header("x-amz-delete-marker", "true").header("x-amz-version-id", version.versionId);
+                }
+            } else {
+                version = bucket.version(request.key, versionId);
+                if (version == null) {
+                    throw new S3Error(404, "NoSuchVersion", "The specified version does not exist.");
+                }
+                if (version.deleteMarker) {
+                    throw new S3Error(405, "MethodNotAllowed", "The specified method is not allowed against this resource.")
+                            .header("x-amz-delete-marker", "true").header("x-amz-version-id", version.versionId);
+                }
+            }
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>(version.metadata);
+        headers.putIfAbsent("Content-Type", "binary/octet-stream");
+        headers.put("ETag", version.etag);
+        headers.put("Last-Modified", HTTP_DATE_FORMAT.format(version.lastModified));
+        headers.put("Accept-Ranges", "bytes");
+        headers.putIfAbsent("x-amz-storage-class", "STANDARD");
+        if (version.partSizes != null && request.query.containsKey("partNumber")) {
+            headers.put("x-amz-mp-parts-count", String.valueOf(version.partSizes.length));
+        }
+        if (!NULL_VERSION_ID.equals(version.versionId)) {
+            headers.put("x-amz-version-id", version.versionId);
+        }
+        if (checkReadConditions(request, version)) {
+            send(request, 304, headers, null);
+            return;
+        }
+
+        int start = 0;
+        int end = version.data.length - 1;
+        boolean partial = false;
+        if (request.query.containsKey("partNumber")) {
+            int partNumber = request.intParameter("partNumber", 1);
+            long[] partSizes = version.partSizes == null ? new long[]{version.data.length} : version.partSizes;
+            if (partNumber < 1 || partNumber > partSizes.length) {
+                throw new S3Error(416, "InvalidPartNumber", "The requested partnumber is not satisfiable.");
+            }
+            for (int i = 0; i < partNumber - 1; i++) {
+                start += (int) partSizes[i];
+            }
+            end = start + (int) partSizes[partNumber - 1] - 1;
+            partial = version.partSizes != null;
+        } else if (request.header("Range") != null) {
+            int[] range = parseRange(request.header("Range"), version.data.length);
+            if (range != null) {
+                start = range[0];
+                end = range[1];
+                partial = true;
+            }
+        }
+        if (partial) {
+            headers.put("Content-Range", "bytes " + start + "-" + end + "/" + version.data.length);
+        }
+        byte[] body = partial ? copyOfRange(version.data, start, end + 1) : version.data;
+        send(request, partial ? 206 : 200, headers, body);
+    }
+
+    private void deleteObject(LocalRequest request) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        synchronized (this) {
+            LocalBucket bucket = bucket(request.bucket);
+            String versionId = request.query.get("versionId");
+            String ifMatch = request.header("If-Match");
+            if (ifMatch != null) {
+                LocalVersion current = versionId == null ? bucket.latest(request.key) : bucket.version(request.key, versionId);
+                if (!etagMatches(ifMatch, current)) {
+                    throw new S3Error(412, "PreconditionFailed", "At least one of the preconditions you specified did not hold.");
+                }
+            }
+            LocalVersion deleted = bucket.delete(request.key, versionId);
+            if (deleted != null) {
+                if (deleted.deleteMarker) {
+                    headers.put("x-amz-delete-marker", "true");
+                }
+                if (versionId != null || !NULL_VERSION_ID.equals(deleted.versionId)) {
+                    headers.put("x-amz-version-id", deleted.versionId);
+                }
+            }
+        }
+        send(request, 204, headers, null);
+    }
+
+    private void deleteObjects(LocalRequest request) throws IOException {
+        request.checkContentMd5();
+        Element delete = parseXml(request.body).getDocumentElement();
+        boolean quiet = Boolean.parseBoolean(firstText(delete, "Quiet"));
+        List<Element> objects = children(delete, "Object");
+        if (objects.size() > 1000) {
+            throw new S3Error(400, "MalformedXML", "The XML you provided was not well-formed or did not validate against our published schema.");
+        }
+        StringBuilder xml = new StringBuilder("<DeleteResult>");
+        synchronized (this) {
+            LocalBucket bucket = bucket(request.bucket);
+            for (Element object : objects) {
+                String key = firstText(object, "Key");
+                String versionId = firstText(object, "VersionId");
+                String etag = firstText(object, "ETag");
+                LocalVersion current = versionId == null ? bucket.latest(key) : bucket.version(key, versionId);
+                if (etag != null && !etagMatches(etag, current)) {
+                    xml.append("<Error><Key>").append(escape(key)).append("</Key>")
+                            .append(versionId == null ? "" : "<VersionId>" + escape(versionId) + "</VersionId>")
+                            .append("<Code>PreconditionFailed</Code><Message>At least one of the preconditions you specified did not hold.</Message></Error>");
+                    continue;
+                }
+                LocalVersion deleted = bucket.delete(key, versionId);
+                if (quiet) {
+                    continue;
+                }
+                xml.append("<Deleted><Key>").append(escape(key)).append("</Key>");
+                if (versionId != null) {
+                    xml.append("<VersionId>").append(escape(versionId)).append("</VersionId>");
+                }
+                if (deleted != null && deleted.deleteMarker) {
+                    xml.append("<DeleteMarker>true</DeleteMarker><DeleteMarkerVersionId>").append(escape(deleted.versionId))
+                            .append("</DeleteMarkerVersionId>");
+                }
+                xml.append("</Deleted>");
+            }
+        }
+        xml.append("</DeleteResult>");
+        sendXml(request, xml.toString());
+    }
+
+    // ---- listings ----
+
+    private void listObjects(LocalRequest request) throws IOException {
+        String prefix = request.query.getOrDefault("prefix", "");
+        String delimiter = emptyToNull(request.query.get("delimiter"));
+        String startAfter = request.query.getOrDefault("start-after", "");
+        String continuationToken = request.query.get("continuation-token");
+        int maxKeys = request.intParameter("max-keys", 1000);
+        boolean fetchOwner = Boolean.parseBoolean(request.query.get("fetch-owner"));
+
+        // the marker is the last key or common prefix returned by the previous page
+        String marker = continuationToken == null ? startAfter : decodeToken(continuationToken);
+        boolean markerIsPrefix = delimiter != null && marker.endsWith(delimiter) && continuationToken != null;
+
+        StringBuilder contents = new StringBuilder();
+        List<String> commonPrefixes = new ArrayList<>();
+        String last = null;
+        int count = 0;
+        boolean truncated = false;
+        synchronized (this) {
+            LocalBucket bucket = bucket(request.bucket);
+            for (Map.Entry<String, List<LocalVersion>> entry : bucket.objects.tailMap(marker, false).entrySet()) {
+                String key = entry.getKey();
+                LocalVersion latest = entry.getValue().get(entry.getValue().size() - 1);
+                if (!key.startsWith(prefix) || latest.deleteMarker || (markerIsPrefix && key.startsWith(marker))) {
+                    continue;
+                }
+                String commonPrefix = commonPrefix(key, prefix, delimiter);
+                if (commonPrefix != null && commonPrefix.equals(last)) {
+                    continue;
+                }
+                if (count == maxKeys) {
+                    truncated = true;
+                    break;
+                }
+                if (commonPrefix != null) {
+                    commonPrefixes.add(commonPrefix);
+                    last = commonPrefix;
+                } else {
+                    contents.append("<Contents><Key>").append(escape(key)).append("</Key><LastModified>")
+                            .append(ISO_DATE_FORMAT.format(latest.lastModified)).append("</LastModified><ETag>")
+                            .append(escape(latest.etag)).append("</ETag><Size>").append(latest.data.length)
+                            .append("</Size><StorageClass>").append(escape(latest.metadata.getOrDefault("x-amz-storage-class", "STANDARD")))
+                            .append("</StorageClass>");
+                    if (fetchOwner) {
+                        contents.append("<Owner>").append(owner()).append("</Owner>");
+                    }
+                    contents.append("</Contents>");
+                    last = key;
+                }
+                count++;
+            }
+        }
+
+        StringBuilder xml = new StringBuilder("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(escape(request.bucket)).append("</Name>")
+                .append("<Prefix>").append(escape(prefix)).append("</Prefix>")
+                .append("<KeyCount>").append(count).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (delimiter != null) {
+            xml.append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>");
+        }
+        if (continuationToken != null) {
+            xml.append("<ContinuationToken>").append(escape(continuationToken)).append("</ContinuationToken>");
+        }
+        if (!startAfter.isEmpty()) {
+            xml.append("<StartAfter>").append(escape(startAfter)).append("</StartAfter>");
+        }
+        if (truncated) {
+            xml.append("<NextContinuationToken>").append(encodeToken(last)).append("</NextContinuationToken>");
+        }
+        xml.append(contents);
+        appendCommonPrefixes(xml, commonPrefixes);
+        xml.append("</ListBucketResult>");
+        sendXml(request, xml.toString());
+    }
+
+    private void listObjectVersions(LocalRequest request) throws IOException {
+        String prefix = request.query.getOrDefault("prefix", "");
+        String delimiter = emptyToNull(request.query.get("delimiter"));
+        String keyMarker = request.query.getOrDefault("key-marker", "");
+        String versionIdMarker = emptyToNull(request.query.get("version-id-marker"));
+        int maxKeys = request.intParameter("max-keys", 1000);
+
+        StringBuilder entries = new StringBuilder();
+        List<String> commonPrefixes = new ArrayList<>();
+        String lastKey = null;
+        String lastVersionId = null;
+        String lastPrefix = null;
+        int count = 0;
+        boolean truncated = false;
+        synchronized (this) {
+            LocalBucket bucket = bucket(request.bucket);
+            NavigableMap<String, List<LocalVersion>> candidates = keyMarker.isEmpty() ? bucket.objects
+                    : bucket.objects.tailMap(keyMarker, versionIdMarker != null);
+            boolean markerIsPrefix = delimiter != null && keyMarker.endsWith(delimiter);
+            outer:
+            for (Map.Entry<String, List<LocalVersion>> entry : candidates.entrySet()) {
+                String key = entry.getKey();
+                if (!key.startsWith(prefix) || (markerIsPrefix && versionIdMarker == null && key.startsWith(keyMarker))) {
+                    continue;
+                }
+                String commonPrefix = commonPrefix(key, prefix, delimiter);
+                if (commonPrefix != null) {
+                    if (commonPrefix.equals(lastPrefix)) {
+                        continue;
+                    }
+                    if (count == maxKeys) {
+                        truncated = true;
+                        break;
+                    }
+                    commonPrefixes.add(commonPrefix);
+                    lastPrefix = commonPrefix;
+                    lastKey = commonPrefix;
+                    lastVersionId = null;
+                    count++;
+                    continue;
+                }
+                List<LocalVersion> versions = entry.getValue();
+                // newest first, skip the versions up to the marker
+                boolean skipping = versionIdMarker != null && key.equals(keyMarker);
+                for (int i = versions.size() - 1; i >= 0; i--) {
+                    LocalVersion version = versions.get(i);
+                    if (skipping) {
+                        skipping = !version.versionId.equals(versionIdMarker);
+                        continue;
+                    }
+                    if (count == maxKeys) {
+                        truncated = true;
+                        break outer;
+                    }
+                    String element = version.deleteMarker ? "DeleteMarker" : "Version";
+                    entries.append('<').append(element).append("><Key>").append(escape(key)).append("</Key><VersionId>")
+                            .append(escape(version.versionId)).append("</VersionId><IsLatest>").append(i == versions.size() - 1)
+                            .append("</IsLatest><LastModified>").append(ISO_DATE_FORMAT.format(version.lastModified)).append("</LastModified>");
+                    if (!version.deleteMarker) {
+                        entries.append("<ETag>").append(escape(version.etag)).append("</ETag><Size>").append(version.data.length)
+                                .append("</Size><StorageClass>").append(escape(version.metadata.getOrDefault("x-amz-storage-class", "STANDARD")))
+                                .append("</StorageClass>");
+                    }
+                    entries.append("<Owner>").append(owner()).append("</Owner></").append(element).append('>');
+                    lastKey = key;
+                    lastVersionId = version.versionId;
+                    count++;
+                }
+            }
+        }
+
+        StringBuilder xml = new StringBuilder("<ListVersionsResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(escape(request.bucket)).append("</Name>")
+                .append("<Prefix>").append(escape(prefix)).append("</Prefix>")
+                .append("<KeyMarker>").append(escape(keyMarker)).append("</KeyMarker>")
+                .append("<VersionIdMarker>").append(versionIdMarker == null ? "" : escape(versionIdMarker)).append("</VersionIdMarker>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (delimiter != null) {
+            xml.append("<Delimiter>").append(escape(delimiter)).append("</Delimiter>");
+        }
+        if (truncated) {
+            xml.append("<NextKeyMarker>").append(escape(lastKey)).append("</NextKeyMarker>");
+            if (lastVersionId != null) {
+                xml.append("<NextVersionIdMarker>").append(escape(lastVersionId)).append("</NextVersionIdMarker>");
+            }
+        }
+        xml.append(entries);
+        appendCommonPrefixes(xml, commonPrefixes);
+        xml.append("</ListVersionsResult>");
+        sendXml(request, xml.toString());
+    }
+
+    // ---- multipart uploads ----
+
+    private void createMultipartUpload(LocalRequest request) throws IOException {
+        LocalUpload upload;
+        synchronized (this) {
+            bucket(request.bucket);
+            upload = new LocalUpload(UUID.randomUUID().toString().replace("-", ""), request.bucket, request.key,
+                    now(), storedHeaders(request.headers));
+            uploads.put(upload.uploadId, upload);
+        }
+        sendXml(request, "<InitiateMultipartUploadResult><Bucket>" + escape(request.bucket) + "</Bucket><Key>"
+                + escape(request.key) + "</Key><UploadId>" + upload.uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(LocalRequest request) throws IOException {
+        int partNumber = request.intParameter("partNumber", 0);
+        if (partNumber < 1 || partNumber > 10000) {
+            throw new S3Error(400, "InvalidArgument", "Part number must be an integer between 1 and 10000, inclusive.");
+        }
+        boolean copy = request.headers.containsKey("x-amz-copy-source");
+        LocalPart part;
+        synchronized (this) {
+            LocalUpload upload = upload(request);
+            byte[] data;
+            if (copy) {
+                LocalVersion source = copySource(request);
+                data = source.data;
+                String range = request.header("x-amz-copy-source-range");
+                if (range != null) {
+                    int[] bounds = parseRange(range, data.length);
+                    if (bounds == null) {
+                        throw new S3Error(400, "InvalidArgument", "The x-amz-copy-source-range value must be of the form bytes=first-last.");
+                    }
+                    data = copyOfRange(data, bounds[0], bounds[1] + 1);
+                }
+            } else {
+                data = request.payload();
+            }
+            part = new LocalPart(partNumber, data, md5Etag(data), now());
+            upload.parts.put(partNumber, part);
+        }
+        if (copy) {
+            sendXml(request, "<CopyPartResult><LastModified>" + ISO_DATE_FORMAT.format(part.lastModified)
+                    + "</LastModified><ETag>" + escape(part.etag) + "</ETag></CopyPartResult>");
+        } else {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("ETag", part.etag);
+            send(request, 200, headers, null);
+        }
+    }
+
+    private void completeMultipartUpload(LocalRequest request) throws IOException {
+        List<Element> requestedParts = children(parseXml(request.body).getDocumentElement(), "Part");
+        if (requestedParts.isEmpty()) {
+            throw new S3Error(400, "MalformedXML", "The XML you provided was not well-formed or did not validate against our published schema.");
+        }
+        LocalVersion version;
+        synchronized (this) {
+            LocalUpload upload = upload(request);
+            LocalBucket bucket = bucket(request.bucket);
+            checkWriteConditions(request, bucket.latest(request.key));
+            List<LocalPart> parts = new ArrayList<>(requestedParts.size());
+            int lastPartNumber = 0;
+            for (Element requestedPart : requestedParts) {
+                int partNumber = Integer.parseInt(firstText(requestedPart, "PartNumber").trim());
+                if (partNumber <= lastPartNumber) {
+                    throw new S3Error(400, "InvalidPartOrder", "The list of parts was not in ascending order.");
+                }
+                lastPartNumber = partNumber;
+                LocalPart part = upload.parts.get(partNumber);
+                String etag = firstText(requestedPart, "ETag");
+                if (part == null || etag == null || !unquote(etag).equals(unquote(part.etag))) {
+                    throw new S3Error(400, "InvalidPart", "One or more of the specified parts could not be found.");
+                }
+                parts.add(part);
+            }
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            ByteArrayOutputStream md5s = new ByteArrayOutputStream();
+            long[] partSizes = new long[parts.size()];
+            for (int i = 0; i < parts.size(); i++) {
+                LocalPart part = parts.get(i);
+                if (i < parts.size() - 1 && part.data.length < minPartSize) {
+                    throw new S3Error(400, "EntityTooSmall", "Your proposed upload is smaller than the minimum allowed object size.");
+                }
+                data.write(part.data, 0, part.data.length);
+                byte[] md5 = md5(part.data);
+                md5s.write(md5, 0, md5.length);
+                partSizes[i] = part.data.length;
+            }
+            String etag = "\"" + toHex(md5(md5s.toByteArray())) + "-" + parts.size() + "\"";
+            version = bucket.put(request.key, new LocalVersion(data.toByteArray(), etag, now(), upload.metadata, partSizes));
+            uploads.remove(upload.uploadId);
+        }
+        Map<String, String> headers = new HashMap<>();
+        addVersionHeader(headers, version);
+        sendXml(request, 200, headers, "<CompleteMultipartUploadResult><Location>http://" + getDomain() + "/" + escape(request.bucket)
+                + "/" + escape(request.key) + "</Location><Bucket>" + escape(request.bucket) + "</Bucket><Key>" + escape(request.key)
+                + "</Key><ETag>" + escape(version.etag) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void abortMultipartUpload(LocalRequest request) throws IOException {
+        synchronized (this) {
+            uploads.remove(upload(request).uploadId);
+        }
+        send(request, 204, null, null);
+    }
+
+    private void listParts(LocalRequest request) throws IOException {
+        int partNumberMarker = request.intParameter("part-number-marker", 0);
+        int maxParts = request.intParameter("max-parts", 1000);
+        StringBuilder xml = new StringBuilder("<ListPartsResult><Bucket>").append(escape(request.bucket)).append("</Bucket><Key>")
+                .append(escape(request.key)).append("</Key><UploadId>").append(escape(request.query.get("uploadId")))
+                .append("</UploadId><PartNumberMarker>").append(partNumberMarker).append("</PartNumberMarker><MaxParts>")
+                .append(maxParts).append("</MaxParts><Initiator>").append(owner()).append("</Initiator><Owner>").append(owner())
+                .append("</Owner><StorageClass>STANDARD</StorageClass>");
+        StringBuilder parts = new StringBuilder();
+        int last = 0;
+        boolean truncated = false;
+        synchronized (this) {
+            int count = 0;
+            for (LocalPart part : upload(request).parts.tailMap(partNumberMarker, false).values()) {
+                if (count == maxParts) {
+                    truncated = true;
+                    break;
+                }
+                parts.append("<Part><PartNumber>").append(part.partNumber).append("</PartNumber><LastModified>")
+                        .append(ISO_DATE_FORMAT.format(part.lastModified)).append("</LastModified><ETag>").append(escape(part.etag))
+                        .append("</ETag><Size>").append(part.data.length).append("</Size></Part>");
+                last = part.partNumber;
+                count++;
+            }
+        }
+        xml.append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated) {
+            xml.append("<NextPartNumberMarker>").append(last).append("</NextPartNumberMarker>");
+        }
+        xml.append(parts).append("</ListPartsResult>");
+        sendXml(request, xml.toString());
+    }
+
+    private void listMultipartUploads(LocalRequest request) throws IOException {
+        String prefix = request.query.getOrDefault("prefix", "");
+        String keyMarker = request.query.getOrDefault("key-marker", "");
+        String uploadIdMarker = request.query.getOrDefault("upload-id-marker", "");
+        int maxUploads = request.intParameter("max-uploads", 1000);
+        List<LocalUpload> matched = new ArrayList<>();
+        synchronized (this) {
+            bucket(request.bucket);
+            for (LocalUpload upload : uploads.values()) {
+                if (upload.bucket.equals(request.bucket) && upload.key.startsWith(prefix)) {
+                    int compare = upload.key.compareTo(keyMarker);
+                    if (keyMarker.isEmpty() || compare > 0 || (compare == 0 && !uploadIdMarker.isEmpty()
+                            && upload.uploadId.compareTo(uploadIdMarker) > 0)) {
+                        matched.add(upload);
+                    }
+                }
+            }
+        }
+        matched.sort((a, b) -> a.key.equals(b.key) ? a.uploadId.compareTo(b.uploadId) : a.key.compareTo(b.key));
+        boolean truncated = matched.size() > maxUploads;
+        if (truncated) {
+            matched = matched.subList(0, maxUploads);
+        }
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult><Bucket>").append(escape(request.bucket))
+                .append("</Bucket><KeyMarker>").append(escape(keyMarker)).append("</KeyMarker><UploadIdMarker>")
+                .append(escape(uploadIdMarker)).append("</UploadIdMarker><Prefix>").append(escape(prefix))
+                .append("</Prefix><MaxUploads>").append(maxUploads).append("</MaxUploads><IsTruncated>").append(truncated)
+                .append("</IsTruncated>");
+        if (truncated) {
+            LocalUpload last = matched.get(matched.size() - 1);
+            xml.append("<NextKeyMarker>").append(escape(last.key)).append("</NextKeyMarker><NextUploadIdMarker>")
+                    .append(last.uploadId).append("</NextUploadIdMarker>");
+        }
+        for (LocalUpload upload : matched) {
+            xml.append("<Upload><Key>").append(escape(upload.key)).append("</Key><UploadId>").append(upload.uploadId)
+                    .append("</UploadId><Initiator>").append(owner()).append("</Initiator><Owner>").append(owner())
+                    .append("</Owner><StorageClass>STANDARD</StorageClass><Initiated>").append(ISO_DATE_FORMAT.format(upload.initiated))
+                    .append("</Initiated></Upload>");
+        }
+        xml.append("</ListMultipartUploadsResult>");
+        sendXml(request, xml.toString());
+    }
+
+    // ---- helpers, the callers of the ones reading the storage hold the lock ----
+
+    private LocalBucket bucket(String name) {
+        LocalBucket bucket;
+        synchronized (this) {
+            bucket = buckets.get(name);
+        }
+        if (bucket == null) {
+            throw new S3Error(404, "NoSuchBucket", "The specified bucket does not exist.");
+        }
+        return bucket;
+    }
+
+    private LocalUpload upload(LocalRequest request) {
+        LocalUpload upload = uploads.get(request.query.get("uploadId"));
+        if (upload == null || !upload.bucket.equals(request.bucket) || !upload.key.equals(request.key)) {
+            throw new S3Error(404, "NoSuchUpload", "The specified multipart upload does not exist.");
+        }
+        return upload;
+    }
+
+    private LocalVersion copySource(LocalRequest request) {
+        String copySource = request.header("x-amz-copy-source");
+        String versionId = null;
+        int query = copySource.indexOf('?');
+        if (query >= 0) {
+            for (String parameter : copySource.substring(query + 1).split("&")) {
+                if (parameter.startsWith("versionId=")) {
+                    versionId = percentDecode(parameter.substring("versionId=".length()));
+                }
+            }
+            copySource = copySource.substring(0, query);
+        }
+        copySource = percentDecode(copySource);
+        if (copySource.startsWith("/")) {
+            copySource = copySource.substring(1);
+        }
+        int slash = copySource.indexOf('/');
+        if (slash <= 0 || slash == copySource.length() - 1) {
+            throw new S3Error(400, "InvalidArgument", "Copy Source must mention the source bucket and key: sourcebucket/sourcekey.");
+        }
+        LocalBucket bucket = bucket(copySource.substring(0, slash));
+        String key = copySource.substring(slash + 1);
+        LocalVersion source = versionId == null ? bucket.latest(key) : bucket.version(key, versionId);
+        if (source == null || source.deleteMarker) {
+            throw new S3Error(404, versionId == null ? "NoSuchKey" : "NoSuchVersion", "The specified copy source does not exist.");
+        }
+        String ifMatch = request.header("x-amz-copy-source-if-match");
+        String ifNoneMatch = request.header("x-amz-copy-source-if-none-match");
+        Instant ifModifiedSince = parseHttpDate(request.header("x-amz-copy-source-if-modified-since"));
+        Instant ifUnmodifiedSince = parseHttpDate(request.header("x-amz-copy-source-if-unmodified-since"));
+        // a true If-Match wins over a false If-Unmodified-Since, and a false If-None-Match wins over a true If-Modified-Since
+        boolean failed = ifMatch != null ? !etagMatches(ifMatch, source)
+                : ifUnmodifiedSince != null && source.lastModified.isAfter(ifUnmodifiedSince);
+        failed |= ifNoneMatch != null ? etagMatches(ifNoneMatch, source)
+                : ifModifiedSince != null && !source.lastModified.isAfter(ifModifiedSince);
+        if (failed) {
+            throw new S3Error(412, "PreconditionFailed", "At least one of the preconditions you specified did not hold.");
+        }
+        return source;
+    }
+
+    /**
+     * Checks the If-Match and If-None-Match conditions of a write.
+     */
+    private static void checkWriteConditions(LocalRequest request, LocalVersion current) {
+        boolean exists = current != null && !current.deleteMarker;
+        String ifMatch = request.header("If-Match");
+        String ifNoneMatch = request.header("If-None-Match");
+        if (ifMatch != null && !exists) {
+            throw new S3Error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        if ((ifMatch != null && !etagMatches(ifMatch, current))
+                || ("*".equals(ifNoneMatch) && exists)) {
+            throw new S3Error(412, "PreconditionFailed", "At least one of the preconditions you specified did not hold.");
+        }
+    }
+
+    /**
+     * Checks the conditions of a read.
+     * @return true if the object is not modified.
+     */
+    private static boolean checkReadConditions(LocalRequest request, LocalVersion version) {
+        String ifMatch = request.header("If-Match");
+        String ifNoneMatch = request.header("If-None-Match");
+        Instant ifModifiedSince = parseHttpDate(request.header("If-Modified-Since"));
+        Instant ifUnmodifiedSince = parseHttpDate(request.header("If-Unmodified-Since"));
+        if ((ifMatch != null && !etagMatches(ifMatch, version))
+                || (ifMatch == null && ifUnmodifiedSince != null && version.lastModified.isAfter(ifUnmodifiedSince))) {
+            throw new S3Error(412, "PreconditionFailed", "At least one of the preconditions you specified did not hold.");
+        }
+        if (ifNoneMatch != null) {
+            return etagMatches(ifNoneMatch, version);
+        }
+        return ifModifiedSince != null && !version.lastModified.isAfter(ifModifiedSince);
+    }
+
+    /**
+     * @return the first and last byte of a range like 'bytes=0-99', 'bytes=100-' or 'bytes=-100',
+     * null if it's not a single byte range.
+     */
+    private static int[] parseRange(String range, int length) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long first;
+            long last;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            } else {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+            }
+            if (first >= length || first > last) {
+                throw new S3Error(416, "InvalidRange", "The requested range is not satisfiable.");
+            }
+            return new int[]{(int) first, (int) last};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the ETag of a condition, or '*', matches the version, a delete marker matches nothing.
+     */
+    private static boolean etagMatches(String conditionEtag, LocalVersion version) {
+        if (version == null || version.deleteMarker) {
+            return false;
+        }
+        return "*".equals(conditionEtag.trim()) || unquote(conditionEtag).equals(unquote(version.etag));
+    }
+
+    private static String commonPrefix(String key, String prefix, String delimiter) {
+        if (delimiter == null) {
+            return null;
+        }
+        int index = key.indexOf(delimiter, prefix.length());
+        return index < 0 ? null : key.substring(0, index + delimiter.length());
+    }
+
+    private static void appendCommonPrefixes(StringBuilder xml, List<String> commonPrefixes) {
+        for (String commonPrefix : commonPrefixes) {
+            xml.append("<CommonPrefixes><Prefix>").append(escape(commonPrefix)).append("</Prefix></CommonPrefixes>");
+        }
+    }
+
+    private static void addVersionHeader(Map<String, String> headers, LocalVersion version) {
+        if (!NULL_VERSION_ID.equals(version.versionId)) {
+            headers.put("x-amz-version-id", version.versionId);
+        }
+    }
+
+    /**
+     * The headers of a put which are returned by a get, like the content type and the user metadata.
+     */
+    private static Map<String, String> storedHeaders(Map<String, String> requestHeaders) {
+        Map<String, String> stored = new LinkedHashMap<>();
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            String name = header.getKey();
+            if (name.startsWith("x-amz-meta-") || name.equals("x-amz-storage-class") || name.equals("x-amz-tagging")
+                    || name.startsWith("x-amz-server-side-encryption")) {
+                stored.put(name, header.getValue());
+            } else if (name.equals("content-type") || name.equals("cache-control") || name.equals("content-disposition")
+                    || name.equals("content-encoding") || name.equals("content-language") || name.equals("expires")) {
+                stored.put(canonicalHeaderName(name), header.getValue());
+            }
+        }
+        if (stored.containsKey("x-amz-tagging")) {
+            String tagging = stored.remove("x-amz-tagging");
+            stored.put("x-amz-tagging-count", String.valueOf(tagging.isEmpty() ? 0 : tagging.split("&").length));
+        }
+        return Collections.unmodifiableMap(stored);
+    }
+
+    /**
+     * The headers of a copy: the metadata, the tags and the encryption of the source unless the request replaces them,
+     * and the storage class of the request.
+     */
+    private static Map<String, String> copiedHeaders(LocalRequest request, Map<String, String> sourceHeaders) {
+        Map<String, String> requestHeaders = storedHeaders(request.headers);
+        Map<String, String> copied = new LinkedHashMap<>();
+        boolean replaceMetadata = "REPLACE".equalsIgnoreCase(request.header("x-amz-metadata-directive"));
+        boolean replaceTagging = "REPLACE".equalsIgnoreCase(request.header("x-amz-tagging-directive"));
+        for (Map.Entry<String, String> header : sourceHeaders.entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            boolean isTagging = name.equals("x-amz-tagging-count");
+            boolean isSystem = name.equals("x-amz-storage-class") || name.startsWith("x-amz-server-side-encryption");
+            if (!isSystem && (isTagging ? !replaceTagging : !replaceMetadata)) {
+                copied.put(header.getKey(), header.getValue());
+            }
+        }
+        for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+            String name = header.getKey().toLowerCase(Locale.ROOT);
+            boolean isTagging = name.equals("x-amz-tagging-count");
+            boolean isSystem = name.equals("x-amz-storage-class") || name.startsWith("x-amz-server-side-encryption");
+            if (isSystem || (isTagging ? replaceTagging : replaceMetadata)) {
+                copied.put(header.getKey(), header.getValue());
+            }
+        }
+        for (Map.Entry<String, String> header : sourceHeaders.entrySet()) {
+            if (header.getKey().startsWith("x-amz-server-side-encryption")) {
+                copied.putIfAbsent(header.getKey(), header.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(copied);
+    }
+
+    private static String canonicalHeaderName(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean upper = true;
+        for (char c : name.toCharArray()) {
+            sb.append(upper ? Character.toUpperCase(c) : c);
+            upper = c == '-';
+        }
+        return sb.toString();
+    }
+
+    private String nextVersionId() {
+        return String.format("%016x", versionSequence.incrementAndGet()) + UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+    }
+
+    private static Instant now() {
+        // the HTTP dates have a precision of seconds
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static Instant parseHttpDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String owner() {
+        return "<ID>" + OWNER_ID + "</ID><DisplayName>" + OWNER_ID + "</DisplayName>";
+    }
+
+    private static String encodeToken(String marker) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(marker.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeToken(String token) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new S3Error(400, "InvalidArgument", "The continuation token provided is incorrect.");
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static String unquote(String etag) {
+        String value = etag.trim();
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ? value.substring(1, value.length() - 1) : value;
+    }
+
+    private static byte[] copyOfRange(byte[] data, int from, int to) {
+        byte[] copy = new byte[to - from];
+        System.arraycopy(data, from, copy, 0, copy.length);
+        return copy;
+    }
+
+    private static String escape(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\'':
+                    sb.append("&apos;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes %XX escapes as UTF-8, unlike URLDecoder a '+' stays a '+'.
+     */
+    private static String percentDecode(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '%' && i + 2 < bytes.length) {
+                out.write(Integer.parseInt(new String(bytes, i + 1, 2, StandardCharsets.US_ASCII), 16));
+                i += 2;
+            } else {
+                out.write(bytes[i]);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Document parseXml(byte[] body) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(body));
+        } catch (Exception e) {
+            throw new S3Error(400, "MalformedXML", "The XML you provided was not well-formed or did not validate against our published schema.");
+        }
+    }
+
+    private static List<Element> children(Element parent, String name) {
+        List<Element> children = new ArrayList<>();
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element && name.equals(localName(node))) {
+                children.add((Element) node);
+            }
+        }
+        return children;
+    }
+
+    private static String firstText(Element parent, String name) {
+        List<Element> children = children(parent, name);
+        return children.isEmpty() ? null : children.get(0).getTextContent();
+    }
+
+    private static String localName(Node node) {
+        String name = node.getNodeName();
+        int colon = name.indexOf(':');
+        return colon < 0 ? name : name.substring(colon + 1);
+    }
+
+    private static String md5Etag(byte[] data) {
+        return "\"" + toHex(md5(data)) + "\"";
+    }
+
+    private static byte[] md5(byte[] data) {
+        return digest("MD5", data);
+    }
+
+    private static byte[] digest(String algorithm, byte[] data) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    // ---- responses ----
+
+    private static void sendXml(LocalRequest request, String xml) throws IOException {
+        sendXml(request, 200, null, xml);
+    }
+
+    private static void sendXml(LocalRequest request, int statusCode, Map<String, String> headers, String xml) throws IOException {
+        Map<String, String> allHeaders = headers == null ? new HashMap<>() : new HashMap<>(headers);
+        allHeaders.put("Content-Type", "application/xml");
+        send(request, statusCode, allHeaders, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + xml).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void sendError(LocalRequest request, int statusCode, String code, String message) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        if (request.errorHeaders != null) {
+            headers.putAll(request.errorHeaders);
+        }
+        if ("SlowDown".equals(code)) {
+            headers.put("Retry-After", "1");
+        }
+        sendXml(request, statusCode, headers, "<Error><Code>" + escape(code) + "</Code><Message>" + escape(message)
+                + "</Message><Resource>" + escape(request.exchange.getRequestURI().getRawPath()) + "</Resource><RequestId>"
+                + request.requestId + "</RequestId></Error>");
+    }
+
+    private static void send(LocalRequest request, int statusCode, Map<String, String> headers, byte[] body) throws IOException {
+        HttpExchange exchange = request.exchange;
+        Headers responseHeaders = exchange.getResponseHeaders();
+        responseHeaders.set("x-amz-request-id", request.requestId);
+        responseHeaders.set("Server", "LocalS3Server");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                responseHeaders.set(header.getKey(), header.getValue());
+            }
+        }
+        int length = body == null ? 0 : body.length;
+        if ("HEAD".equals(request.method) || statusCode == 204 || statusCode == 304) {
+            if ("HEAD".equals(request.method) && statusCode < 300) {
+                responseHeaders.set("Content-Length", String.valueOf(length));
+            }
+            exchange.sendResponseHeaders(statusCode, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(statusCode, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // ---- model ----
+
+    private final class LocalBucket {
+        private final String name;
+        private final Instant created;
+        // null if versioning has never been enabled, otherwise Enabled or Suspended
+        private String versioning;
+        // the versions of each key, oldest first
+        private final TreeMap<String, List<LocalVersion>> objects = new TreeMap<>();
+
+        LocalBucket(String name, Instant created) {
+            this.name = name;
+            this.created = created;
+        }
+
+        LocalVersion latest(String key) {
+            List<LocalVersion> versions = objects.get(key);
+            return versions == null ? null : versions.get(versions.size() - 1);
+        }
+
+        LocalVersion version(String key, String versionId) {
+            List<LocalVersion> versions = objects.get(key);
+            if (versions != null) {
+                for (LocalVersion version : versions) {
+                    if (version.versionId.equals(versionId)) {
+                        return version;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Adds a version, it replaces the null version unless versioning is enabled.
+         */
+        LocalVersion put(String key, LocalVersion version) {
+            version.versionId = "Enabled".equals(versioning) ? nextVersionId() : NULL_VERSION_ID;
+            List<LocalVersion> versions = objects.computeIfAbsent(key, k -> new ArrayList<>(1));
+            if (NULL_VERSION_ID.equals(version.versionId)) {
+                versions.removeIf(v -> NULL_VERSION_ID.equals(v.versionId));
+            }
+            versions.add(version);
+            return version;
+        }
+
+        /**
+         * Deletes a version permanently, or without a versionId, deletes the object or adds a delete marker if the bucket is versioned.
+         * @return the deleted version or the added delete marker, null if nothing changed.
+         */
+        LocalVersion delete(String key, String versionId) {
+            List<LocalVersion> versions = objects.get(key);
+            if (versionId != null) {
+                if (versions == null) {
+                    return null;
+                }
+                for (Iterator<LocalVersion> iterator = versions.iterator(); iterator.hasNext(); ) {
+                    LocalVersion version = iterator.next();
+                    if (version.versionId.equals(versionId)) {
+                        iterator.remove();
+                        if (versions.isEmpty()) {
+                            objects.remove(key);
+                        }
+                        return version;
+                    }
+                }
+                return null;
+            }
+            if (versioning == null) {
+                return versions == null ? null : objects.remove(key).get(0);
+            }
+            return put(key, new LocalVersion(new byte[0], null, now(), Collections.<String, String>emptyMap(), null));
+        }
+    }
+
+    private static final class LocalVersion {
+        private final byte[] data;
+        private final String etag;
+        private final Instant lastModified;
+        private final Map<String, String> metadata;
+        // the part sizes of a multipart object, null otherwise
+        private final long[] partSizes;
+        private final boolean deleteMarker;
+        private String versionId;
+
+        LocalVersion(byte[] data, String etag, Instant lastModified, Map<String, String> metadata, long[] partSizes) {
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.metadata = metadata;
+            this.partSizes = partSizes;
+            this.deleteMarker = etag == null;
+        }
+    }
+
+    private static final class LocalUpload {
+        private final String uploadId;
+        private final String bucket;
+        private final String key;
+        private final Instant initiated;
+        private final Map<String, String> metadata;
+        private final TreeMap<Integer, LocalPart> parts = new TreeMap<>();
+
+        LocalUpload(String uploadId, String bucket, String key, Instant initiated, Map<String, String> metadata) {
+            this.uploadId = uploadId;
+            this.bucket = bucket;
+            this.key = key;
+            this.initiated = initiated;
+            this.metadata = metadata;
+        }
+    }
+
+    private static final class LocalPart {
+        private final int partNumber;
+        private final byte[] data;
+        private final String etag;
+        private final Instant lastModified;
+
+        LocalPart(int partNumber, byte[] data, String etag, Instant lastModified) {
+            this.partNumber = partNumber;
+            this.data = data;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A request with its body read, its path split into bucket and key, and its header names in lower case.
+     */
+    private static final class LocalRequest {
+        private final HttpExchange exchange;
+        private final String requestId = UUID.randomUUID().toString().replace("-", "").substring(0, 16).toUpperCase(Locale.ROOT);
+        private final String method;
+        private final String bucket;
+        private final String key;
+        private final Map<String, String> query = new HashMap<>();
+        private final Map<String, String> headers = new HashMap<>();
+        private final byte[] body;
+        private Map<String, String> errorHeaders;
+
+        LocalRequest(HttpExchange exchange) throws IOException {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getRawPath();
+            path = path.startsWith("/") ? path.substring(1) : path;
+            int slash = path.indexOf('/');
+            String bucketSegment = slash < 0 ? path : path.substring(0, slash);
+            String keySegment = slash < 0 ? "" : path.substring(slash + 1);
+            this.bucket = bucketSegment.isEmpty() ? null : percentDecode(bucketSegment);
+            this.key = keySegment.isEmpty() ? null : percentDecode(keySegment);
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null && !rawQuery.isEmpty()) {
+                for (String parameter : rawQuery.split("&")) {
+                    int equals = parameter.indexOf('=');
+                    if (equals < 0) {
+                        query.put(percentDecode(parameter), "");
+                    } else {
+                        query.put(percentDecode(parameter.substring(0, equals)), percentDecode(parameter.substring(equals + 1)));
+                    }
+                }
+            }
+            for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+                headers.put(header.getKey().toLowerCase(Locale.ROOT), String.join(",", header.getValue()));
+            }
+            this.body = readFully(exchange.getRequestBody());
+        }
+
+        /**
+         * A request which failed before or while handled, to send the error response of.
+         */
+        LocalRequest(HttpExchange exchange, Exception error) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            this.bucket = null;
+            this.key = null;
+            this.body = new byte[0];
+            if (error instanceof S3Error) {
+                this.errorHeaders = ((S3Error) error).headers;
+            }
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        int intParameter(String name, int defaultValue) {
+            String value = query.get(name);
+            if (value == null || value.isEmpty()) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new S3Error(400, "InvalidArgument", "Invalid value of '" + name + "'.");
+            }
+        }
+
+        /**
+         * @return the object data of a put, decoded from the chunks of a streaming upload, after its hashes are checked.
+         */
+        byte[] payload() {
+            String contentSha256 = header("x-amz-content-sha256");
+            byte[] data = body;
+            if (contentSha256 != null && contentSha256.startsWith("STREAMING-")) {
+                data = decodeChunks(body);
+                String decodedLength = header("x-amz-decoded-content-length");
+                if (decodedLength != null && Long.parseLong(decodedLength) != data.length) {
+                    throw new S3Error(400, "IncompleteBody", "You did not provide the number of bytes specified by the Content-Length HTTP header.");
+                }
+            } else if (contentSha256 != null && !"UNSIGNED-PAYLOAD".equals(contentSha256)
+                    && !contentSha256.equalsIgnoreCase(toHex(digest("SHA-256", data)))) {
+                throw new S3Error(400, "XAmzContentSHA256Mismatch", "The provided 'x-amz-content-sha256' header does not match what was computed.");
+            }
+            checkContentMd5(data);
+            String crc32 = header("x-amz-checksum-crc32");
+            if (crc32 != null) {
+                CRC32 checksum = new CRC32();
+                checksum.update(data, 0, data.length);
+                byte[] expected = ByteBuffer.allocate(4).putInt((int) checksum.getValue()).array();
+                if (!crc32.equals(Base64.getEncoder().encodeToString(expected))) {
+                    throw new S3Error(400, "BadDigest", "The CRC32 you specified did not match the calculated checksum.");
+                }
+            }
+            return data;
+        }
+
+        void checkContentMd5() {
+            checkContentMd5(body);
+        }
+
+        private void checkContentMd5(byte[] data) {
+            String contentMd5 = header("Content-MD5");
+            if (contentMd5 != null && !contentMd5.equals(Base64.getEncoder().encodeToString(md5(data)))) {
+                throw new S3Error(400, "BadDigest", "The Content-MD5 you specified did not match what we received.");
+            }
+        }
+
+        /**
+         * Decodes the 'aws-chunked' encoding: chunks of 'size-in-hex[;chunk-signature=...]\r\n data \r\n', ended by a chunk of size 0
+         * and optional trailing headers. The chunk signatures are not checked.
+         */
+        private static byte[] decodeChunks(byte[] body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+            int i = 0;
+            try {
+                while (true) {
+                    int lineEnd = indexOfCrlf(body, i);
+                    String line = new String(body, i, lineEnd - i, StandardCharsets.US_ASCII);
+                    int semicolon = line.indexOf(';');
+                    int size = Integer.parseInt((semicolon < 0 ? line : line.substring(0, semicolon)).trim(), 16);
+                    i = lineEnd + 2;
+                    if (size == 0) {
+                        return out.toByteArray();
+                    }
+                    out.write(body, i, size);
+                    i += size + 2;
+                }
+            } catch (RuntimeException e) {
+                throw new S3Error(400, "IncompleteBody", "The chunked encoding of the body is invalid.");
+            }
+        }
+
+        private static int indexOfCrlf(byte[] body, int from) {
+            for (int i = from; i < body.length - 1; i++) {
+                if (body[i] == '\r' && body[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Missing CRLF.");
+        }
+
+        private static byte[] readFully(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * A request received by the server, to check what the client sent.
+     */
+    public static final class ReceivedRequest {
+        private final String method;
+        private final String bucket;
+        private final String key;
+        private final Map<String, String> query;
+        private final Map<String, String> headers;
+
+        private ReceivedRequest(String method, String bucket, String key, Map<String, String> query, Map<String, String> headers) {
+            this.method = method;
+            this.bucket = bucket;
+            this.key = key;
+            this.query = Collections.unmodifiableMap(new HashMap<>(query));
+            this.headers = Collections.unmodifiableMap(new HashMap<>(headers));
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getBucket() {
+            return bucket;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Map<String, String> getQuery() {
+            return query;
+        }
+
+        /**
+         * @param name the header name, case insensitive.
+         * @return the value of the header, null if it's not sent.
+         */
+        public String header(String name) {
+            return headers.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public String toString() {
+            return method + " /" + bucket + "/" + key + " " + query;
+        }
+    }
+
+    private static final class S3Error extends RuntimeException {
+        private final int statusCode;
+        private final String code;
+        private final Map<String, String> headers = new HashMap<>();
+
+        S3Error(int statusCode, String code, String message) {
+            super(message);
+            this.statusCode = statusCode;
+            this.code = code;
+        }
+
+        S3Error header(String name, String value) {
+            headers.put(name, value);
+            return this;
+        }
+    }
+
+    /**
+     * A fault injected in the requests which match it: latency, an error response or a connection reset.
+     * A fault with latency only delays the request, and the next faults are checked.
+     */
+    public static final class Fault {
+        private final String method;
+        private final String bucket;
+        private final String keyPrefix;
+        private final int minInFlight;
+        private final long latencyMillis;
+        private final int statusCode;
+        private final String errorCode;
+        private final String errorMessage;
+        private final boolean resetConnection;
+        private final AtomicInteger toSkip;
+        private final AtomicInteger remaining;
+        private final AtomicInteger hits = new AtomicInteger();
+
+        private Fault(FaultBuilder builder) {
+            this.method = builder.method;
+            this.bucket = builder.bucket;
+            this.keyPrefix = builder.keyPrefix;
+            this.minInFlight = builder.minInFlight;
+            this.latencyMillis = builder.latencyMillis;
+            this.statusCode = builder.statusCode;
+            this.errorCode = builder.errorCode;
+            this.errorMessage = builder.errorMessage;
+            this.resetConnection = builder.resetConnection;
+            this.toSkip = new AtomicInteger(builder.skip);
+            this.remaining = new AtomicInteger(builder.times);
+        }
+
+        /**
+         * @return the number of requests the fault is injected in.
+         */
+        public int getHits() {
+            return hits.get();
+        }
+
+        private boolean matches(LocalRequest request, int inFlight) {
+            return (method == null || method.equals(request.method))
+                    && (bucket == null || bucket.equals(request.bucket))
+                    && (keyPrefix == null || (request.key != null && request.key.startsWith(keyPrefix)))
+                    && inFlight >= minInFlight;
+        }
+
+        private boolean consume() {
+            if (toSkip.get() > 0 && toSkip.getAndDecrement() > 0) {
+                return false;
+            }
+            int left;
+            do {
+                left = remaining.get();
+                if (left == 0) {
+                    return false;
+                }
+            } while (left > 0 && !remaining.compareAndSet(left, left - 1));
+            hits.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Fault{" +
+                    "method='" + method + '\'' +
+                    ", bucket='" + bucket + '\'' +
+                    ", keyPrefix='" + keyPrefix + '\'' +
+                    ", minInFlight=" + minInFlight +
+                    ", latencyMillis=" + latencyMillis +
+                    ", statusCode=" + statusCode +
+                    ", errorCode='" + errorCode + '\'' +
+                    ", resetConnection=" + resetConnection +
+                    ", hits=" + hits +
+                    '}';
+        }
+    }
+
+    public static final class FaultBuilder {
+        private String method;
+        private String bucket;
+        private String keyPrefix;
+        private int minInFlight;
+        private long latencyMillis;
+        private int statusCode;
+        private String errorCode;
+        private String errorMessage;
+        private boolean resetConnection;
+        private int skip;
+        private int times = -1;
+
+        public Fault build() {
+            if (latencyMillis == 0 && statusCode == 0 && !resetConnection) {
+                throw new IllegalArgumentException("A fault must have latency, an error or a connection reset.");
+            }
+            return new Fault(this);
+        }
+
+        /**
+         * Matches the requests with the HTTP method only.
+         * @param method the HTTP method, like 'PUT'.
+         * @return this builder.
+         */
+        public FaultBuilder method(String method) {
+            this.method = method;
+            return this;
+        }
+
+        public FaultBuilder bucket(String bucket) {
+            this.bucket = bucket;
+            return this;
+        }
+
+        /**
+         * Matches the requests of the objects with the key prefix only.
+         * @param keyPrefix the key prefix.
+         * @return this builder.
+         */
+        public FaultBuilder keyPrefix(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+            return this;
+        }
+
+        /**
+         * Matches a request only when there are at least minInFlight requests in flight, including itself.
+         * @param minInFlight the number of requests in flight.
+         * @return this builder.
+         */
+        public FaultBuilder whenInFlightAtLeast(int minInFlight) {
+            this.minInFlight = minInFlight;
+            return this;
+        }
+
+        /**
+         * Delays the matched requests.
+         * @param latency the delay.
+         * @param unit the time unit of the delay.
+         * @return this builder.
+         */
+        public FaultBuilder latency(long latency, TimeUnit unit) {
+            if (latency < 0) {
+                throw new IllegalArgumentException("latency must not be negative.");
+            }
+            this.latencyMillis = unit.toMillis(latency);
+            return this;
+        }
+
+        /**
+         * Answers the matched requests with an error.
+         * @param statusCode the HTTP status code.
+         * @param errorCode the S3 error code, like 'InternalError'.
+         * @return this builder.
+         */
+        public FaultBuilder error(int statusCode, String errorCode) {
+            this.statusCode = statusCode;
+            this.errorCode = errorCode;
+            this.errorMessage = "Injected by the local server.";
+            return this;
+        }
+
+        /**
+         * Answers the matched requests with '503 Slow Down'.
+         * @return this builder.
+         */
+        public FaultBuilder throttle() {
+            error(503, "SlowDown");
+            this.errorMessage = "Please reduce your request rate.";
+            return this;
+        }
+
+        /**
+         * Closes the connection of the matched requests, after their bodies are received, without a response.
+         * @return this builder.
+         */
+        public FaultBuilder resetConnection() {
+            this.resetConnection = true;
+            return this;
+        }
+
+        /**
+         * Injects the fault in the first matched requests only, unlimited by default.
+         * @param times the number of requests.
+         * @return this builder.
+         */
+        public FaultBuilder times(int times) {
+            if (times < 0) {
+                throw new IllegalArgumentException("times must not be negative.");
+            }
+            this.times = times;
+            return this;
+        }
+
+        /**
+         * Lets the first matched requests pass, the fault is injected from the next matched request.
+         * @param skip the number of requests to let pass.
+         * @return this builder.
+         */
+        public FaultBuilder skip(int skip) {
+            if (skip < 0) {
+                throw new IllegalArgumentException("skip must not be negative.");
+            }
+            this.skip = skip;
+            return this;
+        }
+    }
+
+    public static final class LocalS3ServerBuilder {
+        private String host = "127.0.0.1";
+        private int port;
+        private String region = "us-east-1";
+        private long minPartSize = 5 * 1024 * 1024;
+
+        /**
+         * Starts a server.
+         * @return the started server, close it to stop.
+         * @throws IOException if the server can't listen on the port.
+         */
+        public LocalS3Server build() throws IOException {
+            return new LocalS3Server(host, port, region, minPartSize);
+        }
+
+        /**
+         * The host to listen on, 127.0.0.1 by default.
+         * @param host the host name or address.
+         * @return this builder.
+         */
+        public LocalS3ServerBuilder host(String host) {
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * The port to listen on, 0 by default which is any free port.
+         * @param port the port.
+         * @return this builder.
+         */
+        public LocalS3ServerBuilder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * The region of the server, us-east-1 by default.
+         * @param region the region.
+         * @return this builder.
+         */
+        public LocalS3ServerBuilder region(String region) {
+            this.region = region;
+            return this;
+        }
+
+        /**
+         * The minimum size of the parts of a multipart upload except the last one, 5MB by default like S3.
+         * @param minPartSize the size in bytes.
+         * @return this builder.
+         */
+        public LocalS3ServerBuilder minPartSize(long minPartSize) {
+            this.minPartSize = minPartSize;
+            return this;
+        }
+    }
+}
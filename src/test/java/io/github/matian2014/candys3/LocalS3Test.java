@@ -0,0 +1,1264 @@
+package io.github.matian2014.candys3;
+
+import io.github.matian2014.candys3.exceptions.CandyS3Exception;
+import io.github.matian2014.candys3.exceptions.CommonErrorCode;
+import io.github.matian2014.candys3.options.CompleteMultipartUploadOptions;
+import io.github.matian2014.candys3.options.CopyObjectOptions;
+import io.github.matian2014.candys3.options.CopyPartOptions;
+import io.github.matian2014.candys3.options.CreateBucketOptions;
+import io.github.matian2014.candys3.options.CreateMultipartUploadOptions;
+import io.github.matian2014.candys3.options.DeleteObjectOptions;
+import io.github.matian2014.candys3.options.DirectorySyncOptions;
+import io.github.matian2014.candys3.options.DownloadObjectOptions;
+import io.github.matian2014.candys3.options.ListMultipartUploadOptions;
+import io.github.matian2014.candys3.options.ListObjectOptions;
+import io.github.matian2014.candys3.options.PutObjectOptions;
+import io.github.matian2014.candys3.options.UploadPartOptions;
+import io.github.matian2014.candys3.signer.AWS4SignerBase;
+import io.github.matian2014.candys3.signer.BinaryUtils;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Runs the tests of the CUSTOM provider against an in-process {@link LocalS3Server}, without cloud credentials.
+ * The tests of bucket configurations and object lock are not run, the local server doesn't implement them.
+ */
+public class LocalS3Test {
+
+    /**
+     * The temporary files of the tests, including those of the tests of {@link CandyS3Test}, are deleted after the tests.
+     */
+    @ClassRule
+    public static final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void localStartServer() throws IOException {
+        CandyS3Test.localS3Server = new LocalS3Server.LocalS3ServerBuilder().build();
+        CandyS3Test.tempDirectory = temporaryFolder.getRoot();
+    }
+
+    @AfterClass
+    public static void localStopServer() {
+        CandyS3Test.localS3Server.close();
+        CandyS3Test.localS3Server = null;
+        CandyS3Test.tempDirectory = new File("./temp");
+    }
+
+    private static CandyS3 localClient(String bucket) throws IOException {
+        CandyS3 candyS3 = new CandyS3(S3Provider.CUSTOM);
+        CandyS3Test.localS3Server.configure(candyS3);
+        candyS3.createBucket(new CreateBucketOptions.CreateBucketOptionsBuilder(bucket).build());
+        return candyS3;
+    }
+
+    private static PutObjectOptions putBytes(byte[] bytes) {
+        return new PutObjectOptions.PutObjectOptionsBuilder()
+                .configureUploadData().withData(bytes).endConfigureDataContent()
+                .build();
+    }
+
+    @Test
+    public void localInjectedErrorsAreRetriedTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localInjectedErrorsAreRetriedTest");
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setRetryPolicy(new RetryPolicy.RetryPolicyBuilder()
+                .maxAttempts(3)
+                .baseDelay(10, TimeUnit.MILLISECONDS)
+                .build());
+
+        LocalS3Server.Fault throttle = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("PUT").bucket(bucket).keyPrefix("throttled/").throttle().times(2).build());
+        LocalS3Server.Fault reset = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("GET").bucket(bucket).keyPrefix("throttled/").resetConnection().times(1).build());
+        try {
+            candyS3.putObject(bucket, "throttled/object.data", putBytes(new byte[]{1, 2, 3}));
+            Assert.assertEquals(2, throttle.getHits());
+
+            S3Object s3Object = candyS3.downloadObject(bucket, "throttled/object.data", new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(new byte[]{1, 2, 3}, s3Object.getContentBytes());
+            Assert.assertEquals(1, reset.getHits());
+
+            // more errors than attempts
+            server.removeFault(throttle);
+            throttle = server.addFault(new LocalS3Server.FaultBuilder()
+                    .method("PUT").bucket(bucket).error(500, "InternalError").times(3).build());
+            try {
+                candyS3.putObject(bucket, "throttled/object.data", putBytes(new byte[]{4}));
+                Assert.fail("Should not be here. The injected error should be thrown after the last attempt.");
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals("InternalError", ex.getParsedError().getCode());
+            }
+            Assert.assertEquals(3, throttle.getHits());
+        } finally {
+            server.removeFault(throttle);
+            server.removeFault(reset);
+            candyS3.setRetryPolicy(RetryPolicy.NONE);
+            candyS3.deleteObject(bucket, new DeleteObjectOptions("throttled/object.data"));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localRateLimiterUnderThrottlingTest() throws Exception {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localRateLimiterUnderThrottlingTest");
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setRetryPolicy(new RetryPolicy.RetryPolicyBuilder()
+                .maxAttempts(20)
+                .baseDelay(5, TimeUnit.MILLISECONDS)
+                .maxDelay(50, TimeUnit.MILLISECONDS)
+                .build());
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter.AdaptiveRateLimiterBuilder().initialLimit(16).build();
+        candyS3.setRateLimiter(rateLimiter);
+
+        // the server throttles when more than 4 requests of the bucket are in flight, each of them is delayed a little
+        LocalS3Server.Fault latency = server.addFault(new LocalS3Server.FaultBuilder()
+                .bucket(bucket).keyPrefix("limited/").latency(20, TimeUnit.MILLISECONDS).build());
+        LocalS3Server.Fault throttle = server.addFault(new LocalS3Server.FaultBuilder()
+                .bucket(bucket).keyPrefix("limited/").whenInFlightAtLeast(5).throttle().build());
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                String objectKey = "limited/" + i;
+                futures.add(executor.submit(() -> candyS3.putObject(bucket, objectKey, putBytes(new byte[]{1}))));
+            }
+            for (Future<String> future : futures) {
+                Assert.assertNotNull(future.get());
+            }
+            Assert.assertTrue(throttle.getHits() > 0);
+            Assert.assertTrue(rateLimiter.getLimit(bucket, "limited/0") < 16);
+            Assert.assertEquals(64, candyS3.listObjects(bucket, new ListObjectOptions()
+                    .prefix("limited/")).getResults().size());
+        } finally {
+            executor.shutdownNow();
+            server.removeFault(latency);
+            server.removeFault(throttle);
+            candyS3.setRateLimiter(null);
+            new CandyS3Test().deleteAllObject(S3Provider.CUSTOM, bucket);
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localInjectedLatencyMetricsTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localInjectedLatencyMetricsTest");
+        CandyS3 candyS3 = localClient(bucket);
+        HistogramMetricsListener metricsListener = new HistogramMetricsListener();
+        candyS3.setMetricsListener(metricsListener);
+
+        LocalS3Server.Fault latency = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("GET").bucket(bucket).latency(100, TimeUnit.MILLISECONDS).build());
+        try {
+            candyS3.putObject(bucket, "latency.data", putBytes(new byte[1024]));
+            for (int i = 0; i < 3; i++) {
+                candyS3.downloadObject(bucket, "latency.data", new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                        .configureDataOutput().toBytes().endConfigureDataOutput()
+                        .build());
+            }
+            HistogramMetricsListener.OperationMetrics getObject = metricsListener.getOperationMetrics("GetObject");
+            Assert.assertEquals(3, getObject.getRequestCount());
+            Assert.assertTrue(getObject.getTimeToFirstByte().getValueAtPercentile(50) >= TimeUnit.MILLISECONDS.toNanos(100));
+            HistogramMetricsListener.OperationMetrics putObject = metricsListener.getOperationMetrics("PutObject");
+            Assert.assertTrue(putObject.getDuration().getMax() < TimeUnit.MILLISECONDS.toNanos(100));
+        } finally {
+            server.removeFault(latency);
+            candyS3.setMetricsListener(null);
+            candyS3.deleteObject(bucket, new DeleteObjectOptions("latency.data"));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localResumeUploadAfterFailureTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localResumeUploadAfterFailureTest");
+        String objectKey = "resumed/object.data";
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setTransferConcurrency(1);
+        candyS3.setRetryPolicy(RetryPolicy.NONE);
+        File file = new File(temporaryFolder.getRoot(), "tempLocalResumeFile.data");
+        File checkpointFile = new File(temporaryFolder.getRoot(), "tempLocalResumeFile.checkpoint");
+        // 4 parts, the part 3 fails
+        byte[] bytes = new byte[18 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        PutObjectOptions putObjectOptions = new PutObjectOptions.PutObjectOptionsBuilder()
+                .configureUploadData().withData(file.getPath()).endConfigureDataContent()
+                .checkpointFile(checkpointFile.getPath())
+                .build();
+
+        LocalS3Server.Fault fault = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("PUT").bucket(bucket).keyPrefix("resumed/").error(500, "InternalError").skip(2).times(1).build());
+        try {
+            Files.write(file.toPath(), bytes);
+            try {
+                candyS3.putObject(bucket, objectKey, putObjectOptions);
+                Assert.fail("Should not be here. The injected error should fail the upload.");
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals("InternalError", ex.getParsedError().getCode());
+            }
+            Assert.assertEquals(1, fault.getHits());
+            Assert.assertTrue(checkpointFile.exists());
+            Assert.assertEquals(1, candyS3.listMultipartUploads(bucket, new ListMultipartUploadOptions()).getResults().size());
+
+            // only the parts 3 and 4 are uploaded
+            server.resetStatistics();
+            candyS3.putObject(bucket, objectKey, putObjectOptions);
+            Assert.assertEquals(2, server.getRequestCount("PUT"));
+            Assert.assertFalse(checkpointFile.exists());
+            S3Object s3Object = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertArrayEquals(bytes, s3Object.getContentBytes());
+        } finally {
+            server.removeFault(fault);
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(checkpointFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localResumeDownloadAfterFailureTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localResumeDownloadAfterFailureTest");
+        String objectKey = "resumed/object.data";
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setTransferConcurrency(1);
+        candyS3.setRetryPolicy(RetryPolicy.NONE);
+        File outputFile = new File(temporaryFolder.getRoot(), "tempLocalResumeOutput.data");
+        // 4 ranges, the range 2 fails
+        byte[] bytes = new byte[4 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        DownloadObjectOptions downloadOptions = new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                .configureDataOutput().toFile(outputFile.getPath(), false).parallelRanges(1024 * 1024).resumable().endConfigureDataOutput()
+                .build();
+
+        LocalS3Server.Fault fault = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("GET").bucket(bucket).keyPrefix("resumed/").error(500, "InternalError").skip(1).times(1).build());
+        try {
+            candyS3.putObject(bucket, objectKey, putBytes(bytes));
+            try {
+                candyS3.downloadObject(bucket, objectKey, downloadOptions);
+                Assert.fail("Should not be here. The injected error should fail the download.");
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals("InternalError", ex.getParsedError().getCode());
+            }
+            Assert.assertEquals(1, fault.getHits());
+            Assert.assertFalse(outputFile.exists());
+            Assert.assertTrue(new File(outputFile.getPath() + ".checkpoint").exists());
+
+            // only the ranges 2, 3 and 4 are downloaded
+            server.resetStatistics();
+            candyS3.downloadObject(bucket, objectKey, downloadOptions);
+            Assert.assertEquals(3, server.getRequestCount("GET"));
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(outputFile.toPath()));
+
+            // The object is changed during the download, the download fails and starts over next time.
+            Files.delete(outputFile.toPath());
+            LocalS3Server.Fault latency = server.addFault(new LocalS3Server.FaultBuilder()
+                    .method("GET").bucket(bucket).keyPrefix("resumed/").latency(300, TimeUnit.MILLISECONDS).build());
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<String> overwrite = executor.submit(() -> {
+                    Thread.sleep(100);
+                    return candyS3.putObject(bucket, objectKey, putBytes(new byte[bytes.length]));
+                });
+                try {
+                    candyS3.downloadObject(bucket, objectKey, downloadOptions);
+                    Assert.fail("Should not be here. The change of the object should fail the download.");
+                } catch (CandyS3Exception ex) {
+                    Assert.assertEquals(CommonErrorCode.OBJECT_PRECONDITION_FAILED.getCode(), ex.getCode());
+                }
+                Assert.assertNotNull(overwrite.get());
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IOException(e);
+            } finally {
+                executor.shutdown();
+                server.removeFault(latency);
+            }
+            Assert.assertFalse(new File(outputFile.getPath() + ".checkpoint").exists());
+            Assert.assertFalse(new File(outputFile.getPath() + ".partial").exists());
+            candyS3.downloadObject(bucket, objectKey, downloadOptions);
+            Assert.assertArrayEquals(new byte[bytes.length], Files.readAllBytes(outputFile.toPath()));
+        } finally {
+            server.removeFault(fault);
+            Files.deleteIfExists(outputFile.toPath());
+            Files.deleteIfExists(new File(outputFile.getPath() + ".partial").toPath());
+            Files.deleteIfExists(new File(outputFile.getPath() + ".checkpoint").toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localParallelRangeDownloadOptionsTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localParallelRangeDownloadOptionsTest");
+        String objectKey = "ranges/object.data";
+        CandyS3 candyS3 = localClient(bucket);
+        File outputFile = new File(temporaryFolder.getRoot(), "tempLocalParallelRangeOptions.data");
+        byte[] bytes = new byte[3 * 1024 * 1024 + 5];
+        new Random().nextBytes(bytes);
+        try {
+            String eTag = candyS3.putObject(bucket, objectKey, putBytes(bytes));
+
+            // the conditions and response header options apply to each range request
+            server.resetStatistics();
+            S3Object s3Object = candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDownloadCondition().ifNoneMatch("\"other\"").endConfigureCondition()
+                    .configureResponseHeaderOptions().responseContentType("text/plain").endConfigureResponseHeader()
+                    .configureDataOutput().toFile(outputFile.getPath(), true).parallelRanges(1024 * 1024).endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(eTag, s3Object.geteTag());
+            Assert.assertArrayEquals(bytes, Files.readAllBytes(outputFile.toPath()));
+            List<LocalS3Server.ReceivedRequest> ranges = server.getReceivedRequests("GET", objectKey);
+            Assert.assertEquals(4, ranges.size());
+            for (LocalS3Server.ReceivedRequest range : ranges) {
+                Assert.assertEquals(eTag, range.header("If-Match"));
+                Assert.assertEquals("\"other\"", range.header("If-None-Match"));
+                Assert.assertEquals("text/plain", range.getQuery().get("response-content-type"));
+                Assert.assertTrue(range.header("Range").startsWith("bytes="));
+            }
+
+            try {
+                candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                        .configureDownloadCondition().ifNoneMatch(eTag).endConfigureCondition()
+                        .configureDataOutput().toFile(outputFile.getPath(), true).parallelRanges(1024 * 1024).endConfigureDataOutput()
+                        .build());
+                Assert.fail("Should not be here. The object matches If-None-Match.");
+            } catch (CandyS3Exception ex) {
+                Assert.assertEquals(CommonErrorCode.OBJECT_NOT_MODIFIED.getCode(), ex.getCode());
+            }
+        } finally {
+            Files.deleteIfExists(outputFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localPayloadSigningModeHeadersTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localPayloadSigningModeHeadersTest");
+        CandyS3 candyS3 = localClient(bucket);
+        byte[] bytes = new byte[1000];
+        new Random().nextBytes(bytes);
+        try {
+            // unsigned payloads are rejected over HTTP unless they are allowed
+            try {
+                candyS3.putObject(bucket, "UNSIGNED.data", new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(bytes).endConfigureDataContent()
+                        .payloadSigningMode(PayloadSigningMode.UNSIGNED)
+                        .build());
+                Assert.fail("Should not be here. UNSIGNED requires HTTPS.");
+            } catch (IllegalArgumentException ignored) {
+            }
+            candyS3.setAllowUnsignedPayloadOverHttp(true);
+
+            server.resetStatistics();
+            for (PayloadSigningMode mode : PayloadSigningMode.values()) {
+                candyS3.putObject(bucket, mode.name() + ".data", new PutObjectOptions.PutObjectOptionsBuilder()
+                        .configureUploadData().withData(bytes).endConfigureDataContent()
+                        .payloadSigningMode(mode)
+                        .build());
+            }
+            LocalS3Server.ReceivedRequest signed = server.getReceivedRequests("PUT", "SIGNED.data").get(0);
+            Assert.assertEquals(BinaryUtils.toHex(AWS4SignerBase.hash(bytes)), signed.header("x-amz-content-sha256"));
+            Assert.assertEquals(BinaryUtils.md5(bytes), signed.header("Content-MD5"));
+            LocalS3Server.ReceivedRequest streaming = server.getReceivedRequests("PUT", "STREAMING.data").get(0);
+            Assert.assertEquals("STREAMING-AWS4-HMAC-SHA256-PAYLOAD", streaming.header("x-amz-content-sha256"));
+            LocalS3Server.ReceivedRequest unsigned = server.getReceivedRequests("PUT", "UNSIGNED.data").get(0);
+            Assert.assertEquals("UNSIGNED-PAYLOAD", unsigned.header("x-amz-content-sha256"));
+            Assert.assertEquals(BinaryUtils.md5(bytes), unsigned.header("Content-MD5"));
+            LocalS3Server.ReceivedRequest unsignedCrc32 = server.getReceivedRequests("PUT", "UNSIGNED_CRC32.data").get(0);
+            Assert.assertEquals("UNSIGNED-PAYLOAD", unsignedCrc32.header("x-amz-content-sha256"));
+            Assert.assertNotNull(unsignedCrc32.header("x-amz-checksum-crc32"));
+        } finally {
+            for (PayloadSigningMode mode : PayloadSigningMode.values()) {
+                candyS3.deleteObject(bucket, new DeleteObjectOptions(mode.name() + ".data"));
+            }
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localCustomerKeyDownloadTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localCustomerKeyDownloadTest");
+        String objectKey = "customerKey/object.data";
+        CandyS3 candyS3 = localClient(bucket);
+        File outputFile = new File(temporaryFolder.getRoot(), "tempLocalCustomerKeyOutput.data");
+        byte[] key = new byte[32];
+        new Random().nextBytes(key);
+        String base64Key = Base64.getEncoder().encodeToString(key);
+        String keyMd5 = BinaryUtils.md5(key);
+        byte[] bytes = new byte[3 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.putObject(bucket, objectKey, putBytes(bytes));
+
+            // the HEAD and each range request of a download in ranges send the customer key
+            for (boolean resumable : new boolean[]{false, true}) {
+                server.resetStatistics();
+                DownloadObjectOptions.DownloadObjectOptionsBuilder builder = new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                        .configureCustomerKey().key(key).endConfigureCustomerKey();
+                if (resumable) {
+                    builder.configureDataOutput().toFile(outputFile.getPath(), true).parallelRanges(1024 * 1024).resumable();
+                } else {
+                    builder.configureDataOutput().toFile(outputFile.getPath(), true).parallelRanges(1024 * 1024);
+                }
+                candyS3.downloadObject(bucket, objectKey, builder.build());
+                Assert.assertArrayEquals(bytes, Files.readAllBytes(outputFile.toPath()));
+
+                List<LocalS3Server.ReceivedRequest> requests = new ArrayList<>(server.getReceivedRequests("HEAD", objectKey));
+                Assert.assertEquals(1, requests.size());
+                requests.addAll(server.getReceivedRequests("GET", objectKey));
+                Assert.assertEquals(4, requests.size());
+                for (LocalS3Server.ReceivedRequest request : requests) {
+                    Assert.assertEquals("AES256", request.header("x-amz-server-side-encryption-customer-algorithm"));
+                    Assert.assertEquals(base64Key, request.header("x-amz-server-side-encryption-customer-key"));
+                    Assert.assertEquals(keyMd5, request.header("x-amz-server-side-encryption-customer-key-MD5"));
+                }
+            }
+
+            server.resetStatistics();
+            candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureCustomerKey().key(base64Key).endConfigureCustomerKey()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build());
+            Assert.assertEquals(keyMd5, server.getReceivedRequests("GET", objectKey).get(0)
+                    .header("x-amz-server-side-encryption-customer-key-MD5"));
+
+            try {
+                new DownloadObjectOptions.DownloadObjectOptionsBuilder().configureCustomerKey().endConfigureCustomerKey();
+                Assert.fail("Should not be here. The customer key is required.");
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            Files.deleteIfExists(outputFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localRangeDownloadBypassesMetadataCacheTest() throws IOException, NoSuchAlgorithmException {
+        String bucket = new CandyS3Test().genTestBucketName("localRangeDownloadBypassesMetadataCacheTest");
+        String objectKey = "cached/object.data";
+        CandyS3 candyS3 = localClient(bucket);
+        CandyS3 otherCandyS3 = new CandyS3(S3Provider.CUSTOM);
+        CandyS3Test.localS3Server.configure(otherCandyS3);
+        File outputFile = new File(temporaryFolder.getRoot(), "tempLocalCachedRangeOutput.data");
+        byte[] bytes = new byte[1024 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.setObjectMetadataCache(new ObjectMetadataCache(10, 1, TimeUnit.HOURS));
+            candyS3.putObject(bucket, objectKey, putBytes(new byte[]{1, 2, 3}));
+            Assert.assertEquals(3, candyS3.getObjectMetadata(bucket, objectKey,
+                    new DownloadObjectOptions.DownloadObjectOptionsBuilder().build()).getSize());
+            // changed by another client, so the cached entry is stale
+            otherCandyS3.putObject(bucket, objectKey, putBytes(bytes));
+
+            for (boolean resumable : new boolean[]{false, true}) {
+                DownloadObjectOptions.DownloadObjectOptionsBuilder builder = new DownloadObjectOptions.DownloadObjectOptionsBuilder();
+                if (resumable) {
+                    builder.configureDataOutput().toFile(outputFile.getPath(), true).parallelRanges(256 * 1024).resumable();
+                } else {
+                    builder.configureDataOutput().toFile(outputFile.getPath(), true).parallelRanges(256 * 1024);
+                }
+                S3Object s3Object = candyS3.downloadObject(bucket, objectKey, builder.build());
+                Assert.assertEquals(bytes.length, s3Object.getSize());
+                Assert.assertArrayEquals(bytes, Files.readAllBytes(outputFile.toPath()));
+            }
+        } finally {
+            candyS3.setObjectMetadataCache(null);
+            Files.deleteIfExists(outputFile.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localCopySourceCustomerKeyTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localCopySourceCustomerKeyTest");
+        String sourceKey = "customerKey/source.data";
+        String objectKey = "customerKey/target.data";
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setCopyPartSize(5 * 1024 * 1024);
+        byte[] key = new byte[32];
+        new Random().nextBytes(key);
+        String base64Key = Base64.getEncoder().encodeToString(key);
+        String keyMd5 = BinaryUtils.md5(key);
+        byte[] bytes = new byte[11 * 1024 * 1024];
+        new Random().nextBytes(bytes);
+        try {
+            candyS3.putObject(bucket, sourceKey, putBytes(bytes));
+
+            // the HEAD of the source sends the key as its own customer key, and each part sends it as the copy source key
+            server.resetStatistics();
+            candyS3.parallelCopyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                    .copySource(bucket, sourceKey)
+                    .configureCopySourceCustomerKey().key(key).endConfigureCopySourceCustomerKey()
+                    .build());
+            List<LocalS3Server.ReceivedRequest> heads = server.getReceivedRequests("HEAD", sourceKey);
+            Assert.assertEquals(1, heads.size());
+            Assert.assertEquals("AES256", heads.get(0).header("x-amz-server-side-encryption-customer-algorithm"));
+            Assert.assertEquals(base64Key, heads.get(0).header("x-amz-server-side-encryption-customer-key"));
+            Assert.assertEquals(keyMd5, heads.get(0).header("x-amz-server-side-encryption-customer-key-MD5"));
+            Assert.assertNull(heads.get(0).header("x-amz-copy-source-server-side-encryption-customer-key"));
+            int copyParts = 0;
+            for (LocalS3Server.ReceivedRequest request : server.getReceivedRequests("PUT", objectKey)) {
+                if (request.header("x-amz-copy-source") == null) {
+                    continue;
+                }
+                copyParts++;
+                Assert.assertEquals("AES256", request.header("x-amz-copy-source-server-side-encryption-customer-algorithm"));
+                Assert.assertEquals(base64Key, request.header("x-amz-copy-source-server-side-encryption-customer-key"));
+                Assert.assertEquals(keyMd5, request.header("x-amz-copy-source-server-side-encryption-customer-key-MD5"));
+            }
+            Assert.assertEquals(3, copyParts);
+            Assert.assertArrayEquals(bytes, candyS3.downloadObject(bucket, objectKey, new DownloadObjectOptions.DownloadObjectOptionsBuilder()
+                    .configureDataOutput().toBytes().endConfigureDataOutput()
+                    .build()).getContentBytes());
+
+            // a single copy sends it as the copy source key too
+            server.resetStatistics();
+            candyS3.copyObject(bucket, objectKey, new CopyObjectOptions.CopyObjectOptionsBuilder()
+                    .copySource(bucket, sourceKey)
+                    .configureCopySourceCustomerKey().key(base64Key).endConfigureCopySourceCustomerKey()
+                    .build());
+            Assert.assertEquals(keyMd5, server.getReceivedRequests("PUT", objectKey).get(0)
+                    .header("x-amz-copy-source-server-side-encryption-customer-key-MD5"));
+
+            // both range overloads accept a range of one byte
+            Assert.assertEquals("7-7", new CopyPartOptions.CopyPartOptionsBuilder()
+                    .copySource(bucket, sourceKey).copySourceRange(7, 7).build().getCopySourceRange());
+            Assert.assertEquals("7-7", new CopyPartOptions.CopyPartOptionsBuilder()
+                    .copySource(bucket, sourceKey).copySourceRange(7L, 7L).build().getCopySourceRange());
+            try {
+                new CopyPartOptions.CopyPartOptionsBuilder().copySourceRange(7, 6);
+                Assert.fail("Should not be here. The end of the range is before the start.");
+            } catch (IllegalArgumentException ignored) {
+            }
+        } finally {
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(sourceKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localDirectorySyncFailureTest() throws IOException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localDirectorySyncFailureTest");
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setRetryPolicy(RetryPolicy.NONE);
+        File directory = new File(temporaryFolder.getRoot(), "localDirectorySyncFailure");
+        List<String> failedKeys = Collections.synchronizedList(new ArrayList<>());
+        DirectorySyncOptions options = new DirectorySyncOptions.DirectorySyncOptionsBuilder()
+                .prefix("sync/").concurrency(2)
+                .listener(new DirectorySyncListener() {
+                    @Override
+                    public void onFileFailed(String key, File file, Exception e) {
+                        failedKeys.add(key);
+                    }
+                })
+                .build();
+
+        LocalS3Server.Fault fault = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("PUT").bucket(bucket).keyPrefix("sync/failed").error(500, "InternalError").times(1).build());
+        try {
+            Files.createDirectories(directory.toPath());
+            for (int i = 0; i < 5; i++) {
+                Files.write(new File(directory, "file" + i).toPath(), new byte[i]);
+            }
+            Files.write(new File(directory, "failed").toPath(), new byte[10]);
+
+            // the failed file doesn't stop the other files
+            DirectorySyncResult result = candyS3.uploadDirectory(bucket, directory.getPath(), options);
+            Assert.assertFalse(result.isSuccessful());
+            Assert.assertEquals(5, result.getTransferredCount());
+            Assert.assertEquals(1, result.getErrors().size());
+            Assert.assertEquals("sync/failed", result.getErrors().get(0).getKey());
+            Assert.assertEquals(Collections.singletonList("sync/failed"), failedKeys);
+
+            // only the failed file is uploaded next time
+            server.resetStatistics();
+            result = candyS3.uploadDirectory(bucket, directory.getPath(), options);
+            Assert.assertTrue(result.isSuccessful());
+            Assert.assertEquals(1, result.getTransferredCount());
+            Assert.assertEquals(5, result.getSkippedCount());
+            Assert.assertEquals(1, server.getRequestCount("PUT"));
+        } finally {
+            server.removeFault(fault);
+            for (int i = 0; i < 5; i++) {
+                Files.deleteIfExists(new File(directory, "file" + i).toPath());
+                candyS3.deleteObject(bucket, new DeleteObjectOptions("sync/file" + i));
+            }
+            Files.deleteIfExists(new File(directory, "failed").toPath());
+            Files.deleteIfExists(directory.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions("sync/failed"));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    @Test
+    public void localDirectorySyncModifiedTimeTest() throws Exception {
+        String bucket = new CandyS3Test().genTestBucketName("localDirectorySyncModifiedTimeTest");
+        CandyS3 candyS3 = localClient(bucket);
+        // a file task waiting for its parts must not hold the only thread of a bounded transfer executor
+        ExecutorService transferExecutor = Executors.newFixedThreadPool(1);
+        candyS3.setTransferExecutor(transferExecutor);
+        ExecutorService syncExecutor = Executors.newSingleThreadExecutor();
+        File directory = new File(temporaryFolder.getRoot(), "localDirectorySyncModifiedTime");
+        File partsFile = new File(directory, "parts.data");
+        // the parts have different sizes, so the part size can't be found and the content can't be compared
+        byte[] part1 = new byte[5 * 1024 * 1024];
+        byte[] part2 = new byte[6 * 1024 * 1024];
+        new Random().nextBytes(part1);
+        new Random().nextBytes(part2);
+        byte[] large = new byte[12 * 1024 * 1024];
+        new Random().nextBytes(large);
+        DirectorySyncOptions options = new DirectorySyncOptions.DirectorySyncOptionsBuilder()
+                .prefix("sync/").concurrency(2).build();
+        DirectorySyncOptions modifiedTimeOptions = new DirectorySyncOptions.DirectorySyncOptionsBuilder()
+                .prefix("sync/").concurrency(2).compareModifiedTime(true).build();
+        try {
+            Files.createDirectories(directory.toPath());
+            try (OutputStream out = Files.newOutputStream(partsFile.toPath())) {
+                out.write(part1);
+                out.write(part2);
+            }
+            Files.write(new File(directory, "large.data").toPath(), large);
+            uploadInParts(candyS3, bucket, "sync/parts.data", part1, part2);
+            // not modified after the object
+            Assert.assertTrue(partsFile.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)));
+
+            // the file which can't be compared is uploaded by default
+            DirectorySyncResult result = syncExecutor.submit(() -> candyS3.uploadDirectory(bucket, directory.getPath(), options))
+                    .get(2, TimeUnit.MINUTES);
+            Assert.assertTrue(result.toString(), result.isSuccessful());
+            Assert.assertEquals(2, result.getTransferredCount());
+            Assert.assertEquals(0, result.getSkippedCount());
+
+            uploadInParts(candyS3, bucket, "sync/parts.data", part1, part2);
+            result = candyS3.uploadDirectory(bucket, directory.getPath(), modifiedTimeOptions);
+            Assert.assertEquals(0, result.getTransferredCount());
+            Assert.assertEquals(2, result.getSkippedCount());
+
+            // the file which can't be compared is downloaded by default, and it gets the modification time of the object
+            result = candyS3.downloadDirectory(bucket, directory.getPath(), options);
+            Assert.assertTrue(result.toString(), result.isSuccessful());
+            Assert.assertEquals(1, result.getTransferredCount());
+            Assert.assertEquals(1, result.getSkippedCount());
+            result = candyS3.downloadDirectory(bucket, directory.getPath(), modifiedTimeOptions);
+            Assert.assertEquals(0, result.getTransferredCount());
+            Assert.assertEquals(2, result.getSkippedCount());
+            result = candyS3.downloadDirectory(bucket, directory.getPath(), options);
+            Assert.assertEquals(1, result.getTransferredCount());
+        } finally {
+            syncExecutor.shutdownNow();
+            transferExecutor.shutdownNow();
+            Files.deleteIfExists(partsFile.toPath());
+            Files.deleteIfExists(new File(directory, "large.data").toPath());
+            Files.deleteIfExists(directory.toPath());
+            candyS3.deleteObject(bucket, new DeleteObjectOptions("sync/parts.data"));
+            candyS3.deleteObject(bucket, new DeleteObjectOptions("sync/large.data"));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    private static void uploadInParts(CandyS3 candyS3, String bucket, String objectKey, byte[]... parts) throws Exception {
+        String uploadId = candyS3.createMultipartUpload(bucket, objectKey,
+                new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+        List<S3Part> uploadedParts = new ArrayList<>();
+        for (byte[] part : parts) {
+            uploadedParts.add(candyS3.uploadPart(bucket, objectKey, uploadId, uploadedParts.size() + 1,
+                    new UploadPartOptions.UploadPartOptionsBuilder()
+                            .configureUploadData().withData(part).endConfigureDataContent()
+                            .build()));
+        }
+        candyS3.completeMultipartUpload(bucket, objectKey, uploadId, uploadedParts,
+                new CompleteMultipartUploadOptions.CompleteMultipartUploadOptionsBuilder().build());
+    }
+
+    @Test
+    public void localCreateBucketTest() throws IOException {
+        new CandyS3Test().createBucketTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCreateBucketErrorTest() throws IOException {
+        new CandyS3Test().createBucketErrorTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localBucketExistsTest() throws IOException {
+        new CandyS3Test().bucketExistsTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localBucketVersioningTest() throws IOException {
+        new CandyS3Test().bucketVersioningTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListBucketsTest() throws IOException {
+        new CandyS3Test().listBucketsTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListBucketsPrefixTest() throws IOException {
+        new CandyS3Test().listBucketsPrefixTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListBucketsPaginationTest() throws IOException {
+        new CandyS3Test().listBucketsPaginationTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectsPaginationTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsPaginationTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectVersionsTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectVersionsTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectVersionsPaginationTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().listObjectVersionsPaginationTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectsCommonPrefixTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsCommonPrefixTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListIterableTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listIterableTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectsInParallelTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsInParallelTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDeleteObjectsBulkTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBulkTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPurgeBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeBucketTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localRetryResignTest() throws Exception {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localRetryResignTest");
+        String objectKey = "retry/resign.data";
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setRetryPolicy(new RetryPolicy.RetryPolicyBuilder().baseDelay(10, TimeUnit.MILLISECONDS).build());
+        try {
+            for (PayloadSigningMode signingMode : new PayloadSigningMode[]{PayloadSigningMode.SIGNED, PayloadSigningMode.STREAMING}) {
+                // the first attempt fails after more than a second, so the retry is signed at another second
+                LocalS3Server.Fault fault = server.addFault(new LocalS3Server.FaultBuilder()
+                        .method("PUT").bucket(bucket).keyPrefix(objectKey)
+                        .latency(1100, TimeUnit.MILLISECONDS).error(500, "InternalError").times(1).build());
+                server.resetStatistics();
+                try {
+                    candyS3.putObject(bucket, objectKey, new PutObjectOptions.PutObjectOptionsBuilder()
+                            .payloadSigningMode(signingMode)
+                            .configureUploadData().withData(new byte[]{1, 2, 3}).endConfigureDataContent()
+                            .build());
+                } finally {
+                    server.removeFault(fault);
+                }
+
+                List<LocalS3Server.ReceivedRequest> requests = server.getReceivedRequests("PUT", objectKey);
+                Assert.assertEquals(signingMode.name(), 2, requests.size());
+                Assert.assertNotEquals(requests.get(0).header("x-amz-date"), requests.get(1).header("x-amz-date"));
+                for (LocalS3Server.ReceivedRequest request : requests) {
+                    assertSignatureValid(candyS3, request);
+                }
+            }
+        } finally {
+            candyS3.deleteObject(bucket, new DeleteObjectOptions(objectKey));
+            candyS3.deleteBucket(bucket);
+        }
+    }
+
+    /**
+     * Verifies the signature of a request as the server would, from the headers it received.
+     */
+    private static void assertSignatureValid(CandyS3 candyS3, LocalS3Server.ReceivedRequest request) throws Exception {
+        String authorization = request.header("Authorization");
+        Matcher matcher = Pattern
+                .compile("AWS4-HMAC-SHA256 Credential=([^/]+)/([^,]+), SignedHeaders=([^,]+), Signature=([0-9a-f]+)")
+                .matcher(authorization);
+        Assert.assertTrue(authorization, matcher.matches());
+        Assert.assertEquals(candyS3.getAccessKey(), matcher.group(1));
+        String scope = matcher.group(2);
+        String signedHeaders = matcher.group(3);
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (String name : signedHeaders.split(";")) {
+            canonicalHeaders.append(name).append(':').append(request.header(name).trim()).append('\n');
+        }
+        String canonicalRequest = request.getMethod() + "\n"
+                + "/" + request.getBucket() + "/" + request.getKey() + "\n"
+                + "\n"
+                + canonicalHeaders + "\n"
+                + signedHeaders + "\n"
+                + request.header("x-amz-content-sha256");
+        String stringToSign = "AWS4-HMAC-SHA256\n" + request.header("x-amz-date") + "\n" + scope + "\n"
+                + BinaryUtils.toHex(MessageDigest.getInstance("SHA-256")
+                .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+
+        byte[] key = ("AWS4" + candyS3.getSecretKey()).getBytes(StandardCharsets.UTF_8);
+        // the date, region, service and terminator of the scope
+        for (String part : scope.split("/")) {
+            key = hmacSha256(key, part);
+        }
+        Assert.assertEquals(BinaryUtils.toHex(hmacSha256(key, stringToSign)), matcher.group(4));
+    }
+
+    private static byte[] hmacSha256(byte[] key, String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void localPurgeBucketFailureTest() throws IOException, NoSuchAlgorithmException {
+        LocalS3Server server = CandyS3Test.localS3Server;
+        String bucket = new CandyS3Test().genTestBucketName("localPurgeBucketFailureTest");
+        CandyS3 candyS3 = localClient(bucket);
+        candyS3.setRetryPolicy(RetryPolicy.NONE);
+        candyS3.putObject(bucket, "purge/object", putBytes(new byte[]{1}));
+        candyS3.createMultipartUpload(bucket, "upload/object", new CreateMultipartUploadOptions.CreateMultipartUploadOptionsBuilder().build());
+
+        LocalS3Server.Fault deleteFault = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("POST").bucket(bucket).error(500, "InternalError").times(1).build());
+        LocalS3Server.Fault abortFault = server.addFault(new LocalS3Server.FaultBuilder()
+                .method("DELETE").bucket(bucket).keyPrefix("upload/").error(403, "AccessDenied").times(1).build());
+        try {
+            // the failure of deleting the objects is thrown, with the failure of aborting the uploads attached
+            try {
+                candyS3.purgeBucket(bucket);
+                Assert.fail("Should not be here. The objects fail to delete.");
+            } catch (CandyS3Exception e) {
+                Assert.assertEquals("InternalError", e.getParsedError().getCode());
+                Assert.assertEquals(1, e.getSuppressed().length);
+                Assert.assertEquals("AccessDenied", ((CandyS3Exception) e.getSuppressed()[0]).getParsedError().getCode());
+            }
+        } finally {
+            server.removeFault(deleteFault);
+            server.removeFault(abortFault);
+            Assert.assertTrue(candyS3.purgeBucket(bucket).isSuccessful());
+        }
+    }
+
+    @Test
+    public void localPurgeVersionedBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeVersionedBucketTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectVersionsWithoutVersioningTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectVersionsWithoutVersioningTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListObjectVersionsCommonPrefixTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectVersionsCommonPrefixTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localGetVersioningObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().getVersioningObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localGetObjectVersionMetadataTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().getObjectVersionMetadataTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localObjectMetadataCacheTest() throws Exception {
+        new CandyS3Test().objectMetadataCacheTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localSharedTransportTest() throws Exception {
+        new CandyS3Test().sharedTransportTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localRetryPolicyTest() throws Exception {
+        new CandyS3Test().retryPolicyTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localRateLimiterTest() throws Exception {
+        new CandyS3Test().rateLimiterTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localMetricsListenerTest() throws Exception {
+        new CandyS3Test().metricsListenerTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localMetricsOfRuntimeExceptionTest() throws IOException {
+        String bucket = new CandyS3Test().genTestBucketName("localMetricsOfRuntimeExceptionTest");
+        CandyS3 candyS3 = localClient(bucket);
+        List<RequestMetrics> requests = Collections.synchronizedList(new ArrayList<>());
+        candyS3.setMetricsListener(requests::add);
+        // an inner interceptor fails the request with a RuntimeException
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new MetricsInterceptor(candyS3))
+                .addInterceptor(chain -> {
+                    throw new IllegalStateException("Injected by the test.");
+                })
+                .build();
+        try {
+            client.newCall(new Request.Builder().url(candyS3.buildUrl(bucket)).build()).execute();
+            Assert.fail("Should not be here. The interceptor fails the request.");
+        } catch (IllegalStateException ignored) {
+        } finally {
+            candyS3.setMetricsListener(null);
+            candyS3.deleteBucket(bucket);
+        }
+        Assert.assertEquals(1, requests.size());
+        Assert.assertFalse(requests.get(0).isSuccessful());
+        Assert.assertTrue(requests.get(0).getException() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void localDeleteVersioningObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteVersioningObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDeleteVersioningObjectsBatchTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteVersioningObjectsBatchTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDeleteObjectConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDeleteObjectsBatchConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBatchConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutDownloadEmptyObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putDownloadEmptyObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutObjectWithNonEnglishKeyTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putObjectWithNonEnglishKeyTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutObjectConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putObjectConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localMultipartUploadConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().multipartUploadConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutObjectPropertiesTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putObjectPropertiesTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localMultipartUploadPropertiesTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().multipartUploadPropertiesTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutDownloadSmallObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putDownloadSmallObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutDownloadLargeObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putDownloadLargeObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localMultipartUploadDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().multipartUploadDownloadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localParallelMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelMultipartUploadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localResumableMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableMultipartUploadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localParallelRangeDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelRangeDownloadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localResumableDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableDownloadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPartSizePolicyTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().partSizePolicyTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localStreamingUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().streamingUploadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localUnsignedPayloadUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().unsignedPayloadUploadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localFileRegionUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().fileRegionUploadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localAsyncClientTest() throws Exception {
+        new CandyS3Test().asyncClientTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localMultipartUploadToExistsObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().multipartUploadToExistsObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localAbortMultipartUploadToExistsObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().abortMultipartUploadToExistsObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localAbortMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().abortMultipartUploadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListMultipartUploadsTest() throws IOException {
+        new CandyS3Test().listMultipartUploadsTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListMultipartUploadsPaginationTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listMultipartUploadsPaginationTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutAndGetObjectSseTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putAndGetObjectSseTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyObjectAndDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyObjectAndDownloadTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyObjectConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyObjectCopySourceConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyObjectUnionConditionTestTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyObjectCopySourceUnionConditionTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyObjectWriteTargetConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyObjectWriteTargetConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyObjectVersionTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyObjectVersionTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyObjectPropertiesTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().copyObjectPropertiesTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutAndGetObjectStorageClassTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putAndGetObjectStorageClassTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutAndGetObjectTagTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().putAndGetObjectTagTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyPartTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyPartTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localParallelCopyObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelCopyObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDirectorySyncTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().directorySyncTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCompositeETagTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().compositeETagTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyPartConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyPartConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyPartWithUnionConditionTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyPartWithUnionConditionTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localCopyPartVersionTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().copyPartVersionTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListPartsTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listPartsTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localListPartsPaginationTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listPartsPaginationTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().downloadObjectTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectRangeTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().downloadObjectRangeTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectOverwriteTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().downloadObjectOverwriteTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectConditionalTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().downloadObjectConditionalTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectUnionConditionTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().downloadObjectUnionConditionTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectPartTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().downloadObjectPartTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectMetadataTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().downloadObjectMetadataTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectStorageClassTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().downloadObjectStorageClassTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDownloadObjectTagTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().downloadObjectTagTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localGetPresignUrlTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().getWithPresignUrlTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localPutWithPresignUrlTest() throws IOException, NoSuchAlgorithmException, InterruptedException {
+        new CandyS3Test().putWithPresignUrlTest(S3Provider.CUSTOM);
+    }
+
+    @Test
+    public void localDeleteObjectsBatchTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBatchTest(S3Provider.CUSTOM);
+    }
+
+}
@@ -0,0 +1,48 @@
+package io.github.matian2014.candys3;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the part sizes of {@link PartSizePolicy}, they don't need a server.
+ */
+public class PartSizePolicyTest {
+
+    @Test
+    public void partSizeForLengthTest() {
+        PartSizePolicy policy = new PartSizePolicy();
+        // keep 5MB parts until the content exceeds 10000 parts
+        Assert.assertEquals(PartSizePolicy.MIN_PART_SIZE, policy.partSizeForLength(1));
+        Assert.assertEquals(PartSizePolicy.MIN_PART_SIZE, policy.partSizeForLength(10000 * PartSizePolicy.MIN_PART_SIZE));
+        Assert.assertEquals(6 * 1024 * 1024, policy.partSizeForLength(10000 * PartSizePolicy.MIN_PART_SIZE + 1));
+        Assert.assertEquals(525 * 1024 * 1024, policy.partSizeForLength(5L * 1024 * 1024 * 1024 * 1024));
+        try {
+            policy.partSizeForLength(10000 * PartSizePolicy.MAX_PART_SIZE + 1);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        Assert.assertEquals(100 * 1024 * 1024, new PartSizePolicy().targetPartCount(100)
+                .partSizeForLength(10000L * 1024 * 1024));
+    }
+
+    @Test
+    public void partSizeForUnknownLengthTest() {
+        PartSizePolicy policy = new PartSizePolicy();
+        Assert.assertEquals(PartSizePolicy.MIN_PART_SIZE, policy.partSizeForUnknownLength(1000));
+        Assert.assertEquals(2 * PartSizePolicy.MIN_PART_SIZE, policy.partSizeForUnknownLength(1001));
+        Assert.assertEquals(512 * PartSizePolicy.MIN_PART_SIZE, policy.partSizeForUnknownLength(10000));
+    }
+
+    @Test
+    public void uploadBufferMemoryLimitTest() {
+        CandyS3 candyS3 = new CandyS3(S3Provider.CUSTOM);
+        Assert.assertEquals(512L * 1024 * 1024, candyS3.getUploadBufferMemoryLimit());
+        try {
+            candyS3.setUploadBufferMemoryLimit(PartSizePolicy.MIN_PART_SIZE - 1);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        candyS3.setUploadBufferMemoryLimit(PartSizePolicy.MIN_PART_SIZE);
+        Assert.assertEquals(PartSizePolicy.MIN_PART_SIZE, candyS3.getUploadBufferMemoryLimit());
+    }
+}
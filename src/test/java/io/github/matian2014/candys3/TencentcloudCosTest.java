@@ -112,6 +112,31 @@ public class TencentcloudCosTest {
         new CandyS3Test().listObjectsCommonPrefixTest(S3Provider.TENCENTCLOUD_COS);
     }
 
+    @Test
+    public void tencentcloudCosListIterableTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listIterableTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosListObjectsInParallelTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().listObjectsInParallelTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosDeleteObjectsBulkTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().deleteObjectsBulkTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosPurgeBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeBucketTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosPurgeVersionedBucketTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().purgeVersionedBucketTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
     @Test
     public void tencentcloudCosListObjectVersionsWithoutVersioningTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().listObjectVersionsWithoutVersioningTest(S3Provider.TENCENTCLOUD_COS);
@@ -132,6 +157,31 @@ public class TencentcloudCosTest {
         new CandyS3Test().getObjectVersionMetadataTest(S3Provider.TENCENTCLOUD_COS);
     }
 
+    @Test
+    public void tencentcloudCosObjectMetadataCacheTest() throws Exception {
+        new CandyS3Test().objectMetadataCacheTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosSharedTransportTest() throws Exception {
+        new CandyS3Test().sharedTransportTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosRetryPolicyTest() throws Exception {
+        new CandyS3Test().retryPolicyTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosRateLimiterTest() throws Exception {
+        new CandyS3Test().rateLimiterTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosMetricsListenerTest() throws Exception {
+        new CandyS3Test().metricsListenerTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
     @Test
     public void tencentcloudCosDeleteVersioningObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().deleteVersioningObjectTest(S3Provider.TENCENTCLOUD_COS);
@@ -197,6 +247,51 @@ public class TencentcloudCosTest {
         new CandyS3Test().multipartUploadDownloadTest(S3Provider.TENCENTCLOUD_COS);
     }
 
+    @Test
+    public void tencentcloudCosParallelMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelMultipartUploadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosResumableMultipartUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableMultipartUploadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosParallelRangeDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelRangeDownloadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosResumableDownloadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().resumableDownloadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosPartSizePolicyTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().partSizePolicyTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosStreamingUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().streamingUploadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosUnsignedPayloadUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().unsignedPayloadUploadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosFileRegionUploadTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().fileRegionUploadTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosAsyncClientTest() throws Exception {
+        new CandyS3Test().asyncClientTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
     @Test
     public void tencentcloudCosMultipartUploadToExistsObjectTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().multipartUploadToExistsObjectTest(S3Provider.TENCENTCLOUD_COS);
@@ -279,6 +374,21 @@ public class TencentcloudCosTest {
         new CandyS3Test().copyPartTest(S3Provider.TENCENTCLOUD_COS);
     }
 
+    @Test
+    public void tencentcloudCosParallelCopyObjectTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().parallelCopyObjectTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosDirectorySyncTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().directorySyncTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
+    @Test
+    public void tencentcloudCosCompositeETagTest() throws IOException, NoSuchAlgorithmException {
+        new CandyS3Test().compositeETagTest(S3Provider.TENCENTCLOUD_COS);
+    }
+
     @Test
     public void tencentcloudCosCopyPartConditionalTest() throws IOException, NoSuchAlgorithmException {
         new CandyS3Test().copyPartConditionalTest(S3Provider.TENCENTCLOUD_COS);